@@ -18,10 +18,13 @@
 package org.apache.hertzbeat.collector.collect.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
@@ -32,9 +35,11 @@ import org.apache.hertzbeat.collector.collect.common.cache.AbstractConnection;
 import org.apache.hertzbeat.collector.collect.common.cache.CacheIdentifier;
 import org.apache.hertzbeat.collector.collect.common.cache.GlobalConnectionCache;
 import org.apache.hertzbeat.collector.collect.common.cache.JdbcConnect;
+import org.apache.hertzbeat.collector.collect.common.cache.JdbcConnectionPool;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.JdbcProtocol;
@@ -55,11 +60,20 @@ public class JdbcCommonCollect extends AbstractCollect {
     private static final String QUERY_TYPE_MULTI_ROW = "multiRow";
     private static final String QUERY_TYPE_COLUMNS = "columns";
     private static final String RUN_SCRIPT = "runScript";
+    private static final int MAX_ROWS = 1000;
+    private static final int FETCH_SIZE = 200;
+    /**
+     * the sql state class of the connection exceptions
+     */
+    private static final String CONNECTION_ERROR_SQL_STATE = "08";
+    private static final String POSTGRESQL_URL_PREFIX = "jdbc:postgresql:";
     
     private static final String[] VULNERABLE_KEYWORDS = {"allowLoadLocalInfile", "allowLoadLocalInfileInPath", "useLocalInfile"};
 
     private final GlobalConnectionCache connectionCommonCache = GlobalConnectionCache.getInstance();
 
+    private final Object poolLock = new Object();
+
 
     @Override
     public void preCheck(Metrics metrics) throws IllegalArgumentException {
@@ -81,50 +95,80 @@ public class JdbcCommonCollect extends AbstractCollect {
         JdbcProtocol jdbcProtocol = metrics.getJdbc();
         String databaseUrl = constructDatabaseUrl(jdbcProtocol);
         int timeout = CollectUtil.getTimeout(jdbcProtocol.getTimeout());
-        Statement statement = null;
+        JdbcConnectionPool.PooledConnection connection = null;
         try {
-            statement = getConnection(jdbcProtocol.getUsername(),
-                    jdbcProtocol.getPassword(), databaseUrl, timeout);
-            switch (jdbcProtocol.getQueryType()) {
-                case QUERY_TYPE_ONE_ROW -> queryOneRow(statement, jdbcProtocol.getSql(), metrics.getAliasFields(), builder, startTime);
-                case QUERY_TYPE_MULTI_ROW -> queryMultiRow(statement, jdbcProtocol.getSql(), metrics.getAliasFields(), builder, startTime);
-                case QUERY_TYPE_COLUMNS -> queryOneRowByMatchTwoColumns(statement, jdbcProtocol.getSql(), metrics.getAliasFields(), builder, startTime);
-                case RUN_SCRIPT -> {
-                    Connection connection = statement.getConnection();
-                    FileSystemResource rc = new FileSystemResource(jdbcProtocol.getSql());
-                    ScriptUtils.executeSqlScript(connection, rc);
-                }
-                default -> {
-                    builder.setCode(CollectRep.Code.FAIL);
-                    builder.setMsg("Not support database query type: " + jdbcProtocol.getQueryType());
-                }
-            }
-        } catch (PSQLException psqlException) {
-            // for PostgreSQL 08001
-            if (CollectorConstants.POSTGRESQL_UN_REACHABLE_CODE.equals(psqlException.getSQLState())) {
-                // Peer connection failed, unreachable
-                builder.setCode(CollectRep.Code.UN_REACHABLE);
-            } else {
-                builder.setCode(CollectRep.Code.FAIL);
-            }
-            builder.setMsg("Error: " + psqlException.getMessage() + " Code: " + psqlException.getSQLState());
-        } catch (SQLException sqlException) {
-            log.warn("Jdbc sql error: {}, code: {}.", sqlException.getMessage(), sqlException.getErrorCode());
-            builder.setCode(CollectRep.Code.FAIL);
-            builder.setMsg("Query Error: " + sqlException.getMessage() + " Code: " + sqlException.getErrorCode());
+            connection = getConnectionPool(jdbcProtocol.getUsername(), jdbcProtocol.getPassword(), databaseUrl)
+                    .borrow(timeout);
+            query(connection, builder, metrics, timeout, startTime);
         } catch (Exception e) {
-            String errorMessage = CommonUtil.getMessageFromThrowable(e);
-            log.error("Jdbc error: {}.", errorMessage, e);
-            builder.setCode(CollectRep.Code.FAIL);
-            builder.setMsg("Query Error: " + errorMessage);
+            handleError(connection, jdbcProtocol.getSql(), builder, e);
         } finally {
-            if (statement != null) {
+            if (connection != null) {
+                // return the connection to the pool, its prepared statements are kept for the next collect
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public String batchKey(Metrics metrics) {
+        JdbcProtocol jdbcProtocol = metrics.getJdbc();
+        if (jdbcProtocol == null || RUN_SCRIPT.equals(jdbcProtocol.getQueryType())) {
+            return null;
+        }
+        return constructDatabaseUrl(jdbcProtocol) + "|" + jdbcProtocol.getUsername() + "|" + SingleFlight.digest(jdbcProtocol.getPassword());
+    }
+
+    /**
+     * Query the sql metrics of the same datasource one after another in one borrowed session,
+     * the queries are sent in one round trip when the driver supports the multi statement sql.
+     * A lost session is replaced by a new one for the left metrics.
+     */
+    @Override
+    public void collectBatch(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList) {
+        if (metricsList.size() == 1) {
+            collect(builders.get(0), metricsList.get(0));
+            return;
+        }
+        JdbcProtocol jdbcProtocol = metricsList.get(0).getJdbc();
+        String databaseUrl = constructDatabaseUrl(jdbcProtocol);
+        int timeout = CollectUtil.getTimeout(jdbcProtocol.getTimeout());
+        JdbcConnectionPool connectionPool = getConnectionPool(jdbcProtocol.getUsername(), jdbcProtocol.getPassword(), databaseUrl);
+        JdbcConnectionPool.PooledConnection connection = null;
+        int index = 0;
+        try {
+            connection = connectionPool.borrow(timeout);
+            boolean[] collected = isPipelineSupported(databaseUrl)
+                    ? queryPipelined(connection.getConnection(), builders, metricsList) : new boolean[metricsList.size()];
+            while (index < metricsList.size()) {
+                Metrics metrics = metricsList.get(index);
+                CollectRep.MetricsData.Builder builder = builders.get(index);
+                if (collected[index++]) {
+                    continue;
+                }
                 try {
-                    statement.close();
+                    query(connection, builder, metrics, CollectUtil.getTimeout(metrics.getJdbc().getTimeout()),
+                            System.currentTimeMillis());
                 } catch (Exception e) {
-                    log.error("Jdbc close statement error: {}", e.getMessage());
+                    handleError(connection, metrics.getJdbc().getSql(), builder, e);
+                    if (connection.isBroken() && index < metricsList.size()) {
+                        // the session is lost, go on with a new one
+                        connection.close();
+                        connection = null;
+                        connection = connectionPool.borrow(timeout);
+                    }
                 }
             }
+        } catch (Exception e) {
+            // no session is available, the left metrics fail with the same error
+            while (index < metricsList.size()) {
+                handleError(null, metricsList.get(index).getJdbc().getSql(), builders.get(index), e);
+                index++;
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
         }
     }
 
@@ -133,81 +177,229 @@ public class JdbcCommonCollect extends AbstractCollect {
         return DispatchConstants.PROTOCOL_JDBC;
     }
 
-
-    private Statement getConnection(String username, String password, String url, Integer timeout) throws Exception {
+    /**
+     * get the connection pool of the datasource, the pool is closed when it is evicted from the cache
+     */
+    private JdbcConnectionPool getConnectionPool(String username, String password, String url) {
         CacheIdentifier identifier = CacheIdentifier.builder()
                 .ip(url)
                 .username(username).password(password).build();
         Optional<AbstractConnection<?>> cacheOption = connectionCommonCache.getCache(identifier, true);
-        Statement statement = null;
         if (cacheOption.isPresent()) {
-            JdbcConnect jdbcConnect = (JdbcConnect) cacheOption.get();
-            try {
-                statement = jdbcConnect.getConnection().createStatement();
-                // set query timeout
-                int timeoutSecond = timeout / 1000;
-                timeoutSecond = timeoutSecond <= 0 ? 1 : timeoutSecond;
-                statement.setQueryTimeout(timeoutSecond);
-                // set query max row number
-                statement.setMaxRows(1000);
-            } catch (Exception e) {
-                log.info("The jdbc connect from cache, create statement error: {}", e.getMessage());
-                try {
-                    if (statement != null) {
-                        statement.close();
-                    }
-                    jdbcConnect.close();
-                } catch (Exception e2) {
-                    log.error(e2.getMessage());
+            return ((JdbcConnect) cacheOption.get()).getConnection();
+        }
+        synchronized (poolLock) {
+            cacheOption = connectionCommonCache.getCache(identifier, true);
+            if (cacheOption.isPresent()) {
+                return ((JdbcConnect) cacheOption.get()).getConnection();
+            }
+            JdbcConnectionPool connectionPool = new JdbcConnectionPool(url, username, password, JdbcConnectionPool.DEFAULT_MAX_SIZE);
+            connectionCommonCache.addCache(identifier, new JdbcConnect(connectionPool));
+            return connectionPool;
+        }
+    }
+
+    /**
+     * query the sql of the metrics on the connection and fill the response
+     */
+    private void query(JdbcConnectionPool.PooledConnection connection, CollectRep.MetricsData.Builder builder,
+                       Metrics metrics, int timeout, long startTime) throws Exception {
+        JdbcProtocol jdbcProtocol = metrics.getJdbc();
+        String sql = jdbcProtocol.getSql();
+        switch (jdbcProtocol.getQueryType()) {
+            case QUERY_TYPE_ONE_ROW, QUERY_TYPE_MULTI_ROW, QUERY_TYPE_COLUMNS -> {
+                int maxRows = QUERY_TYPE_ONE_ROW.equals(jdbcProtocol.getQueryType()) ? 1 : MAX_ROWS;
+                try (ResultSet resultSet = prepareStatement(connection, sql, timeout, maxRows).executeQuery()) {
+                    readResultSet(jdbcProtocol.getQueryType(), resultSet, metrics.getAliasFields(), builder, startTime);
+                }
+            }
+            case RUN_SCRIPT -> {
+                FileSystemResource rc = new FileSystemResource(sql);
+                ScriptUtils.executeSqlScript(connection.getConnection(), rc);
+            }
+            default -> {
+                builder.setCode(CollectRep.Code.FAIL);
+                builder.setMsg("Not support database query type: " + jdbcProtocol.getQueryType());
+            }
+        }
+    }
+
+    /**
+     * Run the queries of the metrics in one round trip, the postgresql driver sends the statements of
+     * a multi statement sql together and returns their results in order.
+     * Nothing is collected when it fails, then the queries are run one by one to locate the failed one.
+     *
+     * @return whether each metrics is collected
+     */
+    boolean[] queryPipelined(Connection connection,
+                             List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList) {
+        boolean[] collected = new boolean[metricsList.size()];
+        List<Integer> indexes = new ArrayList<>(metricsList.size());
+        StringBuilder sql = new StringBuilder();
+        int timeout = 0;
+        for (int index = 0; index < metricsList.size(); index++) {
+            JdbcProtocol jdbcProtocol = metricsList.get(index).getJdbc();
+            String query = jdbcProtocol.getSql() == null ? "" : jdbcProtocol.getSql().trim();
+            if (query.endsWith(";")) {
+                query = query.substring(0, query.length() - 1).trim();
+            }
+            // the sql with more statements can not be mapped back to its metrics
+            if (RUN_SCRIPT.equals(jdbcProtocol.getQueryType()) || query.isEmpty() || query.contains(";")) {
+                continue;
+            }
+            if (!sql.isEmpty()) {
+                sql.append(";\n");
+            }
+            sql.append(query);
+            indexes.add(index);
+            timeout = Math.max(timeout, CollectUtil.getTimeout(jdbcProtocol.getTimeout()));
+        }
+        if (indexes.size() < 2) {
+            return collected;
+        }
+        long startTime = System.currentTimeMillis();
+        List<CollectRep.MetricsData.Builder> results = new ArrayList<>(indexes.size());
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(Math.max(1, timeout / 1000));
+            statement.setMaxRows(MAX_ROWS);
+            boolean hasResultSet = statement.execute(sql.toString());
+            for (int index : indexes) {
+                while (!hasResultSet && statement.getUpdateCount() != -1) {
+                    hasResultSet = statement.getMoreResults();
+                }
+                if (!hasResultSet) {
+                    throw new SQLException("Missing the result of the sql: " + metricsList.get(index).getJdbc().getSql());
                 }
-                statement = null;
-                connectionCommonCache.removeCache(identifier);
+                Metrics metrics = metricsList.get(index);
+                CollectRep.MetricsData.Builder result = CollectRep.MetricsData.newBuilder();
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    readResultSet(metrics.getJdbc().getQueryType(), resultSet, metrics.getAliasFields(), result, startTime);
+                }
+                results.add(result);
+                hasResultSet = statement.getMoreResults();
             }
+        } catch (Exception e) {
+            log.debug("Jdbc pipelined query error, query the sql one by one: {}", e.getMessage());
+            return collected;
         }
-        if (statement != null) {
-            return statement;
+        for (int index = 0; index < indexes.size(); index++) {
+            CollectRep.MetricsData.Builder builder = builders.get(indexes.get(index));
+            results.get(index).getValuesList().forEach(builder::addValueRow);
+            collected[indexes.get(index)] = true;
         }
-        // renew connection when failed
-        Connection connection = DriverManager.getConnection(url, username, password);
-        connection.setReadOnly(true);
-        statement = connection.createStatement();
+        return collected;
+    }
+
+    /**
+     * whether the driver runs the statements of a multi statement sql in one round trip
+     */
+    private boolean isPipelineSupported(String databaseUrl) {
+        return databaseUrl.startsWith(POSTGRESQL_URL_PREFIX);
+    }
+
+    private void readResultSet(String queryType, ResultSet resultSet, List<String> columns,
+                               CollectRep.MetricsData.Builder builder, long startTime) throws Exception {
+        switch (queryType) {
+            case QUERY_TYPE_ONE_ROW -> queryOneRow(resultSet, columns, builder, startTime);
+            case QUERY_TYPE_MULTI_ROW -> queryMultiRow(resultSet, columns, builder, startTime);
+            case QUERY_TYPE_COLUMNS -> queryOneRowByMatchTwoColumns(resultSet, columns, builder, startTime);
+            default -> throw new SQLException("Not support database query type: " + queryType);
+        }
+    }
+
+    private void handleError(JdbcConnectionPool.PooledConnection connection, String sql,
+                             CollectRep.MetricsData.Builder builder, Exception exception) {
+        releaseOnError(connection, sql, exception);
+        if (exception instanceof PSQLException psqlException) {
+            // for PostgreSQL 08001
+            if (CollectorConstants.POSTGRESQL_UN_REACHABLE_CODE.equals(psqlException.getSQLState())) {
+                // Peer connection failed, unreachable
+                builder.setCode(CollectRep.Code.UN_REACHABLE);
+            } else {
+                builder.setCode(CollectRep.Code.FAIL);
+            }
+            builder.setMsg("Error: " + psqlException.getMessage() + " Code: " + psqlException.getSQLState());
+        } else if (exception instanceof SQLException sqlException) {
+            log.warn("Jdbc sql error: {}, code: {}.", sqlException.getMessage(), sqlException.getErrorCode());
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("Query Error: " + sqlException.getMessage() + " Code: " + sqlException.getErrorCode());
+        } else {
+            String errorMessage = CommonUtil.getMessageFromThrowable(exception);
+            log.error("Jdbc error: {}.", errorMessage, exception);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("Query Error: " + errorMessage);
+        }
+    }
+
+    /**
+     * get the cached prepared statement of the sql and set it for this query
+     */
+    private PreparedStatement prepareStatement(JdbcConnectionPool.PooledConnection connection, String sql,
+                                               int timeout, int maxRows) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        // set query timeout
         int timeoutSecond = timeout / 1000;
         timeoutSecond = timeoutSecond <= 0 ? 1 : timeoutSecond;
         statement.setQueryTimeout(timeoutSecond);
-        statement.setMaxRows(1000);
-        JdbcConnect jdbcConnect = new JdbcConnect(connection);
-        connectionCommonCache.addCache(identifier, jdbcConnect);
+        // set query max row number
+        statement.setMaxRows(maxRows);
+        try {
+            // fetch the rows in a few round trips, eg: the oracle driver fetches 10 rows a time by default
+            statement.setFetchSize(Math.min(maxRows, FETCH_SIZE));
+        } catch (SQLException e) {
+            log.debug("Jdbc set fetch size error: {}", e.getMessage());
+        }
         return statement;
     }
 
+    /**
+     * forget the statement of the failed sql, and close the connection instead of returning it when it is broken
+     */
+    private void releaseOnError(JdbcConnectionPool.PooledConnection connection, String sql, Exception exception) {
+        if (connection == null) {
+            return;
+        }
+        if (sql != null) {
+            connection.evictStatement(sql);
+        }
+        boolean broken = !(exception instanceof SQLException sqlException)
+                || sqlException instanceof SQLRecoverableException
+                || sqlException instanceof SQLNonTransientConnectionException
+                || sqlException.getSQLState() != null && sqlException.getSQLState().startsWith(CONNECTION_ERROR_SQL_STATE);
+        try {
+            broken = broken || connection.getConnection().isClosed();
+        } catch (SQLException e) {
+            broken = true;
+        }
+        if (broken) {
+            connection.markBroken();
+        }
+    }
+
     /**
      * query one row record, response metrics header and one value row
      * eg:
      * query metrics：one tow three four
      * query sql：select one, tow, three, four from book limit 1;
-     * @param statement statement
-     * @param sql sql
+     * @param resultSet result set of the sql
      * @param columns query metrics field list
      * @throws Exception when error happen
      */
-    private void queryOneRow(Statement statement, String sql, List<String> columns,
+    private void queryOneRow(ResultSet resultSet, List<String> columns,
                                            CollectRep.MetricsData.Builder builder, long startTime) throws Exception {
-        statement.setMaxRows(1);
-        try (ResultSet resultSet = statement.executeQuery(sql)) {
-            if (resultSet.next()) {
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String column : columns) {
-                    if (CollectorConstants.RESPONSE_TIME.equals(column)) {
-                        long time = System.currentTimeMillis() - startTime;
-                        valueRowBuilder.addColumn(String.valueOf(time));
-                    } else {
-                        String value = resultSet.getString(column);
-                        value = value == null ? CommonConstants.NULL_VALUE : value;
-                        valueRowBuilder.addColumn(value);
-                    }
+        if (resultSet.next()) {
+            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+            for (String column : columns) {
+                if (CollectorConstants.RESPONSE_TIME.equals(column)) {
+                    long time = System.currentTimeMillis() - startTime;
+                    valueRowBuilder.addColumn(String.valueOf(time));
+                } else {
+                    String value = resultSet.getString(column);
+                    value = value == null ? CommonConstants.NULL_VALUE : value;
+                    valueRowBuilder.addColumn(value);
                 }
-                builder.addValueRow(valueRowBuilder.build());
             }
+            builder.addValueRow(valueRowBuilder.build());
         }
     }
 
@@ -221,33 +413,30 @@ public class JdbcCommonCollect extends AbstractCollect {
      * two    -  value2
      * three  -  value3
      * four   -  value4
-     * @param statement statement
-     * @param sql sql
+     * @param resultSet result set of the sql
      * @param columns query metrics field list
      * @throws Exception when error happen
      */
-    private void queryOneRowByMatchTwoColumns(Statement statement, String sql, List<String> columns,
+    private void queryOneRowByMatchTwoColumns(ResultSet resultSet, List<String> columns,
                                               CollectRep.MetricsData.Builder builder, long startTime) throws Exception {
-        try (ResultSet resultSet = statement.executeQuery(sql)) {
-            HashMap<String, String> values = new HashMap<>(columns.size());
-            while (resultSet.next()) {
-                if (resultSet.getString(1) != null) {
-                    values.put(resultSet.getString(1).toLowerCase().trim(), resultSet.getString(2));
-                }
+        HashMap<String, String> values = new HashMap<>(columns.size());
+        while (resultSet.next()) {
+            if (resultSet.getString(1) != null) {
+                values.put(resultSet.getString(1).toLowerCase().trim(), resultSet.getString(2));
             }
-            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-            for (String column : columns) {
-                if (CollectorConstants.RESPONSE_TIME.equals(column)) {
-                    long time = System.currentTimeMillis() - startTime;
-                    valueRowBuilder.addColumn(String.valueOf(time));
-                } else {
-                    String value = values.get(column.toLowerCase());
-                    value = value == null ? CommonConstants.NULL_VALUE : value;
-                    valueRowBuilder.addColumn(value);
-                }
+        }
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String column : columns) {
+            if (CollectorConstants.RESPONSE_TIME.equals(column)) {
+                long time = System.currentTimeMillis() - startTime;
+                valueRowBuilder.addColumn(String.valueOf(time));
+            } else {
+                String value = values.get(column.toLowerCase());
+                value = value == null ? CommonConstants.NULL_VALUE : value;
+                valueRowBuilder.addColumn(value);
             }
-            builder.addValueRow(valueRowBuilder.build());
         }
+        builder.addValueRow(valueRowBuilder.build());
     }
 
     /**
@@ -256,28 +445,25 @@ public class JdbcCommonCollect extends AbstractCollect {
      * query metrics：one tow three four
      * query sql：select one, tow, three, four from book;
      * and return multi row record mapping with the metrics
-     * @param statement statement
-     * @param sql sql
+     * @param resultSet result set of the sql
      * @param columns query metrics field list
      * @throws Exception when error happen
      */
-    private void queryMultiRow(Statement statement, String sql, List<String> columns,
+    private void queryMultiRow(ResultSet resultSet, List<String> columns,
                                CollectRep.MetricsData.Builder builder, long startTime) throws Exception {
-        try (ResultSet resultSet = statement.executeQuery(sql)) {
-            while (resultSet.next()) {
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String column : columns) {
-                    if (CollectorConstants.RESPONSE_TIME.equals(column)) {
-                        long time = System.currentTimeMillis() - startTime;
-                        valueRowBuilder.addColumn(String.valueOf(time));
-                    } else {
-                        String value = resultSet.getString(column);
-                        value = value == null ? CommonConstants.NULL_VALUE : value;
-                        valueRowBuilder.addColumn(value);
-                    }
+        while (resultSet.next()) {
+            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+            for (String column : columns) {
+                if (CollectorConstants.RESPONSE_TIME.equals(column)) {
+                    long time = System.currentTimeMillis() - startTime;
+                    valueRowBuilder.addColumn(String.valueOf(time));
+                } else {
+                    String value = resultSet.getString(column);
+                    value = value == null ? CommonConstants.NULL_VALUE : value;
+                    valueRowBuilder.addColumn(value);
                 }
-                builder.addValueRow(valueRowBuilder.build());
             }
+            builder.addValueRow(valueRowBuilder.build());
         }
     }
 
@@ -17,13 +17,21 @@
 
 package org.apache.hertzbeat.collector.collect.ftp;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.NumericReplyExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
+import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.FtpProtocol;
@@ -64,24 +72,80 @@ public class FtpCollectImpl extends AbstractCollect {
         // Set timeout
         ftpClient.setControlKeepAliveReplyTimeout(Integer.parseInt(ftpProtocol.getTimeout()));
 
-        // Collect data to load in CollectRep.ValueRow.Builder's object
-        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
         Map<String, String> valueMap;
         try {
             valueMap = collectValue(ftpClient, ftpProtocol);
-            metrics.getAliasFields().forEach(it -> {
-                if (valueMap.containsKey(it)) {
-                    String fieldValue = valueMap.get(it);
-                    valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
-                } else {
-                    valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
-                }
-            });
         } catch (Exception e) {
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg(e.getMessage());
             return;
         }
+        addValueRow(builder, metrics, valueMap);
+    }
+
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        FtpProtocol ftpProtocol = metrics.getFtp();
+        int timeout = CollectUtil.getTimeout(ftpProtocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(ftpProtocol.getHost(), Integer.parseInt(ftpProtocol.getPort()));
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the server
+            SocketProbeEngine.getInstance().tcp(address, timeout, new FtpExchange(ftpProtocol), result -> {
+                try {
+                    handleProbeResult(builder, metrics, result);
+                } catch (Exception e) {
+                    builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                    builder.setMsg(e.getMessage());
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            log.info("[ftp connection] error: {}", CommonUtil.getMessageFromThrowable(e), e);
+            builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+            builder.setMsg("The host or port may be wrong.");
+            callback.run();
+        }
+    }
+
+    private void handleProbeResult(CollectRep.MetricsData.Builder builder, Metrics metrics,
+                                   SocketProbeResult<Boolean> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> {
+                Map<String, String> valueMap = new HashMap<>(8);
+                valueMap.put("isActive", Boolean.toString(result.value()));
+                valueMap.put("responseTime", Long.toString(result.responseTime()));
+                addValueRow(builder, metrics, valueMap);
+            }
+            case ERROR -> {
+                log.info("[FTPClient] error: {}", result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg(result.error());
+            }
+            default -> {
+                log.info("[ftp connection] error: {} {}", result.outcome(), result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("The host or port may be wrong.");
+            }
+        }
+    }
+
+    private void addValueRow(CollectRep.MetricsData.Builder builder, Metrics metrics, Map<String, String> valueMap) {
+        // Collect data to load in CollectRep.ValueRow.Builder's object
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        metrics.getAliasFields().forEach(it -> {
+            if (valueMap.containsKey(it)) {
+                String fieldValue = valueMap.get(it);
+                valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
+            } else {
+                valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
+            }
+        });
         builder.addValueRow(valueRowBuilder.build());
     }
 
@@ -151,4 +215,72 @@ public class FtpCollectImpl extends AbstractCollect {
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_FTP;
     }
+
+    /**
+     * login, change to the direction and quit, the result is whether the direction is changed
+     */
+    private static final class FtpExchange extends NumericReplyExchange<Boolean> {
+
+        private static final int BANNER = 0;
+
+        private static final int USER = 1;
+
+        private static final int PASS = 2;
+
+        private static final int CWD = 3;
+
+        private final FtpProtocol ftpProtocol;
+
+        private final boolean anonymous;
+
+        private int state = BANNER;
+
+        private Boolean isActive;
+
+        private FtpExchange(FtpProtocol ftpProtocol) {
+            super(StandardCharsets.ISO_8859_1);
+            this.ftpProtocol = ftpProtocol;
+            this.anonymous = !StringUtils.hasText(ftpProtocol.getUsername()) || !StringUtils.hasText(ftpProtocol.getPassword());
+        }
+
+        @Override
+        protected byte[] onReply(int replyCode, String replyString) throws IOException {
+            // the preliminary replies are followed by the final one, eg: 120 service ready in nnn minutes
+            if (FTPReply.isPositivePreliminary(replyCode)) {
+                return null;
+            }
+            switch (state) {
+                case BANNER -> {
+                    state = USER;
+                    return command("USER " + (anonymous ? ANONYMOUS : ftpProtocol.getUsername()));
+                }
+                case USER, PASS -> {
+                    if (FTPReply.isPositiveCompletion(replyCode)) {
+                        state = CWD;
+                        return command("CWD " + ftpProtocol.getDirection());
+                    }
+                    if (state == USER && FTPReply.isPositiveIntermediate(replyCode)) {
+                        state = PASS;
+                        return command("PASS " + (anonymous ? PASSWORD : ftpProtocol.getPassword()));
+                    }
+                    throw new IOException(anonymous
+                            ? "The server may not allow anonymous access, we need to username and password."
+                            : "The username or password may be wrong.");
+                }
+                default -> {
+                    isActive = FTPReply.isPositiveCompletion(replyCode);
+                    complete();
+                    return command("QUIT");
+                }
+            }
+        }
+
+        @Override
+        public Boolean onComplete() throws IOException {
+            if (isActive == null) {
+                throw new IOException("Connection closed without indication.");
+            }
+            return isActive;
+        }
+    }
 }
@@ -22,13 +22,16 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.jayway.jsonpath.DocumentContext;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +47,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.util.Base64;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
 import org.apache.hertzbeat.collector.collect.common.http.CommonHttpClient;
+import org.apache.hertzbeat.collector.collect.common.http.HttpRequestCoalescer;
 import org.apache.hertzbeat.collector.collect.http.promethus.AbstractPrometheusParse;
 import org.apache.hertzbeat.collector.collect.http.promethus.PrometheusParseCreator;
 import org.apache.hertzbeat.collector.collect.http.promethus.exporter.ExporterParser;
@@ -52,6 +56,7 @@ import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.collector.util.JsonPathParser;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.collector.util.TimeExpressionUtil;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.constants.NetworkConstants;
@@ -109,8 +114,58 @@ public class HttpCollectImpl extends AbstractCollect {
 
     @Override
     public void collect(CollectRep.MetricsData.Builder builder, Metrics metrics) {
-        long startTime = System.currentTimeMillis();
+        HttpProtocol httpProtocol = initHttpProtocol(metrics);
+        HttpContext httpContext = createHttpContext(httpProtocol);
+        HttpUriRequest request = createHttpRequest(httpProtocol);
+        try {
+            // the identical in-flight requests of other monitors or metrics share one response
+            HttpRequestCoalescer.Response response = HttpRequestCoalescer.execute(request, httpContext,
+                    httpProtocol.getPayload(), digestCredentials(httpProtocol));
+            handleResponse(builder, metrics, response);
+        } catch (Exception e) {
+            handleException(builder, e);
+        } finally {
+            if (request != null) {
+                request.abort();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        // the site map is parsed by requesting each site url one by one, it is collected in the worker thread
+        return metrics.getHttp() != null && !DispatchConstants.PARSE_SITE_MAP.equals(metrics.getHttp().getParseType());
+    }
 
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        HttpProtocol httpProtocol = initHttpProtocol(metrics);
+        HttpContext httpContext = createHttpContext(httpProtocol);
+        HttpUriRequest request = createHttpRequest(httpProtocol);
+        if (request == null) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("not support the http method: " + httpProtocol.getMethod());
+            callback.run();
+            return;
+        }
+        // the response is handled in the callback executor of the async client, not in the worker thread
+        HttpRequestCoalescer.executeAsync(request, httpContext, httpProtocol.getPayload(), digestCredentials(httpProtocol))
+                .whenComplete((response, error) -> {
+                    try {
+                        if (error != null) {
+                            handleException(builder, SingleFlight.unwrap(error));
+                        } else {
+                            handleResponse(builder, metrics, response);
+                        }
+                    } catch (Exception e) {
+                        handleException(builder, e);
+                    } finally {
+                        callback.run();
+                    }
+                });
+    }
+
+    private HttpProtocol initHttpProtocol(Metrics metrics) {
         HttpProtocol httpProtocol = metrics.getHttp();
         String url = httpProtocol.getUrl();
         if (!StringUtils.hasText(url) || !url.startsWith(RIGHT_DASH)) {
@@ -119,85 +174,85 @@ public class HttpCollectImpl extends AbstractCollect {
         if (CollectionUtils.isEmpty(httpProtocol.getSuccessCodes())) {
             httpProtocol.setSuccessCodes(List.of(HttpStatus.SC_OK + ""));
         }
+        return httpProtocol;
+    }
 
-        HttpContext httpContext = createHttpContext(metrics.getHttp());
-        HttpUriRequest request = createHttpRequest(metrics.getHttp());
-        try (CloseableHttpResponse response = CommonHttpClient.getHttpClient().execute(request, httpContext)) {
-            int statusCode = response.getStatusLine().getStatusCode();
-            boolean isSuccessInvoke = checkSuccessInvoke(metrics, statusCode);
-            log.debug("http response status: {}", statusCode);
-            if (!isSuccessInvoke) {
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg(NetworkConstants.STATUS_CODE + SignConstants.BLANK + statusCode);
-                return;
-            }
-            // todo This code converts an InputStream directly to a String. For large data in Prometheus exporters,
-            // this could create large objects, potentially impacting JVM memory space significantly.
-            // Option 1: Parse using InputStream, but this requires significant code changes;
-            // Option 2: Manually trigger garbage collection, similar to how it's done in Dubbo for large inputs.
-            String resp = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            if (!StringUtils.hasText(resp)) {
-                log.info("http response entity is empty, status: {}.", statusCode);
-            }
-            Long responseTime = System.currentTimeMillis() - startTime;
-            String parseType = metrics.getHttp().getParseType();
-            try {
-                switch (parseType) {
-                    case DispatchConstants.PARSE_JSON_PATH ->
-                            parseResponseByJsonPath(resp, metrics.getAliasFields(), metrics.getHttp(), builder, responseTime);
-                    case DispatchConstants.PARSE_PROM_QL ->
-                            parseResponseByPromQl(resp, metrics.getAliasFields(), metrics.getHttp(), builder);
-                    case DispatchConstants.PARSE_PROMETHEUS ->
-                            parseResponseByPrometheusExporter(resp, metrics.getAliasFields(), builder);
-                    case DispatchConstants.PARSE_XML_PATH ->
-                            parseResponseByXmlPath(resp, metrics.getAliasFields(), metrics.getHttp(), builder);
-                    case DispatchConstants.PARSE_WEBSITE ->
-                            parseResponseByWebsite(resp, metrics, metrics.getHttp(), builder, responseTime, response);
-                    case DispatchConstants.PARSE_SITE_MAP ->
-                            parseResponseBySiteMap(resp, metrics.getAliasFields(), builder);
-                    case DispatchConstants.PARSE_HEADER ->
-                            parseResponseByHeader(builder, metrics.getAliasFields(), response);
-                    default ->
-                            parseResponseByDefault(resp, metrics.getAliasFields(), metrics.getHttp(), builder, responseTime);
-                }
-            } catch (Exception e) {
-                log.info("parse error: {}.", e.getMessage(), e);
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg("parse response data error:" + e.getMessage());
+    private void handleResponse(CollectRep.MetricsData.Builder builder, Metrics metrics,
+                                HttpRequestCoalescer.Response response) {
+        int statusCode = response.getStatusCode();
+        boolean isSuccessInvoke = checkSuccessInvoke(metrics, statusCode);
+        log.debug("http response status: {}", statusCode);
+        if (!isSuccessInvoke) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(NetworkConstants.STATUS_CODE + SignConstants.BLANK + statusCode);
+            return;
+        }
+        // todo This code converts an InputStream directly to a String. For large data in Prometheus exporters,
+        // this could create large objects, potentially impacting JVM memory space significantly.
+        // Option 1: Parse using InputStream, but this requires significant code changes;
+        // Option 2: Manually trigger garbage collection, similar to how it's done in Dubbo for large inputs.
+        String resp = response.getBody();
+        if (!StringUtils.hasText(resp)) {
+            log.info("http response entity is empty, status: {}.", statusCode);
+        }
+        Long responseTime = response.getResponseTime();
+        String parseType = metrics.getHttp().getParseType();
+        try {
+            switch (parseType) {
+                case DispatchConstants.PARSE_JSON_PATH ->
+                        parseResponseByJsonPath(resp, metrics.getAliasFields(), metrics.getHttp(), builder, responseTime);
+                case DispatchConstants.PARSE_PROM_QL ->
+                        parseResponseByPromQl(resp, metrics.getAliasFields(), metrics.getHttp(), builder);
+                case DispatchConstants.PARSE_PROMETHEUS ->
+                        parseResponseByPrometheusExporter(resp, metrics.getAliasFields(), builder);
+                case DispatchConstants.PARSE_XML_PATH ->
+                        parseResponseByXmlPath(resp, metrics.getAliasFields(), metrics.getHttp(), builder);
+                case DispatchConstants.PARSE_WEBSITE ->
+                        parseResponseByWebsite(resp, metrics, metrics.getHttp(), builder, responseTime);
+                case DispatchConstants.PARSE_SITE_MAP ->
+                        parseResponseBySiteMap(resp, metrics.getAliasFields(), builder);
+                case DispatchConstants.PARSE_HEADER ->
+                        parseResponseByHeader(builder, metrics.getAliasFields(), response);
+                default ->
+                        parseResponseByDefault(resp, metrics.getAliasFields(), metrics.getHttp(), builder, responseTime);
             }
-        } catch (ClientProtocolException e1) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e1);
+        } catch (Exception e) {
+            log.info("parse error: {}.", e.getMessage(), e);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("parse response data error:" + e.getMessage());
+        }
+    }
+
+    private void handleException(CollectRep.MetricsData.Builder builder, Throwable e) {
+        if (e instanceof UncheckedIOException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        String errorMsg = CommonUtil.getMessageFromThrowable(e);
+        if (e instanceof ClientProtocolException) {
             log.error(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg(errorMsg);
-        } catch (UnknownHostException e2) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e2);
+        } else if (e instanceof UnknownHostException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_REACHABLE);
             builder.setMsg("unknown host:" + errorMsg);
-        } catch (InterruptedIOException | ConnectException | SSLException e3) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e3);
+        } else if (e instanceof InterruptedIOException || e instanceof ConnectException || e instanceof SSLException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg(errorMsg);
-        } catch (IOException e4) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e4);
+        } else if (e instanceof IOException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
-        } catch (Exception e) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+        } else {
             log.error(errorMsg, e);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
-        } finally {
-            if (request != null) {
-                request.abort();
-            }
         }
     }
 
-    private void parseResponseByHeader(CollectRep.MetricsData.Builder builder, List<String> aliases, CloseableHttpResponse response) {
+    private void parseResponseByHeader(CollectRep.MetricsData.Builder builder, List<String> aliases,
+                                       HttpRequestCoalescer.Response response) {
         CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
         for (String alias : aliases) {
             if (!StringUtils.hasText(alias)) {
@@ -221,8 +276,7 @@ public class HttpCollectImpl extends AbstractCollect {
     }
 
     private void parseResponseByWebsite(String resp, Metrics metrics, HttpProtocol http,
-                                        CollectRep.MetricsData.Builder builder, Long responseTime,
-                                        CloseableHttpResponse response) {
+                                        CollectRep.MetricsData.Builder builder, Long responseTime) {
         CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
         int keywordNum = CollectUtil.countMatchKeyword(resp, http.getKeyword());
         for (String alias : metrics.getAliasFields()) {
@@ -330,7 +384,11 @@ public class HttpCollectImpl extends AbstractCollect {
 
     private void parseResponseByJsonPath(String resp, List<String> aliasFields, HttpProtocol http,
                                          CollectRep.MetricsData.Builder builder, Long responseTime) {
-        List<Object> results = JsonPathParser.parseContentWithJsonPath(resp, http.getParseScript());
+        // the response is parsed once, the parse script and the alias json paths are all read from the document
+        DocumentContext document = JsonPathParser.parseDocument(resp);
+        List<Object> results = JsonPathParser.readWithJsonPath(document, http.getParseScript());
+        // alias json path - its results of all the rows, read once for the rows
+        Map<String, List<Object>> aliasResults = new HashMap<>(aliasFields.size());
         int keywordNum = CollectUtil.countMatchKeyword(resp, http.getKeyword());
         for (int i = 0; i < results.size(); i++) {
             Object objectValue = results.get(i);
@@ -347,7 +405,8 @@ public class HttpCollectImpl extends AbstractCollect {
                         valueRowBuilder.addColumn(String.valueOf(value));
                     } else {
                         if (alias.startsWith("$.")) {
-                            List<Object> subResults = JsonPathParser.parseContentWithJsonPath(resp, http.getParseScript() + alias.substring(1));
+                            List<Object> subResults = aliasResults.computeIfAbsent(alias,
+                                    key -> JsonPathParser.readWithJsonPath(document, http.getParseScript() + key.substring(1)));
                             if (subResults != null && subResults.size() > i) {
                                 Object resultValue = subResults.get(i);
                                 valueRowBuilder.addColumn(resultValue == null ? CommonConstants.NULL_VALUE : String.valueOf(resultValue));
@@ -587,6 +646,17 @@ public class HttpCollectImpl extends AbstractCollect {
         return requestBuilder.build();
     }
 
+    /**
+     * @return the digest auth credentials set in the http context, they make a different request
+     */
+    private String digestCredentials(HttpProtocol httpProtocol) {
+        HttpProtocol.Authorization auth = httpProtocol.getAuthorization();
+        if (auth == null || !DispatchConstants.DIGEST_AUTH.equals(auth.getType())) {
+            return null;
+        }
+        return auth.getDigestAuthUsername() + SignConstants.DOUBLE_MARK + auth.getDigestAuthPassword();
+    }
+
     private boolean checkSuccessInvoke(Metrics metrics, int statusCode) {
         List<String> successCodes = metrics.getHttp().getSuccessCodes();
         Set<Integer> successCodeSet = successCodes != null ? successCodes.stream().map(code -> {
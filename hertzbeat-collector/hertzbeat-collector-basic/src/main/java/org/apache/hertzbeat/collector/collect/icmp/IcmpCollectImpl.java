@@ -17,7 +17,8 @@
 
 package org.apache.hertzbeat.collector.collect.icmp;
 
-import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +37,10 @@ import org.apache.hertzbeat.common.util.CommonUtil;
 @Slf4j
 public class IcmpCollectImpl extends AbstractCollect {
 
+    private static final String PACKET_LOSS = "packetLoss";
+
+    private static final String JITTER = "jitter";
+
     @Override
     public void preCheck(Metrics metrics) throws IllegalArgumentException {
         if (metrics == null || metrics.getIcmp() == null) {
@@ -45,51 +50,98 @@ public class IcmpCollectImpl extends AbstractCollect {
 
     @Override
     public void collect(CollectRep.MetricsData.Builder builder, Metrics metrics) {
-        long startTime = System.currentTimeMillis();
-
         IcmpProtocol icmp = metrics.getIcmp();
-        // The default timeout is 6000 milliseconds
-        int timeout = 6000;
+        int timeout = parseTimeout(icmp);
         try {
-            timeout = Integer.parseInt(icmp.getTimeout());
+            // requires the JVM with the CAP_NET_RAW capability (eg: root) to use ICMP, otherwise it checks the peer's tcp port 7
+            InetAddress address = InetAddress.getByName(icmp.getHost());
+            handleProbeResult(builder, metrics, timeout, IcmpProbeEngine.getInstance().probeBlocking(icmp.getHost(), address, timeout));
+        } catch (UnknownHostException unknownHostException) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(unknownHostException);
+            builder.setCode(CollectRep.Code.UN_REACHABLE);
+            builder.setMsg("UnknownHost " + errorMsg);
         } catch (Exception e) {
-            log.warn(e.getMessage());
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.error(errorMsg, e);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
         }
+
+    }
+
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        IcmpProtocol icmp = metrics.getIcmp();
+        int timeout = parseTimeout(icmp);
         try {
-            // todo requires Java JVM with root permissions to use ICMP, otherwise check if telnet is available on peer server's port 7
-            // todo requires configuring Java JVM with root permissions to use ICMP, otherwise check if telnet is available on the peer's port 7
-            // todo https://stackoverflow.com/questions/11506321/how-to-ping-an-ip-address
-            boolean status = InetAddress.getByName(icmp.getHost()).isReachable(timeout);
-            long responseTime = System.currentTimeMillis() - startTime;
-            if (!status) {
-                builder.setCode(CollectRep.Code.UN_REACHABLE);
-                builder.setMsg("Un Reachable, Timeout " + timeout + "ms");
-                return;
-            }
-            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-            for (String alias : metrics.getAliasFields()) {
-                if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
-                    valueRowBuilder.addColumn(Long.toString(responseTime));
-                } else {
-                    valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
+            InetAddress address = InetAddress.getByName(icmp.getHost());
+            // the probe engine is shared by all the ping monitors, the worker thread only waits for the ICMP echo probe
+            IcmpProbeEngine.getInstance().probe(icmp.getHost(), address, timeout, result -> {
+                try {
+                    handleProbeResult(builder, metrics, timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.error(errorMsg, e);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
                 }
-            }
-            builder.addValueRow(valueRowBuilder.build());
+            });
         } catch (UnknownHostException unknownHostException) {
             String errorMsg = CommonUtil.getMessageFromThrowable(unknownHostException);
             builder.setCode(CollectRep.Code.UN_REACHABLE);
             builder.setMsg("UnknownHost " + errorMsg);
-        } catch (IOException ioException) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(ioException);
-            builder.setCode(CollectRep.Code.UN_REACHABLE);
-            builder.setMsg("IOException " + errorMsg);
+            callback.run();
         } catch (Exception e) {
             String errorMsg = CommonUtil.getMessageFromThrowable(e);
             log.error(errorMsg, e);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
+    private void handleProbeResult(CollectRep.MetricsData.Builder builder, Metrics metrics, int timeout,
+                                   IcmpProbeResult result) {
+        if (!result.reachable()) {
+            builder.setCode(CollectRep.Code.UN_REACHABLE);
+            builder.setMsg(result.error() == null ? "Un Reachable, Timeout " + timeout + "ms" : "IOException " + result.error());
+        }
+        // the lost probe still reports the packet loss and the jitter of the recent probes
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String alias : metrics.getAliasFields()) {
+            if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
+                valueRowBuilder.addColumn(result.reachable() ? Long.toString(result.responseTime()) : CommonConstants.NULL_VALUE);
+            } else if (PACKET_LOSS.equalsIgnoreCase(alias)) {
+                valueRowBuilder.addColumn(formatDecimal(result.packetLoss()));
+            } else if (JITTER.equalsIgnoreCase(alias)) {
+                valueRowBuilder.addColumn(formatDecimal(result.jitter()));
+            } else {
+                valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
+            }
         }
+        builder.addValueRow(valueRowBuilder.build());
+    }
+
+    private int parseTimeout(IcmpProtocol icmp) {
+        // The default timeout is 6000 milliseconds
+        int timeout = 6000;
+        try {
+            timeout = Integer.parseInt(icmp.getTimeout());
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+        return timeout;
+    }
 
+    private static String formatDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
     }
 
     @Override
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.icmp;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
+import org.apache.hertzbeat.common.util.CommonUtil;
+
+/**
+ * Probe engine shared by all the ping monitors.
+ * The JVM uses the ICMP echo when it has the CAP_NET_RAW capability (eg: root), otherwise it checks the tcp echo port 7,
+ * a refused connection means the host is up. The engine detects it once at start:
+ * with the capability the blocking ICMP probe runs in the caller thread, so the probes are bounded by the collect workers,
+ * without it the tcp echo probes are connect-only probes of the shared {@link SocketProbeEngine},
+ * so thousands of targets are probed without a thread waiting for each of them.
+ * The round trip time, the packet loss and the jitter are kept per target.
+ */
+@Slf4j
+final class IcmpProbeEngine {
+
+    private static final int ECHO_PORT = 7;
+
+    private static final int CAP_NET_RAW = 13;
+
+    /**
+     * the probes number to compute the packet loss and the jitter
+     */
+    private static final int STATISTICS_WINDOW = 16;
+
+    private static final int MAX_TARGETS = 100_000;
+
+    private static final long STATISTICS_EXPIRE_MINUTES = 30;
+
+    /**
+     * target - statistics of its recent probes
+     */
+    private final Cache<String, IcmpStatistics> statistics = Caffeine.newBuilder()
+            .maximumSize(MAX_TARGETS)
+            .expireAfterAccess(STATISTICS_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    private final boolean icmpEcho;
+
+    private final int echoPort;
+
+    /**
+     * @param icmpEcho true - probe by the ICMP echo, false - probe the tcp echo port by the socket probe engine
+     * @param echoPort the port of the tcp echo probes
+     */
+    IcmpProbeEngine(boolean icmpEcho, int echoPort) {
+        this.icmpEcho = icmpEcho;
+        this.echoPort = echoPort;
+    }
+
+    static IcmpProbeEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return true - probe by the ICMP echo, false - probe by the tcp echo port
+     */
+    boolean isIcmpEcho() {
+        return icmpEcho;
+    }
+
+    /**
+     * Probe the target, the callback is called once. The tcp echo probe does not block the caller,
+     * the callback is called in a thread of the socket probe engine.
+     * The ICMP echo probe blocks the caller until it is answered or timeout.
+     *
+     * @param target   target name, the statistics are kept by it
+     * @param address  target address
+     * @param timeout  probe timeout in milliseconds
+     * @param callback receive the probe result
+     */
+    void probe(String target, InetAddress address, int timeout, Consumer<IcmpProbeResult> callback) {
+        if (icmpEcho) {
+            callback.accept(probeBlocking(target, address, timeout));
+            return;
+        }
+        IcmpStatistics targetStatistics = statistics.get(target, key -> new IcmpStatistics(STATISTICS_WINDOW));
+        SocketProbeEngine.getInstance().tcp(new InetSocketAddress(address, echoPort), timeout, new ConnectExchange(),
+                result -> callback.accept(record(targetStatistics, result)));
+    }
+
+    /**
+     * Probe the target by the JVM in the caller thread, it blocks until the target answers or timeout
+     *
+     * @param target  target name, the statistics are kept by it
+     * @param address target address
+     * @param timeout probe timeout in milliseconds
+     * @return probe result with the statistics of the target
+     */
+    IcmpProbeResult probeBlocking(String target, InetAddress address, int timeout) {
+        IcmpStatistics targetStatistics = statistics.get(target, key -> new IcmpStatistics(STATISTICS_WINDOW));
+        boolean reachable;
+        String error = null;
+        long start = System.nanoTime();
+        try {
+            reachable = address.isReachable(timeout);
+        } catch (IOException e) {
+            reachable = false;
+            error = CommonUtil.getMessageFromThrowable(e);
+        }
+        return targetStatistics.record(reachable, System.nanoTime() - start, error);
+    }
+
+    /**
+     * A connected or refused tcp echo port is answered by the target host, as the JVM treats it
+     */
+    private static IcmpProbeResult record(IcmpStatistics targetStatistics, SocketProbeResult<Void> result) {
+        try {
+            boolean reachable = result.outcome() == SocketProbeResult.Outcome.SUCCESS
+                    || result.outcome() == SocketProbeResult.Outcome.REFUSED;
+            long roundTrip = TimeUnit.MILLISECONDS.toNanos(result.responseTime());
+            return targetStatistics.record(reachable, roundTrip, reachable ? null : result.error());
+        } catch (Exception e) {
+            return new IcmpProbeResult(false, 0, 100, 0, CommonUtil.getMessageFromThrowable(e));
+        }
+    }
+
+    /**
+     * Whether the JVM can send the ICMP echo, it needs the CAP_NET_RAW capability on linux
+     */
+    private static boolean detectIcmpEcho() {
+        Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            // not linux, the JVM decides by its own
+            return true;
+        }
+        try {
+            List<String> lines = Files.readAllLines(status);
+            for (String line : lines) {
+                if (line.startsWith("CapEff:")) {
+                    long capabilities = Long.parseUnsignedLong(line.substring("CapEff:".length()).trim(), 16);
+                    return (capabilities & (1L << CAP_NET_RAW)) != 0;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("detect the icmp capability error: {}.", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * the tcp echo probe only connects, it completes once the connection is established
+     */
+    private static final class ConnectExchange implements SocketExchange<Void> {
+
+        @Override
+        public byte[] onConnected() {
+            return null;
+        }
+
+        @Override
+        public byte[] onReceive(ByteBuffer content) {
+            return null;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public Void onComplete() {
+            return null;
+        }
+    }
+
+    private static class Holder {
+        private static final IcmpProbeEngine INSTANCE = new IcmpProbeEngine(detectIcmpEcho(), ECHO_PORT);
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.icmp;
+
+/**
+ * result of a probe
+ *
+ * @param reachable    whether the target answers the probe
+ * @param responseTime round trip time of the probe in milliseconds
+ * @param packetLoss   lost probes percentage of the recent probes of the target
+ * @param jitter       mean round trip time difference of the recent consecutive answered probes in milliseconds
+ * @param error        the reason the target is unreachable, nullable
+ */
+record IcmpProbeResult(boolean reachable, long responseTime, double packetLoss, double jitter, String error) {
+}
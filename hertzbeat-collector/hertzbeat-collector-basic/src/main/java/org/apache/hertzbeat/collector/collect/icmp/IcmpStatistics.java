@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.icmp;
+
+/**
+ * Round trip statistics of the recent probes of a target, the packet loss and the jitter are computed
+ * over a sliding window of the last probes
+ */
+final class IcmpStatistics {
+
+    private static final int LOST = -1;
+
+    /**
+     * round trip time of the recent probes in microseconds, LOST when the probe is lost
+     */
+    private final long[] window;
+
+    private int count;
+
+    private int next;
+
+    IcmpStatistics(int windowSize) {
+        this.window = new long[windowSize];
+    }
+
+    /**
+     * Record a probe and snapshot the statistics
+     *
+     * @param reachable     whether the probe is answered
+     * @param roundTripNano round trip time in nanoseconds
+     * @param error         the reason the probe is lost, nullable
+     * @return probe result with the statistics
+     */
+    synchronized IcmpProbeResult record(boolean reachable, long roundTripNano, String error) {
+        window[next] = reachable ? Math.max(0, roundTripNano / 1000) : LOST;
+        next = (next + 1) % window.length;
+        count = Math.min(count + 1, window.length);
+        int lost = 0;
+        long previous = LOST;
+        double deviation = 0;
+        int deviations = 0;
+        // oldest to newest
+        for (int index = 0; index < count; index++) {
+            long roundTrip = window[(next - count + index + window.length) % window.length];
+            if (roundTrip == LOST) {
+                lost++;
+                continue;
+            }
+            if (previous != LOST) {
+                deviation += Math.abs(roundTrip - previous);
+                deviations++;
+            }
+            previous = roundTrip;
+        }
+        double packetLoss = lost * 100.0 / count;
+        double jitter = deviations == 0 ? 0 : deviation / deviations / 1000.0;
+        return new IcmpProbeResult(reachable, roundTripNano / 1_000_000, packetLoss, jitter, error);
+    }
+}
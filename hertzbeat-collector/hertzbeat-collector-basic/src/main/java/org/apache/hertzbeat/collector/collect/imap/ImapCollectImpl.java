@@ -18,6 +18,7 @@
 package org.apache.hertzbeat.collector.collect.imap;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +28,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.imap.IMAPClient;
 import org.apache.commons.net.imap.IMAPSClient;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.LineExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.common.constants.CommonConstants;
@@ -103,11 +107,62 @@ public class ImapCollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        // the ssl connections are kept on the blocking client
+        return !Boolean.parseBoolean(metrics.getImap().getSsl());
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        ImapProtocol imapProtocol = metrics.getImap();
+        int timeout = CollectUtil.getTimeout(imapProtocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(imapProtocol.getHost(), Integer.parseInt(imapProtocol.getPort()));
+            ImapExchange exchange = new ImapExchange(imapProtocol, statusCommand(imapProtocol.getFolderName()));
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the server
+            SocketProbeEngine.getInstance().tcp(address, timeout, exchange, result -> {
+                try {
+                    handleProbeResult(builder, metrics.getAliasFields(), imapProtocol.getFolderName(), timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.error(errorMsg);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.error(errorMsg);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
     @Override
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_IMAP;
     }
 
+    private void handleProbeResult(CollectRep.MetricsData.Builder builder, List<String> aliasFields, String folderName,
+                                   int timeout, SocketProbeResult<String> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> addValueRow(builder, result.value(), aliasFields, folderName, result.responseTime());
+            case TIMEOUT -> {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
+            }
+            default -> {
+                log.error(result.error());
+                builder.setCode(CollectRep.Code.FAIL);
+                builder.setMsg(result.error());
+            }
+        }
+    }
+
     private IMAPClient createImapClient(ImapProtocol imapProtocol, boolean ssl) throws Exception {
         IMAPClient imapClient = null;
         // determine whether to use SSL-encrypted connections
@@ -139,10 +194,19 @@ public class ImapCollectImpl extends AbstractCollect {
 
     private void collectImapMetrics(CollectRep.MetricsData.Builder builder, IMAPClient imapClient, List<String> aliasFields,
                                     String folderName, long responseTime) throws Exception {
+        imapClient.sendCommand(statusCommand(folderName));
+        addValueRow(builder, imapClient.getReplyString(), aliasFields, folderName, responseTime);
+    }
+
+    private static String statusCommand(String folderName) {
+        return STATUS + " \"" + CollectUtil.stringEncodeUtf7String(folderName, UTF_7_X) + "\" " + STATUS_COMMAND;
+    }
+
+    private void addValueRow(CollectRep.MetricsData.Builder builder, String replyString, List<String> aliasFields,
+                             String folderName, long responseTime) {
         Map<String, String> resultsMap = new HashMap<>();
         resultsMap.put(RESPONSETIME, String.valueOf(responseTime));
-        imapClient.sendCommand(STATUS + " \"" + CollectUtil.stringEncodeUtf7String(folderName, UTF_7_X) + "\" " + STATUS_COMMAND);
-        String[] response = imapClient.getReplyString().split("\\s+|\\(|\\)");
+        String[] response = replyString.split("\\s+|\\(|\\)");
         for (int i = 0; i < response.length; i++) {
             switch (response[i]) {
                 case MESSAGES:
@@ -166,4 +230,71 @@ public class ImapCollectImpl extends AbstractCollect {
         }
         builder.addValueRow(valueRowBuilder.build());
     }
+
+    /**
+     * login, read the folder status and logout, the result is the reply of the STATUS command
+     */
+    private static final class ImapExchange extends LineExchange<String> {
+
+        private static final String LOGIN_TAG = "A1";
+
+        private static final String STATUS_TAG = "A2";
+
+        private static final String LOGOUT_TAG = "A3";
+
+        private static final String OK = "OK";
+
+        private final ImapProtocol imapProtocol;
+
+        private final String statusCommand;
+
+        private final StringBuilder statusReply = new StringBuilder();
+
+        private String tag;
+
+        private boolean answered;
+
+        private ImapExchange(ImapProtocol imapProtocol, String statusCommand) {
+            super(StandardCharsets.US_ASCII);
+            this.imapProtocol = imapProtocol;
+            this.statusCommand = statusCommand;
+        }
+
+        @Override
+        protected byte[] onLine(String line) throws IOException {
+            if (tag == null) {
+                // * OK greeting
+                if (!line.startsWith("* " + OK)) {
+                    throw new IOException("IMAP server rejects the connection: " + line);
+                }
+                tag = LOGIN_TAG;
+                return command(LOGIN_TAG + " LOGIN " + imapProtocol.getEmail() + " " + imapProtocol.getAuthorize());
+            }
+            if (STATUS_TAG.equals(tag)) {
+                statusReply.append(line).append("\r\n");
+            }
+            if (!line.startsWith(tag + " ")) {
+                // untagged response of the command
+                return null;
+            }
+            if (LOGIN_TAG.equals(tag)) {
+                if (!line.startsWith(LOGIN_TAG + " " + OK)) {
+                    throw new IOException("IMAP client authentication failed");
+                }
+                tag = STATUS_TAG;
+                return command(STATUS_TAG + " " + statusCommand);
+            }
+            answered = true;
+            complete();
+            return command(LOGOUT_TAG + " LOGOUT");
+        }
+
+        @Override
+        public String onComplete() throws IOException {
+            if (!answered) {
+                throw new IOException("Connection closed without indication.");
+            }
+            return statusReply.toString();
+        }
+    }
 }
@@ -18,21 +18,22 @@
 package org.apache.hertzbeat.collector.collect.jmx;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.management.Attribute;
 import javax.management.AttributeList;
-import javax.management.MBeanAttributeInfo;
-import javax.management.MBeanFeatureInfo;
-import javax.management.MBeanInfo;
+import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServerConnection;
-import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.CompositeType;
@@ -49,6 +50,7 @@ import org.apache.hertzbeat.collector.collect.common.cache.CacheIdentifier;
 import org.apache.hertzbeat.collector.collect.common.cache.GlobalConnectionCache;
 import org.apache.hertzbeat.collector.collect.common.cache.JmxConnect;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.JmxProtocol;
@@ -71,6 +73,11 @@ public class JmxCollectImpl extends AbstractCollect {
 
     private static final String SUB_ATTRIBUTE = "->";
 
+    /**
+     * the metrics of several monitors on the same jmx server query the same mbeans, share the in-flight query
+     */
+    private static final SingleFlight<String, List<Map<String, String>>> SINGLE_FLIGHT = new SingleFlight<>();
+
     private final GlobalConnectionCache connectionCommonCache = GlobalConnectionCache.getInstance();
 
     private final ClassLoader jmxClassLoader;
@@ -91,49 +98,54 @@ public class JmxCollectImpl extends AbstractCollect {
 
     @Override
     public void collect(CollectRep.MetricsData.Builder builder, Metrics metrics) {
+        collectBatch(Collections.singletonList(builder), Collections.singletonList(metrics));
+    }
+
+    @Override
+    public String batchKey(Metrics metrics) {
+        JmxProtocol jmxProtocol = metrics.getJmx();
+        if (jmxProtocol == null) {
+            return null;
+        }
+        return jmxProtocol.getHost() + "|" + jmxProtocol.getPort() + "|" + jmxProtocol.getUrl()
+                + "|" + jmxProtocol.getUsername() + "|" + SingleFlight.digest(jmxProtocol.getPassword())
+                + "|" + jmxProtocol.getSsl();
+    }
+
+    /**
+     * The metrics of the same object name are coalesced, the attributes of all of them are got from each mbean
+     * by one getAttributes call
+     */
+    @Override
+    public void collectBatch(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList) {
         ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(jmxClassLoader);
         try {
-            JmxProtocol jmxProtocol = metrics.getJmx();
-
-            // Create a jndi remote connection
-            JMXConnector jmxConnector = getConnectSession(jmxProtocol);
-
-            MBeanServerConnection serverConnection = jmxConnector.getMBeanServerConnection();
-            ObjectName objectName = new ObjectName(jmxProtocol.getObjectName());
-
-            Set<ObjectInstance> objectInstanceSet = serverConnection.queryMBeans(objectName, null);
-            Set<String> attributeNameSet = metrics.getAliasFields().stream()
-                    .map(field -> field.split(SUB_ATTRIBUTE)[0]).collect(Collectors.toSet());
-            for (ObjectInstance objectInstance : objectInstanceSet) {
-                ObjectName currentObjectName = objectInstance.getObjectName();
-                MBeanInfo beanInfo = serverConnection.getMBeanInfo(currentObjectName);
-                MBeanAttributeInfo[] attrInfos = beanInfo.getAttributes();
-                String[] attributes = new String[attributeNameSet.size()];
-                attributes = Arrays.stream(attrInfos)
-                        .filter(item -> item.isReadable() && attributeNameSet.contains(item.getName()))
-                        .map(MBeanFeatureInfo::getName)
-                        .toList().toArray(attributes);
-                AttributeList attributeList = serverConnection.getAttributes(currentObjectName, attributes);
-
-                Map<String, String> attributeValueMap = extractAttributeValue(attributeList);
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String aliasField : metrics.getAliasFields()) {
-                    String fieldValue = attributeValueMap.get(aliasField);
-                    valueRowBuilder.addColumn(fieldValue != null ? fieldValue : CommonConstants.NULL_VALUE);
+            // object name - the indexes of the metrics
+            Map<String, List<Integer>> objectNameMetrics = new LinkedHashMap<>(metricsList.size());
+            for (int index = 0; index < metricsList.size(); index++) {
+                try {
+                    String objectName = metricsList.get(index).getJmx().getObjectName();
+                    objectNameMetrics.computeIfAbsent(objectName, key -> new ArrayList<>()).add(index);
+                } catch (Exception e) {
+                    handleError(builders.get(index), e);
+                }
+            }
+            for (List<Integer> indexes : objectNameMetrics.values()) {
+                try {
+                    JmxProtocol jmxProtocol = metricsList.get(indexes.get(0)).getJmx();
+                    Set<String> attributeNameSet = indexes.stream()
+                            .flatMap(index -> metricsList.get(index).getAliasFields().stream())
+                            .map(field -> field.split(SUB_ATTRIBUTE)[0]).collect(Collectors.toCollection(TreeSet::new));
+                    List<Map<String, String>> attributeValueMaps = SINGLE_FLIGHT.execute(queryKey(jmxProtocol, attributeNameSet),
+                            () -> queryAttributeValues(jmxProtocol, attributeNameSet));
+                    for (int index : indexes) {
+                        addValueRows(builders.get(index), metricsList.get(index), attributeValueMaps);
+                    }
+                } catch (Exception e) {
+                    indexes.forEach(index -> handleError(builders.get(index), e));
                 }
-                builder.addValueRow(valueRowBuilder.build());
             }
-        } catch (IOException exception) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(exception);
-            log.error("JMX IOException :{}", errorMsg);
-            builder.setCode(CollectRep.Code.UN_CONNECTABLE);
-            builder.setMsg(errorMsg);
-        } catch (Exception e) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e);
-            log.error("JMX Error :{}", errorMsg);
-            builder.setCode(CollectRep.Code.FAIL);
-            builder.setMsg(errorMsg);
         } finally {
             Thread.currentThread().setContextClassLoader(currentClassLoader);
         }
@@ -144,6 +156,67 @@ public class JmxCollectImpl extends AbstractCollect {
         return DispatchConstants.PROTOCOL_JMX;
     }
 
+    private void addValueRows(CollectRep.MetricsData.Builder builder, Metrics metrics,
+                              List<Map<String, String>> attributeValueMaps) {
+        for (Map<String, String> attributeValueMap : attributeValueMaps) {
+            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+            for (String aliasField : metrics.getAliasFields()) {
+                String fieldValue = attributeValueMap.get(aliasField);
+                valueRowBuilder.addColumn(fieldValue != null ? fieldValue : CommonConstants.NULL_VALUE);
+            }
+            builder.addValueRow(valueRowBuilder.build());
+        }
+    }
+
+    private void handleError(CollectRep.MetricsData.Builder builder, Exception exception) {
+        String errorMsg = CommonUtil.getMessageFromThrowable(exception);
+        if (exception instanceof IOException) {
+            log.error("JMX IOException :{}", errorMsg);
+            builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+        } else {
+            log.error("JMX Error :{}", errorMsg);
+            builder.setCode(CollectRep.Code.FAIL);
+        }
+        builder.setMsg(errorMsg);
+    }
+
+    /**
+     * query the attribute values of the mbeans, the identical in-flight queries share one result.
+     * The mbean names and their readable attributes are cached by the connection.
+     */
+    private List<Map<String, String>> queryAttributeValues(JmxProtocol jmxProtocol, Set<String> attributeNameSet)
+            throws Exception {
+        // Create a jndi remote connection
+        JmxConnect jmxConnect = getConnectSession(jmxProtocol);
+
+        MBeanServerConnection serverConnection = jmxConnect.getConnection().getMBeanServerConnection();
+        ObjectName objectName = new ObjectName(jmxProtocol.getObjectName());
+
+        Set<ObjectName> objectNameSet = jmxConnect.queryNames(objectName);
+        List<Map<String, String>> attributeValueMaps = new ArrayList<>(objectNameSet.size());
+        for (ObjectName currentObjectName : objectNameSet) {
+            AttributeList attributeList;
+            try {
+                Set<String> readableAttributes = jmxConnect.getReadableAttributes(currentObjectName);
+                String[] attributes = attributeNameSet.stream().filter(readableAttributes::contains).toArray(String[]::new);
+                attributeList = serverConnection.getAttributes(currentObjectName, attributes);
+            } catch (InstanceNotFoundException e) {
+                // the mbean is unregistered after it is cached
+                log.debug("JMX mbean {} is not found.", currentObjectName);
+                jmxConnect.invalidate(currentObjectName);
+                continue;
+            }
+            attributeValueMaps.add(Collections.unmodifiableMap(extractAttributeValue(attributeList)));
+        }
+        return Collections.unmodifiableList(attributeValueMaps);
+    }
+
+    private String queryKey(JmxProtocol jmxProtocol, Set<String> attributeNameSet) {
+        return jmxProtocol.getHost() + "|" + jmxProtocol.getPort() + "|" + jmxProtocol.getUrl()
+                + "|" + jmxProtocol.getUsername() + "|" + SingleFlight.digest(jmxProtocol.getPassword())
+                + "|" + jmxProtocol.getSsl() + "|" + jmxProtocol.getObjectName() + "|" + attributeNameSet;
+    }
+
     private Map<String, String> extractAttributeValue(AttributeList attributeList) {
         if (attributeList == null || attributeList.isEmpty()) {
             throw new RuntimeException("attributeList is empty");
@@ -180,25 +253,20 @@ public class JmxCollectImpl extends AbstractCollect {
         return attributeValueMap;
     }
 
-    private JMXConnector getConnectSession(JmxProtocol jmxProtocol) throws IOException {
+    private JmxConnect getConnectSession(JmxProtocol jmxProtocol) throws IOException {
         CacheIdentifier identifier = CacheIdentifier.builder().ip(jmxProtocol.getHost())
                 .port(jmxProtocol.getPort()).username(jmxProtocol.getUsername())
                 .password(jmxProtocol.getPassword()).build();
         Optional<AbstractConnection<?>> cacheOption = connectionCommonCache.getCache(identifier, true);
-        JMXConnector conn = null;
         if (cacheOption.isPresent()) {
             JmxConnect jmxConnect = (JmxConnect) cacheOption.get();
-            conn = jmxConnect.getConnection();
             try {
-                conn.getMBeanServerConnection();
+                jmxConnect.getConnection().getMBeanServerConnection();
+                return jmxConnect;
             } catch (Exception e) {
-                conn = null;
                 connectionCommonCache.removeCache(identifier);
             }
         }
-        if (conn != null) {
-            return conn;
-        }
         String url;
         if (jmxProtocol.getUrl() != null) {
             url = jmxProtocol.getUrl();
@@ -217,9 +285,10 @@ public class JmxCollectImpl extends AbstractCollect {
             environment.put("com.sun.jndi.rmi.factory.socket", clientSocketFactory);
         }
         JMXServiceURL jmxServiceUrl = new JMXServiceURL(url);
-        conn = JMXConnectorFactory.connect(jmxServiceUrl, environment);
-        connectionCommonCache.addCache(identifier, new JmxConnect(conn));
-        return conn;
+        JMXConnector conn = JMXConnectorFactory.connect(jmxServiceUrl, environment);
+        JmxConnect jmxConnect = new JmxConnect(conn);
+        connectionCommonCache.addCache(identifier, jmxConnect);
+        return jmxConnect;
     }
 
 }
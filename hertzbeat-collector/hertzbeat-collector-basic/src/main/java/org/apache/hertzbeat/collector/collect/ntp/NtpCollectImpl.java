@@ -18,10 +18,14 @@
 package org.apache.hertzbeat.collector.collect.ntp;
 
 import java.io.IOException;
+import java.net.DatagramPacket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -29,10 +33,14 @@ import java.util.Map;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.ntp.NTPUDPClient;
+import org.apache.commons.net.ntp.NtpV3Impl;
 import org.apache.commons.net.ntp.NtpV3Packet;
 import org.apache.commons.net.ntp.TimeInfo;
 import org.apache.commons.net.ntp.TimeStamp;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
@@ -72,19 +80,7 @@ public class NtpCollectImpl extends AbstractCollect {
             TimeInfo timeInfo = client.getTime(serverAddress);
             long responseTime = System.currentTimeMillis() - startTime;
 
-            timeInfo.computeDetails();
-
-            // Obtain NTP server information
-            Map<String, String> resultMap = getNtpInfo(timeInfo);
-            resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(responseTime));
-
-            List<String> aliasFields = metrics.getAliasFields();
-            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-            for (String field : aliasFields) {
-                String fieldValue = resultMap.get(field);
-                valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
-            }
-            builder.addValueRow(valueRowBuilder.build());
+            addValueRow(builder, metrics.getAliasFields(), timeInfo, responseTime);
             client.close();
         } catch (SocketException socketException) {
             String errorMsg = CommonUtil.getMessageFromThrowable(socketException);
@@ -117,6 +113,74 @@ public class NtpCollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        NtpProtocol ntpProtocol = metrics.getNtp();
+        int timeout = CollectUtil.getTimeout(ntpProtocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(ntpProtocol.getHost(), NtpV3Packet.NTP_PORT);
+            if (address.isUnresolved()) {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("NTPServerAddress is unknownHost: " + ntpProtocol.getHost());
+                callback.run();
+                return;
+            }
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the server
+            SocketProbeEngine.getInstance().udp(address, timeout, new NtpExchange(), result -> {
+                try {
+                    handleProbeResult(builder, metrics, timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.warn(errorMsg, e);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.warn(errorMsg, e);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
+    private void handleProbeResult(CollectRep.MetricsData.Builder builder, Metrics metrics, int timeout,
+                                   SocketProbeResult<TimeInfo> result) {
+        if (result.isSuccess()) {
+            addValueRow(builder, metrics.getAliasFields(), result.value(), result.responseTime());
+            return;
+        }
+        if (result.error() != null) {
+            log.info(result.error());
+        }
+        builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+        builder.setMsg("Receive timed out: " + timeout + "ms");
+    }
+
+    private void addValueRow(CollectRep.MetricsData.Builder builder, List<String> aliasFields, TimeInfo timeInfo,
+                             long responseTime) {
+        timeInfo.computeDetails();
+
+        // Obtain NTP server information
+        Map<String, String> resultMap = getNtpInfo(timeInfo);
+        resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(responseTime));
+
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String field : aliasFields) {
+            String fieldValue = resultMap.get(field);
+            valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
+        }
+        builder.addValueRow(valueRowBuilder.build());
+    }
+
     private Map<String, String> getNtpInfo(TimeInfo timeInfo) {
         Map<String, String> valueMap = new HashMap<>(16);
 
@@ -141,4 +205,46 @@ public class NtpCollectImpl extends AbstractCollect {
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_NTP;
     }
+
+    /**
+     * send the client mode packet and complete on the server packet, as {@link NTPUDPClient#getTime} does
+     */
+    private static final class NtpExchange implements SocketExchange<TimeInfo> {
+
+        private TimeInfo timeInfo;
+
+        @Override
+        public byte[] onConnected() {
+            NtpV3Impl message = new NtpV3Impl();
+            message.setMode(NtpV3Packet.MODE_CLIENT);
+            message.setVersion(NtpV3Packet.VERSION_3);
+            message.setTransmitTime(TimeStamp.getCurrentTime());
+            DatagramPacket packet = message.getDatagramPacket();
+            return Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength());
+        }
+
+        @Override
+        public byte[] onReceive(ByteBuffer datagram) {
+            long returnTime = System.currentTimeMillis();
+            byte[] data = new byte[datagram.remaining()];
+            datagram.get(data);
+            NtpV3Impl message = new NtpV3Impl();
+            message.setDatagramPacket(new DatagramPacket(data, data.length));
+            timeInfo = new TimeInfo(message, returnTime, false);
+            return null;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return timeInfo != null;
+        }
+
+        @Override
+        public TimeInfo onComplete() throws IOException {
+            if (timeInfo == null) {
+                throw new IOException("The NTP server does not answer");
+            }
+            return timeInfo;
+        }
+    }
 }
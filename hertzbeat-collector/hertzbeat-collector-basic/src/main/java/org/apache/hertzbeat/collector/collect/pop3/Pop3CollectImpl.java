@@ -18,6 +18,7 @@
 package org.apache.hertzbeat.collector.collect.pop3;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
@@ -27,8 +28,12 @@ import org.apache.commons.net.pop3.POP3Client;
 import org.apache.commons.net.pop3.POP3MessageInfo;
 import org.apache.commons.net.pop3.POP3SClient;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.LineExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
+import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.Pop3Protocol;
@@ -65,7 +70,7 @@ public class Pop3CollectImpl extends AbstractCollect {
             if (pop3Client.isConnected()) {
                 long responseTime = System.currentTimeMillis() - startTime;
 
-                obtainPop3Metrics(builder, pop3Client, metrics.getAliasFields(),
+                obtainPop3Metrics(builder, pop3Client.status(), metrics.getAliasFields(),
                         responseTime);
             } else {
                 builder.setCode(CollectRep.Code.UN_CONNECTABLE);
@@ -91,11 +96,61 @@ public class Pop3CollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        // the ssl connections are kept on the blocking client
+        return !Boolean.parseBoolean(metrics.getPop3().getSsl());
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        Pop3Protocol pop3Protocol = metrics.getPop3();
+        int timeout = CollectUtil.getTimeout(pop3Protocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(pop3Protocol.getHost(), Integer.parseInt(pop3Protocol.getPort()));
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the server
+            SocketProbeEngine.getInstance().tcp(address, timeout, new Pop3Exchange(pop3Protocol), result -> {
+                try {
+                    handleProbeResult(builder, metrics.getAliasFields(), timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.info(errorMsg);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.info(errorMsg);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
     @Override
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_POP3;
     }
 
+    private void handleProbeResult(CollectRep.MetricsData.Builder builder, List<String> aliasFields, int timeout,
+                                   SocketProbeResult<POP3MessageInfo> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> obtainPop3Metrics(builder, result.value(), aliasFields, result.responseTime());
+            case TIMEOUT -> {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
+            }
+            default -> {
+                log.info(result.error());
+                builder.setCode(CollectRep.Code.FAIL);
+                builder.setMsg(result.error());
+            }
+        }
+    }
+
     /**
      * create a POP3 connection【 with SSL encryption support 】
      * @param pop3Protocol pop3 Protocol
@@ -134,13 +189,13 @@ public class Pop3CollectImpl extends AbstractCollect {
     /**
      * retrieve Pop3 metric information
      * @param builder builder
-     * @param pop3Client pop3 client
+     * @param status mailbox status, null when the server does not answer it
      * @param aliasFields alias Fields
      * @param responseTime response Time
      */
-    private void obtainPop3Metrics(CollectRep.MetricsData.Builder builder, POP3Client pop3Client,
-                                                 List<String> aliasFields, long responseTime) throws IOException {
-        Map<String, Object> pop3Metrics = parsePop3Metrics(pop3Client, aliasFields);
+    private void obtainPop3Metrics(CollectRep.MetricsData.Builder builder, POP3MessageInfo status,
+                                                 List<String> aliasFields, long responseTime) {
+        Map<String, Object> pop3Metrics = parsePop3Metrics(status, aliasFields);
 
         CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
         for (String alias : aliasFields) {
@@ -158,9 +213,8 @@ public class Pop3CollectImpl extends AbstractCollect {
         builder.addValueRow(valueRowBuilder.build());
     }
 
-    private Map<String, Object> parsePop3Metrics(POP3Client pop3Client, List<String> aliasFields) throws IOException {
+    private Map<String, Object> parsePop3Metrics(POP3MessageInfo status, List<String> aliasFields) {
         Map<String, Object> pop3Metrics = new HashMap<>(aliasFields.size());
-        POP3MessageInfo status = pop3Client.status();
         int emailCount = 0;
         double mailboxSize = 0.0;
         if (status != null) {
@@ -172,4 +226,80 @@ public class Pop3CollectImpl extends AbstractCollect {
         }
         return pop3Metrics;
     }
+
+    /**
+     * login, read the mailbox status by STAT and quit
+     */
+    private static final class Pop3Exchange extends LineExchange<POP3MessageInfo> {
+
+        private static final String OK = "+OK";
+
+        private static final int BANNER = 0;
+
+        private static final int USER = 1;
+
+        private static final int PASS = 2;
+
+        private static final int STAT = 3;
+
+        private final Pop3Protocol pop3Protocol;
+
+        private int state = BANNER;
+
+        private POP3MessageInfo status;
+
+        private boolean answered;
+
+        private Pop3Exchange(Pop3Protocol pop3Protocol) {
+            super(StandardCharsets.UTF_8);
+            this.pop3Protocol = pop3Protocol;
+        }
+
+        @Override
+        protected byte[] onLine(String line) throws IOException {
+            boolean ok = line.startsWith(OK);
+            switch (state) {
+                case BANNER -> {
+                    if (!ok) {
+                        throw new IOException("Pop3 server rejects the connection: " + line);
+                    }
+                    state = USER;
+                    return command("USER " + pop3Protocol.getEmail());
+                }
+                case USER, PASS -> {
+                    if (!ok) {
+                        throw new IOException("Pop3 client authentication failed");
+                    }
+                    if (state == USER) {
+                        state = PASS;
+                        return command("PASS " + pop3Protocol.getAuthorize());
+                    }
+                    state = STAT;
+                    return command("STAT");
+                }
+                default -> {
+                    // +OK count size
+                    String[] parts = line.split("\\s+");
+                    if (ok && parts.length >= 3) {
+                        try {
+                            status = new POP3MessageInfo(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                        } catch (NumberFormatException e) {
+                            log.debug("unexpected pop3 STAT reply: {}", line);
+                        }
+                    }
+                    answered = true;
+                    complete();
+                    return command("QUIT");
+                }
+            }
+        }
+
+        @Override
+        public POP3MessageInfo onComplete() throws IOException {
+            if (!answered) {
+                throw new IOException("Connection closed without indication.");
+            }
+            return status;
+        }
+    }
 }
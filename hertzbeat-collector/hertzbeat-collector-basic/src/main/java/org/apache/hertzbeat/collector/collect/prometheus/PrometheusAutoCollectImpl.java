@@ -20,25 +20,26 @@ package org.apache.hertzbeat.collector.collect.prometheus;
 import static org.apache.hertzbeat.common.constants.SignConstants.RIGHT_DASH;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.ConnectException;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.net.ssl.SSLException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.util.Base64;
-import org.apache.hertzbeat.collector.collect.common.http.CommonHttpClient;
-import org.apache.hertzbeat.collector.collect.prometheus.parser.MetricFamily;
-import org.apache.hertzbeat.collector.collect.prometheus.parser.TextParser;
+import org.apache.hertzbeat.collector.collect.common.http.HttpRequestCoalescer;
+import org.apache.hertzbeat.collector.collect.common.http.StreamingResponseHandler;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
-import org.apache.hertzbeat.common.constants.CommonConstants;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.common.constants.NetworkConstants;
 import org.apache.hertzbeat.common.constants.SignConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
@@ -55,7 +56,6 @@ import org.apache.http.client.AuthCache;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
 import org.apache.http.client.protocol.HttpClientContext;
@@ -64,8 +64,6 @@ import org.apache.http.impl.auth.DigestScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
-import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
 
 /**
@@ -74,6 +72,11 @@ import org.springframework.util.StringUtils;
 @Slf4j
 public class PrometheusAutoCollectImpl {
     
+    /**
+     * kind of the coalesced scrapes parsed by the streaming exposition parsers
+     */
+    private static final String SCRAPE_KIND = "prometheus-scrape";
+
     private final Set<Integer> defaultSuccessStatusCodes = Stream.of(HttpStatus.SC_OK, HttpStatus.SC_CREATED,
             HttpStatus.SC_ACCEPTED, HttpStatus.SC_MULTIPLE_CHOICES, HttpStatus.SC_MOVED_PERMANENTLY,
             HttpStatus.SC_MOVED_TEMPORARILY).collect(Collectors.toSet());
@@ -85,72 +88,131 @@ public class PrometheusAutoCollectImpl {
         } catch (Exception e) {
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(e.getMessage());
-            return null;
+            return Collections.singletonList(builder.build());
         }
         HttpContext httpContext = createHttpContext(metrics.getPrometheus());
         HttpUriRequest request = createHttpRequest(metrics.getPrometheus());
         try {
-            CloseableHttpResponse response = CommonHttpClient.getHttpClient()
-                                                     .execute(request, httpContext);
-            int statusCode = response.getStatusLine().getStatusCode();
-            boolean isSuccessInvoke = defaultSuccessStatusCodes.contains(statusCode);
-            log.debug("http response status: {}", statusCode);
-            if (!isSuccessInvoke) {
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg(NetworkConstants.STATUS_CODE + SignConstants.BLANK + statusCode);
-                return null;
-            }
-            // todo: The InputStream is directly converted to a String here
-            //       For large data in the Prometheus exporter, this can generate large objects, which could severely impact JVM memory space
-            // todo: Option one: Use InputStream for parsing, but this requires significant code changes
-            //       Option two: Manually trigger garbage collection, which can be referenced from Dubbo for long i
-            String resp = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            long collectTime = System.currentTimeMillis();
-            builder.setTime(collectTime);
-            if (resp == null || !StringUtils.hasText(resp)) {
-                log.error("http response content is empty, status: {}.", statusCode);
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg("http response content is empty");
-            } else {
-                try {
-                    return parseResponseByPrometheusExporter(resp, metrics.getAliasFields(), builder);
-                } catch (Exception e) {
-                    log.info("parse error: {}.", e.getMessage(), e);
-                    builder.setCode(CollectRep.Code.FAIL);
-                    builder.setMsg("parse response data error:" + e.getMessage());
-                }   
+            PrometheusProtocol protocol = metrics.getPrometheus();
+            // the exporter response is parsed as it is read, the identical in-flight scrapes share the parsed rows
+            PrometheusScrapeHandler.Result result = HttpRequestCoalescer.executeStreaming(SCRAPE_KIND, request, httpContext,
+                    protocol.getPayload(), digestCredentials(protocol), () -> createScrapeHandler(request));
+            return handleScrapeResult(builder, result);
+        } catch (Exception e) {
+            handleException(builder, e);
+        } finally {
+            if (request != null) {
+                request.abort();
             }
-        } catch (ClientProtocolException e1) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e1);
+        }
+        return Collections.singletonList(builder.build());
+    }
+
+    /**
+     * Collect without blocking the caller thread, the callback is called once in the callback executor of the async client
+     *
+     * @param builder  response builder
+     * @param metrics  metric configuration
+     * @param callback receive the collected metrics data
+     */
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics,
+                             Consumer<List<CollectRep.MetricsData>> callback) {
+        try {
+            validateParams(metrics);
+        } catch (Exception e) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(e.getMessage());
+            callback.accept(Collections.singletonList(builder.build()));
+            return;
+        }
+        PrometheusProtocol protocol = metrics.getPrometheus();
+        HttpContext httpContext = createHttpContext(protocol);
+        HttpUriRequest request = createHttpRequest(protocol);
+        HttpRequestCoalescer.executeStreamingAsync(SCRAPE_KIND, request, httpContext, protocol.getPayload(),
+                        digestCredentials(protocol), () -> createScrapeHandler(request))
+                .whenComplete((result, error) -> {
+                    List<CollectRep.MetricsData> metricsData;
+                    try {
+                        if (error != null) {
+                            handleException(builder, SingleFlight.unwrap(error));
+                            metricsData = Collections.singletonList(builder.build());
+                        } else {
+                            metricsData = handleScrapeResult(builder, result);
+                        }
+                    } catch (Exception e) {
+                        handleException(builder, e);
+                        metricsData = Collections.singletonList(builder.build());
+                    }
+                    callback.accept(metricsData);
+                });
+    }
+
+    private StreamingResponseHandler<PrometheusScrapeHandler.Result> createScrapeHandler(HttpUriRequest request) {
+        return new PrometheusScrapeHandler(defaultSuccessStatusCodes, PrometheusSeriesCache.acquire(request.getURI().toString()));
+    }
+
+    private List<CollectRep.MetricsData> handleScrapeResult(CollectRep.MetricsData.Builder builder,
+                                                            PrometheusScrapeHandler.Result result) {
+        int statusCode = result.statusCode();
+        log.debug("http response status: {}", statusCode);
+        if (!defaultSuccessStatusCodes.contains(statusCode)) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(NetworkConstants.STATUS_CODE + SignConstants.BLANK + statusCode);
+            return Collections.singletonList(builder.build());
+        }
+        long collectTime = System.currentTimeMillis();
+        builder.setTime(collectTime);
+        if (result.byteCount() == 0) {
+            log.error("http response content is empty, status: {}.", statusCode);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("http response content is empty");
+            return Collections.singletonList(builder.build());
+        }
+        if (result.families().isEmpty() && result.errorCount() > 0) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("parse response data error: " + result.errorCount() + " malformed lines");
+            return Collections.singletonList(builder.build());
+        }
+        List<CollectRep.MetricsData> metricsDataList = new ArrayList<>(result.families().size());
+        for (PrometheusScrapeHandler.FamilyRows family : result.families()) {
+            builder.clearMetrics();
+            builder.clearFields();
+            builder.clearValues();
+            builder.setMetrics(family.schema.getName());
+            // the fields are built once per metric family of the target
+            family.schema.getFields().forEach(builder::addField);
+            family.rows.forEach(builder::addValueRow);
+            metricsDataList.add(builder.build());
+        }
+        return metricsDataList;
+    }
+
+    private void handleException(CollectRep.MetricsData.Builder builder, Throwable e) {
+        if (e instanceof UncheckedIOException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        String errorMsg = CommonUtil.getMessageFromThrowable(e);
+        if (e instanceof ClientProtocolException) {
             log.error(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg(errorMsg);
-        } catch (UnknownHostException e2) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e2);
+        } else if (e instanceof UnknownHostException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_REACHABLE);
             builder.setMsg("unknown host:" + errorMsg);
-        } catch (InterruptedIOException | ConnectException | SSLException e3) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e3);
+        } else if (e instanceof InterruptedIOException || e instanceof ConnectException || e instanceof SSLException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg(errorMsg);
-        } catch (IOException e4) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e4);
+        } else if (e instanceof IOException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
-        } catch (Exception e) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+        } else {
             log.error(errorMsg, e);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
-        } finally {
-            if (request != null) {
-                request.abort();
-            }
         }
-        return Collections.singletonList(builder.build());
     }
     
     public String supportProtocol() {
@@ -169,45 +231,12 @@ public class PrometheusAutoCollectImpl {
         }
     }
     
-    private List<CollectRep.MetricsData> parseResponseByPrometheusExporter(String resp, List<String> aliasFields,
-                                                                           CollectRep.MetricsData.Builder builder) {
-        Map<String, MetricFamily> metricFamilyMap = TextParser.textToMetricFamilies(resp);
-        List<CollectRep.MetricsData> metricsDataList = new LinkedList<>();
-        for (Map.Entry<String, MetricFamily> entry : metricFamilyMap.entrySet()) {
-            builder.clearMetrics();
-            builder.clearFields();
-            builder.clearValues();
-            String metricsName = entry.getKey();
-            builder.setMetrics(metricsName);
-            MetricFamily metricFamily = entry.getValue();
-            if (!metricFamily.getMetricList().isEmpty()) {
-                List<String> metricsFields = new LinkedList<>();
-                for (int index = 0; index < metricFamily.getMetricList().size(); index++) {
-                    MetricFamily.Metric metric = metricFamily.getMetricList().get(index);
-                    if (index == 0) {
-                        metric.getLabels().forEach(label -> {
-                            metricsFields.add(label.getName());
-                            builder.addField(CollectRep.Field.newBuilder().setName(label.getName())
-                                    .setType(CommonConstants.TYPE_STRING).setLabel(true).build());
-                        });
-                        builder.addField(CollectRep.Field.newBuilder().setName("value")
-                                .setType(CommonConstants.TYPE_NUMBER).setLabel(false).build());
-                    }
-                    Map<String, String> labelMap = metric.getLabels()
-                            .stream()
-                            .collect(Collectors.toMap(MetricFamily.Label::getName, MetricFamily.Label::getValue));
-                    CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                    for (String field : metricsFields) {
-                        String fieldValue = labelMap.get(field);
-                        valueRowBuilder.addColumn(fieldValue == null ? CommonConstants.NULL_VALUE : fieldValue);
-                    }
-                    valueRowBuilder.addColumn(String.valueOf(metric.getValue()));
-                    builder.addValueRow(valueRowBuilder.build());
-                }
-                metricsDataList.add(builder.build());
-            }
+    private String digestCredentials(PrometheusProtocol protocol) {
+        PrometheusProtocol.Authorization auth = protocol.getAuthorization();
+        if (auth == null || !DispatchConstants.DIGEST_AUTH.equals(auth.getType())) {
+            return null;
         }
-        return metricsDataList;
+        return auth.getDigestAuthUsername() + SignConstants.DOUBLE_MARK + auth.getDigestAuthPassword();
     }
     
     /**
@@ -266,8 +295,10 @@ public class PrometheusAutoCollectImpl {
                 }
             }
         }
-        // add accept
-        requestBuilder.addHeader(HttpHeaders.ACCEPT, MediaType.TEXT_PLAIN_VALUE);
+        // add accept, prefer the protobuf format which is decoded without tokenizing, fall back to the text formats
+        if (requestBuilder.getFirstHeader(HttpHeaders.ACCEPT) == null) {
+            requestBuilder.addHeader(HttpHeaders.ACCEPT, PrometheusScrapeHandler.ACCEPT);
+        }
         
         if (protocol.getAuthorization() != null) {
             PrometheusProtocol.Authorization authorization = protocol.getAuthorization();
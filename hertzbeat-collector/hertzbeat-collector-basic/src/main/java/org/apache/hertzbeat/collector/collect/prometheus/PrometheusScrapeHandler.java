@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.hertzbeat.collector.collect.common.http.StreamingResponseHandler;
+import org.apache.hertzbeat.collector.collect.prometheus.parser.ExpositionParser;
+import org.apache.hertzbeat.collector.collect.prometheus.parser.StreamingProtobufParser;
+import org.apache.hertzbeat.collector.collect.prometheus.parser.StreamingTextParser;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+
+/**
+ * Parse the scraped exporter response as it arrives, each sample is emitted as a value row of its metric family.
+ * The fields of a metric family are the labels of its first sample and the value,
+ * the fields and the label columns are reused from the series cache of the target.
+ * The parser is chosen by the response content type, the protobuf delimited format or the text formats.
+ */
+class PrometheusScrapeHandler implements StreamingResponseHandler<PrometheusScrapeHandler.Result>,
+        ExpositionParser.SampleConsumer {
+
+    /**
+     * the accepted exposition formats in the order of preference, as the prometheus server negotiates them
+     */
+    static final String ACCEPT = "application/vnd.google.protobuf;proto=io.prometheus.client.MetricFamily;encoding=delimited;q=0.7,"
+            + "application/openmetrics-text;version=1.0.0;q=0.5,"
+            + "text/plain;version=0.0.4;q=0.3,*/*;q=0.1";
+
+    private static final String PROTOBUF_CONTENT_TYPE = "application/vnd.google.protobuf";
+
+    private static final String PROTOBUF_DELIMITED_ENCODING = "encoding=delimited";
+
+    private final Set<Integer> successStatusCodes;
+
+    private ExpositionParser parser;
+
+    private final PrometheusSeriesCache seriesCache;
+
+    private final Map<String, FamilyRows> families = new LinkedHashMap<>();
+
+    private int statusCode;
+
+    /**
+     * @param successStatusCodes the status codes to parse the response body
+     * @param seriesCache        the series cache of the target acquired for this scrape, released with the handler
+     */
+    PrometheusScrapeHandler(Set<Integer> successStatusCodes, PrometheusSeriesCache seriesCache) {
+        this.successStatusCodes = successStatusCodes;
+        this.seriesCache = seriesCache;
+    }
+
+    @Override
+    public boolean onResponse(HttpResponse response) {
+        statusCode = response.getStatusLine().getStatusCode();
+        Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        parser = contentType != null && isProtobufDelimited(contentType.getValue())
+                ? new StreamingProtobufParser(this, seriesCache.getInterner())
+                : new StreamingTextParser(this, seriesCache.getInterner());
+        return successStatusCodes.contains(statusCode);
+    }
+
+    @Override
+    public void onContent(ByteBuffer content) {
+        parser.feed(content);
+    }
+
+    @Override
+    public Result onComplete() {
+        parser.finish();
+        if (successStatusCodes.contains(statusCode)) {
+            seriesCache.completeScrape();
+        }
+        return new Result(statusCode, Collections.unmodifiableList(new ArrayList<>(families.values())),
+                parser.getByteCount(), parser.getErrorCount());
+    }
+
+    @Override
+    public void release() {
+        seriesCache.release();
+    }
+
+    @Override
+    public void accept(String metricName, String[] labelNames, String[] labelValues, int labelCount, double value) {
+        FamilyRows family = families.get(metricName);
+        if (family == null) {
+            family = new FamilyRows(seriesCache.family(metricName, labelNames, labelCount));
+            families.put(metricName, family);
+        }
+        family.rows.add(family.schema.row(labelNames, labelValues, labelCount, value));
+    }
+
+    private static boolean isProtobufDelimited(String contentType) {
+        String value = contentType.toLowerCase(Locale.ROOT);
+        return value.startsWith(PROTOBUF_CONTENT_TYPE) && value.contains(PROTOBUF_DELIMITED_ENCODING);
+    }
+
+    /**
+     * the value rows of a metric family in a scrape
+     */
+    static final class FamilyRows {
+
+        final PrometheusSeriesCache.FamilySchema schema;
+
+        final List<CollectRep.ValueRow> rows = new ArrayList<>();
+
+        FamilyRows(PrometheusSeriesCache.FamilySchema schema) {
+            this.schema = schema;
+        }
+    }
+
+    /**
+     * scrape result, shared by the coalesced scrapes so it should not be modified
+     *
+     * @param statusCode http status code
+     * @param families   metric families in the order they appear
+     * @param byteCount  response body bytes
+     * @param errorCount malformed lines number
+     */
+    record Result(int statusCode, List<FamilyRows> families, long byteCount, long errorCount) {
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hertzbeat.collector.collect.prometheus.parser.ByteStringInterner;
+import org.apache.hertzbeat.common.constants.CommonConstants;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+
+/**
+ * Series cache of a scraped target kept across the scrapes, the series set of an exporter barely changes between scrapes.
+ * The names and label values are interned by the same interner in all the scrapes, the fields of a metric family
+ * are built once, and the label columns of a series are resolved once and found again by their hash,
+ * only the value column is rewritten in each scrape. The series and families not seen in a scrape are dropped.
+ * One scrape of a target uses its cache at a time, a concurrent scrape of the same target gets a one-off cache.
+ */
+final class PrometheusSeriesCache {
+
+    private static final int MAX_TARGETS = 4096;
+
+    private static final long EXPIRE_MINUTES = 30;
+
+    private static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    /**
+     * the cache held longer than it is treated as leaked and taken over, longer than any scrape
+     */
+    private static final long HOLD_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * scraped target - series cache
+     */
+    private static final Cache<String, PrometheusSeriesCache> TARGET_CACHE = Caffeine.newBuilder()
+            .maximumSize(MAX_TARGETS)
+            .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * the time the cache is acquired, 0 when it is free
+     */
+    private final AtomicLong acquiredTime = new AtomicLong();
+
+    private final Map<String, FamilySchema> families = new HashMap<>();
+
+    private ByteStringInterner interner = new ByteStringInterner(MAX_INTERNED_STRINGS);
+
+    private long generation;
+
+    private PrometheusSeriesCache() {
+    }
+
+    /**
+     * Acquire the series cache of the target for a scrape, it should be released when the scrape ends
+     *
+     * @param target scraped target, eg: the request uri
+     * @return the series cache of the target, or a one-off cache when the target is being scraped
+     */
+    static PrometheusSeriesCache acquire(String target) {
+        PrometheusSeriesCache cache = TARGET_CACHE.get(target, key -> new PrometheusSeriesCache());
+        long now = System.currentTimeMillis();
+        long acquired = cache.acquiredTime.get();
+        if ((acquired == 0 || now - acquired > HOLD_TIMEOUT) && cache.acquiredTime.compareAndSet(acquired, now)) {
+            cache.beginScrape();
+            return cache;
+        }
+        PrometheusSeriesCache oneOff = new PrometheusSeriesCache();
+        oneOff.beginScrape();
+        return oneOff;
+    }
+
+    /**
+     * Release the cache, the scrape is completed or failed
+     */
+    void release() {
+        acquiredTime.set(0);
+    }
+
+    ByteStringInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * Get the schema of the metric family at its first sample in the scrape,
+     * the schema is rebuilt when the label names of the first sample change
+     *
+     * @param name       metric family name
+     * @param labelNames label names of the first sample
+     * @param labelCount labels number
+     * @return family schema
+     */
+    FamilySchema family(String name, String[] labelNames, int labelCount) {
+        FamilySchema family = families.get(name);
+        if (family == null || !family.sameLabelNames(labelNames, labelCount)) {
+            family = new FamilySchema(name, Arrays.copyOf(labelNames, labelCount));
+            families.put(name, family);
+        }
+        family.beginScrape(generation);
+        return family;
+    }
+
+    /**
+     * The scrape is completed, drop the series and the families not seen in it
+     */
+    void completeScrape() {
+        Iterator<FamilySchema> iterator = families.values().iterator();
+        while (iterator.hasNext()) {
+            FamilySchema family = iterator.next();
+            if (family.generation != generation) {
+                iterator.remove();
+            } else {
+                family.prune();
+            }
+        }
+    }
+
+    private void beginScrape() {
+        generation++;
+        if (interner.size() >= MAX_INTERNED_STRINGS) {
+            // the label values keep changing, start over instead of holding the stale ones
+            interner = new ByteStringInterner(MAX_INTERNED_STRINGS);
+            families.clear();
+        }
+    }
+
+    /**
+     * the fields and the series of a metric family, the label columns are in the order of the label names
+     */
+    static final class FamilySchema {
+
+        private final String name;
+
+        private final String[] labelNames;
+
+        private final List<CollectRep.Field> fields;
+
+        private final String[] scratch;
+
+        private Series[] table = new Series[16];
+
+        private int size;
+
+        private int seen;
+
+        private long generation;
+
+        private FamilySchema(String name, String[] labelNames) {
+            this.name = name;
+            this.labelNames = labelNames;
+            List<CollectRep.Field> fields = new ArrayList<>(labelNames.length + 1);
+            for (String labelName : labelNames) {
+                fields.add(CollectRep.Field.newBuilder().setName(labelName)
+                        .setType(CommonConstants.TYPE_STRING).setLabel(true).build());
+            }
+            fields.add(CollectRep.Field.newBuilder().setName("value")
+                    .setType(CommonConstants.TYPE_NUMBER).setLabel(false).build());
+            this.fields = Collections.unmodifiableList(fields);
+            this.scratch = new String[labelNames.length];
+        }
+
+        String getName() {
+            return name;
+        }
+
+        List<CollectRep.Field> getFields() {
+            return fields;
+        }
+
+        /**
+         * Build the value row of a sample, the label columns of a known series are reused
+         *
+         * @param sampleLabelNames  label names of the sample
+         * @param sampleLabelValues label values of the sample
+         * @param labelCount        labels number
+         * @param value             sample value
+         * @return value row
+         */
+        CollectRep.ValueRow row(String[] sampleLabelNames, String[] sampleLabelValues, int labelCount, double value) {
+            int hash = resolveColumns(sampleLabelNames, sampleLabelValues, labelCount);
+            int index = hash & (table.length - 1);
+            Series series = table[index];
+            while (series != null && !series.matches(hash, scratch)) {
+                series = series.next;
+            }
+            if (series == null) {
+                series = new Series(hash, scratch.clone(), table[index]);
+                table[index] = series;
+                if (++size > table.length * 3 / 4) {
+                    resize(table.length * 2);
+                }
+            }
+            if (series.generation != generation) {
+                series.generation = generation;
+                seen++;
+            }
+            String[] columns = Arrays.copyOf(series.labelValues, labelNames.length + 1);
+            columns[labelNames.length] = series.valueText(value);
+            CollectRep.ValueRow row = new CollectRep.ValueRow();
+            row.setColumns(Arrays.asList(columns));
+            return row;
+        }
+
+        private boolean sameLabelNames(String[] sampleLabelNames, int labelCount) {
+            if (labelCount != labelNames.length) {
+                return false;
+            }
+            for (int index = 0; index < labelCount; index++) {
+                if (!labelNames[index].equals(sampleLabelNames[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * put the label values of the sample into the scratch in the order of the label names
+         *
+         * @return hash of the label values
+         */
+        private int resolveColumns(String[] sampleLabelNames, String[] sampleLabelValues, int labelCount) {
+            int hash = 1;
+            for (int index = 0; index < labelNames.length; index++) {
+                String labelValue = null;
+                // the label names are mostly in the same order and interned, check the same position first
+                if (index < labelCount && labelNames[index] == sampleLabelNames[index]) {
+                    labelValue = sampleLabelValues[index];
+                } else {
+                    for (int sampleIndex = 0; sampleIndex < labelCount; sampleIndex++) {
+                        if (labelNames[index].equals(sampleLabelNames[sampleIndex])) {
+                            labelValue = sampleLabelValues[sampleIndex];
+                            break;
+                        }
+                    }
+                }
+                scratch[index] = labelValue == null ? CommonConstants.NULL_VALUE : labelValue;
+                hash = 31 * hash + scratch[index].hashCode();
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private void beginScrape(long generation) {
+            if (this.generation != generation) {
+                this.generation = generation;
+                this.seen = 0;
+            }
+        }
+
+        private void prune() {
+            if (seen == size) {
+                return;
+            }
+            Series[] oldTable = table;
+            table = new Series[oldTable.length];
+            size = 0;
+            for (Series head : oldTable) {
+                for (Series series = head; series != null; ) {
+                    Series next = series.next;
+                    if (series.generation == generation) {
+                        int index = series.hash & (table.length - 1);
+                        series.next = table[index];
+                        table[index] = series;
+                        size++;
+                    }
+                    series = next;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            Series[] oldTable = table;
+            table = new Series[capacity];
+            for (Series head : oldTable) {
+                for (Series series = head; series != null; ) {
+                    Series next = series.next;
+                    int index = series.hash & (capacity - 1);
+                    series.next = table[index];
+                    table[index] = series;
+                    series = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * the label columns of a series and its last value
+     */
+    private static final class Series {
+
+        private final int hash;
+
+        private final String[] labelValues;
+
+        private Series next;
+
+        private long generation;
+
+        private long valueBits;
+
+        private String valueText;
+
+        private Series(int hash, String[] labelValues, Series next) {
+            this.hash = hash;
+            this.labelValues = labelValues;
+            this.next = next;
+        }
+
+        private boolean matches(int hash, String[] values) {
+            if (this.hash != hash) {
+                return false;
+            }
+            for (int index = 0; index < values.length; index++) {
+                if (labelValues[index] != values[index] && !labelValues[index].equals(values[index])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * the value text is reused when the value is not changed, eg: the counters of an idle service
+         */
+        private String valueText(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (valueText == null || bits != valueBits) {
+                valueBits = bits;
+                valueText = String.valueOf(value);
+            }
+            return valueText;
+        }
+    }
+}
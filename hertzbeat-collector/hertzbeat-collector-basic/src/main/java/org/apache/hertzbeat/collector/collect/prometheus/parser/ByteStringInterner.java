@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Intern the utf-8 bytes as strings, the same bytes are decoded once and share one string,
+ * eg: the metric names, label names and the repeated label values of an exporter.
+ * Open addressing table, it stops interning when it reaches the max size. Not thread safe.
+ */
+public final class ByteStringInterner {
+
+    private final int maxSize;
+
+    private byte[][] keys;
+
+    private String[] values;
+
+    private int[] hashes;
+
+    private int size;
+
+    /**
+     * @param maxSize max strings number to intern
+     */
+    public ByteStringInterner(int maxSize) {
+        this.maxSize = Math.max(16, maxSize);
+        this.keys = new byte[64][];
+        this.values = new String[64];
+        this.hashes = new int[64];
+    }
+
+    /**
+     * @param bytes  utf-8 bytes
+     * @param offset offset of the bytes
+     * @param length length of the bytes
+     * @return the interned string of the bytes
+     */
+    public String intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = values.length - 1;
+        int index = hash & mask;
+        while (values[index] != null) {
+            if (hashes[index] == hash && Arrays.equals(keys[index], 0, keys[index].length, bytes, offset, offset + length)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        if (size >= maxSize) {
+            return value;
+        }
+        keys[index] = Arrays.copyOfRange(bytes, offset, offset + length);
+        values[index] = value;
+        hashes[index] = hash;
+        if (++size * 2 > values.length) {
+            resize();
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        keys = new byte[oldValues.length * 2][];
+        values = new String[oldValues.length * 2];
+        hashes = new int[oldValues.length * 2];
+        int mask = values.length - 1;
+        for (int oldIndex = 0; oldIndex < oldValues.length; oldIndex++) {
+            if (oldValues[oldIndex] == null) {
+                continue;
+            }
+            int index = oldHashes[oldIndex] & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[oldIndex];
+            values[index] = oldValues[oldIndex];
+            hashes[index] = oldHashes[oldIndex];
+        }
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int index = offset; index < offset + length; index++) {
+            hash = 31 * hash + bytes[index];
+        }
+        // spread the low bits
+        return hash ^ (hash >>> 16);
+    }
+}
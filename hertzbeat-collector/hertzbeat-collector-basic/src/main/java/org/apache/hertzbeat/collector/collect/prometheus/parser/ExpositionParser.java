@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming parser of a prometheus exposition format, it is fed with the response bytes as they arrive
+ * and emits each sample to the {@link SampleConsumer} at once.
+ * Not thread safe, one parser for one response.
+ */
+public interface ExpositionParser {
+
+    int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Consume a parsed sample, the samples of the summary and histogram are emitted
+     * as the text format series, eg: name_bucket{le="0.5"}, name_sum, name_count
+     */
+    @FunctionalInterface
+    interface SampleConsumer {
+
+        /**
+         * @param metricName  metric name
+         * @param labelNames  label names, only valid in this call
+         * @param labelValues label values, only valid in this call
+         * @param labelCount  labels number
+         * @param value       sample value
+         */
+        void accept(String metricName, String[] labelNames, String[] labelValues, int labelCount, double value);
+    }
+
+    /**
+     * Feed the next bytes of the content
+     *
+     * @param bytes  content bytes
+     * @param offset offset of the bytes
+     * @param length length of the bytes
+     */
+    void feed(byte[] bytes, int offset, int length);
+
+    /**
+     * The content ends
+     */
+    void finish();
+
+    /**
+     * @return the fed bytes number
+     */
+    long getByteCount();
+
+    /**
+     * @return the emitted samples number
+     */
+    long getSampleCount();
+
+    /**
+     * @return the skipped malformed lines or messages number
+     */
+    long getErrorCount();
+
+    /**
+     * Feed the next bytes of the content
+     *
+     * @param buffer content bytes, the buffer is consumed
+     */
+    default void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] bytes = new byte[Math.min(buffer.remaining(), READ_BUFFER_SIZE)];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(buffer.remaining(), bytes.length);
+            buffer.get(bytes, 0, length);
+            feed(bytes, 0, length);
+        }
+    }
+
+    /**
+     * Read the input stream to the end and parse it
+     *
+     * @param inputStream exposition content
+     * @throws IOException when the input stream can not be read
+     */
+    default void parse(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            feed(buffer, 0, read);
+        }
+        finish();
+    }
+}
@@ -0,0 +1,565 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming parser of the prometheus protobuf exposition format, the varint length delimited
+ * io.prometheus.client.MetricFamily messages. Only the current message is buffered, it is decoded
+ * straight from the bytes without building the message objects, the names and label values are interned.
+ * The summary and histogram samples are emitted as the text format series, so the rows are the same as the text scrape.
+ * A malformed message is skipped and counted, the following messages are still parsed.
+ * Not thread safe, one parser for one response.
+ */
+@Slf4j
+public class StreamingProtobufParser implements ExpositionParser {
+
+    /**
+     * the message longer than it is skipped
+     */
+    private static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+
+    private static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    private static final int WIRE_VARINT = 0;
+
+    private static final int WIRE_FIXED64 = 1;
+
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private static final int WIRE_FIXED32 = 5;
+
+    private static final int TYPE_COUNTER = 0;
+
+    private static final int TYPE_GAUGE = 1;
+
+    private static final int TYPE_SUMMARY = 2;
+
+    private static final int TYPE_UNTYPED = 3;
+
+    private static final int TYPE_HISTOGRAM = 4;
+
+    private static final int TYPE_GAUGE_HISTOGRAM = 5;
+
+    private static final String QUANTILE_LABEL = "quantile";
+
+    private static final String BUCKET_LABEL = "le";
+
+    private final SampleConsumer consumer;
+
+    private final ByteStringInterner interner;
+
+    /**
+     * the formatted quantile and bucket bounds, they repeat in all the series of a family
+     */
+    private final Map<Double, String> boundLabels = new HashMap<>();
+
+    private byte[] message = new byte[1024];
+
+    private int messageLength = -1;
+
+    private int messageFilled;
+
+    private long lengthValue;
+
+    private int lengthShift;
+
+    private long skipRemaining;
+
+    private String[] labelNames = new String[8];
+
+    private String[] labelValues = new String[8];
+
+    private int[] metricRanges = new int[64];
+
+    private long byteCount;
+
+    private long sampleCount;
+
+    private long errorCount;
+
+    public StreamingProtobufParser(SampleConsumer consumer) {
+        this(consumer, new ByteStringInterner(MAX_INTERNED_STRINGS));
+    }
+
+    /**
+     * @param consumer sample consumer
+     * @param interner interner of the names and label values, can be shared by the parsers in one thread
+     */
+    public StreamingProtobufParser(SampleConsumer consumer, ByteStringInterner interner) {
+        this.consumer = consumer;
+        this.interner = interner;
+    }
+
+    @Override
+    public void feed(byte[] bytes, int offset, int length) {
+        byteCount += length;
+        int end = offset + length;
+        int position = offset;
+        while (position < end) {
+            if (skipRemaining > 0) {
+                int skipped = (int) Math.min(skipRemaining, end - position);
+                skipRemaining -= skipped;
+                position += skipped;
+            } else if (messageLength < 0) {
+                position = readLength(bytes, position, end);
+            } else {
+                int copied = Math.min(messageLength - messageFilled, end - position);
+                System.arraycopy(bytes, position, message, messageFilled, copied);
+                messageFilled += copied;
+                position += copied;
+                if (messageFilled == messageLength) {
+                    endMessage();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (messageLength >= 0 || lengthShift > 0 || skipRemaining > 0) {
+            error("the content ends in the middle of a message");
+        }
+        messageLength = -1;
+        messageFilled = 0;
+        lengthValue = 0;
+        lengthShift = 0;
+        skipRemaining = 0;
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    private int readLength(byte[] bytes, int position, int end) {
+        while (position < end) {
+            byte current = bytes[position++];
+            lengthValue |= (long) (current & 0x7F) << lengthShift;
+            lengthShift += 7;
+            if (current >= 0) {
+                long length = lengthValue;
+                lengthValue = 0;
+                lengthShift = 0;
+                if (length > MAX_MESSAGE_LENGTH) {
+                    error("message is longer than " + MAX_MESSAGE_LENGTH + " bytes");
+                    skipRemaining = length;
+                } else if (length > 0) {
+                    messageLength = (int) length;
+                    messageFilled = 0;
+                    if (message.length < messageLength) {
+                        message = new byte[Math.max(message.length * 2, messageLength)];
+                    }
+                }
+                return position;
+            }
+            if (lengthShift >= 64) {
+                // not a delimited stream, nothing after it can be trusted
+                error("malformed message length");
+                lengthValue = 0;
+                lengthShift = 0;
+                skipRemaining = Long.MAX_VALUE;
+                return position;
+            }
+        }
+        return position;
+    }
+
+    private void endMessage() {
+        try {
+            parseMetricFamily(message, messageLength);
+        } catch (MalformedMessageException e) {
+            error(e.getMessage());
+        } finally {
+            messageLength = -1;
+            messageFilled = 0;
+        }
+    }
+
+    private void parseMetricFamily(byte[] bytes, int end) {
+        Reader reader = new Reader(bytes, 0, end);
+        String name = null;
+        int type = TYPE_UNTYPED;
+        int metricCount = 0;
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            switch (tag) {
+                // 1: string name
+                case (1 << 3) | WIRE_LENGTH_DELIMITED -> {
+                    int length = reader.readLength();
+                    name = interner.intern(bytes, reader.position, length);
+                    reader.position += length;
+                }
+                // 3: MetricType type
+                case (3 << 3) | WIRE_VARINT -> type = (int) reader.readVarint();
+                // 4: repeated Metric metric, decoded after the type is known
+                case (4 << 3) | WIRE_LENGTH_DELIMITED -> {
+                    int length = reader.readLength();
+                    if (metricCount * 2 + 2 > metricRanges.length) {
+                        metricRanges = Arrays.copyOf(metricRanges, metricRanges.length * 2);
+                    }
+                    metricRanges[metricCount * 2] = reader.position;
+                    metricRanges[metricCount * 2 + 1] = reader.position + length;
+                    metricCount++;
+                    reader.position += length;
+                }
+                default -> reader.skip(tag);
+            }
+        }
+        if (name == null || name.isEmpty()) {
+            throw new MalformedMessageException("metric family name is missing");
+        }
+        FamilyNames names = new FamilyNames(name);
+        for (int index = 0; index < metricCount; index++) {
+            parseMetric(bytes, metricRanges[index * 2], metricRanges[index * 2 + 1], type, names);
+        }
+    }
+
+    private void parseMetric(byte[] bytes, int start, int end, int type, FamilyNames names) {
+        Reader reader = new Reader(bytes, start, end);
+        int labelCount = 0;
+        int valueStart = -1;
+        int valueEnd = -1;
+        int valueField = switch (type) {
+            case TYPE_COUNTER -> 3;
+            case TYPE_GAUGE -> 2;
+            case TYPE_SUMMARY -> 4;
+            case TYPE_HISTOGRAM, TYPE_GAUGE_HISTOGRAM -> 7;
+            default -> 5;
+        };
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            int field = tag >>> 3;
+            if ((tag & 0x7) != WIRE_LENGTH_DELIMITED || (field != 1 && field != valueField)) {
+                reader.skip(tag);
+                continue;
+            }
+            int length = reader.readLength();
+            if (field == 1) {
+                // 1: repeated LabelPair label
+                if (labelCount == labelNames.length) {
+                    labelNames = Arrays.copyOf(labelNames, labelCount * 2);
+                    labelValues = Arrays.copyOf(labelValues, labelCount * 2);
+                }
+                parseLabel(bytes, reader.position, reader.position + length, labelCount++);
+            } else {
+                valueStart = reader.position;
+                valueEnd = reader.position + length;
+            }
+            reader.position += length;
+        }
+        if (valueStart < 0) {
+            throw new MalformedMessageException("metric value of " + names.name + " is missing");
+        }
+        switch (type) {
+            case TYPE_SUMMARY -> emitSummary(bytes, valueStart, valueEnd, names, labelCount);
+            case TYPE_HISTOGRAM, TYPE_GAUGE_HISTOGRAM -> emitHistogram(bytes, valueStart, valueEnd, names, labelCount);
+            default -> emit(names.name, labelCount, readSingleValue(bytes, valueStart, valueEnd));
+        }
+    }
+
+    private void parseLabel(byte[] bytes, int start, int end, int index) {
+        Reader reader = new Reader(bytes, start, end);
+        String name = null;
+        String value = "";
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            if (tag == ((1 << 3) | WIRE_LENGTH_DELIMITED) || tag == ((2 << 3) | WIRE_LENGTH_DELIMITED)) {
+                int length = reader.readLength();
+                String text = interner.intern(bytes, reader.position, length);
+                reader.position += length;
+                if (tag >>> 3 == 1) {
+                    name = text;
+                } else {
+                    value = text;
+                }
+            } else {
+                reader.skip(tag);
+            }
+        }
+        if (name == null) {
+            throw new MalformedMessageException("label name is missing");
+        }
+        labelNames[index] = name;
+        labelValues[index] = value;
+    }
+
+    /**
+     * Gauge, Counter and Untyped, 1: double value
+     */
+    private double readSingleValue(byte[] bytes, int start, int end) {
+        Reader reader = new Reader(bytes, start, end);
+        double value = 0;
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            if (tag == ((1 << 3) | WIRE_FIXED64)) {
+                value = reader.readDouble();
+            } else {
+                reader.skip(tag);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Summary, 1: uint64 sample_count, 2: double sample_sum, 3: repeated Quantile quantile
+     */
+    private void emitSummary(byte[] bytes, int start, int end, FamilyNames names, int labelCount) {
+        Reader reader = new Reader(bytes, start, end);
+        double count = 0;
+        double sum = 0;
+        ensureLabelCapacity(labelCount + 1);
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            switch (tag) {
+                case (1 << 3) | WIRE_VARINT -> count = unsignedToDouble(reader.readVarint());
+                case (2 << 3) | WIRE_FIXED64 -> sum = reader.readDouble();
+                case (3 << 3) | WIRE_LENGTH_DELIMITED -> {
+                    int length = reader.readLength();
+                    // Quantile, 1: double quantile, 2: double value
+                    Reader quantileReader = new Reader(bytes, reader.position, reader.position + length);
+                    double quantile = 0;
+                    double value = 0;
+                    while (quantileReader.hasRemaining()) {
+                        int quantileTag = (int) quantileReader.readVarint();
+                        if (quantileTag == ((1 << 3) | WIRE_FIXED64)) {
+                            quantile = quantileReader.readDouble();
+                        } else if (quantileTag == ((2 << 3) | WIRE_FIXED64)) {
+                            value = quantileReader.readDouble();
+                        } else {
+                            quantileReader.skip(quantileTag);
+                        }
+                    }
+                    reader.position += length;
+                    labelNames[labelCount] = QUANTILE_LABEL;
+                    labelValues[labelCount] = formatBound(quantile);
+                    emit(names.name, labelCount + 1, value);
+                }
+                default -> reader.skip(tag);
+            }
+        }
+        emit(names.sumName, labelCount, sum);
+        emit(names.countName, labelCount, count);
+    }
+
+    /**
+     * Histogram, 1: uint64 sample_count, 2: double sample_sum, 3: repeated Bucket bucket, 4: double sample_count_float.
+     * The +Inf bucket is added when it is not exposed, as the text format does.
+     */
+    private void emitHistogram(byte[] bytes, int start, int end, FamilyNames names, int labelCount) {
+        Reader reader = new Reader(bytes, start, end);
+        double count = 0;
+        double sum = 0;
+        boolean infBucket = false;
+        ensureLabelCapacity(labelCount + 1);
+        while (reader.hasRemaining()) {
+            int tag = (int) reader.readVarint();
+            switch (tag) {
+                case (1 << 3) | WIRE_VARINT -> count = unsignedToDouble(reader.readVarint());
+                case (4 << 3) | WIRE_FIXED64 -> count = reader.readDouble();
+                case (2 << 3) | WIRE_FIXED64 -> sum = reader.readDouble();
+                case (3 << 3) | WIRE_LENGTH_DELIMITED -> {
+                    int length = reader.readLength();
+                    // Bucket, 1: uint64 cumulative_count, 2: double upper_bound, 4: double cumulative_count_float
+                    Reader bucketReader = new Reader(bytes, reader.position, reader.position + length);
+                    double cumulativeCount = 0;
+                    double upperBound = 0;
+                    while (bucketReader.hasRemaining()) {
+                        int bucketTag = (int) bucketReader.readVarint();
+                        switch (bucketTag) {
+                            case (1 << 3) | WIRE_VARINT -> cumulativeCount = unsignedToDouble(bucketReader.readVarint());
+                            case (4 << 3) | WIRE_FIXED64 -> cumulativeCount = bucketReader.readDouble();
+                            case (2 << 3) | WIRE_FIXED64 -> upperBound = bucketReader.readDouble();
+                            default -> bucketReader.skip(bucketTag);
+                        }
+                    }
+                    reader.position += length;
+                    infBucket |= upperBound == Double.POSITIVE_INFINITY;
+                    labelNames[labelCount] = BUCKET_LABEL;
+                    labelValues[labelCount] = formatBound(upperBound);
+                    emit(names.bucketName, labelCount + 1, cumulativeCount);
+                }
+                default -> reader.skip(tag);
+            }
+        }
+        if (!infBucket) {
+            labelNames[labelCount] = BUCKET_LABEL;
+            labelValues[labelCount] = formatBound(Double.POSITIVE_INFINITY);
+            emit(names.bucketName, labelCount + 1, count);
+        }
+        emit(names.sumName, labelCount, sum);
+        emit(names.countName, labelCount, count);
+    }
+
+    private void emit(String metricName, int labelCount, double value) {
+        sampleCount++;
+        consumer.accept(metricName, labelNames, labelValues, labelCount, value);
+    }
+
+    private void ensureLabelCapacity(int capacity) {
+        if (labelNames.length < capacity) {
+            labelNames = Arrays.copyOf(labelNames, capacity * 2);
+            labelValues = Arrays.copyOf(labelValues, capacity * 2);
+        }
+    }
+
+    /**
+     * format the quantile or bucket bound as the text format, eg: 0.005, 1, +Inf
+     */
+    private String formatBound(double bound) {
+        String label = boundLabels.get(bound);
+        if (label == null) {
+            if (Double.isNaN(bound)) {
+                label = "NaN";
+            } else if (Double.isInfinite(bound)) {
+                label = bound > 0 ? "+Inf" : "-Inf";
+            } else {
+                label = BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+            }
+            boundLabels.put(bound, label);
+        }
+        return label;
+    }
+
+    private void error(String message) {
+        if (errorCount++ == 0) {
+            log.warn("prometheus protobuf exposition message skipped: {}.", message);
+        }
+    }
+
+    private static double unsignedToDouble(long value) {
+        return value >= 0 ? value : (double) (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    /**
+     * the series names of a metric family
+     */
+    private static final class FamilyNames {
+
+        private final String name;
+
+        private final String sumName;
+
+        private final String countName;
+
+        private final String bucketName;
+
+        private FamilyNames(String name) {
+            this.name = name;
+            this.sumName = name + "_sum";
+            this.countName = name + "_count";
+            this.bucketName = name + "_bucket";
+        }
+    }
+
+    /**
+     * protobuf wire format reader of a byte range
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+
+        private final int end;
+
+        private int position;
+
+        private Reader(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.position = start;
+            this.end = end;
+        }
+
+        private boolean hasRemaining() {
+            return position < end;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= end) {
+                    throw new MalformedMessageException("truncated varint");
+                }
+                byte current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                if (current >= 0) {
+                    return value;
+                }
+            }
+            throw new MalformedMessageException("malformed varint");
+        }
+
+        private int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new MalformedMessageException("truncated length delimited field");
+            }
+            return (int) length;
+        }
+
+        private double readDouble() {
+            if (end - position < 8) {
+                throw new MalformedMessageException("truncated fixed64 field");
+            }
+            long bits = 0;
+            for (int index = 7; index >= 0; index--) {
+                bits = (bits << 8) | (bytes[position + index] & 0xFF);
+            }
+            position += 8;
+            return Double.longBitsToDouble(bits);
+        }
+
+        private void skip(int tag) {
+            switch (tag & 0x7) {
+                case WIRE_VARINT -> readVarint();
+                case WIRE_FIXED64 -> skipBytes(8);
+                case WIRE_LENGTH_DELIMITED -> skipBytes(readLength());
+                case WIRE_FIXED32 -> skipBytes(4);
+                default -> throw new MalformedMessageException("unsupported wire type " + (tag & 0x7));
+            }
+        }
+
+        private void skipBytes(int length) {
+            if (end - position < length) {
+                throw new MalformedMessageException("truncated field");
+            }
+            position += length;
+        }
+    }
+
+    private static final class MalformedMessageException extends RuntimeException {
+
+        private MalformedMessageException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
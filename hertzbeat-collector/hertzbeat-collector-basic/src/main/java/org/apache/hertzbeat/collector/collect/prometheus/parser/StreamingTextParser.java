@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming parser of the prometheus text exposition format and the OpenMetrics text format,
+ * it is fed with the response bytes as they arrive, so the response is never held as a whole.
+ * Only the current line is buffered, the metric names, label names and label values are interned,
+ * each sample is emitted to the consumer at once.
+ * A malformed line is skipped and counted, the following lines are still parsed.
+ * Not thread safe, one parser for one response.
+ */
+@Slf4j
+public class StreamingTextParser implements ExpositionParser {
+
+    private static final String NAME_LABEL = "__name__";
+
+    /**
+     * the line longer than it is skipped
+     */
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    private final SampleConsumer consumer;
+
+    private final ByteStringInterner interner;
+
+    private byte[] line = new byte[256];
+
+    private int lineLength;
+
+    private boolean lineOverflow;
+
+    private byte[] unescaped = new byte[64];
+
+    private String[] labelNames = new String[8];
+
+    private String[] labelValues = new String[8];
+
+    private long byteCount;
+
+    private long sampleCount;
+
+    private long errorCount;
+
+    public StreamingTextParser(SampleConsumer consumer) {
+        this(consumer, new ByteStringInterner(MAX_INTERNED_STRINGS));
+    }
+
+    /**
+     * @param consumer sample consumer
+     * @param interner interner of the names and label values, can be shared by the parsers in one thread
+     */
+    public StreamingTextParser(SampleConsumer consumer, ByteStringInterner interner) {
+        this.consumer = consumer;
+        this.interner = interner;
+    }
+
+    /**
+     * Feed the next bytes of the content
+     *
+     * @param bytes  content bytes
+     * @param offset offset of the bytes
+     * @param length length of the bytes
+     */
+    @Override
+    public void feed(byte[] bytes, int offset, int length) {
+        byteCount += length;
+        int end = offset + length;
+        int start = offset;
+        for (int index = offset; index < end; index++) {
+            if (bytes[index] == '\n') {
+                appendLine(bytes, start, index - start);
+                endLine();
+                start = index + 1;
+            }
+        }
+        appendLine(bytes, start, end - start);
+    }
+
+    /**
+     * The content ends, parse the last line without the line break
+     */
+    @Override
+    public void finish() {
+        endLine();
+    }
+
+    @Override
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    private void appendLine(byte[] bytes, int offset, int length) {
+        if (length == 0 || lineOverflow) {
+            return;
+        }
+        if (lineLength + length > MAX_LINE_LENGTH) {
+            lineOverflow = true;
+            return;
+        }
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void endLine() {
+        try {
+            if (lineOverflow) {
+                error("line is longer than " + MAX_LINE_LENGTH + " bytes");
+            } else if (lineLength > 0) {
+                parseLine(line, lineLength);
+            }
+        } finally {
+            lineLength = 0;
+            lineOverflow = false;
+        }
+    }
+
+    private void parseLine(byte[] bytes, int end) {
+        int position = skipBlanks(bytes, 0, end);
+        if (position == end || bytes[position] == '#') {
+            return;
+        }
+        // metric name
+        int nameStart = position;
+        if (!isMetricNameStart(bytes[position])) {
+            error("parse metric name error");
+            return;
+        }
+        while (position < end && isMetricNameContinuation(bytes[position])) {
+            position++;
+        }
+        String metricName = interner.intern(bytes, nameStart, position - nameStart);
+        position = skipBlanks(bytes, position, end);
+        // labels
+        int labelCount = 0;
+        if (position < end && bytes[position] == '{') {
+            position = skipBlanks(bytes, position + 1, end);
+            while (position < end && bytes[position] != '}') {
+                int labelNameStart = position;
+                if (!isLabelNameStart(bytes[position])) {
+                    error("parse label name error");
+                    return;
+                }
+                while (position < end && isLabelNameContinuation(bytes[position])) {
+                    position++;
+                }
+                String labelName = interner.intern(bytes, labelNameStart, position - labelNameStart);
+                if (NAME_LABEL.equals(labelName)) {
+                    error("invalid label name " + NAME_LABEL);
+                    return;
+                }
+                position = skipBlanks(bytes, position, end);
+                if (position >= end || bytes[position] != '=') {
+                    error("parse error, not match the format of labelName=labelValue");
+                    return;
+                }
+                position = skipBlanks(bytes, position + 1, end);
+                if (position >= end || bytes[position] != '"') {
+                    error("expected '\"' at start of label value");
+                    return;
+                }
+                position = readLabelValue(bytes, position + 1, end, labelCount);
+                if (position < 0) {
+                    return;
+                }
+                labelNames[labelCount++] = labelName;
+                position = skipBlanks(bytes, position, end);
+                if (position < end && bytes[position] == ',') {
+                    position = skipBlanks(bytes, position + 1, end);
+                } else if (position >= end || bytes[position] != '}') {
+                    error("expected '}' or ',' at end of label value");
+                    return;
+                }
+            }
+            if (position >= end) {
+                error("expected '}' at end of labels");
+                return;
+            }
+            position = skipBlanks(bytes, position + 1, end);
+        }
+        // value, the timestamp and the OpenMetrics exemplar after it are ignored
+        int valueStart = position;
+        while (position < end && bytes[position] != ' ' && bytes[position] != '\t' && bytes[position] != '\r') {
+            position++;
+        }
+        if (position == valueStart) {
+            error("sample value is missing");
+            return;
+        }
+        double value;
+        try {
+            value = parseValue(bytes, valueStart, position - valueStart);
+        } catch (NumberFormatException e) {
+            error("parse sample value error");
+            return;
+        }
+        sampleCount++;
+        consumer.accept(metricName, labelNames, labelValues, labelCount, value);
+    }
+
+    /**
+     * read the label value after the opening quote into the label values at the index
+     *
+     * @return the position after the closing quote, -1 when the value is malformed
+     */
+    private int readLabelValue(byte[] bytes, int position, int end, int index) {
+        if (index == labelNames.length) {
+            labelNames = Arrays.copyOf(labelNames, index * 2);
+            labelValues = Arrays.copyOf(labelValues, index * 2);
+        }
+        int valueStart = position;
+        boolean escaped = false;
+        while (position < end && bytes[position] != '"') {
+            if (bytes[position] == '\\') {
+                escaped = true;
+                position++;
+            }
+            position++;
+        }
+        if (position >= end) {
+            error("expected '\"' at end of label value");
+            return -1;
+        }
+        if (!escaped) {
+            labelValues[index] = interner.intern(bytes, valueStart, position - valueStart);
+            return position + 1;
+        }
+        int length = 0;
+        if (unescaped.length < position - valueStart) {
+            unescaped = new byte[Math.max(unescaped.length * 2, position - valueStart)];
+        }
+        for (int cursor = valueStart; cursor < position; cursor++) {
+            byte current = bytes[cursor];
+            if (current == '\\') {
+                byte next = bytes[++cursor];
+                switch (next) {
+                    case '"', '\\' -> unescaped[length++] = next;
+                    case 'n' -> unescaped[length++] = '\n';
+                    default -> {
+                        error("parse label value error, unknown escape");
+                        return -1;
+                    }
+                }
+            } else {
+                unescaped[length++] = current;
+            }
+        }
+        labelValues[index] = interner.intern(unescaped, 0, length);
+        return position + 1;
+    }
+
+    private void error(String message) {
+        if (errorCount++ == 0) {
+            log.warn("prometheus exposition line skipped: {}, line: {}.", message,
+                    new String(line, 0, Math.min(lineLength, 256), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static double parseValue(byte[] bytes, int offset, int length) {
+        String value = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        if ("+Inf".equalsIgnoreCase(value) || "Inf".equalsIgnoreCase(value)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if ("-Inf".equalsIgnoreCase(value)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static int skipBlanks(byte[] bytes, int position, int end) {
+        while (position < end && (bytes[position] == ' ' || bytes[position] == '\t' || bytes[position] == '\r')) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isMetricNameStart(byte c) {
+        return isLabelNameStart(c) || c == ':';
+    }
+
+    private static boolean isMetricNameContinuation(byte c) {
+        return isLabelNameContinuation(c) || c == ':';
+    }
+
+    private static boolean isLabelNameStart(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isLabelNameContinuation(byte c) {
+        return isLabelNameStart(c) || (c >= '0' && c <= '9');
+    }
+}
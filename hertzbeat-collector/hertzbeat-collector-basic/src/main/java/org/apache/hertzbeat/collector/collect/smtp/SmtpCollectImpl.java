@@ -18,6 +18,7 @@
 package org.apache.hertzbeat.collector.collect.smtp;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -27,6 +28,9 @@ import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.net.smtp.SMTP;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.NumericReplyExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
@@ -68,18 +72,9 @@ public class SmtpCollectImpl extends AbstractCollect {
 
                 Map<String, String> resultMap = execCmdAndParseResult(smtp, smtpProtocol.getCmd(), smtpProtocol);
                 resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(responseTime));
-                if (resultMap.size() < aliasFields.size()) {
-                    log.error("smtp response data not enough: {}", resultMap);
-                    builder.setCode(CollectRep.Code.FAIL);
-                    builder.setMsg("The cmd execution results do not match the expected number of metrics.");
+                if (!addValueRow(builder, aliasFields, resultMap)) {
                     return;
                 }
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String field : aliasFields) {
-                    String fieldValue = resultMap.get(field);
-                    valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
-                }
-                builder.addValueRow(valueRowBuilder.build());
             } else {
                 builder.setCode(CollectRep.Code.UN_CONNECTABLE);
                 builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
@@ -112,18 +107,100 @@ public class SmtpCollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        SmtpProtocol smtpProtocol = metrics.getSmtp();
+        int timeout = CollectUtil.getTimeout(smtpProtocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(smtpProtocol.getHost(), Integer.parseInt(smtpProtocol.getPort()));
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the peer
+            SocketProbeEngine.getInstance().tcp(address, timeout, new SmtpExchange(smtpProtocol.getEmail()), result -> {
+                try {
+                    handleProbeResult(builder, metrics.getAliasFields(), timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.warn(errorMsg, e);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.warn(errorMsg, e);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
     @Override
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_SMTP;
     }
 
+    private static void handleProbeResult(CollectRep.MetricsData.Builder builder, List<String> aliasFields, int timeout,
+                                          SocketProbeResult<Map<String, String>> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> {
+                Map<String, String> resultMap = result.value();
+                resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(result.connectTime()));
+                addValueRow(builder, aliasFields, resultMap);
+            }
+            case REFUSED -> {
+                log.debug(result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("The peer refused to connect: service port does not listening or firewall: " + result.error());
+            }
+            case TIMEOUT -> {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
+            }
+            default -> {
+                log.info(result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed: " + result.error());
+            }
+        }
+    }
+
+    /**
+     * @return false - the result does not have enough metrics
+     */
+    private static boolean addValueRow(CollectRep.MetricsData.Builder builder, List<String> aliasFields,
+                                       Map<String, String> resultMap) {
+        if (resultMap.size() < aliasFields.size()) {
+            log.error("smtp response data not enough: {}", resultMap);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("The cmd execution results do not match the expected number of metrics.");
+            return false;
+        }
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String field : aliasFields) {
+            String fieldValue = resultMap.get(field);
+            valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
+        }
+        builder.addValueRow(valueRowBuilder.build());
+        return true;
+    }
+
     private static Map<String, String> execCmdAndParseResult(SMTP smtp, String cmd, SmtpProtocol smtpProtocol) throws IOException {
-        Map<String, String> result = new HashMap<>(8);
         // Store the response of the SMTP connection
-        result.put("smtpBanner", smtp.getReplyString());
+        String smtpBanner = smtp.getReplyString();
         smtp.helo(smtpProtocol.getEmail());
         // Retrieve the response for the HELO command
-        String replyString = smtp.getReplyString();
+        return parseResult(smtpBanner, smtp.getReplyString());
+    }
+
+    private static Map<String, String> parseResult(String smtpBanner, String replyString) {
+        Map<String, String> result = new HashMap<>(8);
+        result.put("smtpBanner", smtpBanner);
         result.put("heloInfo", replyString);
         String[] lines = replyString.split("\n");
         for (String line : lines) {
@@ -133,4 +210,40 @@ public class SmtpCollectImpl extends AbstractCollect {
         }
         return result;
     }
+
+    /**
+     * read the banner, greet the server by HELO and quit
+     */
+    private static final class SmtpExchange extends NumericReplyExchange<Map<String, String>> {
+
+        private final String email;
+
+        private String smtpBanner;
+
+        private String heloInfo;
+
+        private SmtpExchange(String email) {
+            super(StandardCharsets.UTF_8);
+            this.email = email;
+        }
+
+        @Override
+        protected byte[] onReply(int replyCode, String replyString) {
+            if (smtpBanner == null) {
+                smtpBanner = replyString;
+                return command(email == null ? "HELO" : "HELO " + email);
+            }
+            heloInfo = replyString;
+            complete();
+            return command("QUIT");
+        }
+
+        @Override
+        public Map<String, String> onComplete() throws IOException {
+            if (heloInfo == null) {
+                throw new IOException("Connection closed without indication.");
+            }
+            return parseResult(smtpBanner, heloInfo);
+        }
+    }
 }
@@ -17,42 +17,44 @@
 
 package org.apache.hertzbeat.collector.collect.snmp;
 
-import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.HexFormat;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.SnmpProtocol;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.apache.hertzbeat.common.util.CommonUtil;
-import org.snmp4j.PDU;
-import org.snmp4j.Snmp;
+import org.snmp4j.CommunityTarget;
 import org.snmp4j.Target;
-import org.snmp4j.fluent.SnmpBuilder;
-import org.snmp4j.fluent.SnmpCompletableFuture;
+import org.snmp4j.UserTarget;
 import org.snmp4j.fluent.TargetBuilder;
-import org.snmp4j.mp.MPv3;
 import org.snmp4j.mp.SnmpConstants;
 import org.snmp4j.security.AuthMD5;
+import org.snmp4j.security.AuthSHA;
+import org.snmp4j.security.PrivAES128;
 import org.snmp4j.security.PrivDES;
+import org.snmp4j.security.SecurityLevel;
 import org.snmp4j.security.SecurityModel;
-import org.snmp4j.security.SecurityModels;
-import org.snmp4j.security.SecurityProtocols;
-import org.snmp4j.security.USM;
 import org.snmp4j.security.UsmUser;
 import org.snmp4j.smi.Address;
 import org.snmp4j.smi.GenericAddress;
@@ -61,14 +63,13 @@ import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.TimeTicks;
 import org.snmp4j.smi.Variable;
 import org.snmp4j.smi.VariableBinding;
-import org.snmp4j.util.DefaultPDUFactory;
-import org.snmp4j.util.TableEvent;
-import org.snmp4j.util.TableUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
  * Snmp protocol collection implementation
+ * The requests are sent by the shared {@link SnmpEngine} without blocking the worker thread,
+ * the get metrics of the same device at the same level are collected together and their oids are packed into few pdus.
  */
 @Slf4j
 public class SnmpCollectImpl extends AbstractCollect {
@@ -84,8 +85,17 @@ public class SnmpCollectImpl extends AbstractCollect {
                     + "{1,choice,0#|1#1 hour, |1<{1,number,integer} hours, }"
                     + "{2,choice,0#|1#1 minute, |1<{2,number,integer} minutes, }"
                     + "{3,choice,0#|1#1 second, |1<{3,number,integer} seconds }";
+    private static final int RETRIES = 1;
 
-    private final Map<Integer, Snmp> versionSnmpService = new ConcurrentHashMap<>(3);
+    private final SnmpEngine snmpEngine;
+
+    public SnmpCollectImpl() {
+        this(SnmpEngine.getInstance());
+    }
+
+    SnmpCollectImpl(SnmpEngine snmpEngine) {
+        this.snmpEngine = snmpEngine;
+    }
 
     @Override
     public void preCheck(Metrics metrics) throws IllegalArgumentException {
@@ -100,181 +110,313 @@ public class SnmpCollectImpl extends AbstractCollect {
 
     @Override
     public void collect(CollectRep.MetricsData.Builder builder, Metrics metrics) {
-        long startTime = System.currentTimeMillis();
         SnmpProtocol snmpProtocol = metrics.getSnmp();
         int timeout = CollectUtil.getTimeout(snmpProtocol.getTimeout());
-        int snmpVersion = getSnmpVersion(snmpProtocol.getVersion());
-        Snmp snmpService = null;
+        CountDownLatch latch = new CountDownLatch(1);
+        collectAsync(builder, metrics, latch::countDown);
         try {
-            SnmpBuilder snmpBuilder = new SnmpBuilder();
-            snmpService = getSnmpService(snmpVersion, snmpBuilder);
-            snmpService.listen();
-            Target<?> target;
-            Address targetAddress = GenericAddress.parse(DEFAULT_PROTOCOL + ":" + snmpProtocol.getHost()
-                    + "/" + snmpProtocol.getPort());
-            TargetBuilder<?> targetBuilder = snmpBuilder.target(targetAddress);
-            if (snmpVersion == SnmpConstants.version3) {
-                TargetBuilder.PrivProtocol privatePasswordEncryption = getPrivPasswordEncryption(snmpProtocol.getPrivPasswordEncryption());
-                TargetBuilder.AuthProtocol authPasswordEncryption = getAuthPasswordEncryption(snmpProtocol.getAuthPasswordEncryption());
-                target = targetBuilder
-                        .user(snmpProtocol.getUsername())
-                        .auth(authPasswordEncryption).authPassphrase(snmpProtocol.getAuthPassphrase())
-                        .priv(privatePasswordEncryption).privPassphrase(snmpProtocol.getPrivPassphrase())
-                        .done()
-                        .timeout(timeout).retries(1)
-                        .build();
-                USM usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
-                SecurityModels.getInstance().addSecurityModel(usm);
-                snmpService.getUSM().addUser(
-                        new OctetString(snmpProtocol.getUsername()),
-                        new UsmUser(new OctetString(snmpProtocol.getUsername()),
-                                AuthMD5.ID,
-                                new OctetString(snmpProtocol.getAuthPassphrase()),
-                                PrivDES.ID,
-                                new OctetString(snmpProtocol.getPrivPassphrase()))
-                );
-            } else if (snmpVersion == SnmpConstants.version1) {
-                target = targetBuilder
-                        .v1()
-                        .community(new OctetString(snmpProtocol.getCommunity()))
-                        .timeout(timeout).retries(1)
-                        .build();
-                target.setSecurityModel(SecurityModel.SECURITY_MODEL_SNMPv1);
+            // the engine answers in the timeout of all the tries
+            if (!latch.await((long) timeout * (RETRIES + 1) * 2 + 1000, TimeUnit.MILLISECONDS)) {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Snmp request timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("Snmp collect is interrupted");
+        }
+    }
+
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        collectBatchAsync(List.of(builder), List.of(metrics), callback);
+    }
+
+    @Override
+    public String batchKey(Metrics metrics) {
+        SnmpProtocol snmpProtocol = metrics.getSnmp();
+        if (snmpProtocol == null || !isGet(snmpProtocol)) {
+            return null;
+        }
+        return getSnmpVersion(snmpProtocol.getVersion()) + "|" + snmpProtocol.getHost() + "|" + snmpProtocol.getPort()
+                + "|" + SingleFlight.digest(snmpProtocol.getCommunity()) + "|" + snmpProtocol.getUsername()
+                + "|" + snmpProtocol.getContextName();
+    }
+
+    /**
+     * The oids of the get metrics are packed into the same requests, each walk metrics walks its table,
+     * the callback is called when all of them are answered.
+     */
+    @Override
+    public void collectBatchAsync(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList, Runnable callback) {
+        long startTime = System.currentTimeMillis();
+        List<Integer> getMetrics = new ArrayList<>(metricsList.size());
+        List<Integer> walkMetrics = new ArrayList<>(metricsList.size());
+        for (int index = 0; index < metricsList.size(); index++) {
+            if (isGet(metricsList.get(index).getSnmp())) {
+                getMetrics.add(index);
             } else {
-                target = targetBuilder
-                        .v2c()
-                        .community(new OctetString(snmpProtocol.getCommunity()))
-                        .timeout(timeout).retries(1)
-                        .build();
-                target.setSecurityModel(SecurityModel.SECURITY_MODEL_SNMPv2c);
+                walkMetrics.add(index);
             }
-            String operation = snmpProtocol.getOperation();
-            operation = StringUtils.hasText(operation) ? operation : OPERATION_GET;
-            if (OPERATION_GET.equalsIgnoreCase(operation)) {
-                String contextName = getContextName(snmpProtocol.getContextName());
-                PDU pdu = targetBuilder.pdu().type(PDU.GET).oids(snmpProtocol.getOids().values().toArray(new String[0])).contextName(contextName).build();
-                SnmpCompletableFuture snmpRequestFuture = SnmpCompletableFuture.send(snmpService, target, pdu);
-                List<VariableBinding> vbs = snmpRequestFuture.get().getAll();
-                long responseTime = System.currentTimeMillis() - startTime;
-                Map<String, String> oidsMap = snmpProtocol.getOids();
-                Map<String, String> oidsValueMap = new HashMap<>(oidsMap.size());
-                for (VariableBinding binding : vbs) {
-                    if (binding == null) {
-                        continue;
-                    }
-                    Variable variable = binding.getVariable();
-                    if (variable instanceof TimeTicks timeTicks) {
-                        String value = timeTicks.toString(FORMAT_PATTERN);
-                        oidsValueMap.put(binding.getOid().toDottedString(), value);
-                    } else {
-                        oidsValueMap.put(binding.getOid().toDottedString(), binding.toValueString());
+        }
+        AtomicInteger pending = new AtomicInteger((getMetrics.isEmpty() ? 0 : 1) + walkMetrics.size());
+        Runnable requestCallback = () -> {
+            if (pending.decrementAndGet() == 0) {
+                callback.run();
+            }
+        };
+        if (!getMetrics.isEmpty()) {
+            get(builders, metricsList, getMetrics, startTime, requestCallback);
+        }
+        for (int index : walkMetrics) {
+            walk(builders.get(index), metricsList.get(index), startTime, requestCallback);
+        }
+    }
+
+    @Override
+    public String supportProtocol() {
+        return DispatchConstants.PROTOCOL_SNMP;
+    }
+
+    private void get(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList, List<Integer> getMetrics,
+                     long startTime, Runnable callback) {
+        SnmpProtocol snmpProtocol = metricsList.get(getMetrics.get(0)).getSnmp();
+        Map<String, Integer> oidIndexes = new LinkedHashMap<>();
+        List<OID> oids = new ArrayList<>();
+        try {
+            for (int index : getMetrics) {
+                for (String oid : metricsList.get(index).getSnmp().getOids().values()) {
+                    if (!oidIndexes.containsKey(oid)) {
+                        oids.add(new OID(oid));
+                        oidIndexes.put(oid, oids.size() - 1);
                     }
                 }
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String alias : metrics.getAliasFields()) {
-                    if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
-                        valueRowBuilder.addColumn(Long.toString(responseTime));
+            }
+        } catch (Exception e) {
+            getMetrics.forEach(index -> handleError(builders.get(index), e));
+            callback.run();
+            return;
+        }
+        resolveTarget(snmpProtocol, (target, error) -> {
+            if (error != null) {
+                getMetrics.forEach(index -> handleError(builders.get(index), error));
+                callback.run();
+                return;
+            }
+            get(target, builders, metricsList, getMetrics, oids, oidIndexes, startTime, callback);
+        });
+    }
+
+    private void get(Target<?> target, List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList,
+                     List<Integer> getMetrics, List<OID> oids, Map<String, Integer> oidIndexes, long startTime,
+                     Runnable callback) {
+        SnmpProtocol snmpProtocol = metricsList.get(getMetrics.get(0)).getSnmp();
+        snmpEngine.get(target, oids, getContextName(snmpProtocol.getContextName()), result -> {
+            long responseTime = System.currentTimeMillis() - startTime;
+            for (int index : getMetrics) {
+                CollectRep.MetricsData.Builder builder = builders.get(index);
+                try {
+                    if (result.isSuccess()) {
+                        addGetValueRow(builder, metricsList.get(index), oidIndexes, result.rows().get(0), responseTime);
                     } else {
-                        String oid = oidsMap.get(alias);
-                        String value = oidsValueMap.get(oid);
-                        valueRowBuilder.addColumn(Objects.requireNonNullElse(value, CommonConstants.NULL_VALUE));
-                    }
-                }
-                builder.addValueRow(valueRowBuilder.build());
-            } else if (OPERATION_WALK.equalsIgnoreCase(operation)) {
-                Map<String, String> oidMap = snmpProtocol.getOids();
-                Assert.notEmpty(oidMap, "snmp oids is required when operation is walk.");
-                TableUtils tableUtils = new TableUtils(snmpService, new DefaultPDUFactory(PDU.GETBULK));
-                OID[] oids = oidMap.values().stream().map(OID::new).toArray(OID[]::new);
-                List<TableEvent> tableEvents = tableUtils.getTable(target, oids, null, null);
-                Assert.notNull(tableEvents, "snmp walk response empty content.");
-                long responseTime = System.currentTimeMillis() - startTime;
-                for (TableEvent tableEvent : tableEvents) {
-                    if (tableEvent == null || tableEvent.isError()) {
-                        continue;
-                    }
-                    VariableBinding[] varBindings = tableEvent.getColumns();
-                    Map<String, String> oidsValueMap = new HashMap<>(varBindings.length);
-                    for (VariableBinding binding : varBindings) {
-                        if (binding == null) {
-                            continue;
-                        }
-                        Variable variable = binding.getVariable();
-                        if (variable instanceof TimeTicks timeTicks) {
-                            String value = timeTicks.toString(FORMAT_PATTERN);
-                            oidsValueMap.put(binding.getOid().trim().toDottedString(), value);
-                        } else {
-                            oidsValueMap.put(binding.getOid().trim().toDottedString(), bingdingHexValueToString(binding));
-                        }
-                    }
-                    // when too many empty value field, ignore
-                    if (oidsValueMap.size() < metrics.getAliasFields().size() / 2) {
-                        continue;
+                        handleFailedResult(builder, result);
                     }
-                    CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                    for (String alias : metrics.getAliasFields()) {
-                        if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
-                            valueRowBuilder.addColumn(Long.toString(responseTime));
-                        } else {
-                            String oid = oidMap.get(alias);
-                            String value = oidsValueMap.get(oid);
-                            if (value == null) {
-                                // get leaf
-                                for (String key : oidsValueMap.keySet()) {
-                                    if (key.startsWith(oid)) {
-                                        value = oidsValueMap.get(key);
-                                        break;
-                                    }
-                                }
-                            }
-                            valueRowBuilder.addColumn(Objects.requireNonNullElse(value, CommonConstants.NULL_VALUE));
-                        }
-                    }
-                    builder.addValueRow(valueRowBuilder.build());
+                } catch (Exception e) {
+                    handleError(builder, e);
                 }
             }
-        } catch (ExecutionException | InterruptedException ex) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(ex);
-            log.warn("[snmp collect] error: {}", errorMsg);
-            builder.setCode(CollectRep.Code.UN_CONNECTABLE);
-            builder.setMsg(errorMsg);
+            callback.run();
+        });
+    }
+
+    private void walk(CollectRep.MetricsData.Builder builder, Metrics metrics, long startTime, Runnable callback) {
+        Map<String, String> oidMap = metrics.getSnmp().getOids();
+        List<OID> columns;
+        try {
+            Assert.notEmpty(oidMap, "snmp oids is required when operation is walk.");
+            columns = oidMap.values().stream().map(OID::new).toList();
         } catch (Exception e) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(e);
-            log.warn("[snmp collect] error: {}", errorMsg, e);
-            builder.setCode(CollectRep.Code.FAIL);
-            builder.setMsg(errorMsg);
-        } finally {
-            if (snmpService != null) {
-                if (snmpVersion == SnmpConstants.version3) {
-                    try {
-                        snmpClose(snmpService, SnmpConstants.version3);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
+            handleError(builder, e);
+            callback.run();
+            return;
+        }
+        resolveTarget(metrics.getSnmp(), (target, error) -> {
+            if (error != null) {
+                handleError(builder, error);
+                callback.run();
+                return;
+            }
+            walk(target, builder, metrics, columns, startTime, callback);
+        });
+    }
+
+    private void walk(Target<?> target, CollectRep.MetricsData.Builder builder, Metrics metrics, List<OID> columns,
+                      long startTime, Runnable callback) {
+        snmpEngine.walk(target, columns, result -> {
+            try {
+                if (result.isSuccess()) {
+                    addWalkValueRows(builder, metrics, result.rows(), System.currentTimeMillis() - startTime);
+                } else {
+                    handleFailedResult(builder, result);
+                }
+            } catch (Exception e) {
+                handleError(builder, e);
+            } finally {
+                callback.run();
+            }
+        });
+    }
+
+    private void addGetValueRow(CollectRep.MetricsData.Builder builder, Metrics metrics, Map<String, Integer> oidIndexes,
+                                VariableBinding[] bindings, long responseTime) {
+        Map<String, String> oidsMap = metrics.getSnmp().getOids();
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String alias : metrics.getAliasFields()) {
+            if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
+                valueRowBuilder.addColumn(Long.toString(responseTime));
+            } else {
+                String oid = oidsMap.get(alias);
+                Integer index = oid == null ? null : oidIndexes.get(oid);
+                VariableBinding binding = index == null ? null : bindings[index];
+                String value = null;
+                if (binding != null) {
+                    Variable variable = binding.getVariable();
+                    value = variable instanceof TimeTicks timeTicks ? timeTicks.toString(FORMAT_PATTERN) : binding.toValueString();
+                }
+                valueRowBuilder.addColumn(Objects.requireNonNullElse(value, CommonConstants.NULL_VALUE));
+            }
+        }
+        builder.addValueRow(valueRowBuilder.build());
+    }
+
+    private void addWalkValueRows(CollectRep.MetricsData.Builder builder, Metrics metrics, List<VariableBinding[]> rows,
+                                  long responseTime) {
+        Map<String, String> oidMap = metrics.getSnmp().getOids();
+        for (VariableBinding[] varBindings : rows) {
+            Map<String, String> oidsValueMap = new HashMap<>(varBindings.length);
+            for (VariableBinding binding : varBindings) {
+                if (binding == null) {
+                    continue;
+                }
+                Variable variable = binding.getVariable();
+                if (variable instanceof TimeTicks timeTicks) {
+                    String value = timeTicks.toString(FORMAT_PATTERN);
+                    oidsValueMap.put(binding.getOid().trim().toDottedString(), value);
+                } else {
+                    oidsValueMap.put(binding.getOid().trim().toDottedString(), bingdingHexValueToString(binding));
+                }
+            }
+            // when too many empty value field, ignore
+            if (oidsValueMap.size() < metrics.getAliasFields().size() / 2) {
+                continue;
+            }
+            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+            for (String alias : metrics.getAliasFields()) {
+                if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
+                    valueRowBuilder.addColumn(Long.toString(responseTime));
+                } else {
+                    String oid = oidMap.get(alias);
+                    String value = oidsValueMap.get(oid);
+                    if (value == null) {
+                        // get leaf
+                        for (String key : oidsValueMap.keySet()) {
+                            if (key.startsWith(oid)) {
+                                value = oidsValueMap.get(key);
+                                break;
+                            }
+                        }
                     }
+                    valueRowBuilder.addColumn(Objects.requireNonNullElse(value, CommonConstants.NULL_VALUE));
                 }
             }
+            builder.addValueRow(valueRowBuilder.build());
         }
     }
 
-    @Override
-    public String supportProtocol() {
-        return DispatchConstants.PROTOCOL_SNMP;
+    private void handleFailedResult(CollectRep.MetricsData.Builder builder, SnmpResult result) {
+        log.warn("[snmp collect] error: {}", result.error());
+        builder.setCode(result.outcome() == SnmpResult.Outcome.TIMEOUT ? CollectRep.Code.UN_CONNECTABLE : CollectRep.Code.FAIL);
+        builder.setMsg(result.error());
     }
 
-    private synchronized Snmp getSnmpService(int snmpVersion, SnmpBuilder snmpBuilder) throws IOException {
-        Snmp snmpService = versionSnmpService.get(snmpVersion);
-        if (snmpService != null) {
-            return snmpService;
+    private void handleError(CollectRep.MetricsData.Builder builder, Exception e) {
+        String errorMsg = CommonUtil.getMessageFromThrowable(e);
+        log.warn("[snmp collect] error: {}", errorMsg, e);
+        builder.setCode(e instanceof SocketTimeoutException ? CollectRep.Code.UN_CONNECTABLE : CollectRep.Code.FAIL);
+        builder.setMsg(errorMsg);
+    }
+
+    /**
+     * Create the target of the device, the v3 target is handed to the consumer when the engine id of the device is discovered
+     *
+     * @param snmpProtocol snmp protocol
+     * @param consumer     receive the target or the error
+     */
+    private void resolveTarget(SnmpProtocol snmpProtocol, BiConsumer<Target<?>, Exception> consumer) {
+        Target<?> target;
+        UsmUser user;
+        try {
+            target = createTarget(snmpProtocol);
+            user = target instanceof UserTarget ? createUser(snmpProtocol) : null;
+        } catch (Exception e) {
+            consumer.accept(null, e);
+            return;
         }
+        if (user == null) {
+            consumer.accept(target, null);
+            return;
+        }
+        UserTarget<?> userTarget = (UserTarget<?>) target;
+        snmpEngine.addUser(target.getAddress(), target.getTimeout(), user, (engineId, error) -> {
+            if (error != null) {
+                consumer.accept(null, error);
+                return;
+            }
+            userTarget.setAuthoritativeEngineID(engineId);
+            consumer.accept(userTarget, null);
+        });
+    }
+
+    private Target<?> createTarget(SnmpProtocol snmpProtocol) throws Exception {
+        int snmpVersion = getSnmpVersion(snmpProtocol.getVersion());
+        int timeout = CollectUtil.getTimeout(snmpProtocol.getTimeout());
+        Address targetAddress = GenericAddress.parse(DEFAULT_PROTOCOL + ":" + snmpProtocol.getHost()
+                + "/" + snmpProtocol.getPort());
+        Assert.notNull(targetAddress, "snmp address is invalid: " + snmpProtocol.getHost() + "/" + snmpProtocol.getPort());
+        Target<Address> target;
         if (snmpVersion == SnmpConstants.version3) {
-            snmpService = snmpBuilder.udp().v3().securityProtocols(SecurityProtocols.SecurityProtocolSet.maxCompatibility).usm().threads(4).build();
-        } else if (snmpVersion == SnmpConstants.version1) {
-            snmpService = snmpBuilder.udp().v1().threads(4).build();
+            UserTarget<Address> userTarget = new UserTarget<>();
+            userTarget.setAddress(targetAddress);
+            userTarget.setSecurityName(new OctetString(snmpProtocol.getUsername()));
+            userTarget.setSecurityLevel(SecurityLevel.AUTH_PRIV);
+            target = userTarget;
         } else {
-            snmpService = snmpBuilder.udp().v2c().threads(4).build();
+            target = new CommunityTarget<>(targetAddress, new OctetString(snmpProtocol.getCommunity()));
+            target.setSecurityModel(snmpVersion == SnmpConstants.version1
+                    ? SecurityModel.SECURITY_MODEL_SNMPv1 : SecurityModel.SECURITY_MODEL_SNMPv2c);
         }
-        versionSnmpService.put(snmpVersion, snmpService);
-        return snmpService;
+        target.setVersion(snmpVersion);
+        target.setTimeout(timeout);
+        target.setRetries(RETRIES);
+        return target;
+    }
+
+    private UsmUser createUser(SnmpProtocol snmpProtocol) {
+        return new UsmUser(new OctetString(snmpProtocol.getUsername()),
+                getAuthProtocol(snmpProtocol.getAuthPasswordEncryption()),
+                new OctetString(snmpProtocol.getAuthPassphrase()),
+                getPrivProtocol(snmpProtocol.getPrivPasswordEncryption()),
+                new OctetString(snmpProtocol.getPrivPassphrase()));
+    }
+
+    private boolean isGet(SnmpProtocol snmpProtocol) {
+        String operation = snmpProtocol.getOperation();
+        return !StringUtils.hasText(operation) || OPERATION_GET.equalsIgnoreCase(operation);
     }
 
     private int getSnmpVersion(String snmpVersion) {
@@ -315,29 +457,12 @@ public class SnmpCollectImpl extends AbstractCollect {
         }
     }
 
-    private void snmpClose(Snmp snmp, int version) throws IOException {
-        snmp.close();
-        versionSnmpService.remove(version);
+    private OID getPrivProtocol(String privPasswordEncryption) {
+        return AES128.equals(privPasswordEncryption) ? PrivAES128.ID : PrivDES.ID;
     }
 
-    private TargetBuilder.PrivProtocol getPrivPasswordEncryption(String privPasswordEncryption) {
-        if (privPasswordEncryption == null) {
-            return TargetBuilder.PrivProtocol.des;
-        } else if (AES128.equals(privPasswordEncryption)) {
-            return TargetBuilder.PrivProtocol.aes128;
-        } else {
-            return TargetBuilder.PrivProtocol.des;
-        }
-    }
-
-    private TargetBuilder.AuthProtocol getAuthPasswordEncryption(String authPasswordEncryption) {
-        if (authPasswordEncryption == null) {
-            return TargetBuilder.AuthProtocol.md5;
-        } else if (SHA1.equals(authPasswordEncryption)) {
-            return TargetBuilder.AuthProtocol.sha1;
-        } else {
-            return TargetBuilder.AuthProtocol.md5;
-        }
+    private OID getAuthProtocol(String authPasswordEncryption) {
+        return SHA1.equals(authPasswordEncryption) ? AuthSHA.ID : AuthMD5.ID;
     }
 
     private String getContextName(String contextName) {
@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.snmp;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.util.SingleFlight;
+import org.snmp4j.PDU;
+import org.snmp4j.ScopedPDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.snmp4j.fluent.SnmpBuilder;
+import org.snmp4j.mp.MPv3;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.SecurityProtocols;
+import org.snmp4j.security.UsmUser;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.util.DefaultPDUFactory;
+import org.snmp4j.util.TableEvent;
+import org.snmp4j.util.TableListener;
+import org.snmp4j.util.TableUtils;
+
+/**
+ * Snmp engine shared by the snmp collects. Each snmp version has one session listening on one udp socket,
+ * the requests to all the devices are multiplexed over it and matched with their responses by the request id,
+ * each request has the deadline and retries of its target, so no thread waits for a device.
+ * The oids of a get are packed into pdus of {@link #MAX_OIDS_PER_PDU} oids at most, the pdu answered by tooBig is split,
+ * the tables are walked by getbulk requests of {@link #MAX_ROWS_PER_PDU} rows, getnext for v1.
+ * The v3 engine ids are discovered by the discovery threads, a failed discovery is not retried before its backoff ends.
+ * The results are handed to the callback threads.
+ */
+@Slf4j
+public final class SnmpEngine {
+
+    /**
+     * max oids of a get pdu and max columns of a table walk pdu
+     */
+    static final int MAX_OIDS_PER_PDU = 32;
+
+    /**
+     * max rows of a getbulk pdu of a table walk
+     */
+    static final int MAX_ROWS_PER_PDU = 20;
+
+    /**
+     * backoff of the engine id discovery of a device after its first failure, doubled by each failure
+     */
+    private static final long DISCOVERY_BACKOFF_MILLIS = 30_000L;
+
+    private static final long MAX_DISCOVERY_BACKOFF_MILLIS = 600_000L;
+
+    private static final int SESSION_THREADS = 4;
+
+    private static final int DISCOVERY_THREADS = 4;
+
+    private static final int CALLBACK_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * snmp version - session
+     */
+    private final Map<Integer, Snmp> sessions = new ConcurrentHashMap<>(3);
+
+    /**
+     * v3 authoritative engine id and security name - the digest of the keys of the user added to the usm
+     */
+    private final Map<String, String> users = new ConcurrentHashMap<>(8);
+
+    /**
+     * device address - the running engine id discovery, the collects of the same device share one discovery
+     */
+    private final Map<Address, CompletableFuture<byte[]>> discoveries = new ConcurrentHashMap<>(8);
+
+    /**
+     * device address - the last failed engine id discovery, removed when the engine id is discovered
+     */
+    private final Map<Address, DiscoveryFailure> discoveryFailures = new ConcurrentHashMap<>(8);
+
+    private final ExecutorService callbackExecutor;
+
+    private final ExecutorService discoveryExecutor;
+
+    SnmpEngine() {
+        callbackExecutor = Executors.newFixedThreadPool(CALLBACK_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("snmp-engine-callback-%d")
+                .setDaemon(true)
+                .build());
+        discoveryExecutor = Executors.newFixedThreadPool(DISCOVERY_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("snmp-engine-discovery-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    public static SnmpEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Add the v3 user to the usm of the v3 session for the engine of the device without blocking the caller,
+     * the devices sharing a security name with different keys do not replace the user of each other.
+     * The engine id of the device is discovered once by a discovery thread and cached by the v3 session,
+     * the user of the same engine and security name is replaced when its keys change.
+     * The callback is called in the caller thread when the engine id is known or its discovery is in the backoff
+     * of a failure, otherwise in a thread of the engine.
+     *
+     * @param address  device address
+     * @param timeout  timeout of the engine id discovery in milliseconds
+     * @param user     usm user
+     * @param callback receive the authoritative engine id of the device,
+     *                 or the error when the v3 session can not listen or the engine id is not discovered
+     */
+    public void addUser(Address address, long timeout, UsmUser user, BiConsumer<byte[], Exception> callback) {
+        Snmp session;
+        try {
+            session = getSession(SnmpConstants.version3);
+        } catch (IOException e) {
+            callback.accept(null, e);
+            return;
+        }
+        MPv3 mpv3 = (MPv3) session.getMessageProcessingModel(MPv3.ID);
+        OctetString engineId = mpv3.getEngineID(address);
+        if (engineId != null && engineId.length() > 0) {
+            callback.accept(addUser(session, engineId, user), null);
+            return;
+        }
+        DiscoveryFailure failure = discoveryFailures.get(address);
+        if (failure != null && System.currentTimeMillis() < failure.retryTime()) {
+            callback.accept(null, new SocketTimeoutException("Discover the snmp engine id of " + address
+                    + " timeout, retry after " + (failure.retryTime() - System.currentTimeMillis()) + "ms"));
+            return;
+        }
+        CompletableFuture<byte[]> discovery = discoveries.computeIfAbsent(address, key -> discover(session, key, timeout));
+        discovery.whenComplete((discovered, error) -> discoveries.remove(address, discovery));
+        discovery.whenCompleteAsync((discovered, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                callback.accept(null, cause instanceof Exception exception ? exception : new IOException(cause));
+                return;
+            }
+            callback.accept(addUser(session, new OctetString(discovered), user), null);
+        }, callbackExecutor);
+    }
+
+    private byte[] addUser(Snmp session, OctetString engineId, UsmUser user) {
+        String key = engineId.toHexString() + "/" + user.getSecurityName();
+        String keys = SingleFlight.digest(user.getAuthenticationProtocol() + "/" + user.getAuthenticationPassphrase()
+                + "/" + user.getPrivacyProtocol() + "/" + user.getPrivacyPassphrase());
+        if (!keys.equals(users.get(key))) {
+            session.getUSM().addUser(user.getSecurityName(), engineId, user);
+            users.put(key, keys);
+        }
+        return engineId.getValue();
+    }
+
+    /**
+     * Discover the engine id of the device in a discovery thread, the failure starts the backoff of the device
+     */
+    private CompletableFuture<byte[]> discover(Snmp session, Address address, long timeout) {
+        CompletableFuture<byte[]> discovery = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                byte[] discovered = session.discoverAuthoritativeEngineID(address, timeout);
+                if (discovered == null) {
+                    throw new SocketTimeoutException("Discover the snmp engine id of " + address + " timeout");
+                }
+                discoveryFailures.remove(address);
+                discovery.complete(discovered);
+            } catch (Exception e) {
+                discoveryFailures.compute(address, (key, previous) -> DiscoveryFailure.next(previous));
+                discovery.completeExceptionally(e);
+            }
+        };
+        try {
+            discoveryExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            discovery.completeExceptionally(e);
+        }
+        return discovery;
+    }
+
+    /**
+     * Get the values of the oids without blocking the caller, the callback is called once in a thread of the engine
+     *
+     * @param target      device, its version selects the session
+     * @param oids        oids to get
+     * @param contextName v3 context name, nullable
+     * @param callback    receive one row, its bindings map with the oids by the index, null when the oid is not answered
+     */
+    public void get(Target<?> target, List<OID> oids, String contextName, Consumer<SnmpResult> callback) {
+        Snmp session;
+        try {
+            session = getSession(target.getVersion());
+        } catch (IOException e) {
+            complete(callback, SnmpResult.error("Open snmp session error: " + e.getMessage()));
+            return;
+        }
+        if (oids.isEmpty()) {
+            complete(callback, SnmpResult.success(List.<VariableBinding[]>of(new VariableBinding[0])));
+            return;
+        }
+        GetRequest request = new GetRequest(session, target, oids, contextName, callback);
+        List<int[]> chunks = new ArrayList<>(oids.size() / MAX_OIDS_PER_PDU + 1);
+        for (int from = 0; from < oids.size(); from += MAX_OIDS_PER_PDU) {
+            int[] indexes = new int[Math.min(MAX_OIDS_PER_PDU, oids.size() - from)];
+            Arrays.setAll(indexes, index -> from + index);
+            chunks.add(indexes);
+        }
+        request.pending = chunks.size();
+        chunks.forEach(request::send);
+    }
+
+    /**
+     * Walk the table columns without blocking the caller, the callback is called once in a thread of the engine
+     *
+     * @param target   device, its version selects the session
+     * @param columns  column oids of the table
+     * @param callback receive the rows ordered by the index, the bindings of a row map with the columns by the index
+     */
+    public void walk(Target<?> target, List<OID> columns, Consumer<SnmpResult> callback) {
+        Snmp session;
+        try {
+            session = getSession(target.getVersion());
+        } catch (IOException e) {
+            complete(callback, SnmpResult.error("Open snmp session error: " + e.getMessage()));
+            return;
+        }
+        TableUtils tableUtils = new TableUtils(session, new DefaultPDUFactory(PDU.GETBULK));
+        tableUtils.setMaxNumRowsPerPDU(MAX_ROWS_PER_PDU);
+        tableUtils.setMaxNumColumnsPerPDU(MAX_OIDS_PER_PDU);
+        tableUtils.getTable(target, columns.toArray(new OID[0]), new WalkListener(callback), null, null, null);
+    }
+
+    private Snmp getSession(int version) throws IOException {
+        Snmp session = sessions.get(version);
+        if (session != null) {
+            return session;
+        }
+        synchronized (sessions) {
+            session = sessions.get(version);
+            if (session != null) {
+                return session;
+            }
+            SnmpBuilder snmpBuilder = new SnmpBuilder();
+            if (version == SnmpConstants.version3) {
+                session = snmpBuilder.udp().v3().securityProtocols(SecurityProtocols.SecurityProtocolSet.maxCompatibility)
+                        .usm().threads(SESSION_THREADS).build();
+            } else if (version == SnmpConstants.version1) {
+                session = snmpBuilder.udp().v1().threads(SESSION_THREADS).build();
+            } else {
+                session = snmpBuilder.udp().v2c().threads(SESSION_THREADS).build();
+            }
+            session.listen();
+            sessions.put(version, session);
+            return session;
+        }
+    }
+
+    private void complete(Consumer<SnmpResult> callback, SnmpResult result) {
+        try {
+            callbackExecutor.execute(() -> callback.accept(result));
+        } catch (Exception e) {
+            log.error("handle snmp result error: {}.", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A get request, its oids are sent in one or more pdus
+     */
+    private final class GetRequest implements ResponseListener {
+
+        private final Snmp session;
+
+        private final Target<?> target;
+
+        private final List<OID> oids;
+
+        private final String contextName;
+
+        private final Consumer<SnmpResult> callback;
+
+        private final VariableBinding[] bindings;
+
+        /**
+         * pdus waiting for the response
+         */
+        private int pending;
+
+        private boolean done;
+
+        private GetRequest(Snmp session, Target<?> target, List<OID> oids, String contextName, Consumer<SnmpResult> callback) {
+            this.session = session;
+            this.target = target;
+            this.oids = oids;
+            this.contextName = contextName;
+            this.callback = callback;
+            this.bindings = new VariableBinding[oids.size()];
+        }
+
+        /**
+         * @param indexes the indexes of the oids sent in one pdu
+         */
+        private void send(int[] indexes) {
+            PDU pdu = DefaultPDUFactory.createPDU(target, PDU.GET);
+            if (pdu instanceof ScopedPDU scopedPdu && contextName != null) {
+                scopedPdu.setContextName(new OctetString(contextName));
+            }
+            for (int index : indexes) {
+                pdu.add(new VariableBinding(oids.get(index)));
+            }
+            try {
+                session.send(pdu, target, indexes, this);
+            } catch (IOException e) {
+                fail(SnmpResult.error("Send snmp request error: " + e.getMessage()));
+            }
+        }
+
+        @Override
+        public <A extends Address> void onResponse(ResponseEvent<A> event) {
+            // stop the retransmission of the answered request
+            ((Snmp) event.getSource()).cancel(event.getRequest(), this);
+            int[] indexes = (int[]) event.getUserObject();
+            PDU response = event.getResponse();
+            if (event.getError() != null) {
+                fail(SnmpResult.error(event.getError().getMessage()));
+                return;
+            }
+            if (response == null) {
+                fail(SnmpResult.timeout());
+                return;
+            }
+            int errorStatus = response.getErrorStatus();
+            if (errorStatus == PDU.tooBig && indexes.length > 1) {
+                // the response does not fit in a message, split the oids into two pdus
+                synchronized (this) {
+                    pending++;
+                }
+                int half = indexes.length / 2;
+                send(Arrays.copyOfRange(indexes, 0, half));
+                send(Arrays.copyOfRange(indexes, half, indexes.length));
+                return;
+            }
+            if (errorStatus == PDU.noSuchName) {
+                // v1 answers no value when one of the oids does not exist, get the others again
+                int missing = response.getErrorIndex() - 1;
+                if (indexes.length > 1 && missing >= 0 && missing < indexes.length) {
+                    int[] left = new int[indexes.length - 1];
+                    System.arraycopy(indexes, 0, left, 0, missing);
+                    System.arraycopy(indexes, missing + 1, left, missing, left.length - missing);
+                    send(left);
+                    return;
+                }
+                receive(indexes, null);
+                return;
+            }
+            if (errorStatus != PDU.noError) {
+                fail(SnmpResult.error(response.getErrorStatusText()));
+                return;
+            }
+            receive(indexes, response);
+        }
+
+        private void receive(int[] indexes, PDU response) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (response != null) {
+                    for (int index = 0; index < indexes.length && index < response.size(); index++) {
+                        bindings[indexes[index]] = response.get(index);
+                    }
+                }
+                if (--pending > 0) {
+                    return;
+                }
+                done = true;
+            }
+            complete(callback, SnmpResult.success(List.<VariableBinding[]>of(bindings)));
+        }
+
+        private void fail(SnmpResult result) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            complete(callback, result);
+        }
+    }
+
+    /**
+     * Gather the rows of a table walk, the rows of an async walk may arrive out of order
+     */
+    private final class WalkListener implements TableListener {
+
+        private final Consumer<SnmpResult> callback;
+
+        private final List<TableEvent> rows = new ArrayList<>();
+
+        private volatile boolean finished;
+
+        private WalkListener(Consumer<SnmpResult> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public synchronized boolean next(TableEvent event) {
+            if (!event.isError()) {
+                rows.add(event);
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized void finished(TableEvent event) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (event != null && event.isError() && rows.isEmpty()) {
+                complete(callback, event.getStatus() == TableEvent.STATUS_TIMEOUT
+                        ? SnmpResult.timeout() : SnmpResult.error(event.getErrorMessage()));
+                return;
+            }
+            if (event != null && event.isError()) {
+                log.debug("snmp walk ends with error: {}, {} rows are collected.", event.getErrorMessage(), rows.size());
+            }
+            rows.sort(Comparator.comparing(TableEvent::getIndex, Comparator.nullsLast(Comparator.naturalOrder())));
+            complete(callback, SnmpResult.success(rows.stream().map(TableEvent::getColumns)
+                    .filter(Objects::nonNull).toList()));
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    /**
+     * The failures of the engine id discovery of a device, the discovery is retried after the retry time
+     */
+    private record DiscoveryFailure(int failures, long retryTime) {
+
+        private static DiscoveryFailure next(DiscoveryFailure previous) {
+            int failures = previous == null ? 1 : previous.failures + 1;
+            long backoff = Math.min(MAX_DISCOVERY_BACKOFF_MILLIS, DISCOVERY_BACKOFF_MILLIS << Math.min(failures - 1, 5));
+            return new DiscoveryFailure(failures, System.currentTimeMillis() + backoff);
+        }
+    }
+
+    private static class Holder {
+        private static final SnmpEngine INSTANCE = new SnmpEngine();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.snmp;
+
+import java.util.List;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * result of a request of the {@link SnmpEngine}
+ *
+ * @param outcome how the request ends
+ * @param rows    the bindings of the rows, the one row of a get maps with the requested oids by the index,
+ *                only set when the outcome is SUCCESS
+ * @param error   the reason the request fails, nullable
+ */
+public record SnmpResult(Outcome outcome, List<VariableBinding[]> rows, String error) {
+
+    static SnmpResult success(List<VariableBinding[]> rows) {
+        return new SnmpResult(Outcome.SUCCESS, rows, null);
+    }
+
+    static SnmpResult timeout() {
+        return new SnmpResult(Outcome.TIMEOUT, null, "Snmp request timeout");
+    }
+
+    static SnmpResult error(String error) {
+        return new SnmpResult(Outcome.ERROR, null, error);
+    }
+
+    /**
+     * @return true - the device answers
+     */
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+
+    /**
+     * how a request ends
+     */
+    public enum Outcome {
+        /**
+         * the device answers
+         */
+        SUCCESS,
+        /**
+         * the device does not answer in the timeout and retries of the target
+         */
+        TIMEOUT,
+        /**
+         * io error or the error status answered by the device
+         */
+        ERROR
+    }
+}
@@ -25,13 +25,16 @@ import java.net.SocketTimeoutException;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
@@ -45,6 +48,7 @@ import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.collector.util.PrivateKeyUtils;
+import org.apache.hertzbeat.collector.util.SingleFlight;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.SshProtocol;
@@ -62,6 +66,8 @@ import org.springframework.util.StringUtils;
 
 /**
  * Ssh protocol collection implementation
+ * The same level metrics of a monitor are collected together, their commands are executed in concurrent channels
+ * of one session, or merged into one script when the batch script is enabled.
  */
 @Slf4j
 public class SshCollectImpl extends AbstractCollect {
@@ -70,6 +76,7 @@ public class SshCollectImpl extends AbstractCollect {
     private static final String PARSE_TYPE_MULTI_ROW = "multiRow";
     private static final String PARSE_TYPE_NETCAT = "netcat";
     private static final String PARSE_TYPE_LOG = "log";
+    private static final String SCRIPT_DELIMITER_PREFIX = "HERTZBEAT_SCRIPT_END_";
 
     private static final int DEFAULT_TIMEOUT = 10_000;
     private final GlobalConnectionCache connectionCommonCache = GlobalConnectionCache.getInstance();
@@ -83,43 +90,180 @@ public class SshCollectImpl extends AbstractCollect {
 
     @Override
     public void collect(CollectRep.MetricsData.Builder builder, Metrics metrics) {
+        collectBatch(List.of(builder), List.of(metrics));
+    }
 
-        long startTime = System.currentTimeMillis();
+    @Override
+    public String batchKey(Metrics metrics) {
         SshProtocol sshProtocol = metrics.getSsh();
+        if (sshProtocol == null) {
+            return null;
+        }
+        return sshProtocol.getHost() + "|" + sshProtocol.getPort() + "|" + sshProtocol.getUsername()
+                + "|" + SingleFlight.digest(sshProtocol.getPassword()) + "|" + SingleFlight.digest(sshProtocol.getPrivateKey())
+                + "|" + sshProtocol.getReuseConnection();
+    }
+
+    /**
+     * The metrics share one session, each command is executed in its own channel, the channels are opened concurrently
+     * within the channel limit of the session. The scripts of the metrics enabling the batch script are merged into one.
+     */
+    @Override
+    public void collectBatch(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList) {
+        long startTime = System.currentTimeMillis();
+        SshProtocol sshProtocol = metricsList.get(0).getSsh();
         boolean reuseConnection = Boolean.parseBoolean(sshProtocol.getReuseConnection());
-        int timeout = CollectUtil.getTimeout(sshProtocol.getTimeout(), DEFAULT_TIMEOUT);
-        ClientChannel channel = null;
-        ClientSession clientSession = null;
+        int timeout = metricsList.stream()
+                .mapToInt(metrics -> CollectUtil.getTimeout(metrics.getSsh().getTimeout(), DEFAULT_TIMEOUT))
+                .max().orElse(DEFAULT_TIMEOUT);
+        List<Integer> singles = new ArrayList<>(metricsList.size());
+        List<Integer> merged = new ArrayList<>(metricsList.size());
+        // the metrics whose result is set, the error of the batch is not applied to them
+        BitSet completed = new BitSet(metricsList.size());
+        for (int index = 0; index < metricsList.size(); index++) {
+            SshProtocol protocol = metricsList.get(index).getSsh();
+            if (CommonSshBlacklist.isCommandBlacklisted(protocol.getScript())) {
+                builders.get(index).setCode(CollectRep.Code.FAIL);
+                builders.get(index).setMsg("The command is blacklisted: " + protocol.getScript());
+                log.warn("The command is blacklisted: {}", protocol.getScript());
+                completed.set(index);
+            } else if (Boolean.parseBoolean(protocol.getBatchScript())) {
+                merged.add(index);
+            } else {
+                singles.add(index);
+            }
+        }
+        if (merged.size() == 1) {
+            singles.add(merged.remove(0));
+        }
+        if (singles.isEmpty() && merged.isEmpty()) {
+            return;
+        }
+        SshConnect sshConnect = null;
+        List<Execution> executions = new ArrayList<>(singles.size() + 1);
         try {
-            clientSession = getConnectSession(sshProtocol, timeout, reuseConnection);
-            if (CommonSshBlacklist.isCommandBlacklisted(sshProtocol.getScript())) {
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg("The command is blacklisted: " + sshProtocol.getScript());
-                log.warn("The command is blacklisted: {}", sshProtocol.getScript());
-                return;
+            sshConnect = getConnect(sshProtocol, timeout, reuseConnection);
+            long deadline = startTime + timeout;
+            String delimiter = SCRIPT_DELIMITER_PREFIX + Long.toHexString(ThreadLocalRandom.current().nextLong());
+            // open all the channels first, then wait for their commands
+            for (int index : singles) {
+                executions.add(execute(sshConnect, List.of(index), metricsList.get(index).getSsh().getScript(), deadline));
             }
-            channel = clientSession.createExecChannel(sshProtocol.getScript());
-            ByteArrayOutputStream response = new ByteArrayOutputStream();
-            channel.setOut(response);
-            channel.setErr(new NoCloseOutputStream(System.err));
-            channel.open().verify(timeout);
-            List<ClientChannelEvent> list = new ArrayList<>();
-            list.add(ClientChannelEvent.CLOSED);
-            Collection<ClientChannelEvent> waitEvents = channel.waitFor(list, timeout);
-            if (waitEvents.contains(ClientChannelEvent.TIMEOUT)) {
-                //  A cancel signal needs to be sent if the execution times out, otherwise the session cannot be closed promptly
-                int cancelSignal = 3;
-                channel.getInvertedIn().write(cancelSignal);
-                channel.getInvertedIn().flush();
-                throw new SocketTimeoutException("Failed to retrieve command result in time: " + sshProtocol.getScript());
+            if (!merged.isEmpty()) {
+                executions.add(execute(sshConnect, merged, mergeScripts(metricsList, merged, delimiter), deadline));
             }
-            Long responseTime = System.currentTimeMillis() - startTime;
-            String result = response.toString();
-            if (!StringUtils.hasText(result)) {
-                builder.setCode(CollectRep.Code.FAIL);
-                builder.setMsg("ssh shell response data is null");
-                return;
+            for (Execution execution : executions) {
+                if (execution.error == null) {
+                    execution.await(deadline);
+                }
+                if (execution.error != null) {
+                    execution.indexes.forEach(index -> {
+                        handleError(builders.get(index), execution.error);
+                        completed.set(index);
+                    });
+                    continue;
+                }
+                long responseTime = execution.finishTime - startTime;
+                String output = execution.output.toString();
+                if (execution.indexes.size() == 1) {
+                    int index = execution.indexes.get(0);
+                    parseResponseData(output, metricsList.get(index), builders.get(index), responseTime);
+                    completed.set(index);
+                } else {
+                    List<String> outputs = splitOutput(output, delimiter, execution.indexes.size());
+                    for (int i = 0; i < execution.indexes.size(); i++) {
+                        int index = execution.indexes.get(i);
+                        parseResponseData(outputs.get(i), metricsList.get(index), builders.get(index), responseTime);
+                        completed.set(index);
+                    }
+                }
+            }
+        } catch (Exception exception) {
+            for (int index = completed.nextClearBit(0); index < metricsList.size(); index = completed.nextClearBit(index + 1)) {
+                handleError(builders.get(index), exception);
+            }
+        } finally {
+            executions.forEach(Execution::close);
+            if (sshConnect != null && !reuseConnection) {
+                try {
+                    sshConnect.closeConnection();
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String supportProtocol() {
+        return DispatchConstants.PROTOCOL_SSH;
+    }
+
+    /**
+     * Open a channel executing the command, the error of this channel is kept in the execution
+     */
+    private Execution execute(SshConnect sshConnect, List<Integer> indexes, String command, long deadline)
+            throws InterruptedException {
+        Execution execution = new Execution(sshConnect, indexes, command);
+        try {
+            if (!execution.acquire(Math.max(0, deadline - System.currentTimeMillis()))) {
+                throw new SocketTimeoutException("Timeout waiting for a free channel of the ssh session: " + command);
             }
+            execution.open(Math.max(1, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            execution.close();
+            throw e;
+        } catch (Exception e) {
+            execution.error = e;
+            execution.close();
+        }
+        return execution;
+    }
+
+    /**
+     * Each script runs in a subshell, a delimiter line is printed after its output, eg:
+     * <pre>
+     * (
+     * script
+     * )
+     * printf '\n%s\n' 'delimiter'
+     * </pre>
+     */
+    private String mergeScripts(List<Metrics> metricsList, List<Integer> indexes, String delimiter) {
+        StringBuilder script = new StringBuilder();
+        for (int index : indexes) {
+            script.append("(\n").append(metricsList.get(index).getSsh().getScript()).append("\n)\n")
+                    .append("printf '\\n%s\\n' '").append(delimiter).append("'\n");
+        }
+        return script.toString();
+    }
+
+    private List<String> splitOutput(String output, String delimiter, int size) {
+        String separator = "\n" + delimiter + "\n";
+        List<String> outputs = new ArrayList<>(size);
+        int from = 0;
+        while (outputs.size() < size) {
+            int end = output.indexOf(separator, from);
+            if (end < 0) {
+                // the output of the script and the ones after it are lost
+                outputs.add("");
+                from = output.length();
+                continue;
+            }
+            outputs.add(output.substring(from, end));
+            from = end + separator.length();
+        }
+        return outputs;
+    }
+
+    void parseResponseData(String result, Metrics metrics, CollectRep.MetricsData.Builder builder, long responseTime) {
+        if (!StringUtils.hasText(result)) {
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("ssh shell response data is null");
+            return;
+        }
+        SshProtocol sshProtocol = metrics.getSsh();
+        try {
             switch (sshProtocol.getParseType()) {
                 case PARSE_TYPE_LOG -> parseResponseDataByLog(result, metrics.getAliasFields(), builder, responseTime);
                 case PARSE_TYPE_NETCAT -> parseResponseDataByNetcat(result, metrics.getAliasFields(), builder, responseTime);
@@ -130,55 +274,37 @@ public class SshCollectImpl extends AbstractCollect {
                     builder.setMsg("Ssh collect not support this parse type: " + sshProtocol.getParseType());
                 }
             }
-        } catch (ConnectException connectException) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(connectException);
+        } catch (Exception e) {
+            handleError(builder, e);
+        }
+    }
+
+    private void handleError(CollectRep.MetricsData.Builder builder, Exception exception) {
+        String errorMsg = CommonUtil.getMessageFromThrowable(exception);
+        if (exception instanceof ConnectException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg("The peer refused to connect: service port does not listening or firewall: " + errorMsg);
-        } catch (SshException sshException) {
-            Throwable throwable = sshException.getCause();
-            if (throwable instanceof SshChannelOpenException) {
+        } else if (exception instanceof SshException) {
+            if (exception.getCause() instanceof SshChannelOpenException) {
                 log.warn("Remote ssh server no more session channel, please increase sshd_config MaxSessions.");
             }
-            String errorMsg = CommonUtil.getMessageFromThrowable(sshException);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg("Peer ssh connection failed: " + errorMsg);
-        } catch (IOException ioException) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(ioException);
+        } else if (exception instanceof IOException) {
             log.info(errorMsg);
             builder.setCode(CollectRep.Code.UN_CONNECTABLE);
             builder.setMsg("Peer io connection failed: " + errorMsg);
-        } catch (Exception exception) {
-            String errorMsg = CommonUtil.getMessageFromThrowable(exception);
+        } else {
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             log.warn(errorMsg, exception);
             builder.setCode(CollectRep.Code.FAIL);
             builder.setMsg(errorMsg);
-        } finally {
-            if (channel != null && channel.isOpen()) {
-                try {
-                    // Close the SSH channel with the 'false' parameter to ensure the session is not kept alive.
-                    long st = System.currentTimeMillis();
-                    channel.close(false).addListener(future ->
-                            log.debug("channel is closed in {} ms", System.currentTimeMillis() - st));
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                }
-            }
-            if (clientSession != null && !reuseConnection) {
-                try {
-                    clientSession.close();
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                }
-            }
         }
     }
 
-    @Override
-    public String supportProtocol() {
-        return DispatchConstants.PROTOCOL_SSH;
-    }
-
     private void parseResponseDataByLog(String result, List<String> aliasFields, CollectRep.MetricsData.Builder builder, Long responseTime) {
         String[] lines = result.split("\n");
         if (lines.length + 1 < aliasFields.size()) {
@@ -280,43 +406,30 @@ public class SshCollectImpl extends AbstractCollect {
         }
     }
 
-    private void removeConnectSessionCache(SshProtocol sshProtocol) {
-        CacheIdentifier identifier = CacheIdentifier.builder()
-                .ip(sshProtocol.getHost()).port(sshProtocol.getPort())
-                .username(sshProtocol.getUsername()).password(sshProtocol.getPassword())
-                .build();
-        connectionCommonCache.removeCache(identifier);
-    }
-
-    private ClientSession getConnectSession(SshProtocol sshProtocol, int timeout, boolean reuseConnection)
+    private SshConnect getConnect(SshProtocol sshProtocol, int timeout, boolean reuseConnection)
             throws IOException, GeneralSecurityException {
         CacheIdentifier identifier = CacheIdentifier.builder()
                 .ip(sshProtocol.getHost()).port(sshProtocol.getPort())
                 .username(sshProtocol.getUsername()).password(sshProtocol.getPassword())
                 .build();
-        ClientSession clientSession = null;
         if (reuseConnection) {
             Optional<AbstractConnection<?>> cacheOption = connectionCommonCache.getCache(identifier, true);
             if (cacheOption.isPresent()) {
                 SshConnect sshConnect = (SshConnect) cacheOption.get();
-                clientSession = sshConnect.getConnection();
+                ClientSession clientSession = sshConnect.getConnection();
                 try {
-                    if (clientSession == null || clientSession.isClosed() || clientSession.isClosing()) {
-                        clientSession = null;
-                        connectionCommonCache.removeCache(identifier);
+                    if (clientSession != null && !clientSession.isClosed() && !clientSession.isClosing()) {
+                        return sshConnect;
                     }
+                    connectionCommonCache.removeCache(identifier);
                 } catch (Exception e) {
                     log.warn(e.getMessage());
-                    clientSession = null;
                     connectionCommonCache.removeCache(identifier);
                 }
             }
-            if (clientSession != null) {
-                return clientSession;
-            }
         }
         SshClient sshClient = CommonSshClient.getSshClient();
-        clientSession = sshClient.connect(sshProtocol.getUsername(), sshProtocol.getHost(), Integer.parseInt(sshProtocol.getPort()))
+        ClientSession clientSession = sshClient.connect(sshProtocol.getUsername(), sshProtocol.getHost(), Integer.parseInt(sshProtocol.getPort()))
                 .verify(timeout, TimeUnit.MILLISECONDS).getSession();
         if (StringUtils.hasText(sshProtocol.getPassword())) {
             clientSession.addPasswordIdentity(sshProtocol.getPassword());
@@ -331,10 +444,95 @@ public class SshCollectImpl extends AbstractCollect {
             clientSession.close();
             throw new IllegalArgumentException("ssh auth failed.");
         }
+        SshConnect sshConnect = new SshConnect(clientSession);
         if (reuseConnection) {
-            SshConnect sshConnect = new SshConnect(clientSession);
             connectionCommonCache.addCache(identifier, sshConnect);
         }
-        return clientSession;
+        return sshConnect;
+    }
+
+    /**
+     * A command executed in a channel of the session, the channel permit is released once the channel is closed
+     */
+    private static final class Execution {
+
+        private final SshConnect sshConnect;
+
+        private final List<Integer> indexes;
+
+        private final String command;
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ClientChannel channel;
+
+        private boolean acquired;
+
+        private Exception error;
+
+        private long finishTime;
+
+        private Execution(SshConnect sshConnect, List<Integer> indexes, String command) {
+            this.sshConnect = sshConnect;
+            this.indexes = indexes;
+            this.command = command;
+        }
+
+        private boolean acquire(long timeout) throws InterruptedException {
+            acquired = sshConnect.acquireChannel(timeout);
+            return acquired;
+        }
+
+        private void open(long timeout) throws IOException {
+            channel = sshConnect.getConnection().createExecChannel(command);
+            channel.addCloseFutureListener(future -> release());
+            channel.setOut(output);
+            channel.setErr(new NoCloseOutputStream(System.err));
+            channel.open().verify(timeout);
+        }
+
+        private void await(long deadline) {
+            long timeout = Math.max(1, deadline - System.currentTimeMillis());
+            Collection<ClientChannelEvent> waitEvents = channel.waitFor(List.of(ClientChannelEvent.CLOSED), timeout);
+            if (waitEvents.contains(ClientChannelEvent.TIMEOUT)) {
+                try {
+                    //  A cancel signal needs to be sent if the execution times out, otherwise the session cannot be closed promptly
+                    int cancelSignal = 3;
+                    channel.getInvertedIn().write(cancelSignal);
+                    channel.getInvertedIn().flush();
+                } catch (IOException e) {
+                    log.debug("send the cancel signal error: {}", e.getMessage());
+                }
+                error = new SocketTimeoutException("Failed to retrieve command result in time: " + command);
+                return;
+            }
+            finishTime = System.currentTimeMillis();
+        }
+
+        private void close() {
+            if (channel == null) {
+                release();
+                return;
+            }
+            if (channel.isOpen()) {
+                try {
+                    // Close the SSH channel with the 'false' parameter to ensure the session is not kept alive.
+                    long st = System.currentTimeMillis();
+                    channel.close(false).addListener(future ->
+                            log.debug("channel is closed in {} ms", System.currentTimeMillis() - st));
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        private void release() {
+            // no permit to release when the acquire timed out
+            if (acquired && released.compareAndSet(false, true)) {
+                sshConnect.releaseChannel();
+            }
+        }
     }
 }
@@ -17,9 +17,13 @@
 
 package org.apache.hertzbeat.collector.collect.telnet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -29,7 +33,11 @@ import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.telnet.TelnetClient;
+import org.apache.commons.net.telnet.TelnetCommand;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
@@ -68,18 +76,9 @@ public class TelnetCollectImpl extends AbstractCollect {
                 String app = builder.getApp();
                 Map<String, String> resultMap = execCmdAndParseResult(telnetClient, telnet.getCmd(), app);
                 resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(responseTime));
-                if (resultMap.size() < aliasFields.size()) {
-                    log.error("telnet response data not enough: {}", resultMap);
-                    builder.setCode(CollectRep.Code.FAIL);
-                    builder.setMsg("The cmd execution results do not match the expected number of metrics.");
+                if (!addValueRow(builder, aliasFields, resultMap)) {
                     return;
                 }
-                CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-                for (String field : aliasFields) {
-                    String fieldValue = resultMap.get(field);
-                    valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
-                }
-                builder.addValueRow(valueRowBuilder.build());
             } else {
                 builder.setCode(CollectRep.Code.UN_CONNECTABLE);
                 builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
@@ -112,11 +111,90 @@ public class TelnetCollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        TelnetProtocol telnet = metrics.getTelnet();
+        int timeout = CollectUtil.getTimeout(telnet.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(telnet.getHost(), Integer.parseInt(telnet.getPort()));
+            TelnetExchange exchange = new TelnetExchange(telnet.getCmd(), builder.getApp());
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the peer
+            SocketProbeEngine.getInstance().tcp(address, timeout, exchange, result -> {
+                try {
+                    handleProbeResult(builder, metrics.getAliasFields(), timeout, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.warn(errorMsg, e);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception e) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(e);
+            log.warn(errorMsg, e);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
     @Override
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_TELNET;
     }
 
+    private static void handleProbeResult(CollectRep.MetricsData.Builder builder, List<String> aliasFields, int timeout,
+                                          SocketProbeResult<Map<String, String>> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> {
+                Map<String, String> resultMap = result.value();
+                resultMap.put(CollectorConstants.RESPONSE_TIME, Long.toString(result.connectTime()));
+                addValueRow(builder, aliasFields, resultMap);
+            }
+            case REFUSED -> {
+                log.debug(result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("The peer refused to connect: service port does not listening or firewall: " + result.error());
+            }
+            case TIMEOUT -> {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed，Timeout " + timeout + "ms");
+            }
+            default -> {
+                log.info(result.error());
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed: " + result.error());
+            }
+        }
+    }
+
+    /**
+     * @return false - the result does not have enough metrics
+     */
+    private static boolean addValueRow(CollectRep.MetricsData.Builder builder, List<String> aliasFields,
+                                       Map<String, String> resultMap) {
+        if (resultMap.size() < aliasFields.size()) {
+            log.error("telnet response data not enough: {}", resultMap);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg("The cmd execution results do not match the expected number of metrics.");
+            return false;
+        }
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String field : aliasFields) {
+            String fieldValue = resultMap.get(field);
+            valueRowBuilder.addColumn(Objects.requireNonNullElse(fieldValue, CommonConstants.NULL_VALUE));
+        }
+        builder.addValueRow(valueRowBuilder.build());
+        return true;
+    }
+
     private static Map<String, String> execCmdAndParseResult(TelnetClient telnetClient, String cmd, String app) throws IOException {
         if (cmd == null || StringUtils.isEmpty(cmd.trim())) {
             return new HashMap<>(16);
@@ -125,6 +203,10 @@ public class TelnetCollectImpl extends AbstractCollect {
         outputStream.write(cmd.getBytes());
         outputStream.flush();
         String result = new String(telnetClient.getInputStream().readAllBytes());
+        return parseResult(result, app);
+    }
+
+    private static Map<String, String> parseResult(String result, String app) {
         String[] lines = result.split("\n");
         if (CollectorConstants.ZOOKEEPER_APP.equals(app) && CollectorConstants.ZOOKEEPER_ENVI_HEAD.equals(lines[0])) {
             lines = Arrays.stream(lines)
@@ -143,4 +225,103 @@ public class TelnetCollectImpl extends AbstractCollect {
                 .filter(item -> item.length == 2)
                 .collect(Collectors.toMap(x -> x[0], x -> x[1]));
     }
+
+    /**
+     * Send the cmd and read the output until the peer closes the connection,
+     * the telnet options asked by the peer are refused as the {@link TelnetClient} without option handlers does
+     */
+    private static final class TelnetExchange implements SocketExchange<Map<String, String>> {
+
+        private static final int DATA = 0;
+
+        private static final int COMMAND = 1;
+
+        private static final int OPTION = 2;
+
+        private static final int SUBNEGOTIATION = 3;
+
+        private static final int SUBNEGOTIATION_COMMAND = 4;
+
+        private final String cmd;
+
+        private final String app;
+
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(256);
+
+        private int state = DATA;
+
+        private int verb;
+
+        private boolean complete;
+
+        private TelnetExchange(String cmd, String app) {
+            this.cmd = cmd;
+            this.app = app;
+        }
+
+        @Override
+        public byte[] onConnected() {
+            if (cmd == null || StringUtils.isEmpty(cmd.trim())) {
+                complete = true;
+                return null;
+            }
+            return cmd.getBytes();
+        }
+
+        @Override
+        public byte[] onReceive(ByteBuffer content) {
+            ByteArrayOutputStream replies = null;
+            while (content.hasRemaining()) {
+                int b = content.get() & 0xff;
+                switch (state) {
+                    case DATA -> {
+                        if (b == TelnetCommand.IAC) {
+                            state = COMMAND;
+                        } else {
+                            output.write(b);
+                        }
+                    }
+                    case COMMAND -> {
+                        if (b == TelnetCommand.IAC) {
+                            output.write(b);
+                            state = DATA;
+                        } else if (b == TelnetCommand.WILL || b == TelnetCommand.WONT
+                                || b == TelnetCommand.DO || b == TelnetCommand.DONT) {
+                            verb = b;
+                            state = OPTION;
+                        } else {
+                            state = b == TelnetCommand.SB ? SUBNEGOTIATION : DATA;
+                        }
+                    }
+                    case OPTION -> {
+                        if (verb == TelnetCommand.DO || verb == TelnetCommand.WILL) {
+                            if (replies == null) {
+                                replies = new ByteArrayOutputStream(16);
+                            }
+                            replies.write(TelnetCommand.IAC);
+                            replies.write(verb == TelnetCommand.DO ? TelnetCommand.WONT : TelnetCommand.DONT);
+                            replies.write(b);
+                        }
+                        state = DATA;
+                    }
+                    case SUBNEGOTIATION -> state = b == TelnetCommand.IAC ? SUBNEGOTIATION_COMMAND : SUBNEGOTIATION;
+                    default -> state = b == TelnetCommand.SE ? DATA : SUBNEGOTIATION;
+                }
+            }
+            return replies == null ? null : replies.toByteArray();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public Map<String, String> onComplete() {
+            if (complete) {
+                return new HashMap<>(16);
+            }
+            return parseResult(output.toString(Charset.defaultCharset()), app);
+        }
+    }
 }
@@ -23,9 +23,13 @@ import java.net.InetSocketAddress;
 import java.net.PortUnreachableException;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketExchange;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeEngine;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult;
 import org.apache.hertzbeat.collector.constants.CollectorConstants;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.collector.util.CollectUtil;
@@ -57,9 +61,7 @@ public class UdpCollectImpl extends AbstractCollect {
         int timeout = CollectUtil.getTimeout(udpProtocol.getTimeout());
         try (DatagramSocket socket = new DatagramSocket()) {
             socket.setSoTimeout(timeout);
-            String content = udpProtocol.getContent();
-            byte[] buffer = CollectUtil.fromHexString(content);
-            buffer = buffer == null ? HELLO : buffer;
+            byte[] buffer = getContent(udpProtocol);
             SocketAddress socketAddress = new InetSocketAddress(udpProtocol.getHost(), Integer.parseInt(udpProtocol.getPort()));
             DatagramPacket request = new DatagramPacket(buffer, buffer.length, socketAddress);
             socket.send(request);
@@ -67,15 +69,7 @@ public class UdpCollectImpl extends AbstractCollect {
             DatagramPacket response = new DatagramPacket(responseBuffer, responseBuffer.length);
             socket.receive(response);
             long responseTime = System.currentTimeMillis() - startTime;
-            CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
-            for (String alias : metrics.getAliasFields()) {
-                if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
-                    valueRowBuilder.addColumn(Long.toString(responseTime));
-                } else {
-                    valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
-                }
-            }
-            builder.addValueRow(valueRowBuilder.build());
+            addValueRow(builder, metrics, responseTime);
         } catch (SocketTimeoutException timeoutException) {
             String errorMsg = CommonUtil.getMessageFromThrowable(timeoutException);
             log.info(errorMsg);
@@ -94,8 +88,114 @@ public class UdpCollectImpl extends AbstractCollect {
         }
     }
 
+    @Override
+    public boolean supportAsync(Metrics metrics) {
+        return true;
+    }
+
+    @Override
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        UdpProtocol udpProtocol = metrics.getUdp();
+        int timeout = CollectUtil.getTimeout(udpProtocol.getTimeout());
+        try {
+            InetSocketAddress address = new InetSocketAddress(udpProtocol.getHost(), Integer.parseInt(udpProtocol.getPort()));
+            // the probe engine is shared by the port collectors, the worker thread does not wait for the peer
+            SocketProbeEngine.getInstance().udp(address, timeout, new UdpExchange(getContent(udpProtocol)), result -> {
+                try {
+                    handleProbeResult(builder, metrics, result);
+                } catch (Exception e) {
+                    String errorMsg = CommonUtil.getMessageFromThrowable(e);
+                    log.warn(errorMsg, e);
+                    builder.setCode(CollectRep.Code.FAIL);
+                    builder.setMsg(errorMsg);
+                } finally {
+                    callback.run();
+                }
+            });
+        } catch (Exception exception) {
+            String errorMsg = CommonUtil.getMessageFromThrowable(exception);
+            log.warn(errorMsg, exception);
+            builder.setCode(CollectRep.Code.FAIL);
+            builder.setMsg(errorMsg);
+            callback.run();
+        }
+    }
+
     @Override
     public String supportProtocol() {
         return DispatchConstants.PROTOCOL_UDP;
     }
+
+    private static void handleProbeResult(CollectRep.MetricsData.Builder builder, Metrics metrics,
+                                          SocketProbeResult<Void> result) {
+        switch (result.outcome()) {
+            case SUCCESS -> addValueRow(builder, metrics, result.responseTime());
+            case TIMEOUT -> {
+                builder.setCode(CollectRep.Code.UN_CONNECTABLE);
+                builder.setMsg("Peer connect failed: Receive timed out");
+            }
+            case UNREACHABLE -> {
+                log.info(result.error());
+                builder.setCode(CollectRep.Code.UN_REACHABLE);
+                builder.setMsg("Peer port unreachable");
+            }
+            default -> {
+                log.info(result.error());
+                builder.setCode(CollectRep.Code.FAIL);
+                builder.setMsg(result.error());
+            }
+        }
+    }
+
+    private static void addValueRow(CollectRep.MetricsData.Builder builder, Metrics metrics, long responseTime) {
+        CollectRep.ValueRow.Builder valueRowBuilder = CollectRep.ValueRow.newBuilder();
+        for (String alias : metrics.getAliasFields()) {
+            if (CollectorConstants.RESPONSE_TIME.equalsIgnoreCase(alias)) {
+                valueRowBuilder.addColumn(Long.toString(responseTime));
+            } else {
+                valueRowBuilder.addColumn(CommonConstants.NULL_VALUE);
+            }
+        }
+        builder.addValueRow(valueRowBuilder.build());
+    }
+
+    private static byte[] getContent(UdpProtocol udpProtocol) {
+        byte[] buffer = CollectUtil.fromHexString(udpProtocol.getContent());
+        return buffer == null ? HELLO : buffer;
+    }
+
+    /**
+     * send the content and complete on the first datagram of the peer
+     */
+    private static final class UdpExchange implements SocketExchange<Void> {
+
+        private final byte[] content;
+
+        private boolean complete;
+
+        private UdpExchange(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public byte[] onConnected() {
+            return content;
+        }
+
+        @Override
+        public byte[] onReceive(ByteBuffer datagram) {
+            complete = true;
+            return null;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public Void onComplete() {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link JdbcConnectionPool}
+ */
+class JdbcConnectionPoolTest {
+
+    private JdbcConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new JdbcConnectionPool("jdbc:h2:mem:pool_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void reuseConnectionAndStatements() throws Exception {
+
+        Connection physical;
+        PreparedStatement statement;
+        try (JdbcConnectionPool.PooledConnection connection = pool.borrow(1000)) {
+            physical = connection.getConnection();
+            statement = connection.prepareStatement("SELECT 1");
+            assertEquals(1, queryInt(statement));
+        }
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.idleSize());
+
+        try (JdbcConnectionPool.PooledConnection connection = pool.borrow(1000)) {
+            assertSame(physical, connection.getConnection());
+            assertSame(statement, connection.prepareStatement("SELECT 1"));
+            assertEquals(1, connection.cachedStatements());
+            connection.evictStatement("SELECT 1");
+            assertTrue(statement.isClosed());
+            assertNotSame(statement, connection.prepareStatement("SELECT 1"));
+        }
+    }
+
+    @Test
+    void borrowTimeoutWhenExhausted() throws Exception {
+
+        JdbcConnectionPool.PooledConnection first = pool.borrow(1000);
+        JdbcConnectionPool.PooledConnection second = pool.borrow(1000);
+        assertNotSame(first.getConnection(), second.getConnection());
+
+        long start = System.currentTimeMillis();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.borrow(200));
+        assertTrue(System.currentTimeMillis() - start >= 200);
+
+        first.close();
+        try (JdbcConnectionPool.PooledConnection third = pool.borrow(200)) {
+            assertSame(first.getConnection(), third.getConnection());
+        }
+        second.close();
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void discardBrokenConnection() throws Exception {
+
+        Connection physical;
+        try (JdbcConnectionPool.PooledConnection connection = pool.borrow(1000)) {
+            physical = connection.getConnection();
+            connection.prepareStatement("SELECT 1");
+            connection.markBroken();
+        }
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.size());
+
+        try (JdbcConnectionPool.PooledConnection connection = pool.borrow(1000)) {
+            assertNotSame(physical, connection.getConnection());
+            assertEquals(0, connection.cachedStatements());
+        }
+    }
+
+    @Test
+    void evictIdleConnections() throws Exception {
+
+        JdbcConnectionPool.PooledConnection first = pool.borrow(1000);
+        JdbcConnectionPool.PooledConnection second = pool.borrow(1000);
+        first.close();
+        second.close();
+        // not idle too long, kept
+        pool.evictIdle();
+        assertEquals(2, pool.idleSize());
+
+        // the tail one, which the borrowing never reaches, is swept too
+        pool.evictIdle(0);
+        assertTrue(first.getConnection().isClosed());
+        assertTrue(second.getConnection().isClosed());
+        assertEquals(0, pool.idleSize());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void closePool() throws Exception {
+
+        JdbcConnectionPool.PooledConnection borrowed = pool.borrow(1000);
+        JdbcConnectionPool.PooledConnection idle = pool.borrow(1000);
+        idle.close();
+        pool.close();
+
+        assertTrue(idle.getConnection().isClosed());
+        assertThrows(SQLException.class, () -> pool.borrow(1000));
+        // the borrowed connection is closed when it is returned
+        borrowed.close();
+        assertTrue(borrowed.getConnection().isClosed());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void borrowConcurrently() throws Exception {
+
+        int tasks = 200;
+        AtomicInteger sum = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            for (int index = 0; index < tasks; index++) {
+                int value = index;
+                futures.add(executor.submit(() -> {
+                    try (JdbcConnectionPool.PooledConnection connection = pool.borrow(5000)) {
+                        PreparedStatement statement = connection.prepareStatement("SELECT CAST(? AS INT)");
+                        statement.setInt(1, value);
+                        sum.addAndGet(queryInt(statement));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(tasks * (tasks - 1) / 2, sum.get());
+        assertTrue(pool.size() <= 2);
+        assertEquals(pool.size(), pool.idleSize());
+    }
+
+    private static int queryInt(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
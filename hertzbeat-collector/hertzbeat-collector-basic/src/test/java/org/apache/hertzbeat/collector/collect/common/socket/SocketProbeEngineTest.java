@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link SocketProbeEngine}
+ */
+class SocketProbeEngineTest {
+
+    private static final SocketProbeEngine ENGINE = new SocketProbeEngine(2);
+
+    @Test
+    void tcpBannerExchange() throws Exception {
+
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    OutputStream output = socket.getOutputStream();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    output.write("220-mail.example.com\r\n220 ready\r\n".getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    String helo = reader.readLine();
+                    output.write(("250 hello " + helo.substring(5) + "\r\n").getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    reader.readLine();
+                } catch (Exception ignored) {
+                    // the probe closes the connection
+                }
+            });
+            server.start();
+            CompletableFuture<SocketProbeResult<List<String>>> future = new CompletableFuture<>();
+            ENGINE.tcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()), 3000,
+                    new GreetExchange(), future::complete);
+            SocketProbeResult<List<String>> result = future.get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            assertEquals(List.of("220-mail.example.com\r\n220 ready\r\n", "250 hello probe\r\n"), result.value());
+            server.join(5000);
+        }
+    }
+
+    @Test
+    void tcpRefused() throws Exception {
+
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = serverSocket.getLocalPort();
+        }
+        CompletableFuture<SocketProbeResult<List<String>>> future = new CompletableFuture<>();
+        ENGINE.tcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 3000, new GreetExchange(), future::complete);
+
+        assertEquals(SocketProbeResult.Outcome.REFUSED, future.get(5, TimeUnit.SECONDS).outcome());
+    }
+
+    @Test
+    void tcpTimeout() throws Exception {
+
+        // the server accepts the connection but never speaks
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<SocketProbeResult<List<String>>> future = new CompletableFuture<>();
+            ENGINE.tcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()), 300,
+                    new GreetExchange(), future::complete);
+            SocketProbeResult<List<String>> result = future.get(5, TimeUnit.SECONDS);
+
+            assertEquals(SocketProbeResult.Outcome.TIMEOUT, result.outcome());
+            assertTrue(result.responseTime() >= 300);
+        }
+    }
+
+    @Test
+    void tcpManyProbesConcurrently() throws Exception {
+
+        int probes = 2000;
+        try (ServerSocket serverSocket = new ServerSocket(0, probes, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                for (int index = 0; index < probes; index++) {
+                    try (Socket socket = serverSocket.accept()) {
+                        socket.getOutputStream().write("220 ready\r\n".getBytes(StandardCharsets.UTF_8));
+                    } catch (Exception ignored) {
+                        return;
+                    }
+                }
+            });
+            server.start();
+            List<SocketProbeResult<Boolean>> results = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(probes);
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+            for (int index = 0; index < probes; index++) {
+                ENGINE.tcp(address, 10000, new BannerExchange(), result -> {
+                    results.add(result);
+                    latch.countDown();
+                });
+            }
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertEquals(probes, results.size());
+            assertTrue(results.stream().allMatch(result -> result.isSuccess() && result.value()));
+        }
+    }
+
+    @Test
+    void udpExchange() throws Exception {
+
+        try (DatagramSocket serverSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try {
+                    DatagramPacket packet = new DatagramPacket(new byte[64], 64);
+                    serverSocket.receive(packet);
+                    serverSocket.send(new DatagramPacket(packet.getData(), packet.getLength(), packet.getSocketAddress()));
+                } catch (Exception ignored) {
+                    // the server socket is closed
+                }
+            });
+            server.start();
+            CompletableFuture<SocketProbeResult<String>> future = new CompletableFuture<>();
+            ENGINE.udp(new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort()), 3000,
+                    new EchoExchange(), future::complete);
+            SocketProbeResult<String> result = future.get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            assertEquals("hello", result.value());
+        }
+    }
+
+    @Test
+    void udpPortUnreachable() throws Exception {
+
+        int port;
+        try (DatagramSocket serverSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = serverSocket.getLocalPort();
+        }
+        CompletableFuture<SocketProbeResult<String>> future = new CompletableFuture<>();
+        ENGINE.udp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 3000, new EchoExchange(), future::complete);
+
+        assertEquals(SocketProbeResult.Outcome.UNREACHABLE, future.get(5, TimeUnit.SECONDS).outcome());
+    }
+
+    @Test
+    void unresolvedAddress() throws Exception {
+
+        CompletableFuture<SocketProbeResult<String>> future = new CompletableFuture<>();
+        ENGINE.udp(InetSocketAddress.createUnresolved("unknown.invalid", 123), 3000, new EchoExchange(), future::complete);
+
+        assertEquals(SocketProbeResult.Outcome.ERROR, future.get(5, TimeUnit.SECONDS).outcome());
+    }
+
+    /**
+     * read the banner, greet and quit
+     */
+    private static final class GreetExchange extends NumericReplyExchange<List<String>> {
+
+        private final List<String> replies = new CopyOnWriteArrayList<>();
+
+        private GreetExchange() {
+            super(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected byte[] onReply(int replyCode, String replyString) {
+            replies.add(replyString);
+            if (replies.size() == 1) {
+                return command("HELO probe");
+            }
+            complete();
+            return command("QUIT");
+        }
+
+        @Override
+        public List<String> onComplete() {
+            return replies;
+        }
+    }
+
+    /**
+     * expect the 220 banner
+     */
+    private static final class BannerExchange extends NumericReplyExchange<Boolean> {
+
+        private boolean ready;
+
+        private BannerExchange() {
+            super(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected byte[] onReply(int replyCode, String replyString) {
+            ready = replyCode == 220;
+            complete();
+            return null;
+        }
+
+        @Override
+        public Boolean onComplete() {
+            return ready;
+        }
+    }
+
+    /**
+     * send hello and expect it back
+     */
+    private static final class EchoExchange implements SocketExchange<String> {
+
+        private String echo;
+
+        @Override
+        public byte[] onConnected() {
+            return "hello".getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] onReceive(ByteBuffer content) {
+            echo = StandardCharsets.UTF_8.decode(content).toString();
+            return null;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return echo != null;
+        }
+
+        @Override
+        public String onComplete() {
+            return echo;
+        }
+    }
+}
@@ -17,10 +17,28 @@
 
 package org.apache.hertzbeat.collector.collect.database;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hertzbeat.collector.collect.common.cache.CacheIdentifier;
+import org.apache.hertzbeat.collector.collect.common.cache.GlobalConnectionCache;
+import org.apache.hertzbeat.collector.collect.common.cache.JdbcConnect;
+import org.apache.hertzbeat.collector.collect.common.cache.JdbcConnectionPool;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.JdbcProtocol;
@@ -123,9 +141,194 @@ class JdbcCommonCollectTest {
         });
     }
 
+    @Test
+    void collectMetricsConcurrently() throws Exception {
+
+        String url = createBookDatabase();
+        int metricsNum = 24;
+        int rounds = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(metricsNum);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                List<Future<CollectRep.MetricsData.Builder>> futures = new ArrayList<>(metricsNum);
+                for (int index = 0; index < metricsNum; index++) {
+                    Metrics metrics = jdbcMetrics(url, "oneRow", "SELECT COUNT(*) AS total FROM book WHERE id > " + index, "total");
+                    futures.add(executor.submit(() -> {
+                        CollectRep.MetricsData.Builder builder = CollectRep.MetricsData.newBuilder();
+                        jdbcCommonCollect.collect(builder, metrics);
+                        return builder;
+                    }));
+                }
+                for (int index = 0; index < metricsNum; index++) {
+                    CollectRep.MetricsData.Builder builder = futures.get(index).get(10, TimeUnit.SECONDS);
+                    assertEquals(CollectRep.Code.SUCCESS, builder.getCode(), builder.getMsg());
+                    assertEquals(String.valueOf(100 - index), builder.getValues(0).getColumns(0));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void collectBatchInOneSession() throws Exception {
+
+        String url = createBookDatabase();
+        List<Metrics> metricsList = List.of(
+                jdbcMetrics(url, "oneRow", "SELECT COUNT(*) AS total FROM book", "total"),
+                jdbcMetrics(url, "multiRow", "SELECT id, name FROM book WHERE id <= 3 ORDER BY id", "id", "name"),
+                jdbcMetrics(url, "columns", "SELECT name, id FROM book WHERE id <= 2", "book1", "book2"),
+                jdbcMetrics(url, "oneRow", "SELECT missing FROM book", "missing"),
+                jdbcMetrics(url, "oneRow", "SELECT MAX(id) AS max_id FROM book", "max_id"));
+        List<CollectRep.MetricsData.Builder> builders = new ArrayList<>();
+        metricsList.forEach(metrics -> builders.add(CollectRep.MetricsData.newBuilder()));
+        String batchKey = jdbcCommonCollect.batchKey(metricsList.get(0));
+        metricsList.forEach(metrics -> assertEquals(batchKey, jdbcCommonCollect.batchKey(metrics)));
+
+        jdbcCommonCollect.collectBatch(builders, metricsList);
+
+        assertEquals("100", builders.get(0).getValues(0).getColumns(0));
+        assertEquals(3, builders.get(1).getValuesCount());
+        assertEquals("book3", builders.get(1).getValues(2).getColumns(1));
+        assertEquals(List.of("1", "2"), builders.get(2).getValues(0).getColumnsList());
+        // the failed sql does not break the session of the others
+        assertEquals(CollectRep.Code.FAIL, builders.get(3).getCode());
+        assertEquals(CollectRep.Code.SUCCESS, builders.get(4).getCode(), builders.get(4).getMsg());
+        assertEquals("100", builders.get(4).getValues(0).getColumns(0));
+        CacheIdentifier identifier = CacheIdentifier.builder().ip(url).username("sa").password("").build();
+        JdbcConnectionPool pool = ((JdbcConnect) GlobalConnectionCache.getInstance().getCache(identifier, false)
+                .orElseThrow()).getConnection();
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void batchKey() {
+        Metrics mysql = jdbcMetrics("jdbc:mysql://localhost:3306/test", "oneRow", "SELECT 1", "one");
+        Metrics other = jdbcMetrics("jdbc:mysql://localhost:3306/other", "oneRow", "SELECT 1", "one");
+        Metrics script = jdbcMetrics("jdbc:mysql://localhost:3306/test", "runScript", "/tmp/script.sql");
+
+        assertEquals(jdbcCommonCollect.batchKey(mysql),
+                jdbcCommonCollect.batchKey(jdbcMetrics("jdbc:mysql://localhost:3306/test", "multiRow", "SELECT 2", "two")));
+        assertNotEquals(jdbcCommonCollect.batchKey(mysql), jdbcCommonCollect.batchKey(other));
+        assertNull(jdbcCommonCollect.batchKey(script));
+    }
+
+    @Test
+    void queryPipelined() throws Exception {
+
+        String url = createBookDatabase();
+        List<Metrics> metricsList = List.of(
+                jdbcMetrics(url, "oneRow", "SELECT COUNT(*) AS total FROM book;", "total"),
+                jdbcMetrics(url, "runScript", "/tmp/script.sql"),
+                jdbcMetrics(url, "multiRow", "SELECT id, name FROM book WHERE id <= 3 ORDER BY id", "id", "name"),
+                jdbcMetrics(url, "oneRow", "SELECT 1; SELECT 2", "one"),
+                jdbcMetrics(url, "columns", "SELECT name, id FROM book WHERE id <= 2", "book1", "book2"));
+        List<CollectRep.MetricsData.Builder> builders = new ArrayList<>();
+        metricsList.forEach(metrics -> builders.add(CollectRep.MetricsData.newBuilder()));
+        List<String> executed = new ArrayList<>();
+
+        try (Connection database = DriverManager.getConnection(url, "sa", "")) {
+            boolean[] collected = jdbcCommonCollect.queryPipelined(
+                    pipelinedConnection(database, executed, Integer.MAX_VALUE), builders, metricsList);
+
+            assertArrayEquals(new boolean[]{true, false, true, false, true}, collected);
+        }
+        // the script and the multi statement sql are left to be queried one by one
+        assertEquals(List.of("SELECT COUNT(*) AS total FROM book;\n"
+                + "SELECT id, name FROM book WHERE id <= 3 ORDER BY id;\n"
+                + "SELECT name, id FROM book WHERE id <= 2"), executed);
+        assertEquals("100", builders.get(0).getValues(0).getColumns(0));
+        assertEquals(3, builders.get(2).getValuesCount());
+        assertEquals("book3", builders.get(2).getValues(2).getColumns(1));
+        assertEquals(List.of("1", "2"), builders.get(4).getValues(0).getColumnsList());
+        assertEquals(0, builders.get(1).getValuesCount());
+        assertEquals(0, builders.get(3).getValuesCount());
+    }
+
+    @Test
+    void queryPipelinedMissingResult() throws Exception {
+
+        String url = createBookDatabase();
+        List<Metrics> metricsList = List.of(
+                jdbcMetrics(url, "oneRow", "SELECT COUNT(*) AS total FROM book", "total"),
+                jdbcMetrics(url, "oneRow", "SELECT MAX(id) AS max_id FROM book", "max_id"));
+        List<CollectRep.MetricsData.Builder> builders = new ArrayList<>();
+        metricsList.forEach(metrics -> builders.add(CollectRep.MetricsData.newBuilder()));
+
+        try (Connection database = DriverManager.getConnection(url, "sa", "")) {
+            boolean[] collected = jdbcCommonCollect.queryPipelined(
+                    pipelinedConnection(database, new ArrayList<>(), 1), builders, metricsList);
+
+            // nothing is collected, the queries are run one by one then
+            assertArrayEquals(new boolean[]{false, false}, collected);
+        }
+        assertEquals(0, builders.get(0).getValuesCount());
+        assertEquals(0, builders.get(1).getValuesCount());
+    }
+
     @Test
     void supportProtocol() {
         String protocol = jdbcCommonCollect.supportProtocol();
         assertEquals(DispatchConstants.PROTOCOL_JDBC, protocol);
     }
+
+    private static String createBookDatabase() throws Exception {
+        String url = "jdbc:h2:mem:collect_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE book (id INT PRIMARY KEY, name VARCHAR(32))");
+            statement.execute("INSERT INTO book SELECT X, 'book' || X FROM SYSTEM_RANGE(1, 100)");
+        }
+        return url;
+    }
+
+    /**
+     * a connection whose statement returns the results of a multi statement sql in order like the postgresql driver,
+     * each statement is queried on the database and at most maxResults results are returned
+     */
+    private static Connection pipelinedConnection(Connection database, List<String> executed, int maxResults) {
+        List<Statement> statements = new ArrayList<>();
+        List<ResultSet> resultSets = new ArrayList<>();
+        int[] current = new int[1];
+        Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "execute" -> {
+                        executed.add((String) args[0]);
+                        for (String sql : ((String) args[0]).split(";\n")) {
+                            if (resultSets.size() < maxResults) {
+                                Statement query = database.createStatement();
+                                statements.add(query);
+                                resultSets.add(query.executeQuery(sql));
+                            }
+                        }
+                        yield !resultSets.isEmpty();
+                    }
+                    case "getResultSet" -> resultSets.get(current[0]);
+                    case "getMoreResults" -> ++current[0] < resultSets.size();
+                    case "getUpdateCount" -> -1;
+                    case "close" -> {
+                        for (Statement query : statements) {
+                            query.close();
+                        }
+                        yield null;
+                    }
+                    default -> null;
+                });
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> "createStatement".equals(method.getName()) ? statement : null);
+    }
+
+    private static Metrics jdbcMetrics(String url, String queryType, String sql, String... aliasFields) {
+        JdbcProtocol jdbc = new JdbcProtocol();
+        jdbc.setUrl(url);
+        jdbc.setUsername("sa");
+        jdbc.setPassword("");
+        jdbc.setTimeout("6000");
+        jdbc.setQueryType(queryType);
+        jdbc.setSql(sql);
+        Metrics metrics = new Metrics();
+        metrics.setJdbc(jdbc);
+        metrics.setAliasFields(List.of(aliasFields));
+        return metrics;
+    }
 }
@@ -17,11 +17,24 @@
 
 package org.apache.hertzbeat.collector.collect.http;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.HttpProtocol;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -29,11 +42,38 @@ import org.junit.jupiter.api.Test;
  * Test case for {@link HttpCollectImpl}
  */
 class HttpCollectImplTest {
+
+    /**
+     * delay(ms) of the local http server response
+     */
+    private static final long RESPONSE_DELAY = 100L;
+
     private HttpCollectImpl httpCollectImpl;
 
+    private HttpServer httpServer;
+
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         httpCollectImpl = new HttpCollectImpl();
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        httpServer.createContext("/status", exchange -> {
+            try {
+                Thread.sleep(RESPONSE_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"name\":\"hertzbeat\",\"status\":\"up\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        httpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpServer.stop(0);
     }
 
     @Test
@@ -60,9 +100,76 @@ class HttpCollectImplTest {
         httpCollectImpl.collect(builder, metrics);
     }
 
+    @Test
+    void collectAsync() throws Exception {
+        Metrics metrics = buildMetrics(0);
+        CollectRep.MetricsData.Builder syncBuilder = CollectRep.MetricsData.newBuilder();
+        CollectRep.MetricsData.Builder asyncBuilder = CollectRep.MetricsData.newBuilder();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        httpCollectImpl.collect(syncBuilder, metrics);
+        httpCollectImpl.collectAsync(asyncBuilder, buildMetrics(1), latch::countDown);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(CollectRep.Code.SUCCESS, asyncBuilder.getCode());
+        assertEquals(syncBuilder.getValues(0).getColumns(0), asyncBuilder.getValues(0).getColumns(0));
+        assertEquals("up", asyncBuilder.getValues(0).getColumns(1));
+    }
+
+    @Test
+    void collectAsyncConcurrently() throws Exception {
+
+        // the caller thread only sends the requests, the responses are waited for on the reactor threads
+        int requests = 200;
+        Thread caller = Thread.currentThread();
+        CountDownLatch latch = new CountDownLatch(requests);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger callerCallbacks = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        for (int index = 0; index < requests; index++) {
+            CollectRep.MetricsData.Builder builder = CollectRep.MetricsData.newBuilder();
+            httpCollectImpl.collectAsync(builder, buildMetrics(index), () -> {
+                if (builder.getCode() == CollectRep.Code.SUCCESS) {
+                    succeeded.incrementAndGet();
+                }
+                if (Thread.currentThread() == caller) {
+                    callerCallbacks.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+        // the last request is still waiting for its delayed response when the caller returns
+        assertTrue(latch.getCount() > 0);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(requests, succeeded.get());
+        assertEquals(0, callerCallbacks.get());
+        // the responses are waited for together, one after another they take requests * RESPONSE_DELAY
+        assertTrue(System.currentTimeMillis() - start < requests * RESPONSE_DELAY / 2);
+    }
+
     @Test
     void supportProtocol() {
         String protocol = httpCollectImpl.supportProtocol();
         assert "http".equals(protocol);
     }
+
+    private Metrics buildMetrics(int index) {
+        HttpProtocol http = HttpProtocol.builder()
+                .host("127.0.0.1")
+                .port(String.valueOf(httpServer.getAddress().getPort()))
+                .url("/status")
+                .method("GET")
+                .ssl("false")
+                .parseType(DispatchConstants.PARSE_DEFAULT)
+                // different params so the requests are not coalesced
+                .params(Map.of("index", String.valueOf(index)))
+                .build();
+        return Metrics.builder()
+                .name("status")
+                .protocol("http")
+                .http(http)
+                .aliasFields(List.of("name", "status"))
+                .build();
+    }
 }
@@ -26,6 +26,9 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.IcmpProtocol;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
@@ -105,6 +108,20 @@ class IcmpCollectImplTest {
         }
     }
 
+    @Test
+    void testUnreachableEmitsPacketLoss() throws Exception {
+        metrics.setAliasFields(List.of("responseTime", "packetLoss", "jitter"));
+        metrics.setIcmp(IcmpProtocol.builder().host("unreachable.host").timeout("3000").build());
+        try (MockedStatic<InetAddress> mockedInetAddress = Mockito.mockStatic(InetAddress.class)) {
+            mockedInetAddress.when(() -> InetAddress.getByName(Mockito.anyString())).thenReturn(inetAddress);
+            Mockito.when(inetAddress.isReachable(Mockito.anyInt())).thenReturn(false);
+            icmpCollect.collect(builder, metrics);
+            assertEquals(CollectRep.Code.UN_REACHABLE, builder.getCode());
+            assertEquals(1, builder.getValuesCount());
+            assertEquals(List.of(CommonConstants.NULL_VALUE, "100", "0"), builder.getValues(0).getColumnsList());
+        }
+    }
+
     @Test
     void testUnknownHostException() {
         try (MockedStatic<InetAddress> mockedInetAddress = Mockito.mockStatic(InetAddress.class)) {
@@ -137,6 +154,27 @@ class IcmpCollectImplTest {
         }
     }
 
+    @Test
+    void testCollectAsync() throws Exception {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        icmpCollect.collectAsync(builder, metrics, () -> future.complete(null));
+        future.get(10, TimeUnit.SECONDS);
+        assertEquals(CollectRep.Code.SUCCESS, builder.getCode());
+        assertEquals(1, builder.getValuesCount());
+        assertNotNull(builder.getValues(0).getColumns(0));
+    }
+
+    @Test
+    void testCollectAsyncUnknownHost() throws Exception {
+        try (MockedStatic<InetAddress> mockedInetAddress = Mockito.mockStatic(InetAddress.class)) {
+            mockedInetAddress.when(() -> InetAddress.getByName(Mockito.anyString())).thenThrow(new UnknownHostException("Mocked exception"));
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            icmpCollect.collectAsync(builder, metrics, () -> future.complete(null));
+            future.get(10, TimeUnit.SECONDS);
+            assertEquals(CollectRep.Code.UN_REACHABLE, builder.getCode());
+        }
+    }
+
     @Test
     void testSupportProtocol() {
         assertEquals("icmp", icmpCollect.supportProtocol());
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.icmp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link IcmpProbeEngine}
+ */
+class IcmpProbeEngineTest {
+
+    private static final IcmpProbeEngine TCP_ECHO_ENGINE = new IcmpProbeEngine(false, 7);
+
+    @Test
+    void probeLocalhost() throws Exception {
+
+        CompletableFuture<IcmpProbeResult> future = new CompletableFuture<>();
+        TCP_ECHO_ENGINE.probe("localhost", InetAddress.getLoopbackAddress(), 3000, future::complete);
+        IcmpProbeResult result = future.get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.reachable());
+        assertEquals(0, result.packetLoss());
+    }
+
+    @Test
+    void probeManyTargetsConcurrently() throws Exception {
+
+        int probes = 2000;
+        List<IcmpProbeResult> results = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(probes);
+        for (int index = 0; index < probes; index++) {
+            InetAddress address = InetAddress.getByName("127.0.0." + (index % 200 + 1));
+            TCP_ECHO_ENGINE.probe("batch-" + index, address, 3000, result -> {
+                results.add(result);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(probes, results.size());
+        assertTrue(results.stream().allMatch(IcmpProbeResult::reachable));
+    }
+
+    @Test
+    void probeIcmpEchoInCallerThread() {
+
+        IcmpProbeEngine engine = new IcmpProbeEngine(true, 7);
+        Thread caller = Thread.currentThread();
+        List<Thread> callbackThreads = new ArrayList<>();
+        engine.probe("icmp-localhost", InetAddress.getLoopbackAddress(), 3000,
+                result -> callbackThreads.add(Thread.currentThread()));
+
+        // the blocking probe holds the caller, the collect worker, until it completes
+        assertEquals(List.of(caller), callbackThreads);
+    }
+
+    @Test
+    void probeTimeout() throws Exception {
+
+        // the connections beyond the full accept queue are never answered
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<SocketChannel> backlog = new ArrayList<>();
+            try {
+                for (int index = 0; index < 4; index++) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    channel.connect(serverSocket.getLocalSocketAddress());
+                    backlog.add(channel);
+                }
+                IcmpProbeEngine engine = new IcmpProbeEngine(false, serverSocket.getLocalPort());
+                CompletableFuture<IcmpProbeResult> future = new CompletableFuture<>();
+                engine.probe("unreachable", InetAddress.getLoopbackAddress(), 300, future::complete);
+                IcmpProbeResult result = future.get(5, TimeUnit.SECONDS);
+
+                assertFalse(result.reachable());
+                assertEquals(100, result.packetLoss());
+            } finally {
+                for (SocketChannel channel : backlog) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void statistics() {
+
+        IcmpStatistics statistics = new IcmpStatistics(4);
+        statistics.record(true, 10_000_000, null);
+        statistics.record(true, 14_000_000, null);
+        statistics.record(false, 0, null);
+        IcmpProbeResult result = statistics.record(true, 12_000_000, null);
+
+        assertEquals(12, result.responseTime());
+        assertEquals(25, result.packetLoss());
+        // |14 - 10| and |12 - 14|
+        assertEquals(3, result.jitter(), 0.001);
+
+        // the window slides, the oldest answered probe is dropped
+        result = statistics.record(true, 12_000_000, null);
+        assertEquals(25, result.packetLoss());
+        assertEquals(1, result.jitter(), 0.001);
+    }
+}
@@ -18,8 +18,35 @@
 package org.apache.hertzbeat.collector.collect.jmx;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import javax.management.remote.MBeanServerForwarder;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.JmxProtocol;
@@ -64,8 +91,148 @@ class JmxCollectImplTest {
         });
     }
 
+    @Test
+    void collectBatchCoalescesMbeans() throws Exception {
+
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        for (int index = 1; index <= 3; index++) {
+            mbeanServer.registerMBean(new Pool(index), new ObjectName("hertzbeat.test:type=Pool,name=pool" + index));
+        }
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Registry registry = LocateRegistry.createRegistry(port);
+        JMXConnectorServer connectorServer = JMXConnectorServerFactory.newJMXConnectorServer(
+                new JMXServiceURL("service:jmx:rmi:///jndi/rmi://127.0.0.1:" + port + "/jmxrmi"), null, mbeanServer);
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        connectorServer.setMBeanServerForwarder(countingForwarder(calls));
+        connectorServer.start();
+        try {
+            Metrics active = jmxMetrics(port, "name", "active");
+            Metrics max = jmxMetrics(port, "name", "max");
+            assertEquals(jmxCollect.batchKey(active), jmxCollect.batchKey(max));
+            for (int round = 0; round < 2; round++) {
+                List<CollectRep.MetricsData.Builder> builders = List.of(CollectRep.MetricsData.newBuilder(),
+                        CollectRep.MetricsData.newBuilder());
+                jmxCollect.collectBatch(builders, List.of(active, max));
+
+                assertEquals(CollectRep.Code.SUCCESS, builders.get(0).getCode(), builders.get(0).getMsg());
+                assertEquals(Set.of("pool1=1", "pool2=2", "pool3=3"), rows(builders.get(0)));
+                assertEquals(Set.of("pool1=10", "pool2=20", "pool3=30"), rows(builders.get(1)));
+            }
+            // the names and infos of the mbeans are cached, the attributes of both metrics are got by one call per mbean
+            assertEquals(1, count(calls, "queryNames"));
+            assertEquals(3, count(calls, "getMBeanInfo"));
+            assertEquals(6, count(calls, "getAttributes"));
+        } finally {
+            connectorServer.stop();
+            UnicastRemoteObject.unexportObject(registry, true);
+        }
+    }
+
     @Test
     void supportProtocol() {
         assert DispatchConstants.PROTOCOL_JMX.equals(jmxCollect.supportProtocol());
     }
+
+    private static Metrics jmxMetrics(int port, String... aliasFields) {
+        JmxProtocol jmx = JmxProtocol.builder().host("127.0.0.1").port(String.valueOf(port))
+                .ssl("false").objectName("hertzbeat.test:type=Pool,*").build();
+        return Metrics.builder().jmx(jmx).aliasFields(List.of(aliasFields)).build();
+    }
+
+    private static Set<String> rows(CollectRep.MetricsData.Builder builder) {
+        return builder.getValuesList().stream()
+                .map(row -> row.getColumns(0) + "=" + row.getColumns(1))
+                .collect(Collectors.toSet());
+    }
+
+    private static int count(Map<String, AtomicInteger> calls, String method) {
+        AtomicInteger count = calls.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * count the calls to the mbean server by the method name
+     */
+    private static MBeanServerForwarder countingForwarder(Map<String, AtomicInteger> calls) {
+        MBeanServer[] mbeanServer = new MBeanServer[1];
+        return (MBeanServerForwarder) Proxy.newProxyInstance(MBeanServerForwarder.class.getClassLoader(),
+                new Class<?>[] {MBeanServerForwarder.class}, (proxy, method, args) -> {
+                    if ("getMBeanServer".equals(method.getName())) {
+                        return mbeanServer[0];
+                    }
+                    if ("setMBeanServer".equals(method.getName())) {
+                        mbeanServer[0] = (MBeanServer) args[0];
+                        return null;
+                    }
+                    calls.computeIfAbsent(method.getName(), key -> new AtomicInteger()).incrementAndGet();
+                    try {
+                        return method.invoke(mbeanServer[0], args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * mbean of a pool with the name, active and max attributes
+     */
+    private static final class Pool implements DynamicMBean {
+
+        private final int index;
+
+        private Pool(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            return switch (attribute) {
+                case "name" -> "pool" + index;
+                case "active" -> index;
+                case "max" -> index * 10;
+                default -> throw new AttributeNotFoundException(attribute);
+            };
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList attributeList = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    attributeList.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException ignored) {
+                    // the attribute is skipped
+                }
+            }
+            return attributeList;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] attributes = {
+                new MBeanAttributeInfo("name", String.class.getName(), "pool name", true, false, false),
+                new MBeanAttributeInfo("active", int.class.getName(), "active connections", true, false, false),
+                new MBeanAttributeInfo("max", int.class.getName(), "max connections", true, false, false)
+            };
+            return new MBeanInfo(Pool.class.getName(), "pool", attributes, null, null, null);
+        }
+    }
 }
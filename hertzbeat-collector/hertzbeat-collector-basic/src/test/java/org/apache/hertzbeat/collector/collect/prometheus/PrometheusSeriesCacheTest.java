@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.util.List;
+import org.apache.hertzbeat.common.constants.CommonConstants;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link PrometheusSeriesCache}
+ */
+class PrometheusSeriesCacheTest {
+
+    private static final String[] LABEL_NAMES = {"instance", "mode"};
+
+    @Test
+    void reuseSeriesAcrossScrapes() {
+
+        String target = "http://127.0.0.1:9100/metrics?reuse";
+        PrometheusSeriesCache cache = PrometheusSeriesCache.acquire(target);
+        PrometheusSeriesCache.FamilySchema family = cache.family("cpu", LABEL_NAMES, 2);
+        CollectRep.ValueRow idle = family.row(LABEL_NAMES, new String[]{"host-1", "idle"}, 2, 1);
+        CollectRep.ValueRow user = family.row(LABEL_NAMES, new String[]{"host-1", "user"}, 2, 2);
+        cache.completeScrape();
+        cache.release();
+
+        assertEquals(List.of("host-1", "idle", "1.0"), idle.getColumnsList());
+        assertEquals(List.of("host-1", "user", "2.0"), user.getColumnsList());
+
+        PrometheusSeriesCache next = PrometheusSeriesCache.acquire(target);
+        PrometheusSeriesCache.FamilySchema nextFamily = next.family("cpu", LABEL_NAMES, 2);
+        CollectRep.ValueRow nextIdle = nextFamily.row(LABEL_NAMES, new String[]{"host-1", "idle"}, 2, 1);
+        CollectRep.ValueRow nextUser = nextFamily.row(LABEL_NAMES, new String[]{"host-1", "user"}, 2, 3);
+        next.completeScrape();
+        next.release();
+
+        assertSame(cache, next);
+        assertSame(family, nextFamily);
+        assertSame(family.getFields(), nextFamily.getFields());
+        // the label columns are reused, the value text is reused when the value is not changed
+        assertSame(idle.getColumns(0), nextIdle.getColumns(0));
+        assertSame(idle.getColumns(1), nextIdle.getColumns(1));
+        assertSame(idle.getColumns(2), nextIdle.getColumns(2));
+        assertEquals("3.0", nextUser.getColumns(2));
+    }
+
+    @Test
+    void resolveLabelsByName() {
+
+        PrometheusSeriesCache cache = PrometheusSeriesCache.acquire("http://127.0.0.1:9100/metrics?resolve");
+        PrometheusSeriesCache.FamilySchema family = cache.family("cpu", LABEL_NAMES, 2);
+        CollectRep.ValueRow reordered = family.row(new String[]{"mode", "instance"}, new String[]{"idle", "host-1"}, 2, 1);
+        CollectRep.ValueRow missing = family.row(new String[]{"instance"}, new String[]{"host-2"}, 1, 1);
+        cache.release();
+
+        assertEquals(List.of("host-1", "idle", "1.0"), reordered.getColumnsList());
+        assertEquals(List.of("host-2", CommonConstants.NULL_VALUE, "1.0"), missing.getColumnsList());
+        assertEquals(3, family.getFields().size());
+        assertEquals("value", family.getFields().get(2).getName());
+    }
+
+    @Test
+    void dropUnseenSeriesAndChangedSchema() {
+
+        String target = "http://127.0.0.1:9100/metrics?drop";
+        PrometheusSeriesCache cache = PrometheusSeriesCache.acquire(target);
+        PrometheusSeriesCache.FamilySchema family = cache.family("cpu", LABEL_NAMES, 2);
+        family.row(LABEL_NAMES, new String[]{"host-1", "idle"}, 2, 1);
+        family.row(LABEL_NAMES, new String[]{"host-1", "user"}, 2, 1);
+        cache.family("memory", new String[0], 0).row(new String[0], new String[0], 0, 1024);
+        cache.completeScrape();
+        cache.release();
+
+        // the user series and the memory family disappear
+        cache = PrometheusSeriesCache.acquire(target);
+        cache.family("cpu", LABEL_NAMES, 2).row(LABEL_NAMES, new String[]{"host-1", "idle"}, 2, 1);
+        cache.completeScrape();
+        cache.release();
+
+        cache = PrometheusSeriesCache.acquire(target);
+        PrometheusSeriesCache.FamilySchema memory = cache.family("memory", new String[0], 0);
+        PrometheusSeriesCache.FamilySchema cpu = cache.family("cpu", new String[]{"instance"}, 1);
+        CollectRep.ValueRow changed = cpu.row(new String[]{"instance"}, new String[]{"host-1"}, 1, 1);
+        cache.release();
+
+        assertEquals(1, memory.getFields().size());
+        assertNotSame(family, cpu);
+        assertEquals(List.of("host-1", "1.0"), changed.getColumnsList());
+    }
+
+    @Test
+    void acquireTargetInScrape() {
+
+        String target = "http://127.0.0.1:9100/metrics?concurrent";
+        PrometheusSeriesCache cache = PrometheusSeriesCache.acquire(target);
+        PrometheusSeriesCache concurrent = PrometheusSeriesCache.acquire(target);
+        concurrent.release();
+        cache.release();
+        PrometheusSeriesCache released = PrometheusSeriesCache.acquire(target);
+        released.release();
+
+        assertNotSame(cache, concurrent);
+        assertSame(cache, released);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link StreamingProtobufParser}
+ */
+class StreamingProtobufParserTest {
+
+    private static final String EXPOSITION = """
+            http_requests_total{method="post",code="200"} 1027
+            http_requests_total{method="get",code="400"} 3
+            go_goroutines 32
+            rpc_duration_seconds{service="a",quantile="0.5"} 0.05
+            rpc_duration_seconds{service="a",quantile="0.99"} 0.1
+            rpc_duration_seconds_sum{service="a"} 17.5
+            rpc_duration_seconds_count{service="a"} 200
+            request_duration_seconds_bucket{le="0.005"} 24
+            request_duration_seconds_bucket{le="1"} 130
+            request_duration_seconds_bucket{le="+Inf"} 144
+            request_duration_seconds_sum 53.4
+            request_duration_seconds_count 144
+            """;
+
+    @Test
+    void parseSameAsText() throws IOException {
+
+        byte[] bytes = delimitedMetricFamilies();
+        List<String> textSamples = new ArrayList<>();
+        new StreamingTextParser(collect(textSamples))
+                .parse(new ByteArrayInputStream(EXPOSITION.getBytes(StandardCharsets.UTF_8)));
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize += 5) {
+            List<String> samples = new ArrayList<>();
+            StreamingProtobufParser parser = new StreamingProtobufParser(collect(samples));
+            for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                parser.feed(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            }
+            parser.finish();
+
+            assertEquals(textSamples, samples);
+            assertEquals(bytes.length, parser.getByteCount());
+            assertEquals(0, parser.getErrorCount());
+        }
+    }
+
+    @Test
+    void skipMalformedMessage() throws IOException {
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(content);
+        // a metric family with a truncated metric field
+        output.writeUInt32NoTag(4);
+        output.writeTag(4, 2);
+        output.writeUInt32NoTag(10);
+        output.writeRawBytes(new byte[]{1, 2});
+        writeMetricFamily(output, "go_goroutines", 1, metric(new String[0], 2, gaugeOrCounter(32)));
+        output.flush();
+        List<String> samples = new ArrayList<>();
+        StreamingProtobufParser parser = new StreamingProtobufParser(collect(samples));
+        parser.parse(new ByteArrayInputStream(content.toByteArray()));
+
+        assertEquals(List.of("go_goroutines 32.0"), samples);
+        assertEquals(1, parser.getErrorCount());
+    }
+
+    private static ExpositionParser.SampleConsumer collect(List<String> samples) {
+        return (name, labelNames, labelValues, labelCount, value) -> {
+            StringBuilder sample = new StringBuilder(name);
+            for (int index = 0; index < labelCount; index++) {
+                sample.append(' ').append(labelNames[index]).append('=').append(labelValues[index]);
+            }
+            samples.add(sample.append(' ').append(value).toString());
+        };
+    }
+
+    private static byte[] delimitedMetricFamilies() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(content);
+        // counter
+        writeMetricFamily(output, "http_requests_total", 0,
+                metric(new String[]{"method", "post", "code", "200"}, 3, gaugeOrCounter(1027)),
+                metric(new String[]{"method", "get", "code", "400"}, 3, gaugeOrCounter(3)));
+        // gauge
+        writeMetricFamily(output, "go_goroutines", 1, metric(new String[0], 2, gaugeOrCounter(32)));
+        // summary
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        CodedOutputStream summaryOutput = CodedOutputStream.newInstance(summary);
+        summaryOutput.writeUInt64(1, 200);
+        summaryOutput.writeDouble(2, 17.5);
+        summaryOutput.writeByteArray(3, pair(0.5, 0.05));
+        summaryOutput.writeByteArray(3, pair(0.99, 0.1));
+        summaryOutput.flush();
+        writeMetricFamily(output, "rpc_duration_seconds", 2,
+                metric(new String[]{"service", "a"}, 4, summary.toByteArray()));
+        // histogram without the +Inf bucket
+        ByteArrayOutputStream histogram = new ByteArrayOutputStream();
+        CodedOutputStream histogramOutput = CodedOutputStream.newInstance(histogram);
+        histogramOutput.writeUInt64(1, 144);
+        histogramOutput.writeDouble(2, 53.4);
+        histogramOutput.writeByteArray(3, bucket(24, 0.005));
+        histogramOutput.writeByteArray(3, bucket(130, 1));
+        histogramOutput.flush();
+        writeMetricFamily(output, "request_duration_seconds", 4, metric(new String[0], 7, histogram.toByteArray()));
+        output.flush();
+        return content.toByteArray();
+    }
+
+    private static void writeMetricFamily(CodedOutputStream output, String name, int type, byte[]... metrics)
+            throws IOException {
+        ByteArrayOutputStream family = new ByteArrayOutputStream();
+        CodedOutputStream familyOutput = CodedOutputStream.newInstance(family);
+        familyOutput.writeString(1, name);
+        familyOutput.writeString(2, "help of " + name);
+        familyOutput.writeEnum(3, type);
+        for (byte[] metric : metrics) {
+            familyOutput.writeByteArray(4, metric);
+        }
+        familyOutput.flush();
+        output.writeByteArrayNoTag(family.toByteArray());
+    }
+
+    private static byte[] metric(String[] labels, int valueField, byte[] value) throws IOException {
+        ByteArrayOutputStream metric = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(metric);
+        for (int index = 0; index < labels.length; index += 2) {
+            ByteArrayOutputStream label = new ByteArrayOutputStream();
+            CodedOutputStream labelOutput = CodedOutputStream.newInstance(label);
+            labelOutput.writeString(1, labels[index]);
+            labelOutput.writeString(2, labels[index + 1]);
+            labelOutput.flush();
+            output.writeByteArray(1, label.toByteArray());
+        }
+        output.writeByteArray(valueField, value);
+        output.writeInt64(6, System.currentTimeMillis());
+        output.flush();
+        return metric.toByteArray();
+    }
+
+    private static byte[] gaugeOrCounter(double value) throws IOException {
+        ByteArrayOutputStream gauge = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(gauge);
+        output.writeDouble(1, value);
+        output.flush();
+        return gauge.toByteArray();
+    }
+
+    private static byte[] pair(double first, double second) throws IOException {
+        ByteArrayOutputStream quantile = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(quantile);
+        output.writeDouble(1, first);
+        output.writeDouble(2, second);
+        output.flush();
+        return quantile.toByteArray();
+    }
+
+    private static byte[] bucket(long cumulativeCount, double upperBound) throws IOException {
+        ByteArrayOutputStream bucket = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bucket);
+        output.writeUInt64(1, cumulativeCount);
+        output.writeDouble(2, upperBound);
+        output.flush();
+        return bucket.toByteArray();
+    }
+}
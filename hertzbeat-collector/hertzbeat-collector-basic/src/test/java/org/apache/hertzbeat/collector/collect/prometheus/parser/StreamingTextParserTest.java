@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.prometheus.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link StreamingTextParser}
+ */
+class StreamingTextParserTest {
+
+    private static final String EXPOSITION = """
+            # HELP go_gc_duration_seconds A summary of the pause duration of garbage collection cycles.
+            # TYPE go_gc_duration_seconds summary
+            go_gc_duration_seconds {  quantile="0"} 2.0209e-05 321312
+            go_gc_duration_seconds{  quantile = "0.25"  }   6.6917e-05
+            go_gc_duration_seconds{quantile="0.5"} -Inf
+            go_gc_duration_seconds{ quantile = "0.75"} +Inf
+            go_gc_duration_seconds{quantile="1"} NaN
+            go_gc_duration_seconds_sum 0.001134793 321314
+            http_requests_total{method="post",path="/a\\"b\\\\c\\nd",} 1027
+            go_goroutines 32""";
+
+    @Test
+    void parseChunked() {
+
+        byte[] bytes = EXPOSITION.getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize += 7) {
+            List<String> samples = new ArrayList<>();
+            StreamingTextParser parser = new StreamingTextParser((name, labelNames, labelValues, labelCount, value) -> {
+                StringBuilder sample = new StringBuilder(name);
+                for (int index = 0; index < labelCount; index++) {
+                    sample.append(' ').append(labelNames[index]).append('=').append(labelValues[index]);
+                }
+                samples.add(sample.append(' ').append(value).toString());
+            });
+            for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                parser.feed(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            }
+            parser.finish();
+
+            assertEquals(8, samples.size());
+            assertEquals("go_gc_duration_seconds quantile=0 2.0209E-5", samples.get(0));
+            assertEquals("go_gc_duration_seconds quantile=0.25 6.6917E-5", samples.get(1));
+            assertEquals("go_gc_duration_seconds quantile=0.5 -Infinity", samples.get(2));
+            assertEquals("go_gc_duration_seconds quantile=0.75 Infinity", samples.get(3));
+            assertEquals("go_gc_duration_seconds quantile=1 NaN", samples.get(4));
+            assertEquals("go_gc_duration_seconds_sum 0.001134793", samples.get(5));
+            assertEquals("http_requests_total method=post path=/a\"b\\c\nd 1027.0", samples.get(6));
+            assertEquals("go_goroutines 32.0", samples.get(7));
+            assertEquals(bytes.length, parser.getByteCount());
+            assertEquals(0, parser.getErrorCount());
+        }
+    }
+
+    @Test
+    void skipMalformedLine() {
+
+        String content = """
+                up{job="a"} 1
+                up{job="b} 1
+                up{__name__="c"} 1
+                up{job="d"}
+                up{job="e"} abc
+                up{job="f"} 0
+                """;
+        List<String> jobs = new ArrayList<>();
+        StreamingTextParser parser = new StreamingTextParser(
+                (name, labelNames, labelValues, labelCount, value) -> jobs.add(labelValues[0]));
+        parser.feed(content.getBytes(StandardCharsets.UTF_8), 0, content.length());
+        parser.finish();
+
+        assertEquals(List.of("a", "f"), jobs);
+        assertEquals(2, parser.getSampleCount());
+        assertEquals(4, parser.getErrorCount());
+    }
+
+    @Test
+    void internNamesAndValues() {
+
+        String content = """
+                cpu{instance="host-1",mode="idle"} 1
+                cpu{instance="host-1",mode="user"} 2
+                """;
+        List<String[]> labels = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StreamingTextParser parser = new StreamingTextParser((name, labelNames, labelValues, labelCount, value) -> {
+            names.add(name);
+            labels.add(new String[]{labelNames[0], labelValues[0], labelNames[1]});
+        });
+        parser.feed(content.getBytes(StandardCharsets.UTF_8), 0, content.length());
+        parser.finish();
+
+        assertSame(names.get(0), names.get(1));
+        assertSame(labels.get(0)[0], labels.get(1)[0]);
+        assertSame(labels.get(0)[1], labels.get(1)[1]);
+        assertSame(labels.get(0)[2], labels.get(1)[2]);
+    }
+
+    @Test
+    void parseLargeExposition() throws Exception {
+
+        int families = 200;
+        int series = 500;
+        StringBuilder content = new StringBuilder();
+        for (int family = 0; family < families; family++) {
+            content.append("# TYPE metric_").append(family).append(" gauge\n");
+            for (int index = 0; index < series; index++) {
+                content.append("metric_").append(family).append("{instance=\"host-").append(index % 50)
+                        .append("\",id=\"").append(index).append("\"} ").append(index * 0.5).append('\n');
+            }
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        StreamingTextParser parser = new StreamingTextParser(
+                (name, labelNames, labelValues, labelCount, value) -> counts.merge(name, 1, Integer::sum));
+        parser.parse(new ByteArrayInputStream(bytes));
+
+        assertEquals(families, counts.size());
+        assertTrue(counts.values().stream().allMatch(count -> count == series));
+        assertEquals((long) families * series, parser.getSampleCount());
+        assertEquals(0, parser.getErrorCount());
+    }
+}
@@ -21,6 +21,16 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.SmtpProtocol;
@@ -73,6 +83,44 @@ public class SmtpCollectImplTest {
         });
     }
 
+    @Test
+    void collectAsync() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    OutputStream out = socket.getOutputStream();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    out.write("220 smtp.example.com ESMTP\r\n".getBytes(StandardCharsets.UTF_8));
+                    reader.readLine();
+                    out.write("250-smtp.example.com\r\n250 8BITMIME\r\n".getBytes(StandardCharsets.UTF_8));
+                    reader.readLine();
+                } catch (Exception ignored) {
+                    // the test fails by the collect result
+                }
+            });
+            server.start();
+            SmtpProtocol smtpProtocol = SmtpProtocol.builder()
+                .host("127.0.0.1")
+                .port(String.valueOf(serverSocket.getLocalPort()))
+                .timeout("3000")
+                .email("hertzbeat@example.com")
+                .build();
+            Metrics metrics = Metrics.builder()
+                .smtp(smtpProtocol)
+                .aliasFields(List.of("responseTime", "response", "smtpBanner", "heloInfo"))
+                .build();
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            smtpCollect.collectAsync(builder, metrics, () -> future.complete(null));
+            future.get(10, TimeUnit.SECONDS);
+            assertEquals(CollectRep.Code.SUCCESS, builder.getCode());
+            CollectRep.ValueRow valueRow = builder.getValues(0);
+            assertEquals("OK", valueRow.getColumns(1));
+            assertEquals("220 smtp.example.com ESMTP\r\n", valueRow.getColumns(2));
+            assertEquals("250-smtp.example.com\r\n250 8BITMIME\r\n", valueRow.getColumns(3));
+        }
+    }
+
     @Test
     void supportProtocol() {
         assertEquals(DispatchConstants.PROTOCOL_SMTP, smtpCollect.supportProtocol());
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.snmp;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.snmp4j.CommandResponder;
+import org.snmp4j.CommandResponderEvent;
+import org.snmp4j.MessageException;
+import org.snmp4j.PDU;
+import org.snmp4j.PDUv1;
+import org.snmp4j.Snmp;
+import org.snmp4j.mp.StatusInformation;
+import org.snmp4j.smi.Address;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+import org.snmp4j.transport.DefaultUdpTransportMapping;
+
+/**
+ * Snmp v1 and v2c agent stand-in listening on a local udp port, it answers get, getnext and getbulk from its mib.
+ * A get of more oids than the max get bindings is answered by tooBig, a v1 get of a missing oid by noSuchName.
+ */
+class LocalSnmpAgent implements CommandResponder, AutoCloseable {
+
+    private final NavigableMap<OID, Variable> mib = new ConcurrentSkipListMap<>();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger maxBindings = new AtomicInteger();
+
+    private volatile int maxGetBindings = Integer.MAX_VALUE;
+
+    private final Snmp snmp;
+
+    private final DefaultUdpTransportMapping transport;
+
+    LocalSnmpAgent(Map<OID, Variable> mib) throws IOException {
+        this.mib.putAll(mib);
+        transport = new DefaultUdpTransportMapping(new UdpAddress("127.0.0.1/0"));
+        snmp = new Snmp(transport);
+        snmp.addCommandResponder(this);
+        snmp.listen();
+    }
+
+    UdpAddress getAddress() {
+        return transport.getListenAddress();
+    }
+
+    /**
+     * @return requests number the agent received
+     */
+    int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return max bindings number of the requests
+     */
+    int getMaxBindings() {
+        return maxBindings.get();
+    }
+
+    /**
+     * @param maxGetBindings max oids of a get the agent answers, the larger get is answered by tooBig
+     */
+    void setMaxGetBindings(int maxGetBindings) {
+        this.maxGetBindings = maxGetBindings;
+    }
+
+    @Override
+    public <A extends Address> void processPdu(CommandResponderEvent<A> event) {
+        PDU request = event.getPDU();
+        if (request == null) {
+            return;
+        }
+        requests.incrementAndGet();
+        maxBindings.accumulateAndGet(request.size(), Math::max);
+        PDU response = request instanceof PDUv1 ? new PDUv1() : new PDU();
+        response.setType(PDU.RESPONSE);
+        response.setRequestID(request.getRequestID());
+        switch (request.getType()) {
+            case PDU.GET -> get(request, response);
+            case PDU.GETNEXT -> request.getVariableBindings().forEach(binding -> response.add(next(binding.getOid())));
+            case PDU.GETBULK -> {
+                int nonRepeaters = Math.max(0, Math.min(request.getNonRepeaters(), request.size()));
+                for (int index = 0; index < nonRepeaters; index++) {
+                    response.add(next(request.get(index).getOid()));
+                }
+                OID[] repeaters = new OID[request.size() - nonRepeaters];
+                for (int index = 0; index < repeaters.length; index++) {
+                    repeaters[index] = request.get(nonRepeaters + index).getOid();
+                }
+                for (int repetition = 0; repetition < request.getMaxRepetitions() && repeaters.length > 0; repetition++) {
+                    for (int index = 0; index < repeaters.length; index++) {
+                        VariableBinding binding = next(repeaters[index]);
+                        response.add(binding);
+                        repeaters[index] = binding.getOid();
+                    }
+                }
+            }
+            default -> {
+                return;
+            }
+        }
+        try {
+            event.getMessageDispatcher().returnResponsePdu(event.getMessageProcessingModel(), event.getSecurityModel(),
+                    event.getSecurityName(), event.getSecurityLevel(), response, event.getMaxSizeResponsePDU(),
+                    event.getStateReference(), new StatusInformation());
+            event.setProcessed(true);
+        } catch (MessageException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        snmp.close();
+    }
+
+    private void get(PDU request, PDU response) {
+        if (request.size() > maxGetBindings) {
+            response.setErrorStatus(PDU.tooBig);
+            return;
+        }
+        for (int index = 0; index < request.size() && request instanceof PDUv1; index++) {
+            if (!mib.containsKey(request.get(index).getOid())) {
+                // v1 answers the request bindings with the index of the first missing oid
+                request.getVariableBindings().forEach(response::add);
+                response.setErrorStatus(PDU.noSuchName);
+                response.setErrorIndex(index + 1);
+                return;
+            }
+        }
+        request.getVariableBindings().forEach(binding -> response.add(
+                new VariableBinding(binding.getOid(), mib.getOrDefault(binding.getOid(), Null.noSuchObject))));
+    }
+
+    private VariableBinding next(OID oid) {
+        Map.Entry<OID, Variable> entry = mib.higherEntry(oid);
+        return entry == null ? new VariableBinding(oid, Null.endOfMibView) : new VariableBinding(entry.getKey(), entry.getValue());
+    }
+}
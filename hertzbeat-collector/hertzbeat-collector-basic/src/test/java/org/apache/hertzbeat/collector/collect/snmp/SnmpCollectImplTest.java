@@ -19,14 +19,27 @@ package org.apache.hertzbeat.collector.collect.snmp;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.job.protocol.SnmpProtocol;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.TimeTicks;
+import org.snmp4j.smi.Variable;
 
 /**
  * Test case for {@link SnmpCollectImpl}
@@ -101,8 +114,101 @@ class SnmpCollectImplTest {
         });
     }
 
+    @Test
+    void collectBatchAsync() throws Exception {
+
+        Map<OID, Variable> mib = Map.of(
+                new OID("1.3.6.1.2.1.1.1.0"), new OctetString("linux"),
+                new OID("1.3.6.1.2.1.1.3.0"), new TimeTicks(360000L),
+                new OID("1.3.6.1.2.1.1.5.0"), new OctetString("host-1"));
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(mib)) {
+            Metrics system = snmpMetrics(agent, Map.of("descr", "1.3.6.1.2.1.1.1.0", "uptime", "1.3.6.1.2.1.1.3.0"),
+                    "descr", "uptime", "responseTime");
+            Metrics name = snmpMetrics(agent, Map.of("name", "1.3.6.1.2.1.1.5.0", "uptime", "1.3.6.1.2.1.1.3.0"),
+                    "name", "uptime");
+            assertEquals(snmpCollect.batchKey(system), snmpCollect.batchKey(name));
+            List<CollectRep.MetricsData.Builder> builders = List.of(CollectRep.MetricsData.newBuilder(),
+                    CollectRep.MetricsData.newBuilder());
+            CountDownLatch latch = new CountDownLatch(1);
+            snmpCollect.collectBatchAsync(builders, List.of(system, name), latch::countDown);
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            // the oids of both metrics are got by one request
+            assertEquals(1, agent.getRequests());
+            CollectRep.ValueRow systemRow = builders.get(0).getValues(0);
+            assertEquals("linux", systemRow.getColumns(0));
+            assertEquals("1 hour, ", systemRow.getColumns(1));
+            CollectRep.ValueRow nameRow = builders.get(1).getValues(0);
+            assertEquals("host-1", nameRow.getColumns(0));
+            assertEquals("1 hour, ", nameRow.getColumns(1));
+        }
+    }
+
+    @Test
+    void collectAsyncUnreachableV3() throws Exception {
+
+        // the socket receives the engine id discovery but never answers
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            SnmpProtocol snmpProtocol = new SnmpProtocol();
+            snmpProtocol.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+            snmpProtocol.setPort(String.valueOf(socket.getLocalPort()));
+            snmpProtocol.setVersion("3");
+            snmpProtocol.setTimeout("1000");
+            snmpProtocol.setUsername("hertzbeat");
+            snmpProtocol.setAuthPassphrase("auth-passphrase");
+            snmpProtocol.setPrivPassphrase("priv-passphrase");
+            snmpProtocol.setOids(Map.of("descr", "1.3.6.1.2.1.1.1.0"));
+            Metrics system = new Metrics();
+            system.setSnmp(snmpProtocol);
+            system.setAliasFields(List.of("descr"));
+
+            CountDownLatch latch = new CountDownLatch(1);
+            snmpCollect.collectAsync(builder, system, latch::countDown);
+
+            // the caller is not blocked by the engine id discovery
+            assertEquals(1, latch.getCount());
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(CollectRep.Code.UN_CONNECTABLE, builder.getCode());
+
+            // the failed discovery is not retried in its backoff, the collect fails at once
+            CollectRep.MetricsData.Builder retry = CollectRep.MetricsData.newBuilder();
+            CountDownLatch retryLatch = new CountDownLatch(1);
+            snmpCollect.collectAsync(retry, system, retryLatch::countDown);
+
+            assertEquals(0, retryLatch.getCount());
+            assertEquals(CollectRep.Code.UN_CONNECTABLE, retry.getCode());
+        }
+    }
+
+    @Test
+    void batchKey() throws Exception {
+
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(Map.of())) {
+            Metrics system = snmpMetrics(agent, Map.of("descr", "1.3.6.1.2.1.1.1.0"), "descr");
+            String batchKey = snmpCollect.batchKey(system);
+
+            // the community is kept out of the key
+            assertFalse(batchKey.contains("public"));
+            system.getSnmp().setCommunity("private");
+            assertNotEquals(batchKey, snmpCollect.batchKey(system));
+        }
+    }
+
     @Test
     void supportProtocol() {
         assertEquals(DispatchConstants.PROTOCOL_SNMP, snmpCollect.supportProtocol());
     }
+
+    private Metrics snmpMetrics(LocalSnmpAgent agent, Map<String, String> oids, String... aliasFields) {
+        SnmpProtocol snmpProtocol = new SnmpProtocol();
+        snmpProtocol.setHost(agent.getAddress().getInetAddress().getHostAddress());
+        snmpProtocol.setPort(String.valueOf(agent.getAddress().getPort()));
+        snmpProtocol.setVersion("2c");
+        snmpProtocol.setCommunity("public");
+        snmpProtocol.setOids(oids);
+        Metrics metrics = new Metrics();
+        metrics.setSnmp(snmpProtocol);
+        metrics.setAliasFields(List.of(aliasFields));
+        return metrics;
+    }
 }
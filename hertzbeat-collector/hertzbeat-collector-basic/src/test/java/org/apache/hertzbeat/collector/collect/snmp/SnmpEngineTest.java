@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.snmp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.snmp4j.CommunityTarget;
+import org.snmp4j.mp.SnmpConstants;
+import org.snmp4j.security.SecurityModel;
+import org.snmp4j.smi.Gauge32;
+import org.snmp4j.smi.Null;
+import org.snmp4j.smi.OID;
+import org.snmp4j.smi.OctetString;
+import org.snmp4j.smi.UdpAddress;
+import org.snmp4j.smi.Variable;
+import org.snmp4j.smi.VariableBinding;
+
+/**
+ * Test case for {@link SnmpEngine}
+ */
+class SnmpEngineTest {
+
+    private static final SnmpEngine ENGINE = new SnmpEngine();
+
+    private static final String SCALAR = "1.3.6.1.4.1.9999.1.";
+
+    private static final String IF_DESCR = "1.3.6.1.2.1.2.2.1.2";
+
+    private static final String IF_SPEED = "1.3.6.1.2.1.2.2.1.5";
+
+    @Test
+    void getPacksOids() throws Exception {
+
+        int size = SnmpEngine.MAX_OIDS_PER_PDU * 2 + 6;
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(scalars(size))) {
+            List<OID> oids = new ArrayList<>();
+            for (int index = 0; index < size; index++) {
+                oids.add(new OID(SCALAR + index));
+            }
+            oids.add(new OID(SCALAR + "9999"));
+            CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+            ENGINE.get(target(agent.getAddress(), 3000), oids, null, future::complete);
+            SnmpResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            VariableBinding[] bindings = result.rows().get(0);
+            assertEquals(oids.size(), bindings.length);
+            for (int index = 0; index < size; index++) {
+                assertEquals("value-" + index, bindings[index].toValueString());
+            }
+            assertEquals(Null.noSuchObject, bindings[size].getVariable());
+            assertEquals(3, agent.getRequests());
+            assertEquals(SnmpEngine.MAX_OIDS_PER_PDU, agent.getMaxBindings());
+        }
+    }
+
+    @Test
+    void walkTable() throws Exception {
+
+        int rows = 50;
+        Map<OID, Variable> mib = scalars(3);
+        for (int index = 1; index <= rows; index++) {
+            mib.put(new OID(IF_DESCR + "." + index), new OctetString("eth" + index));
+            mib.put(new OID(IF_SPEED + "." + index), new Gauge32(index * 1000L));
+        }
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(mib)) {
+            CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+            ENGINE.walk(target(agent.getAddress(), 3000), List.of(new OID(IF_DESCR), new OID(IF_SPEED)), future::complete);
+            SnmpResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            assertEquals(rows, result.rows().size());
+            for (int index = 0; index < rows; index++) {
+                VariableBinding[] row = result.rows().get(index);
+                assertEquals("eth" + (index + 1), row[0].toValueString());
+                assertEquals(new Gauge32((index + 1) * 1000L), row[1].getVariable());
+            }
+            // the rows are fetched by getbulk requests instead of one getnext request a row
+            assertTrue(agent.getRequests() < rows / 2, "requests: " + agent.getRequests());
+        }
+    }
+
+    @Test
+    void getSplitsTooBigPdu() throws Exception {
+
+        int size = SnmpEngine.MAX_OIDS_PER_PDU;
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(scalars(size))) {
+            agent.setMaxGetBindings(SnmpEngine.MAX_OIDS_PER_PDU / 4);
+            List<OID> oids = new ArrayList<>();
+            for (int index = 0; index < size; index++) {
+                oids.add(new OID(SCALAR + index));
+            }
+            CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+            ENGINE.get(target(agent.getAddress(), 3000), oids, null, future::complete);
+            SnmpResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            VariableBinding[] bindings = result.rows().get(0);
+            for (int index = 0; index < size; index++) {
+                assertEquals("value-" + index, bindings[index].toValueString());
+            }
+            // the pdu is split in halves until the responses fit: 1 + 2 + 4 requests
+            assertEquals(7, agent.getRequests());
+        }
+    }
+
+    @Test
+    void getV1RetriesWithoutNoSuchName() throws Exception {
+
+        try (LocalSnmpAgent agent = new LocalSnmpAgent(scalars(4))) {
+            List<OID> oids = List.of(new OID(SCALAR + "0"), new OID(SCALAR + "9998"), new OID(SCALAR + "1"),
+                    new OID(SCALAR + "9999"), new OID(SCALAR + "3"));
+            CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+            ENGINE.get(target(agent.getAddress(), 3000, SnmpConstants.version1), oids, null, future::complete);
+            SnmpResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertTrue(result.isSuccess(), result.error());
+            VariableBinding[] bindings = result.rows().get(0);
+            assertEquals("value-0", bindings[0].toValueString());
+            assertEquals("value-1", bindings[2].toValueString());
+            assertEquals("value-3", bindings[4].toValueString());
+            // the missing oids are not answered
+            assertNull(bindings[1]);
+            assertNull(bindings[3]);
+            // each noSuchName answer is followed by a get without the missing oid
+            assertEquals(3, agent.getRequests());
+        }
+    }
+
+    @Test
+    void getManyAgentsConcurrently() throws Exception {
+
+        int agents = 4;
+        int requests = 500;
+        List<LocalSnmpAgent> agentList = new ArrayList<>();
+        try {
+            for (int index = 0; index < agents; index++) {
+                agentList.add(new LocalSnmpAgent(scalars(8)));
+            }
+            List<SnmpResult> results = new CopyOnWriteArrayList<>();
+            CountDownLatch latch = new CountDownLatch(agents * requests);
+            List<OID> oids = List.of(new OID(SCALAR + "0"), new OID(SCALAR + "7"));
+            for (int index = 0; index < requests; index++) {
+                for (LocalSnmpAgent agent : agentList) {
+                    ENGINE.get(target(agent.getAddress(), 5000), oids, null, result -> {
+                        results.add(result);
+                        latch.countDown();
+                    });
+                }
+            }
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertTrue(results.stream().allMatch(result -> result.isSuccess()
+                    && "value-7".equals(result.rows().get(0)[1].toValueString())));
+        } finally {
+            for (LocalSnmpAgent agent : agentList) {
+                agent.close();
+            }
+        }
+    }
+
+    @Test
+    void getTimeout() throws Exception {
+
+        // the socket receives the requests but never answers
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<SnmpResult> future = new CompletableFuture<>();
+            long start = System.currentTimeMillis();
+            ENGINE.get(target(new UdpAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort()), 300),
+                    List.of(new OID(SCALAR + "0")), null, future::complete);
+            SnmpResult result = future.get(10, TimeUnit.SECONDS);
+
+            assertEquals(SnmpResult.Outcome.TIMEOUT, result.outcome());
+            assertTrue(System.currentTimeMillis() - start >= 300);
+        }
+    }
+
+    private static Map<OID, Variable> scalars(int size) {
+        Map<OID, Variable> mib = new HashMap<>(size);
+        for (int index = 0; index < size; index++) {
+            mib.put(new OID(SCALAR + index), new OctetString("value-" + index));
+        }
+        return mib;
+    }
+
+    private static CommunityTarget<UdpAddress> target(UdpAddress address, long timeout) {
+        return target(address, timeout, SnmpConstants.version2c);
+    }
+
+    private static CommunityTarget<UdpAddress> target(UdpAddress address, long timeout, int version) {
+        CommunityTarget<UdpAddress> target = new CommunityTarget<>(address, new OctetString("public"));
+        target.setVersion(version);
+        target.setSecurityModel(version == SnmpConstants.version1
+                ? SecurityModel.SECURITY_MODEL_SNMPv1 : SecurityModel.SECURITY_MODEL_SNMPv2c);
+        target.setTimeout(timeout);
+        target.setRetries(0);
+        return target;
+    }
+}
@@ -25,9 +25,14 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.net.telnet.TelnetClient;
 import org.apache.hertzbeat.collector.dispatch.DispatchConstants;
 import org.apache.hertzbeat.common.entity.job.Metrics;
@@ -155,6 +160,46 @@ class TelnetCollectImplTest {
         mocked.close();
     }
 
+    @Test
+    void testCollectAsync() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.getInputStream().read(new byte[2]);
+                    OutputStream out = socket.getOutputStream();
+                    // the telnet option is refused and skipped
+                    out.write(new byte[]{(byte) 255, (byte) 253, 24});
+                    socket.getInputStream().readNBytes(3);
+                    out.write("a=SomeValue\nb=AnotherValue\nc=YetAnotherValue".getBytes(StandardCharsets.UTF_8));
+                } catch (Exception ignored) {
+                    // the test fails by the collect result
+                }
+            });
+            server.start();
+            TelnetProtocol telnetProtocol = TelnetProtocol.builder()
+                    .host("127.0.0.1")
+                    .port(String.valueOf(serverSocket.getLocalPort()))
+                    .timeout("3000")
+                    .cmd("ls")
+                    .build();
+            Metrics metrics = new Metrics();
+            metrics.setTelnet(telnetProtocol);
+            metrics.setAliasFields(List.of("responseTime", "a", "b", "c"));
+            CollectRep.MetricsData.Builder builder = CollectRep.MetricsData.newBuilder();
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            telnetCollect.collectAsync(builder, metrics, () -> future.complete(null));
+            future.get(10, TimeUnit.SECONDS);
+            assertEquals(CollectRep.Code.SUCCESS, builder.getCode());
+            assertEquals(1, builder.getValuesCount());
+            CollectRep.ValueRow valueRow = builder.getValues(0);
+            assertNotNull(valueRow.getColumns(0));
+            assertEquals("SomeValue", valueRow.getColumns(1));
+            assertEquals("AnotherValue", valueRow.getColumns(2));
+            assertEquals("YetAnotherValue", valueRow.getColumns(3));
+        }
+    }
+
     @Test
     void preCheck() throws IllegalArgumentException {
         // metrics is null
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.List;
+import org.apache.hertzbeat.collector.dispatch.timer.Timeout;
+import org.apache.hertzbeat.collector.dispatch.timer.WheelTimerTask;
+import org.apache.hertzbeat.collector.dispatch.unit.impl.DataSizeConvert;
+import org.apache.hertzbeat.collector.dispatch.unit.impl.TimeLengthConvert;
+import org.apache.hertzbeat.common.constants.CommonConstants;
+import org.apache.hertzbeat.common.entity.job.Job;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link MetricsCollect}
+ */
+class MetricsCollectTest {
+
+    @Test
+    void testCalculateFields() {
+
+        Metrics metrics = Metrics.builder()
+                .name("disk")
+                .fields(List.of(field("name", CommonConstants.TYPE_STRING, null),
+                        field("total", CommonConstants.TYPE_NUMBER, null),
+                        field("used", CommonConstants.TYPE_NUMBER, null),
+                        field("usage", CommonConstants.TYPE_NUMBER, "%"),
+                        field("pages", CommonConstants.TYPE_NUMBER, null)))
+                .aliasFields(List.of("device", "total", "used", "Database pages"))
+                .calculates(List.of("name=device", "usage=used / total * 100", "pages=Database pages"))
+                .build();
+
+        CollectRep.MetricsData.Builder builder = collectData(List.of("disk0", "200", "50", "8"));
+        newCollect().calculateFields(metrics, builder);
+
+        assertEquals(5, builder.getFieldsCount());
+        assertEquals("usage", builder.getFields(3).getName());
+        assertEquals("%", builder.getFields(3).getUnit());
+        assertEquals(1, builder.getValuesCount());
+        assertEquals(List.of("disk0", "200", "50", "25", "8"), builder.getValues(0).getColumnsList());
+    }
+
+    @Test
+    void testCalculateFieldsWithoutAliasFields() {
+
+        Metrics metrics = Metrics.builder()
+                .name("basic")
+                .fields(List.of(field("name", CommonConstants.TYPE_STRING, null),
+                        field("count", CommonConstants.TYPE_NUMBER, null)))
+                .build();
+
+        CollectRep.MetricsData.Builder builder = collectData(List.of("server", "3"),
+                List.of(CommonConstants.NULL_VALUE, "4"));
+        newCollect().calculateFields(metrics, builder);
+
+        // the collected columns are mapped to the fields by order
+        assertEquals(2, builder.getValuesCount());
+        assertEquals(List.of("server", "3"), builder.getValues(0).getColumnsList());
+        assertEquals(List.of(CommonConstants.NULL_VALUE, "4"), builder.getValues(1).getColumnsList());
+    }
+
+    @Test
+    void testCalculateFieldsConvertUnit() {
+
+        Metrics metrics = Metrics.builder()
+                .name("memory")
+                .fields(List.of(field("total", CommonConstants.TYPE_NUMBER, "KB"),
+                        field("used", CommonConstants.TYPE_NUMBER, "KB"),
+                        field("free", CommonConstants.TYPE_NUMBER, "KB"),
+                        field("size", CommonConstants.TYPE_NUMBER, "KB")))
+                .aliasFields(List.of("total", "used", "size"))
+                .calculates(List.of("free=total - used"))
+                .units(List.of("size=B->KB"))
+                .build();
+
+        CollectRep.MetricsData.Builder builder = collectData(List.of("2MB", "1MB", "2048"),
+                List.of("4MB", "1MB", "4096"));
+        newCollect().calculateFields(metrics, builder);
+
+        // the unit of the collected value takes precedence, the configured conversion applies to the other rows too
+        assertEquals(List.of("2048", "1024", "1024", "2"), builder.getValues(0).getColumnsList());
+        assertEquals(List.of("4096", "1024", "3072", "4"), builder.getValues(1).getColumnsList());
+    }
+
+    @Test
+    void testCalculateExpressionUnit() {
+
+        Metrics metrics = Metrics.builder()
+                .name("memory")
+                .fields(List.of(field("sum", CommonConstants.TYPE_NUMBER, "KB")))
+                .aliasFields(List.of("total", "used"))
+                .calculates(List.of("sum=used + total"))
+                .build();
+
+        CollectRep.MetricsData.Builder builder = collectData(List.of("0GB", "1MB"));
+        newCollect().calculateFields(metrics, builder);
+
+        // the unit of the first alias field in the expression is the unit of the calculated value
+        assertEquals(List.of("1024"), builder.getValues(0).getColumnsList());
+    }
+
+    @Test
+    void testCalculateFieldsFilters() {
+
+        Metrics metrics = Metrics.builder()
+                .name("disk")
+                .fields(List.of(field("name", CommonConstants.TYPE_STRING, null),
+                        field("used", CommonConstants.TYPE_NUMBER, null)))
+                .aliasFields(List.of("name", "used"))
+                .filters(List.of("name == 'disk0'", "name == 'disk2'"))
+                .build();
+
+        CollectRep.MetricsData.Builder builder = collectData(List.of("disk0", "1"), List.of("disk1", "2"),
+                List.of("disk2", "3"));
+        newCollect().calculateFields(metrics, builder);
+
+        assertEquals(2, builder.getValuesCount());
+        assertEquals(List.of("disk0", "1"), builder.getValues(0).getColumnsList());
+        assertEquals(List.of("disk2", "3"), builder.getValues(1).getColumnsList());
+
+        // the filters are all invalid, no row matches
+        metrics.setFilters(List.of("name ==="));
+        builder = collectData(List.of("disk0", "1"));
+        newCollect().calculateFields(metrics, builder);
+
+        assertEquals(0, builder.getValuesCount());
+    }
+
+    @Test
+    void testExecutionPlanRebuiltWhenReplaced() {
+
+        Metrics metrics = Metrics.builder()
+                .name("basic")
+                .fields(List.of(field("count", CommonConstants.TYPE_NUMBER, null)))
+                .aliasFields(List.of("count"))
+                .build();
+
+        MetricsExecutionPlan plan = MetricsExecutionPlan.of(metrics, List.of());
+        assertSame(plan, MetricsExecutionPlan.of(metrics, List.of()));
+
+        metrics.setCalculates(List.of("count=count * 2"));
+        CollectRep.MetricsData.Builder builder = collectData(List.of("3"));
+        newCollect().calculateFields(metrics, builder);
+
+        assertEquals(List.of("6"), builder.getValues(0).getColumnsList());
+    }
+
+    private static Metrics.Field field(String name, byte type, String unit) {
+        return Metrics.Field.builder().field(name).type(type).unit(unit).build();
+    }
+
+    @SafeVarargs
+    private static CollectRep.MetricsData.Builder collectData(List<String>... rows) {
+        CollectRep.MetricsData.Builder builder = CollectRep.MetricsData.newBuilder();
+        for (List<String> row : rows) {
+            builder.addValueRow(CollectRep.ValueRow.newBuilder().addAllColumns(row).build());
+        }
+        return builder;
+    }
+
+    private static MetricsCollect newCollect() {
+        Job job = new Job();
+        job.setMonitorId(1L);
+        job.setApp("test");
+        WheelTimerTask timerTask = mock(WheelTimerTask.class);
+        when(timerTask.getJob()).thenReturn(job);
+        Timeout timeout = mock(Timeout.class);
+        when(timeout.task()).thenReturn(timerTask);
+        return new MetricsCollect(new Metrics(), timeout, null, "collector",
+                List.of(new DataSizeConvert(), new TimeLengthConvert()));
+    }
+}
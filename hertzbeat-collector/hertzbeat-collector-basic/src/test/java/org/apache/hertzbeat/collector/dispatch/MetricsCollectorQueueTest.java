@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.hertzbeat.collector.dispatch.timer.HashedWheelTimer;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link MetricsCollectorQueue}
+ */
+class MetricsCollectorQueueTest {
+
+    @Test
+    void testCapacity() {
+
+        MetricsCollectorQueue queue = newQueue(2, DispatchProperties.AdmissionProperties.POLICY_DELAY, 0L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+        MetricsCollect third = mockJob(true, (byte) 1);
+
+        queue.addJob(first);
+        queue.addJob(second);
+        queue.addJob(third);
+
+        assertEquals(2, queue.getQueueSize());
+        assertEquals(2, queue.getLaneSize(MetricsCollectorQueue.LANE_NORMAL));
+        assertEquals(1, queue.getDelayedCount());
+        verify(first, never()).abandon(anyString());
+        verify(second, never()).abandon(anyString());
+        verify(third).abandon(anyString());
+    }
+
+    @Test
+    void testShedLowestPriority() throws InterruptedException {
+
+        MetricsCollectorQueue queue = newQueue(2, DispatchProperties.AdmissionProperties.POLICY_SHED, 0L);
+        MetricsCollect oldest = mockJob(true, (byte) 1);
+        MetricsCollect newest = mockJob(true, (byte) 1);
+        MetricsCollect availability = mockJob(true, (byte) 0);
+        MetricsCollect normal = mockJob(true, (byte) 1);
+
+        queue.addJob(oldest);
+        queue.addJob(newest);
+        // the newest job of the lower lane gives its place to the availability job
+        queue.addJob(availability);
+        // no lower lane job to shed, the new job itself is shed
+        queue.addJob(normal);
+
+        assertEquals(2, queue.getQueueSize());
+        assertEquals(2, queue.getShedCount());
+        verify(newest).abandon(anyString());
+        verify(normal).abandon(anyString());
+        verify(oldest, never()).abandon(anyString());
+        verify(availability, never()).abandon(anyString());
+        assertSame(availability, queue.getJob());
+        assertSame(oldest, queue.getJob());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    void testBlockTimeout() {
+
+        MetricsCollectorQueue queue = newQueue(1, DispatchProperties.AdmissionProperties.POLICY_BLOCK, 100L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+
+        queue.addJob(first);
+        long start = System.nanoTime();
+        queue.addJob(second);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100L);
+        assertEquals(1, queue.getBlockedCount());
+        assertEquals(1, queue.getShedCount());
+        assertEquals(1, queue.getQueueSize());
+        verify(second).abandon(anyString());
+    }
+
+    @Test
+    void testBlockUntilAdmitted() throws InterruptedException {
+
+        MetricsCollectorQueue queue = newQueue(1, DispatchProperties.AdmissionProperties.POLICY_BLOCK, 10_000L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+        queue.addJob(first);
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+                queue.getJob();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        queue.addJob(second);
+        consumer.join();
+
+        assertEquals(1, queue.getBlockedCount());
+        assertEquals(0, queue.getShedCount());
+        verify(second, never()).abandon(anyString());
+        assertSame(second, queue.getJob());
+    }
+
+    @Test
+    void testNeverBlockTimeWheelThread() throws InterruptedException {
+
+        MetricsCollectorQueue queue = newQueue(1, DispatchProperties.AdmissionProperties.POLICY_BLOCK, 60_000L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+        queue.addJob(first);
+
+        HashedWheelTimer wheelTimer = new HashedWheelTimer(10L, TimeUnit.MILLISECONDS);
+        CountDownLatch added = new CountDownLatch(1);
+        try {
+            wheelTimer.newTimeout(timeout -> {
+                queue.addJob(second);
+                added.countDown();
+            }, 1L, TimeUnit.MILLISECONDS);
+            assertTrue(added.await(10L, TimeUnit.SECONDS));
+        } finally {
+            wheelTimer.stop();
+        }
+
+        assertEquals(0, queue.getBlockedCount());
+        assertEquals(1, queue.getShedCount());
+        verify(second).abandon(anyString());
+    }
+
+    @Test
+    void testOfferJobNeverBlocksWorkerThread() throws Exception {
+
+        MetricsCollectorQueue queue = newQueue(1, DispatchProperties.AdmissionProperties.POLICY_BLOCK, 60_000L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+        queue.addJob(first);
+
+        // the next level metrics are submitted by a collect worker or an async callback thread
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            worker.submit(() -> queue.offerJob(second)).get(10L, TimeUnit.SECONDS);
+        } finally {
+            worker.shutdownNow();
+        }
+
+        assertEquals(0, queue.getBlockedCount());
+        assertEquals(1, queue.getShedCount());
+        assertEquals(1, queue.getQueueSize());
+        verify(second).abandon(anyString());
+        assertSame(first, queue.getJob());
+    }
+
+    @Test
+    void testRequeueJobAtHead() throws InterruptedException {
+
+        MetricsCollectorQueue queue = newQueue(2, DispatchProperties.AdmissionProperties.POLICY_DELAY, 0L);
+        MetricsCollect first = mockJob(true, (byte) 1);
+        MetricsCollect second = mockJob(true, (byte) 1);
+        queue.addJob(first);
+        queue.addJob(second);
+
+        assertSame(first, queue.getJob());
+        queue.requeueJob(first);
+        assertEquals(2, queue.getQueueSize());
+        assertSame(first, queue.getJob());
+        assertSame(second, queue.getJob());
+    }
+
+    @Test
+    void testRequeueJobKeepsAge() throws InterruptedException {
+
+        MetricsCollectorQueue queue = newQueue(4, DispatchProperties.AdmissionProperties.POLICY_DELAY, 0L);
+        MetricsCollect availability = mockJob(true, (byte) 0);
+        MetricsCollect aged = mockJob(true, (byte) 1);
+        // enqueued long before, longer than the aging threshold
+        when(aged.getNewTime()).thenReturn(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+        queue.requeueJob(aged);
+        queue.addJob(availability);
+
+        assertSame(aged, queue.getJob());
+        assertEquals(1, queue.getPromotedCount());
+        assertSame(availability, queue.getJob());
+    }
+
+    private static MetricsCollectorQueue newQueue(int capacity, String policy, long blockTimeout) {
+        DispatchProperties.AdmissionProperties admissionProperties = new DispatchProperties.AdmissionProperties();
+        admissionProperties.setCapacity(capacity);
+        admissionProperties.setPolicy(policy);
+        admissionProperties.setBlockTimeout(blockTimeout);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setAdmission(admissionProperties);
+        return new MetricsCollectorQueue(dispatchProperties);
+    }
+
+    private static MetricsCollect mockJob(boolean cyclic, byte priority) {
+        Metrics metrics = new Metrics();
+        metrics.setPriority(priority);
+        MetricsCollect job = mock(MetricsCollect.class);
+        when(job.isCyclic()).thenReturn(cyclic);
+        when(job.getMetrics()).thenReturn(metrics);
+        when(job.getNewTime()).thenReturn(System.currentTimeMillis());
+        return job;
+    }
+}
@@ -18,12 +18,22 @@
 package org.apache.hertzbeat.collector.dispatch;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
 
 /**
  * Test case for {@link WorkerPool}
@@ -56,9 +66,213 @@ class WorkerPoolTest {
         assertThrows(RejectedExecutionException.class, () -> workerPool.executeJob(mockTask));
     }
 
+    @Test
+    void testExecuteJobWithProtocolBulkhead() throws Exception {
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setProtocolLimits(Map.of("ssh", 1));
+        workerProperties.setBulkheadQueueSize(1);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        workerPool = new WorkerPool(dispatchProperties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        workerPool.executeJob("ssh", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // the second task waits in the bulkhead, the third one is rejected
+        CountDownLatch queued = new CountDownLatch(1);
+        assertDoesNotThrow(() -> workerPool.executeJob("SSH", queued::countDown));
+        assertThrows(Bulkhead.BulkheadFullException.class, () -> workerPool.executeJob("ssh", mockTask));
+        // other protocols are not affected
+        CountDownLatch http = new CountDownLatch(1);
+        workerPool.executeJob("http", http::countDown);
+        assertTrue(http.await(5, TimeUnit.SECONDS));
+        assertEquals(1, queued.getCount());
+
+        // the waiting task runs after the running one finished
+        release.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        Bulkhead bulkhead = workerPool.getProtocolBulkheads().iterator().next();
+        assertEquals(1, bulkhead.getQueuedCount());
+        assertEquals(1, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void testExecuteJobWithTargetBulkhead() throws Exception {
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setTargetLimit(1);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        workerPool = new WorkerPool(dispatchProperties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        workerPool.executeJob("http", "10.0.0.1", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch sameHost = new CountDownLatch(1);
+        CountDownLatch otherHost = new CountDownLatch(1);
+        workerPool.executeJob("ssh", "10.0.0.1", sameHost::countDown);
+        workerPool.executeJob("http", "10.0.0.2", otherHost::countDown);
+
+        assertTrue(otherHost.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sameHost.getCount());
+        release.countDown();
+        assertTrue(sameHost.await(5, TimeUnit.SECONDS));
+        assertEquals(2, workerPool.getTargetBulkheads().size());
+    }
+
+    @Test
+    void testResumeWaitingTasksWhenWorkersAreFull() throws Exception {
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setProtocolLimits(Map.of("ssh", 1));
+        workerProperties.setBulkheadQueueSize(20000);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        workerPool = new WorkerPool(dispatchProperties);
+
+        CountDownLatch releaseSsh = new CountDownLatch(1);
+        CountDownLatch releaseWorkers = new CountDownLatch(1);
+        workerPool.executeJob("ssh", () -> await(releaseSsh));
+        // occupy all the other workers, the waiting tasks can not get a worker when the ssh task finished
+        for (int i = 1; i < Runtime.getRuntime().availableProcessors() * 16; i++) {
+            workerPool.executeJob(() -> await(releaseWorkers));
+        }
+        int waiting = 20000;
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch allFinished = new CountDownLatch(waiting);
+        for (int i = 0; i < waiting; i++) {
+            workerPool.executeJob("ssh", () -> {
+                finished.incrementAndGet();
+                allFinished.countDown();
+            });
+        }
+        releaseSsh.countDown();
+        Thread.sleep(200);
+        assertEquals(0, finished.get());
+
+        // the waiting tasks are neither rejected nor resumed recursively, they run when the workers are released
+        releaseWorkers.countDown();
+        assertTrue(allFinished.await(30, TimeUnit.SECONDS));
+        Bulkhead bulkhead = workerPool.getProtocolBulkheads().iterator().next();
+        assertEquals(0, bulkhead.getRejectedCount());
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void testEvictIdleTargetBulkheads() throws Exception {
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setTargetLimit(1);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        workerPool = new WorkerPool(dispatchProperties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        workerPool.executeJob("http", "10.0.0.1", () -> await(release));
+        workerPool.executeJob("http", "10.0.0.2", finished::countDown);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+
+        // the bulkhead of the busy host is kept
+        workerPool.evictIdleTargetBulkheads(10);
+        assertEquals(1, workerPool.getTargetBulkheads().size());
+        assertEquals("10.0.0.1", workerPool.getTargetBulkheads().iterator().next().getName());
+        release.countDown();
+    }
+
+    @Test
+    void testKeepHeldTargetBulkhead() throws Exception {
+
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setTargetLimit(1);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        workerPool = new WorkerPool(dispatchProperties);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        workerPool.executeJob("http", "10.0.0.1", finished::countDown);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        Bulkhead bulkhead = workerPool.getTargetBulkheads().iterator().next();
+
+        // the idle bulkhead held by a caller admitting its task is kept
+        bulkhead.retain();
+        workerPool.evictIdleTargetBulkheads(10);
+        assertEquals(1, workerPool.getTargetBulkheads().size());
+        bulkhead.unretain();
+        Thread.sleep(10);
+        workerPool.evictIdleTargetBulkheads(10);
+        assertTrue(workerPool.getTargetBulkheads().isEmpty());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void testExecuteJobInVirtualMode() throws Exception {
+
+        workerPool = new WorkerPool(virtualModeProperties());
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+        AtomicInteger virtualJobs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(32);
+        for (int i = 0; i < 32; i++) {
+            workerPool.executeJob(() -> {
+                try {
+                    if ((Boolean) isVirtual.invoke(Thread.currentThread())) {
+                        virtualJobs.incrementAndGet();
+                    }
+                } catch (ReflectiveOperationException ignored) {
+                    // counted as a platform thread job
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(workerPool.isVirtualThreads());
+        assertEquals(32, virtualJobs.get());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void testExecuteJobInVirtualModeFallback() throws Exception {
+
+        workerPool = new WorkerPool(virtualModeProperties());
+
+        // fallback to platform threads when the jdk has no virtual thread
+        CountDownLatch latch = new CountDownLatch(32);
+        for (int i = 0; i < 32; i++) {
+            workerPool.executeJob(latch::countDown);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(workerPool.isVirtualThreads());
+    }
+
     @Test
     void testDestroy() {
         assertDoesNotThrow(() -> workerPool.destroy());
     }
 
+    private static DispatchProperties virtualModeProperties() {
+        DispatchProperties.WorkerProperties workerProperties = new DispatchProperties.WorkerProperties();
+        workerProperties.setMode(WorkerPool.MODE_VIRTUAL);
+        workerProperties.setMaxConcurrency(64);
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        dispatchProperties.setWorker(workerProperties);
+        return dispatchProperties;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
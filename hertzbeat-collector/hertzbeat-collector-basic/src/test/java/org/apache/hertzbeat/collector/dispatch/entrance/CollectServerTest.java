@@ -91,6 +91,7 @@ class CollectServerTest {
 
         collectServer.run();
 
+        verify(collectJobService, times(1)).restoreSnapshotJobs();
         verify(remotingClient, times(1)).start();
     }
 
@@ -134,7 +135,7 @@ class CollectServerTest {
 
         collectNettyEventListener.onChannelActive(channel);
 
-        verify(timerDispatch, times(1)).goOnline();
+        verify(collectJobService, times(1)).goOnline();
         verify(remotingClient, times(1)).sendMsg(any(ClusterMsg.Message.class));
 
         ScheduledExecutorService scheduledExecutor =
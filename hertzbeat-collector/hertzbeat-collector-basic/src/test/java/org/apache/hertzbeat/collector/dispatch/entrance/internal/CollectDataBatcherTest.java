@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link CollectDataBatcher}
+ */
+class CollectDataBatcherTest {
+
+    private ScheduledExecutorService scheduler;
+
+    private List<List<CollectRep.MetricsData>> sentBatches;
+
+    @BeforeEach
+    void setUp() {
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        sentBatches = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testSendWhenBatchFull() {
+
+        CollectDataBatcher batcher = new CollectDataBatcher("test", 3, 60_000L, sentBatches::add, scheduler);
+        for (int index = 0; index < 7; index++) {
+            batcher.add(CollectRep.MetricsData.newBuilder().setMetrics("metrics" + index).build());
+        }
+
+        assertEquals(2, sentBatches.size());
+        assertEquals(3, sentBatches.get(0).size());
+        batcher.flush();
+        assertEquals(3, sentBatches.size());
+        assertEquals(1, sentBatches.get(2).size());
+        assertEquals(3, batcher.getBatchCount());
+        assertEquals(7, batcher.getDataCount());
+        assertEquals(3, batcher.getMaxBatchSize());
+    }
+
+    @Test
+    void testSendWhenLingerExpired() throws Exception {
+
+        CollectDataBatcher batcher = new CollectDataBatcher("test", 100, 20L, sentBatches::add, scheduler);
+        batcher.add(CollectRep.MetricsData.newBuilder().setMetrics("cpu").build());
+        batcher.add(CollectRep.MetricsData.newBuilder().setMetrics("memory").build());
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (batcher.getDataCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, sentBatches.stream().mapToInt(List::size).sum());
+        assertTrue(batcher.getMaxLatency() >= 0);
+    }
+
+    @Test
+    void testSendFailed() {
+
+        CollectDataBatcher batcher = new CollectDataBatcher("test", 2, 60_000L, batch -> {
+            throw new IllegalStateException("channel closed");
+        }, scheduler);
+        batcher.add(CollectRep.MetricsData.newBuilder().setMetrics("cpu").build());
+        batcher.add(CollectRep.MetricsData.newBuilder().setMetrics("memory").build());
+
+        assertEquals(2, batcher.getFailedCount());
+        assertEquals(0, batcher.getBatchCount());
+    }
+}
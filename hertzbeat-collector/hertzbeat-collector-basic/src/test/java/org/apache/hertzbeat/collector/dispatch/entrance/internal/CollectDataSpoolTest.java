@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link CollectDataSpool}
+ */
+class CollectDataSpoolTest {
+
+    @TempDir
+    Path spoolDir;
+
+    @Test
+    void testAppendAndReplay() throws Exception {
+
+        CollectDataSpool spool = new CollectDataSpool(spoolDir, 1024 * 1024, 64);
+        for (int index = 0; index < 10; index++) {
+            assertTrue(spool.append(("message-" + index).getBytes(StandardCharsets.UTF_8)));
+        }
+        List<String> replayed = new ArrayList<>();
+
+        assertEquals(4, spool.replay(data -> replayed.add(new String(data, StandardCharsets.UTF_8)), 4));
+        assertEquals(6, spool.replay(data -> replayed.add(new String(data, StandardCharsets.UTF_8)), 100));
+        assertEquals("message-0", replayed.get(0));
+        assertEquals("message-9", replayed.get(9));
+        assertTrue(spool.isEmpty());
+    }
+
+    @Test
+    void testReplayStopWhenNotSent() throws Exception {
+
+        CollectDataSpool spool = new CollectDataSpool(spoolDir, 1024 * 1024, 1024);
+        spool.append("cpu".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, spool.replay(data -> false, 10));
+        assertFalse(spool.isEmpty());
+    }
+
+    @Test
+    void testEvictOldestWhenFull() throws Exception {
+
+        // 2 segments of 64 bytes, each holds 3 records of 16 bytes
+        CollectDataSpool spool = new CollectDataSpool(spoolDir, 128, 64);
+        for (int index = 0; index < 9; index++) {
+            spool.append(String.format("message-%04d", index).getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> replayed = new ArrayList<>();
+        spool.replay(data -> replayed.add(new String(data, StandardCharsets.UTF_8)), 100);
+
+        assertEquals(List.of("message-0003", "message-0004", "message-0005",
+                "message-0006", "message-0007", "message-0008"), replayed);
+        assertTrue(spool.getEvictedBytes() > 0);
+    }
+
+    @Test
+    void testRecoverAfterRestart() throws Exception {
+
+        CollectDataSpool spool = new CollectDataSpool(spoolDir, 1024 * 1024, 1024);
+        spool.append("cpu".getBytes(StandardCharsets.UTF_8));
+        spool.append("memory".getBytes(StandardCharsets.UTF_8));
+        spool.replay(data -> true, 1);
+
+        CollectDataSpool recovered = new CollectDataSpool(spoolDir, 1024 * 1024, 1024);
+        List<String> replayed = new ArrayList<>();
+        recovered.replay(data -> replayed.add(new String(data, StandardCharsets.UTF_8)), 10);
+
+        assertEquals(List.of("memory"), replayed);
+    }
+}
@@ -20,13 +20,17 @@ package org.apache.hertzbeat.collector.dispatch.entrance.internal;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import org.apache.hertzbeat.collector.dispatch.DispatchProperties;
@@ -38,6 +42,7 @@ import org.apache.hertzbeat.common.entity.message.ClusterMsg;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -63,6 +68,9 @@ class CollectJobServiceTest {
     @InjectMocks
     private CollectJobService collectJobService;
 
+    @TempDir
+    Path snapshotDir;
+
     @BeforeEach
     public void setUp() {
 
@@ -128,6 +136,35 @@ class CollectJobServiceTest {
         verify(timerDispatch, times(1)).deleteJob(eq(jobId), eq(true));
     }
 
+    @Test
+    public void testGoOfflineAndOnlineReissueJobs() throws Exception {
+
+        DispatchProperties.EntranceProperties.SnapshotProperties snapshot = new DispatchProperties.EntranceProperties.SnapshotProperties();
+        snapshot.setPath(snapshotDir.resolve("jobs.snapshot").toString());
+        when(properties.getEntrance().getNetty().getSnapshot()).thenReturn(snapshot);
+        CollectJobService snapshotJobService = new CollectJobService(timerDispatch, properties, workerPool);
+        Job job = new Job();
+        job.setId(1L);
+        job.setMonitorId(10L);
+        job.setApp("website");
+        job.setCyclic(true);
+        job.setMetrics(List.of());
+
+        when(timerDispatch.isOnline()).thenReturn(true);
+        snapshotJobService.addAsyncCollectJob(job);
+        snapshotJobService.goOffline();
+        when(timerDispatch.isOnline()).thenReturn(false);
+        snapshotJobService.goOnline();
+        // the same job issued again after going online is scheduled, not taken as a resumed one
+        snapshotJobService.addAsyncCollectJob(job);
+
+        verify(timerDispatch, times(1)).goOffline();
+        verify(timerDispatch, times(1)).goOnline();
+        verify(timerDispatch, times(2)).addJob(any(Job.class), isNull());
+        verify(timerDispatch, never()).deleteJob(eq(1L), eq(true));
+        snapshotJobService.destroy();
+    }
+
     @Test
     public void testSendAsyncCollectData() {
 
@@ -137,7 +174,8 @@ class CollectJobServiceTest {
                 .build();
         collectJobService.sendAsyncCollectData(metricsData);
 
-        verify(collectServer, times(1)).sendMsg(any(ClusterMsg.Message.class));
+        // the batch is sent by the linger timer
+        verify(collectServer, timeout(1000).times(1)).sendMsg(any(ClusterMsg.Message.class));
     }
 
     @Test
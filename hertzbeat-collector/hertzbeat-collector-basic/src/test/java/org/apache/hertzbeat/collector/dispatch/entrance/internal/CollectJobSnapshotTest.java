@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.apache.hertzbeat.common.entity.job.Job;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.apache.hertzbeat.common.entity.job.protocol.HttpProtocol;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for {@link CollectJobSnapshot}
+ */
+class CollectJobSnapshotTest {
+
+    @TempDir
+    Path snapshotDir;
+
+    @Test
+    void testPutSameVersion() {
+
+        CollectJobSnapshot snapshot = new CollectJobSnapshot(snapshotDir.resolve("jobs.snapshot"));
+
+        assertTrue(snapshot.put(buildJob(1L, 10L, "127.0.0.1")));
+        Job issuedAgain = buildJob(1L, 10L, "127.0.0.1");
+        issuedAgain.setTimestamp(System.currentTimeMillis() + 1000);
+        assertFalse(snapshot.put(issuedAgain));
+        assertTrue(snapshot.put(buildJob(1L, 10L, "127.0.0.2")));
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void testFlushAndLoad() throws Exception {
+
+        Path file = snapshotDir.resolve("jobs.snapshot");
+        CollectJobSnapshot snapshot = new CollectJobSnapshot(file);
+        snapshot.put(buildJob(1L, 10L, "127.0.0.1"));
+        snapshot.put(buildJob(2L, 20L, "127.0.0.2"));
+        snapshot.put(buildJob(3L, 30L, "127.0.0.3"));
+        snapshot.remove(3L);
+        snapshot.flush();
+
+        CollectJobSnapshot loaded = new CollectJobSnapshot(file);
+        loaded.load();
+        List<Job> jobs = loaded.getJobs();
+        jobs.sort(Comparator.comparingLong(Job::getId));
+
+        assertEquals(Map.of(1L, 10L, 2L, 20L), loaded.getJobMonitors());
+        assertEquals(2, jobs.size());
+        assertEquals("website", jobs.get(0).getApp());
+        assertEquals("127.0.0.2", jobs.get(1).getMetrics().get(0).getHttp().getHost());
+        assertFalse(loaded.put(buildJob(2L, 20L, "127.0.0.2")));
+    }
+
+    @Test
+    void testClear() throws Exception {
+
+        Path file = snapshotDir.resolve("jobs.snapshot");
+        CollectJobSnapshot snapshot = new CollectJobSnapshot(file);
+        snapshot.put(buildJob(1L, 10L, "127.0.0.1"));
+        snapshot.flush();
+        snapshot.clear();
+        snapshot.flush();
+
+        CollectJobSnapshot loaded = new CollectJobSnapshot(file);
+        loaded.load();
+
+        assertEquals(0, snapshot.size());
+        assertEquals(0, loaded.size());
+        assertTrue(loaded.put(buildJob(1L, 10L, "127.0.0.1")));
+    }
+
+    private Job buildJob(long id, long monitorId, String host) {
+        HttpProtocol http = new HttpProtocol();
+        http.setHost(host);
+        http.setPort("80");
+        Metrics metrics = new Metrics();
+        metrics.setName("summary");
+        metrics.setProtocol("http");
+        metrics.setHttp(http);
+        Job job = new Job();
+        job.setId(id);
+        job.setMonitorId(monitorId);
+        job.setApp("website");
+        job.setCategory("service");
+        job.setCyclic(true);
+        job.setDefaultInterval(60);
+        job.setTimestamp(System.currentTimeMillis());
+        job.setMetrics(List.of(metrics));
+        return job;
+    }
+}
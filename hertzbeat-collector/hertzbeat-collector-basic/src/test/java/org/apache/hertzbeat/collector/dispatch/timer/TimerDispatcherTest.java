@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hertzbeat.collector.dispatch.timer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.hertzbeat.collector.dispatch.DispatchProperties;
+import org.apache.hertzbeat.collector.dispatch.MetricsTaskDispatch;
+import org.apache.hertzbeat.common.entity.job.Job;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.apache.hertzbeat.common.support.SpringContextHolder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link TimerDispatcher}
+ */
+class TimerDispatcherTest {
+
+    private TimerDispatcher timerDispatcher;
+
+    @BeforeEach
+    void setUp() {
+
+        timerDispatcher = new TimerDispatcher();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+
+        timerDispatcher.destroy();
+    }
+
+    @Test
+    void testFirstFireTimeSpreadWithinInterval() {
+
+        long now = 1_700_000_000_123L;
+        long interval = 60_000L;
+        long first = timerDispatcher.firstFireTime(1L, interval, now);
+        long second = timerDispatcher.firstFireTime(2L, interval, now);
+
+        assertTrue(first > now && first <= now + interval);
+        assertTrue(second > now && second <= now + interval);
+        assertNotEquals(first, second);
+        // the offset of a job is stable, whenever it is added
+        assertEquals(Math.floorMod(first, interval), Math.floorMod(timerDispatcher.firstFireTime(1L, interval, now + 12_345L), interval));
+    }
+
+    @Test
+    void testFirstFireTimeWithoutSpread() {
+
+        DispatchProperties dispatchProperties = new DispatchProperties();
+        DispatchProperties.TimerProperties timerProperties = new DispatchProperties.TimerProperties();
+        timerProperties.setSpread(false);
+        dispatchProperties.setTimer(timerProperties);
+        TimerDispatcher dispatcher = new TimerDispatcher(dispatchProperties);
+
+        assertEquals(1_000L + 30_000L, dispatcher.firstFireTime(1L, 30_000L, 1_000L));
+    }
+
+    @Test
+    void testFirstFireCollectsDueMetrics() throws Exception {
+
+        CompletableFuture<Set<Metrics>> firstMetrics = new CompletableFuture<>();
+        MetricsTaskDispatch metricsTaskDispatch = timeout -> {
+            Job job = ((WheelTimerTask) timeout.task()).getJob();
+            job.constructPriorMetrics();
+            firstMetrics.complete(job.getNextCollectMetrics(null, true));
+        };
+        Metrics cpu = Metrics.builder().name("cpu").priority((byte) 0).interval(1L).build();
+        Metrics disk = Metrics.builder().name("disk").priority((byte) 0).interval(2L).build();
+        Job job = Job.builder().id(1L).monitorId(1L).app("linux").isCyclic(true).defaultInterval(1L)
+                .configmap(new ArrayList<>()).metrics(new ArrayList<>(List.of(cpu, disk))).build();
+
+        try (MockedStatic<SpringContextHolder> springContextHolder = Mockito.mockStatic(SpringContextHolder.class)) {
+            springContextHolder.when(() -> SpringContextHolder.getBean(MetricsTaskDispatch.class)).thenReturn(metricsTaskDispatch);
+            timerDispatcher.addJob(job, null);
+        }
+        Set<Metrics> collected = firstMetrics.get(5, TimeUnit.SECONDS);
+
+        // the metrics of the first interval are collected at the spread first fire, the others at their interval
+        assertNotNull(collected);
+        assertEquals(Set.of("cpu"), collected.stream().map(Metrics::getName).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testTickFireHistogram() {
+
+        TickFireHistogram histogram = new TickFireHistogram(100L);
+        for (int index = 0; index < 5; index++) {
+            histogram.record(1_000L);
+        }
+        histogram.record(1_100L);
+        histogram.record(1_200L);
+
+        long[] counts = histogram.snapshot();
+        // tick 1000 fired 5 jobs, tick 1100 fired 1 job, tick 1200 is not finished
+        assertEquals(1L, counts[0]);
+        assertEquals(1L, counts[3]);
+        assertEquals(5, histogram.getMaxFireCount());
+    }
+}
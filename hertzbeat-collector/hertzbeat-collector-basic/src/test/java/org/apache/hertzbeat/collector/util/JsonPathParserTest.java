@@ -20,6 +20,7 @@ package org.apache.hertzbeat.collector.util;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import com.jayway.jsonpath.DocumentContext;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
@@ -99,4 +100,31 @@ class JsonPathParserTest {
             assertEquals("Sword of Honour", ((Map) e).get("title"));
         });
     }
+
+    @Test
+    void readWithJsonPath() {
+        DocumentContext document = JsonPathParser.parseDocument(JSON_OBJECT);
+
+        assertEquals(List.of("Nigel Rees"), JsonPathParser.readWithJsonPath(document, "$.store.book[0].author"));
+        assertEquals(JsonPathParser.parseContentWithJsonPath(JSON_OBJECT, "$.store.book[*].price"),
+                JsonPathParser.readWithJsonPath(document, "$.store.book[*].price"));
+        assertEquals(List.of(), JsonPathParser.readWithJsonPath(null, "$.store"));
+    }
+
+    @Test
+    void readDocumentWithJsonPaths() {
+        // the content parsed once is read by several json paths, same as parsing it for each path
+        List<String> jsonPaths = List.of("$.store.book[*].author", "$.store.book[?(@.price < 10)].title", "$..price",
+                "$.store.bicycle.gears", "$.store.bicycle.color", "$.store.book[*].author");
+        DocumentContext document = JsonPathParser.parseDocument(JSON_OBJECT);
+        for (String jsonPath : jsonPaths) {
+            assertEquals(JsonPathParser.parseContentWithJsonPath(JSON_OBJECT, jsonPath),
+                    JsonPathParser.readWithJsonPath(document, jsonPath), jsonPath);
+        }
+
+        assertEquals(List.of("Sayings of the Century", "Moby Dick"),
+                JsonPathParser.readWithJsonPath(document, "$.store.book[?(@.price < 10)].title"));
+        assertEquals(List.of("0-553-21311-3", "0-395-19395-8"),
+                JsonPathParser.readWithJsonPath(document, "$.store.book[?(@.isbn)].isbn"));
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hertzbeat.collector.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.hertzbeat.common.entity.job.Configmap;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.apache.hertzbeat.common.entity.job.protocol.JdbcProtocol;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link MetricsTemplate}
+ */
+class MetricsTemplateTest {
+
+    @Test
+    void testBind() {
+        JdbcProtocol jdbc = JdbcProtocol.builder().sql("select * from ^o^schema^o^.^o^table^o^").build();
+        Metrics metrics = Metrics.builder().name("tables").jdbc(jdbc)
+                .aliasFields(List.of("name", "^o^table^o^_size"))
+                .fields(List.of(Metrics.Field.builder().field("name").build()))
+                .build();
+        MetricsTemplate template = MetricsTemplate.of(metrics);
+
+        assertSame(template, MetricsTemplate.of(metrics));
+        assertEquals(Set.of("schema", "table"), template.getPlaceholderFields());
+
+        Map<String, Configmap> configmap = new HashMap<>();
+        configmap.put("schema", Configmap.builder().key("schema").value("public").build());
+        configmap.put("table", Configmap.builder().key("table").value("user").build());
+        Metrics first = template.bind(configmap);
+        configmap.put("table", Configmap.builder().key("table").value("role").build());
+        Metrics second = template.bind(configmap);
+
+        assertEquals("select * from public.user", first.getJdbc().getSql());
+        assertEquals("select * from public.role", second.getJdbc().getSql());
+        assertEquals(List.of("name", "role_size"), second.getAliasFields());
+        assertNotSame(first.getJdbc(), second.getJdbc());
+        // the template metrics is not changed
+        assertEquals("select * from ^o^schema^o^.^o^table^o^", metrics.getJdbc().getSql());
+    }
+
+    @Test
+    void testBindNullAndAbsentParam() {
+        JdbcProtocol jdbc = JdbcProtocol.builder().sql("^o^sql^o^").url("jdbc:^o^db^o^/^o^absent^o^").build();
+        Metrics metrics = Metrics.builder().name("query").jdbc(jdbc)
+                .fields(List.of(Metrics.Field.builder().field("value").build()))
+                .build();
+        Map<String, Configmap> configmap = new HashMap<>();
+        configmap.put("sql", Configmap.builder().key("sql").build());
+        configmap.put("db", Configmap.builder().key("db").build());
+
+        Metrics bound = MetricsTemplate.of(metrics).bind(configmap);
+
+        assertNull(bound.getJdbc().getSql());
+        assertEquals("jdbc:/^o^absent^o^", bound.getJdbc().getUrl());
+        // no placeholder in the calculate configurations, they are shared with the template metrics
+        assertSame(metrics.getFields(), bound.getFields());
+        assertTrue(MetricsTemplate.of(Metrics.builder().name("plain").build()).getPlaceholderFields().isEmpty());
+    }
+}
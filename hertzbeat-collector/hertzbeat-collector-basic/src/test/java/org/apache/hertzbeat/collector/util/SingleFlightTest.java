@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link SingleFlight}
+ */
+class SingleFlightTest {
+
+    @Test
+    void testExecuteShareInFlightCall() throws Exception {
+
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger invokeCount = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                invokeCount.incrementAndGet();
+                started.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+                return "value";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> singleFlight.execute("key", () -> {
+                invokeCount.incrementAndGet();
+                return "other";
+            }));
+            while (singleFlight.getSharedCount() == 0) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals("value", first.get(5, TimeUnit.SECONDS));
+            assertEquals("value", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, invokeCount.get());
+            assertEquals(2, singleFlight.getCallCount());
+            assertEquals(0, singleFlight.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecuteNotCacheResult() throws Exception {
+
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger invokeCount = new AtomicInteger();
+
+        assertEquals(1, singleFlight.execute("key", invokeCount::incrementAndGet));
+        assertEquals(2, singleFlight.execute("key", invokeCount::incrementAndGet));
+        assertEquals(0, singleFlight.getSharedCount());
+        assertThrows(IOException.class, () -> singleFlight.execute("key", () -> {
+            throw new IOException("connect refused");
+        }));
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    void testDigest() {
+
+        assertEquals("", SingleFlight.digest(null));
+        assertEquals(SingleFlight.digest("password"), SingleFlight.digest("password"));
+        assertNotEquals("password", SingleFlight.digest("password"));
+        assertNotEquals(SingleFlight.digest("password"), SingleFlight.digest("password1"));
+    }
+}
@@ -18,17 +18,15 @@
 package org.apache.hertzbeat.collector.dispatch;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import lombok.AllArgsConstructor;
-import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.collect.AbstractCollect;
+import org.apache.hertzbeat.collector.collect.strategy.CollectStrategyFactory;
 import org.apache.hertzbeat.collector.dispatch.entrance.internal.CollectJobService;
 import org.apache.hertzbeat.collector.dispatch.timer.Timeout;
 import org.apache.hertzbeat.collector.dispatch.timer.TimerDispatch;
 import org.apache.hertzbeat.collector.dispatch.timer.WheelTimerTask;
 import org.apache.hertzbeat.collector.dispatch.unit.UnitConvert;
-import org.apache.hertzbeat.collector.util.CollectUtil;
+import org.apache.hertzbeat.collector.util.MetricsTemplate;
 import org.apache.hertzbeat.common.entity.job.Configmap;
 import org.apache.hertzbeat.common.entity.job.Job;
 import org.apache.hertzbeat.common.entity.job.Metrics;
@@ -36,18 +34,26 @@ import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.apache.hertzbeat.common.queue.CommonDataQueue;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Collection task and response data scheduler
@@ -57,7 +63,7 @@ import java.util.concurrent.atomic.AtomicReference;
 public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatch {
 
     /**
-     * Collection task timeout value
+     * Default collection task timeout value
      */
     private static final long DURATION_TIME = 240_000L;
     /**
@@ -68,9 +74,16 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
      * Collect Response env config length
      */
     private static final int ENV_CONFIG_SIZE = 1;
-    private static final Gson GSON = new Gson();
     /**
-     * Priority queue of index collection tasks
+     * Max wait time(ms) for a free worker when the worker pool is full
+     */
+    private static final long WORKER_WAIT_TIME = 100L;
+    /**
+     * Threads responding the collect tasks abandoned in the time wheel thread
+     */
+    private static final int ABANDON_THREADS = 2;
+    /**
+     * Multi-lane queue of metrics collection tasks
      */
     private final MetricsCollectorQueue jobRequestQueue;
     /**
@@ -82,29 +95,76 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
      */
     private final CommonDataQueue commonDataQueue;
     /**
-     * Metrics task and start time mapping map
+     * Default collection task timeout(ms)
+     */
+    private final long collectTimeout;
+    /**
+     * Protocol - collection task timeout(ms)
+     */
+    private final Map<String, Long> protocolTimeouts;
+    /**
+     * Protocols whose same level metrics of a monitor are collected together by the batch key
      */
-    private final Map<String, MetricsTime> metricsTimeoutMonitorMap;
+    private final Set<String> batchProtocols;
 
     private final List<UnitConvert> unitConvertList;
 
     private final WorkerPool workerPool;
+
+    /**
+     * Executor of the abandon responses, the time wheel thread only marks the timed out task and hands it over.
+     * Its queue is bounded by the pending collect tasks, each task is responded once.
+     */
+    private final ThreadPoolExecutor abandonExecutor;
     
     private final String collectorIdentity;
 
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final LongAdder bulkheadRejectedCount = new LongAdder();
+
     public CommonDispatcher(MetricsCollectorQueue jobRequestQueue,
                             TimerDispatch timerDispatch,
                             CommonDataQueue commonDataQueue,
                             WorkerPool workerPool,
                             CollectJobService collectJobService,
-                            List<UnitConvert> unitConvertList) {
+                            List<UnitConvert> unitConvertList,
+                            DispatchProperties dispatchProperties) {
         this.commonDataQueue = commonDataQueue;
         this.jobRequestQueue = jobRequestQueue;
         this.timerDispatch = timerDispatch;
         this.unitConvertList = unitConvertList;
         this.workerPool = workerPool;
+        this.abandonExecutor = new ThreadPoolExecutor(ABANDON_THREADS, ABANDON_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+                        .setNameFormat("metrics-task-abandon-%d")
+                        .setDaemon(true)
+                        .build());
         this.collectorIdentity = collectJobService.getCollectorIdentity();
-        this.metricsTimeoutMonitorMap = new ConcurrentHashMap<>(16);
+        DispatchProperties.WorkerProperties workerProperties = Optional.ofNullable(dispatchProperties)
+                .map(DispatchProperties::getWorker)
+                .orElseGet(DispatchProperties.WorkerProperties::new);
+        this.collectTimeout = workerProperties.getCollectTimeout() > 0 ? workerProperties.getCollectTimeout() : DURATION_TIME;
+        this.protocolTimeouts = new HashMap<>(8);
+        if (workerProperties.getProtocolTimeouts() != null) {
+            workerProperties.getProtocolTimeouts().forEach((protocol, protocolTimeout) -> {
+                if (protocol != null && protocolTimeout != null && protocolTimeout > 0) {
+                    protocolTimeouts.put(protocol.toLowerCase(), protocolTimeout);
+                }
+            });
+        }
+        this.batchProtocols = new HashSet<>(4);
+        if (workerProperties.getBatchProtocols() != null) {
+            workerProperties.getBatchProtocols().stream()
+                    .filter(protocol -> protocol != null && !protocol.isBlank())
+                    .forEach(protocol -> batchProtocols.add(protocol.trim().toLowerCase()));
+        }
+        // the task waited in a bulkhead is rejected on the thread which handed over the permit
+        workerPool.setRejectedHandler((task, rejected) -> {
+            if (task instanceof MetricsCollect metricsCollect && onCollectRejected(metricsCollect, rejected)) {
+                jobRequestQueue.requeueJob(metricsCollect);
+            }
+        });
         this.start();
     }
 
@@ -114,17 +174,10 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
             workerPool.executeJob(() -> {
                 Thread.currentThread().setName("metrics-task-dispatcher");
                 while (!Thread.currentThread().isInterrupted()) {
-                    MetricsCollect metricsCollect = null;
                     try {
-                        metricsCollect = jobRequestQueue.getJob();
+                        MetricsCollect metricsCollect = jobRequestQueue.getJob();
                         if (metricsCollect != null) {
-                            workerPool.executeJob(metricsCollect);
-                        }
-                    } catch (RejectedExecutionException rejected) {
-                        log.info("[Dispatcher]-the worker pool is full, reject this metrics task，put in queue again.");
-                        if (metricsCollect != null) {
-                            metricsCollect.setRunPriority((byte) (metricsCollect.getRunPriority() + 1));
-                            jobRequestQueue.addJob(metricsCollect);
+                            executeMetricsCollect(metricsCollect);
                         }
                     } catch (InterruptedException interruptedException) {
                         log.info("[Dispatcher]-metrics-task-dispatcher has been interrupt to close.");
@@ -135,48 +188,152 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
                 }
                 log.info("Thread Interrupted, Shutdown the [metrics-task-dispatcher]");
             });
-            // monitoring metrics collection task execution timeout
+            // the collection task timeout is monitored by the time wheel, here only logs the statistics
             ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                    .setNameFormat("metrics-task-timeout-monitor-%d")
+                    .setNameFormat("metrics-task-statistics-%d")
                     .setDaemon(true)
                     .build();
             ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1, threadFactory);
-            scheduledExecutor.scheduleWithFixedDelay(this::monitorCollectTaskTimeout, 2, 20, TimeUnit.SECONDS);
+            scheduledExecutor.scheduleWithFixedDelay(this::logDispatchStatistics, 60, 60, TimeUnit.SECONDS);
         } catch (Exception e) {
             log.error("Common Dispatcher error: {}.", e.getMessage(), e);
         }
     }
-    
-    private void monitorCollectTaskTimeout() {
+
+    /**
+     * Hand over the collect task to the worker pool. When the worker pool is full, the dispatcher waits
+     * for a free worker instead of spinning, so the pending tasks pile up in the bounded queue
+     * and the admission policy takes effect.
+     *
+     * @param metricsCollect collect task
+     * @throws InterruptedException when the dispatcher is interrupted
+     */
+    private void executeMetricsCollect(MetricsCollect metricsCollect) throws InterruptedException {
         try {
-            // Detect whether the collection unit of each metrics has timed out for 4 minutes,
-            // and if it times out, it will be discarded and an exception will be returned.
-            long deadline = System.currentTimeMillis() - DURATION_TIME;
-            for (Map.Entry<String, MetricsTime> entry : metricsTimeoutMonitorMap.entrySet()) {
-                MetricsTime metricsTime = entry.getValue();
-                if (metricsTime.getStartTime() < deadline) {
-                    // Metrics collection timeout  
-                    WheelTimerTask timerJob = (WheelTimerTask) metricsTime.getTimeout().task();
-                    CollectRep.MetricsData metricsData = CollectRep.MetricsData.newBuilder()
-                            .setId(timerJob.getJob().getMonitorId())
-                            .setTenantId(timerJob.getJob().getTenantId())
-                            .setApp(timerJob.getJob().getApp())
-                            .setMetrics(metricsTime.getMetrics().getName())
-                            .setPriority(metricsTime.getMetrics().getPriority())
-                            .setTime(System.currentTimeMillis())
-                            .setCode(CollectRep.Code.TIMEOUT).setMsg("collect timeout").build();
-                    log.error("[Collect Timeout]: \n{}", metricsData);
-                    if (metricsData.getPriority() == 0) {
-                        dispatchCollectData(metricsTime.timeout, metricsTime.getMetrics(), metricsData);
-                    }
-                    metricsTimeoutMonitorMap.remove(entry.getKey());
-                }
+            workerPool.executeJob(metricsCollect.getMetrics().getProtocol(), metricsCollect.getTarget(), metricsCollect);
+        } catch (RejectedExecutionException rejected) {
+            if (onCollectRejected(metricsCollect, rejected)) {
+                // wait for a free worker, then put it back with its priority unchanged
+                workerPool.awaitCapacity(WORKER_WAIT_TIME, TimeUnit.MILLISECONDS);
+                jobRequestQueue.requeueJob(metricsCollect);
+            }
+        }
+    }
+
+    /**
+     * The collect task rejected by a full bulkhead is abandoned, so that a slow protocol or target host
+     * does not hold up the other tasks, the one rejected by the full worker pool is retried.
+     *
+     * @param metricsCollect collect task
+     * @param rejected       reject reason
+     * @return true - the task should be retried
+     */
+    private boolean onCollectRejected(MetricsCollect metricsCollect, RejectedExecutionException rejected) {
+        rejectedCount.increment();
+        if (rejected instanceof Bulkhead.BulkheadFullException) {
+            bulkheadRejectedCount.increment();
+            metricsCollect.abandon(rejected.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void logDispatchStatistics() {
+        log.info("[Dispatcher Statistics] queue size: {} (one-time: {}, availability: {}, normal: {}), "
+                        + "worker rejected: {}, blocked: {}, shed: {}, delayed: {}, promoted: {}.",
+                jobRequestQueue.getQueueSize(), jobRequestQueue.getLaneSize(MetricsCollectorQueue.LANE_ONE_TIME),
+                jobRequestQueue.getLaneSize(MetricsCollectorQueue.LANE_AVAILABILITY),
+                jobRequestQueue.getLaneSize(MetricsCollectorQueue.LANE_NORMAL),
+                rejectedCount.sum(), jobRequestQueue.getBlockedCount(), jobRequestQueue.getShedCount(),
+                jobRequestQueue.getDelayedCount(), jobRequestQueue.getPromotedCount());
+        log.info("[Dispatcher Statistics] jobs fired per tick: {}.", timerDispatch.getTickFireHistogram());
+        if (!workerPool.getProtocolBulkheads().isEmpty()) {
+            log.info("[Dispatcher Statistics] protocol bulkheads: {}.", workerPool.getProtocolBulkheads());
+        }
+        List<Bulkhead> busyTargets = workerPool.getTargetBulkheads().stream()
+                .filter(bulkhead -> bulkhead.getQueued() > 0 || bulkhead.getRejectedCount() > 0)
+                .toList();
+        if (!busyTargets.isEmpty()) {
+            log.info("[Dispatcher Statistics] busy target bulkheads: {}, bulkhead rejected: {}.",
+                    busyTargets, bulkheadRejectedCount.sum());
+        }
+    }
+
+    /**
+     * @return times of the collect tasks rejected by the worker pool
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+    
+    /**
+     * Register the timeout of the collection task on the time wheel and put it into the queue.
+     * The timeout is registered first, the task may be abandoned and response at once when the collector is overloaded.
+     *
+     * @param metricsCollect collection task
+     */
+    private void submitMetricsCollect(MetricsCollect metricsCollect) {
+        metricsCollect.monitorTimeout(timerDispatch, getCollectTimeout(metricsCollect.getMetrics()), abandonExecutor);
+        // submitted by the time wheel thread, the collect workers or the async callback threads, none of them may wait
+        jobRequestQueue.offerJob(metricsCollect);
+    }
+
+    /**
+     * Create the collection tasks of the same level metrics of a job and submit them.
+     * The metrics of a batch protocol sharing the same batch key, eg: the sql metrics of the same datasource,
+     * are collected by one task, the others are responded by it and only their timeouts are monitored.
+     *
+     * @param metricsList same level metrics
+     * @param timeout     time wheel timeout of the job
+     */
+    private void submitMetricsCollects(Collection<Metrics> metricsList, Timeout timeout) {
+        Map<String, MetricsCollect> batchLeaders = null;
+        for (Metrics metrics : metricsList) {
+            MetricsCollect metricsCollect = new MetricsCollect(metrics, timeout, this,
+                    collectorIdentity, unitConvertList);
+            String batchKey = batchKey(metrics);
+            if (batchKey == null) {
+                submitMetricsCollect(metricsCollect);
+                continue;
+            }
+            if (batchLeaders == null) {
+                batchLeaders = new LinkedHashMap<>(4);
             }
+            MetricsCollect batchLeader = batchLeaders.putIfAbsent(batchKey, metricsCollect);
+            if (batchLeader != null) {
+                batchLeader.addBatchMember(metricsCollect);
+                metricsCollect.monitorTimeout(timerDispatch, getCollectTimeout(metrics), abandonExecutor);
+            }
+        }
+        if (batchLeaders != null) {
+            batchLeaders.values().forEach(this::submitMetricsCollect);
+        }
+    }
+
+    private String batchKey(Metrics metrics) {
+        String protocol = metrics.getProtocol();
+        if (protocol == null || !batchProtocols.contains(protocol.toLowerCase()) || metrics.isHasSubTask()) {
+            return null;
+        }
+        AbstractCollect abstractCollect = CollectStrategyFactory.invoke(protocol);
+        if (abstractCollect == null) {
+            return null;
+        }
+        try {
+            String batchKey = abstractCollect.batchKey(metrics);
+            return batchKey == null ? null : protocol.toLowerCase() + "@" + batchKey;
         } catch (Exception e) {
-            log.error("[Task Timeout Monitor]-{}.", e.getMessage(), e);
+            // the invalid metrics is collected alone and fails there
+            return null;
         }
     }
 
+    private long getCollectTimeout(Metrics metrics) {
+        String protocol = metrics.getProtocol();
+        Long protocolTimeout = protocol == null ? null : protocolTimeouts.get(protocol.toLowerCase());
+        return protocolTimeout == null ? collectTimeout : protocolTimeout;
+    }
+
     @Override
     public void dispatchMetricsTask(Timeout timeout) {
         // Divide the collection task of a single application into corresponding collection tasks of the metrics according to the metrics under it.
@@ -185,18 +342,16 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
         Job job = timerTask.getJob();
         job.constructPriorMetrics();
         Set<Metrics> metricsSet = job.getNextCollectMetrics(null, true);
-        metricsSet.forEach(metrics -> {
-            MetricsCollect metricsCollect = new MetricsCollect(metrics, timeout, this,
-                    collectorIdentity, unitConvertList);
-            jobRequestQueue.addJob(metricsCollect);
-            if (metrics.getPrometheus() != null) {
-                metricsTimeoutMonitorMap.put(String.valueOf(job.getId()),
-                        new MetricsTime(System.currentTimeMillis(), metrics, timeout));
+        if (metricsSet == null) {
+            // no metrics is due in this round, go on to the next round directly
+            if (job.isCyclic()) {
+                timerDispatch.cyclicJob(timerTask, job.getInterval(), TimeUnit.SECONDS);
             } else {
-                metricsTimeoutMonitorMap.put(job.getId() + "-" + metrics.getName(),
-                        new MetricsTime(System.currentTimeMillis(), metrics, timeout));   
+                timerDispatch.responseSyncJobData(job.getId(), Collections.emptyList());
             }
-        });
+            return;
+        }
+        submitMetricsCollects(metricsSet, timeout);
     }
 
     @Override
@@ -204,15 +359,12 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
         WheelTimerTask timerJob = (WheelTimerTask) timeout.task();
         Job job = timerJob.getJob();
         if (metrics.isHasSubTask()) {
-            metricsTimeoutMonitorMap.remove(job.getId() + "-" + metrics.getName() + "-sub-" + metrics.getSubTaskId());
             boolean isLastTask = metrics.consumeSubTaskResponse(metricsData);
             if (isLastTask) {
                 metricsData = metrics.getSubTaskDataRef().get().build();
             } else {
                 return;
             }
-        } else {
-            metricsTimeoutMonitorMap.remove(job.getId() + "-" + metrics.getName());
         }
         Set<Metrics> metricsSet = job.getNextCollectMetrics(metrics, false);
         if (job.isCyclic()) {
@@ -232,13 +384,11 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
                 // The collection and execution task of this job are completed.
                 // The periodic task pushes the task to the time wheel again.
                 // First, determine the execution time of the task and the task collection interval.
+                // The next fire time is anchored to the scheduled time of this round, the time spent here is compensated.
                 if (!timeout.isCancelled()) {
-                    long spendTime = System.currentTimeMillis() - job.getDispatchTime();
-                    long interval = job.getInterval() - spendTime / 1000;
-                    interval = interval <= 0 ? 0 : interval;
                     // Reset Construction Execution Metrics Task View 
                     job.constructPriorMetrics();
-                    timerDispatch.cyclicJob(timerJob, interval, TimeUnit.SECONDS);
+                    timerDispatch.cyclicJob(timerJob, job.getInterval(), TimeUnit.SECONDS);
                 }
             } else if (!metricsSet.isEmpty()) {
                 // The execution of the current level metrics is completed, and the execution of the next level metrics starts
@@ -247,14 +397,12 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
                 if (configmapList.size() == ENV_CONFIG_SIZE) {
                     job.addEnvConfigmaps(configmapList.get(0));
                 }
+                List<Metrics> plainMetrics = new ArrayList<>(metricsSet.size());
                 for (Metrics metricItem : metricsSet) {
-                    Set<String> cryPlaceholderFields = CollectUtil.matchCryPlaceholderField(GSON.toJsonTree(metricItem));
+                    MetricsTemplate metricsTemplate = MetricsTemplate.of(metricItem);
+                    Set<String> cryPlaceholderFields = metricsTemplate.getPlaceholderFields();
                     if (cryPlaceholderFields.isEmpty()) {
-                        MetricsCollect metricsCollect = new MetricsCollect(metricItem, timeout, this,
-                                collectorIdentity, unitConvertList);
-                        jobRequestQueue.addJob(metricsCollect);
-                        metricsTimeoutMonitorMap.put(job.getId() + "-" + metricItem.getName(),
-                                new MetricsTime(System.currentTimeMillis(), metricItem, timeout));
+                        plainMetrics.add(metricItem);
                         continue;
                     }
                     boolean isSubTask = configmapList.stream().anyMatch(map -> map.keySet().stream().anyMatch(cryPlaceholderFields::contains));
@@ -267,20 +415,17 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
                             Map<String, Configmap> preConfigMap = configmapList.get(index);
                             configmap.putAll(preConfigMap);
                         }
-                        JsonElement metricJson = GSON.toJsonTree(metricItem);
-                        CollectUtil.replaceCryPlaceholder(metricJson, configmap);
-                        Metrics metric = GSON.fromJson(metricJson, Metrics.class);
+                        Metrics metric = metricsTemplate.bind(configmap);
                         metric.setSubTaskNum(subTaskNumAtomic);
                         metric.setSubTaskId(index);
                         metric.setSubTaskDataRef(metricsDataReference);
                         MetricsCollect metricsCollect = new MetricsCollect(metric, timeout, this,
                                 collectorIdentity, unitConvertList);
-                        jobRequestQueue.addJob(metricsCollect);
-                        metricsTimeoutMonitorMap.put(job.getId() + "-" + metric.getName() + "-sub-" + index,
-                                new MetricsTime(System.currentTimeMillis(), metric, timeout));
+                        submitMetricsCollect(metricsCollect);
                     }
 
                 }
+                submitMetricsCollects(plainMetrics, timeout);
             } else {
                 // The list of metrics at the current execution level has not been fully executed.
                 // It needs to wait for the execution of other metrics task of the same level to complete the execution and enter the next level for execution.
@@ -309,13 +454,7 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
                 timerDispatch.responseSyncJobData(job.getId(), job.getResponseDataTemp());
             } else if (!metricsSet.isEmpty()) {
                 // The execution of the current level metrics is completed, and the execution of the next level metrics starts
-                metricsSet.forEach(metricItem -> {
-                    MetricsCollect metricsCollect = new MetricsCollect(metricItem, timeout, this,
-                            collectorIdentity, unitConvertList);
-                    jobRequestQueue.addJob(metricsCollect);
-                    metricsTimeoutMonitorMap.put(job.getId() + "-" + metricItem.getName(),
-                            new MetricsTime(System.currentTimeMillis(), metricItem, timeout));
-                });
+                submitMetricsCollects(metricsSet, timeout);
             } else {
                 // The list of metrics task at the current execution level has not been fully executed.
                 // It needs to wait for the execution of other metrics task of the same level to complete the execution and enter the next level for execution.
@@ -327,18 +466,14 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
     public void dispatchCollectData(Timeout timeout, Metrics metrics, List<CollectRep.MetricsData> metricsDataList) {
         WheelTimerTask timerJob = (WheelTimerTask) timeout.task();
         Job job = timerJob.getJob();
-        metricsTimeoutMonitorMap.remove(String.valueOf(job.getId()));
         if (job.isCyclic()) {
             // The collection and execution of all task of this job are completed.
             // The periodic task pushes the task to the time wheel again.
             // First, determine the execution time of the task and the task collection interval.
             if (!timeout.isCancelled()) {
-                long spendTime = System.currentTimeMillis() - job.getDispatchTime();
-                long interval = job.getInterval() - spendTime / 1000;
-                interval = interval <= 0 ? 0 : interval;
                 // Reset Construction Execution Metrics Task View 
                 job.constructPriorMetrics();
-                timerDispatch.cyclicJob(timerJob, interval, TimeUnit.SECONDS);   
+                timerDispatch.cyclicJob(timerJob, job.getInterval(), TimeUnit.SECONDS);
             }
             // it is an asynchronous periodic cyclic task, directly response the collected data
             metricsDataList.forEach(commonDataQueue::sendMetricsData);
@@ -371,15 +506,4 @@ public class CommonDispatcher implements MetricsTaskDispatch, CollectDataDispatc
         }
         return mapList;
     }
-
-    /**
-     * Metrics times.
-     */
-    @Data
-    @AllArgsConstructor
-    protected static class MetricsTime {
-        private long startTime;
-        private Metrics metrics;
-        private Timeout timeout;
-    }
 }
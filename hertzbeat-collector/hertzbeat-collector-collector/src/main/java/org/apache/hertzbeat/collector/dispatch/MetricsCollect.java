@@ -18,31 +18,38 @@
 package org.apache.hertzbeat.collector.dispatch;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.jexl3.JexlContext;
 import org.apache.commons.jexl3.JexlExpression;
+import org.apache.commons.jexl3.MapContext;
 import org.apache.hertzbeat.collector.collect.strategy.CollectStrategyFactory;
 import org.apache.hertzbeat.collector.collect.AbstractCollect;
 import org.apache.hertzbeat.collector.collect.prometheus.PrometheusAutoCollectImpl;
+import org.apache.hertzbeat.collector.dispatch.timer.HashedWheelTimer;
 import org.apache.hertzbeat.collector.dispatch.timer.Timeout;
+import org.apache.hertzbeat.collector.dispatch.timer.TimerDispatch;
 import org.apache.hertzbeat.collector.dispatch.timer.WheelTimerTask;
 import org.apache.hertzbeat.collector.dispatch.unit.UnitConvert;
 import org.apache.hertzbeat.collector.util.CollectUtil;
 import org.apache.hertzbeat.common.constants.CommonConstants;
+import org.apache.hertzbeat.common.entity.job.Configmap;
 import org.apache.hertzbeat.common.entity.job.Job;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.apache.hertzbeat.common.util.CommonUtil;
 import org.apache.hertzbeat.common.util.JexlExpressionRunner;
-import org.apache.hertzbeat.common.util.Pair;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import org.springframework.util.CollectionUtils;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * metrics collection
@@ -104,6 +111,30 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
     protected boolean isSd;
 
     protected List<UnitConvert> unitConvertList;
+    /**
+     * target host of the monitor, null when the monitor has no host param
+     */
+    protected String target;
+    /**
+     * time wheel timeout of this collect task
+     */
+    protected volatile Timeout collectTimeout;
+    /**
+     * executor of the abandon response when this task is abandoned in the time wheel thread
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    protected volatile Executor abandonExecutor;
+    /**
+     * whether this collect task has responded, by the result, the timeout or the abandon
+     */
+    protected final AtomicBoolean completed = new AtomicBoolean();
+    /**
+     * the tasks of the same level metrics collected together with this task, null when it is collected alone
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    protected List<MetricsCollect> batchMembers;
 
     public MetricsCollect(Metrics metrics, Timeout timeout,
                           CollectDataDispatch collectDataDispatch,
@@ -122,6 +153,7 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
         this.isCyclic = job.isCyclic();
         this.isSd = job.isSd();
         this.unitConvertList = unitConvertList;
+        this.target = findTarget(job);
         // Temporary one-time tasks are executed with high priority
         if (isCyclic) {
             runPriority = (byte) -1;
@@ -132,18 +164,25 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
 
     @Override
     public void run() {
+        if (completed.get()) {
+            // timeout or abandoned while waiting in the queue
+            return;
+        }
         this.startTime = System.currentTimeMillis();
         setNewThreadName(id, app, startTime, metrics);
         CollectRep.MetricsData.Builder response = CollectRep.MetricsData.newBuilder();
         response.setApp(app);
         response.setId(id);
         response.setTenantId(tenantId);
-        // for prometheus auto
+        // for prometheus auto, the exporter is scraped without blocking the worker thread
         if (DispatchConstants.PROTOCOL_PROMETHEUS.equalsIgnoreCase(metrics.getProtocol())) {
-            List<CollectRep.MetricsData> metricsData = PrometheusAutoCollectImpl
-                .getInstance().collect(response, metrics);
-            validateResponse(metricsData.stream().findFirst().orElse(null));
-            collectDataDispatch.dispatchCollectData(timeout, metrics, metricsData);
+            PrometheusAutoCollectImpl.getInstance().collectAsync(response, metrics, metricsData -> {
+                try {
+                    completePrometheusCollect(metricsData);
+                } catch (Exception e) {
+                    log.error("[Metrics Collect]: complete prometheus collect error: {}.", e.getMessage(), e);
+                }
+            });
             return;
         }
         response.setMetrics(metrics.getName());
@@ -156,9 +195,23 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
             response.setCode(CollectRep.Code.FAIL);
             response.setMsg("not support " + app + ", "
                 + metrics.getName() + ", " + metrics.getProtocol());
+        } else if (batchMembers != null) {
+            collectBatch(abstractCollect, response);
+            return;
         } else {
             try {
                 abstractCollect.preCheck(metrics);
+                if (abstractCollect.supportAsync(metrics)) {
+                    // the worker thread returns now, the collect is completed in the callback
+                    abstractCollect.collectAsync(response, metrics, () -> {
+                        try {
+                            completeCollect(response);
+                        } catch (Exception e) {
+                            log.error("[Metrics Collect]: complete async collect error: {}.", e.getMessage(), e);
+                        }
+                    });
+                    return;
+                }
                 abstractCollect.collect(response, metrics);
             } catch (Exception e) {
                 String msg = e.getMessage();
@@ -176,8 +229,106 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
                 }
             }
         }
+        completeCollect(response);
+    }
+
+    /**
+     * Add a task of the same level metrics sharing the batch key of this task, it is collected and responded by this task
+     *
+     * @param member collect task
+     */
+    public void addBatchMember(MetricsCollect member) {
+        if (batchMembers == null) {
+            batchMembers = new ArrayList<>();
+        }
+        batchMembers.add(member);
+    }
+
+    /**
+     * Collect the metrics of this task and its batch members together, each task responses its own result.
+     * The member which has timed out is skipped.
+     *
+     * @param abstractCollect collect implementation
+     * @param response        response of this task
+     */
+    private void collectBatch(AbstractCollect abstractCollect, CollectRep.MetricsData.Builder response) {
+        List<MetricsCollect> batch = new ArrayList<>(batchMembers.size() + 1);
+        batch.add(this);
+        batchMembers.stream().filter(member -> !member.completed.get()).forEach(batch::add);
+        List<MetricsCollect> tasks = new ArrayList<>(batch.size());
+        List<CollectRep.MetricsData.Builder> responses = new ArrayList<>(batch.size());
+        List<Metrics> metricsList = new ArrayList<>(batch.size());
+        for (MetricsCollect task : batch) {
+            CollectRep.MetricsData.Builder taskResponse = task == this ? response : task.newResponse();
+            task.startTime = this.startTime;
+            try {
+                abstractCollect.preCheck(task.metrics);
+            } catch (IllegalArgumentException e) {
+                log.error("[Metrics PreCheck]: {}.", e.getMessage(), e);
+                taskResponse.setCode(CollectRep.Code.FAIL);
+                if (e.getMessage() != null) {
+                    taskResponse.setMsg(e.getMessage());
+                }
+                task.completeCollect(taskResponse);
+                continue;
+            }
+            tasks.add(task);
+            responses.add(taskResponse);
+            metricsList.add(task.metrics);
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+        try {
+            if (abstractCollect.supportAsync(this.metrics)) {
+                // the worker thread returns now, the tasks are completed in the callback
+                abstractCollect.collectBatchAsync(responses, metricsList, () -> completeBatch(tasks, responses));
+                return;
+            }
+            abstractCollect.collectBatch(responses, metricsList);
+        } catch (Exception e) {
+            String msg = e.getMessage();
+            if (msg == null && e.getCause() != null) {
+                msg = e.getCause().getMessage();
+            }
+            log.error("[Metrics Collect]: {}.", msg, e);
+            for (CollectRep.MetricsData.Builder taskResponse : responses) {
+                taskResponse.setCode(CollectRep.Code.FAIL);
+                if (msg != null) {
+                    taskResponse.setMsg(msg);
+                }
+            }
+        }
+        completeBatch(tasks, responses);
+    }
+
+    private void completeBatch(List<MetricsCollect> tasks, List<CollectRep.MetricsData.Builder> responses) {
+        for (int index = 0; index < tasks.size(); index++) {
+            try {
+                tasks.get(index).completeCollect(responses.get(index));
+            } catch (Exception e) {
+                log.error("[Metrics Collect]: complete batch collect error: {}.", e.getMessage(), e);
+            }
+        }
+    }
+
+    private CollectRep.MetricsData.Builder newResponse() {
+        CollectRep.MetricsData.Builder response = CollectRep.MetricsData.newBuilder();
+        response.setApp(app);
+        response.setId(id);
+        response.setTenantId(tenantId);
+        response.setMetrics(metrics.getName());
+        return response;
+    }
+
+    /**
+     * Calculate the collected response and dispatch it, in the worker thread or the callback of the async collect
+     *
+     * @param response collected response
+     */
+    private void completeCollect(CollectRep.MetricsData.Builder response) {
         // Alias attribute expression replacement calculation
-        if (fastFailed()) {
+        if (fastFailed() || !complete()) {
             return;
         }
         calculateFields(metrics, response);
@@ -185,103 +336,165 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
         collectDataDispatch.dispatchCollectData(timeout, metrics, metricsData);
     }
 
+    private void completePrometheusCollect(List<CollectRep.MetricsData> metricsData) {
+        validateResponse(metricsData.stream().findFirst().orElse(null));
+        if (complete()) {
+            collectDataDispatch.dispatchCollectData(timeout, metrics, metricsData);
+        } else {
+            metricsData.forEach(CollectRep.MetricsData::close);
+        }
+    }
+
+    /**
+     * Give up this collect task without running it, response the timeout result,
+     * so that the job goes on and the task will be collected in next cycle.
+     * The timeout code is not treated as unavailable by the alerter.
+     * In the time wheel thread only the task state is flipped, the response is handed over to the abandon executor.
+     *
+     * @param reason abandon reason
+     */
+    public void abandon(String reason) {
+        this.startTime = System.currentTimeMillis();
+        if (fastFailed() || !complete()) {
+            return;
+        }
+        Executor executor = this.abandonExecutor;
+        if (executor != null && HashedWheelTimer.inWorkerThread()) {
+            try {
+                executor.execute(() -> respondAbandoned(reason));
+                return;
+            } catch (RejectedExecutionException rejected) {
+                log.warn("[Metrics Collect]: abandon executor is closed, response in the time wheel thread.");
+            }
+        }
+        respondAbandoned(reason);
+    }
+
+    private void respondAbandoned(String reason) {
+        if (batchMembers != null) {
+            // the batch members are collected by this task
+            batchMembers.forEach(member -> member.abandon(reason));
+        }
+        CollectRep.MetricsData.Builder response = CollectRep.MetricsData.newBuilder();
+        response.setApp(app);
+        response.setId(id);
+        response.setTenantId(tenantId);
+        response.setMetrics(metrics.getName());
+        if (metrics.getPriority() != null) {
+            response.setPriority(metrics.getPriority());
+        }
+        response.setCode(CollectRep.Code.TIMEOUT);
+        response.setMsg(reason);
+        CollectRep.MetricsData metricsData = validateResponse(response);
+        if (DispatchConstants.PROTOCOL_PROMETHEUS.equalsIgnoreCase(metrics.getProtocol())) {
+            collectDataDispatch.dispatchCollectData(timeout, metrics, List.of(metricsData));
+        } else {
+            collectDataDispatch.dispatchCollectData(timeout, metrics, metricsData);
+        }
+    }
+
+    /**
+     * Register the timeout of this collect task on the time wheel,
+     * when it fires before the task responses, the task is abandoned with the timeout result
+     * and the response is dispatched by the abandon executor, out of the time wheel thread
+     *
+     * @param timerDispatch   time wheel dispatcher
+     * @param timeoutMillis   timeout budget in milliseconds
+     * @param abandonExecutor executor of the abandon response
+     */
+    public void monitorTimeout(TimerDispatch timerDispatch, long timeoutMillis, Executor abandonExecutor) {
+        this.abandonExecutor = abandonExecutor;
+        this.collectTimeout = timerDispatch.newTimeout(
+                wheelTimeout -> abandon("collect timeout"), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mark this collect task responded, the response, the timeout and the abandon happen only once
+     *
+     * @return true - this call completes the task, false - it has been completed
+     */
+    private boolean complete() {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        Timeout timeoutHandle = this.collectTimeout;
+        if (timeoutHandle != null) {
+            timeoutHandle.cancel();
+        }
+        return true;
+    }
+
     /**
      * Calculate the real metrics value according to the calculates and aliasFields configuration
      *
      * @param metrics     Metrics configuration
      * @param collectData Data collection
      */
-    private void calculateFields(Metrics metrics, CollectRep.MetricsData.Builder collectData) {
+    void calculateFields(Metrics metrics, CollectRep.MetricsData.Builder collectData) {
         collectData.setPriority(metrics.getPriority());
-        List<CollectRep.Field> fieldList = new LinkedList<>();
-        for (Metrics.Field field : metrics.getFields()) {
-            CollectRep.Field.Builder fieldBuilder = CollectRep.Field.newBuilder();
-            fieldBuilder.setName(field.getField()).setType(field.getType()).setLabel(field.isLabel());
-            if (field.getUnit() != null) {
-                fieldBuilder.setUnit(field.getUnit());
-            }
-            fieldList.add(fieldBuilder.build());
-        }
-        collectData.addAllFields(fieldList);
+        MetricsExecutionPlan plan = MetricsExecutionPlan.of(metrics, unitConvertList);
+        collectData.addAllFields(plan.responseFields);
         List<CollectRep.ValueRow> aliasRowList = collectData.getValuesList();
         if (aliasRowList == null || aliasRowList.isEmpty()) {
             return;
         }
         collectData.clearValues();
-        // Preprocess calculates first
-        if (metrics.getCalculates() == null) {
-            metrics.setCalculates(Collections.emptyList());
-        }
-        // eg: database_pages=Database pages unconventional mapping
-        Map<String, String> fieldAliasMap = new HashMap<>(8);
-        Map<String, JexlExpression> fieldExpressionMap = metrics.getCalculates()
-            .stream()
-            .map(cal -> transformCal(cal, fieldAliasMap))
-            .filter(Objects::nonNull)
-            .collect(Collectors.toMap(arr -> (String) arr[0], arr -> (JexlExpression) arr[1], (oldValue, newValue) -> newValue));
-
-        if (metrics.getUnits() == null) {
-            metrics.setUnits(Collections.emptyList());
-        }
-        Map<String, Pair<String, String>> fieldUnitMap = metrics.getUnits()
-            .stream()
-            .map(this::transformUnit)
-            .filter(Objects::nonNull)
-            .collect(Collectors.toMap(arr -> (String) arr[0], arr -> (Pair<String, String>) arr[1], (oldValue, newValue) -> newValue));
-
-        List<Metrics.Field> fields = metrics.getFields();
-        List<String> aliasFields = metrics.getAliasFields();
-        Map<String, String> aliasFieldValueMap = new HashMap<>(8);
-        Map<String, Object> fieldValueMap = new HashMap<>(8);
-        Map<String, Object> stringTypefieldValueMap = new HashMap<>(8);
-        Map<String, String> aliasFieldUnitMap = new HashMap<>(8);
+        String[] aliasFields = plan.aliasFields;
+        MetricsExecutionPlan.FieldPlan[] fieldPlans = plan.fieldPlans;
+        // the alias values of a row, the NULL_VALUE is stored as null
+        String[] aliasValues = new String[aliasFields.length];
+        Object[] aliasNumberValues = new Object[aliasFields.length];
+        String[] aliasUnits = new String[aliasFields.length];
+        Map<String, Object> fieldValueMap = new HashMap<>(aliasFields.length * 2);
+        Map<String, Object> stringTypefieldValueMap = new HashMap<>(aliasFields.length * 2);
+        JexlContext fieldValueContext = new MapContext(fieldValueMap);
+        JexlContext stringTypefieldValueContext = new MapContext(stringTypefieldValueMap);
+        Map<String, Object> filterValueMap = plan.filters.isEmpty() ? null : new HashMap<>(fieldPlans.length * 2);
+        JexlContext filterContext = filterValueMap == null ? null : new MapContext(filterValueMap);
         CollectRep.ValueRow.Builder realValueRowBuilder = CollectRep.ValueRow.newBuilder();
         for (CollectRep.ValueRow aliasRow : aliasRowList) {
-            for (int aliasIndex = 0; aliasIndex < aliasFields.size(); aliasIndex++) {
-                String aliasFieldValue = aliasRow.getColumns(aliasIndex);
-                String aliasField = aliasFields.get(aliasIndex);
+            int aliasIndex = 0;
+            for (String aliasFieldValue : aliasRow.getColumnsList()) {
+                if (aliasIndex >= aliasFields.length) {
+                    break;
+                }
                 if (!CommonConstants.NULL_VALUE.equals(aliasFieldValue)) {
-                    aliasFieldValueMap.put(aliasField, aliasFieldValue);
+                    aliasValues[aliasIndex] = aliasFieldValue;
                     // whether the alias field is a number
                     CollectUtil.DoubleAndUnit doubleAndUnit = CollectUtil
                         .extractDoubleAndUnitFromStr(aliasFieldValue);
                     if (doubleAndUnit != null && doubleAndUnit.getValue() != null) {
-                        fieldValueMap.put(aliasField, doubleAndUnit.getValue());
-                        if (doubleAndUnit.getUnit() != null) {
-                            aliasFieldUnitMap.put(aliasField, doubleAndUnit.getUnit());
-                        }
+                        aliasNumberValues[aliasIndex] = doubleAndUnit.getValue();
+                        aliasUnits[aliasIndex] = doubleAndUnit.getUnit();
                     } else {
-                        fieldValueMap.put(aliasField, aliasFieldValue);
+                        aliasNumberValues[aliasIndex] = aliasFieldValue;
                     }
-                    stringTypefieldValueMap.put(aliasField, aliasFieldValue);
-                } else {
-                    fieldValueMap.put(aliasField, null);
-                    stringTypefieldValueMap.put(aliasField, null);
                 }
+                fieldValueMap.put(aliasFields[aliasIndex], aliasNumberValues[aliasIndex]);
+                stringTypefieldValueMap.put(aliasFields[aliasIndex], aliasValues[aliasIndex]);
+                aliasIndex++;
             }
 
-            for (Metrics.Field field : fields) {
-                String realField = field.getField();
-                JexlExpression expression = fieldExpressionMap.get(realField);
+            for (MetricsExecutionPlan.FieldPlan fieldPlan : fieldPlans) {
                 String value = null;
                 String aliasFieldUnit = null;
-                if (expression != null) {
+                if (fieldPlan.expression != null) {
                     try {
-                        Map<String, Object> context;
-                        if (CommonConstants.TYPE_STRING == field.getType()) {
-                            context = stringTypefieldValueMap;
+                        JexlContext context;
+                        if (CommonConstants.TYPE_STRING == fieldPlan.type) {
+                            context = stringTypefieldValueContext;
                         } else {
-                            for (Map.Entry<String, String> unitEntry : aliasFieldUnitMap.entrySet()) {
-                                if (expression.getSourceText().contains(unitEntry.getKey())) {
-                                    aliasFieldUnit = unitEntry.getValue();
+                            for (int expressionAliasIndex : fieldPlan.expressionAliasIndexes) {
+                                if (aliasUnits[expressionAliasIndex] != null) {
+                                    aliasFieldUnit = aliasUnits[expressionAliasIndex];
                                     break;
                                 }
                             }
-                            context = fieldValueMap;
+                            context = fieldValueContext;
                         }
 
                         // Also executed when valueList is empty, covering pure string assignment expressions
-                        Object objValue = JexlExpressionRunner.evaluate(expression, context);
+                        Object objValue = JexlExpressionRunner.evaluate(fieldPlan.expression, context);
 
                         if (objValue != null) {
                             value = String.valueOf(objValue);
@@ -289,17 +502,11 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
                     } catch (Exception e) {
                         log.info("[calculates execute warning] {}.", e.getMessage());
                     }
-                } else {
+                } else if (fieldPlan.aliasIndex >= 0) {
                     // does not exist then map the alias value
-                    String aliasField = fieldAliasMap.get(realField);
-                    if (aliasField != null) {
-                        value = aliasFieldValueMap.get(aliasField);
-                    } else {
-                        value = aliasFieldValueMap.get(realField);
-                    }
-
+                    value = aliasValues[fieldPlan.aliasIndex];
                     if (value != null) {
-                        final byte fieldType = field.getType();
+                        final byte fieldType = fieldPlan.type;
                         if (fieldType == CommonConstants.TYPE_NUMBER) {
                             CollectUtil.DoubleAndUnit doubleAndUnit = CollectUtil
                                 .extractDoubleAndUnitFromStr(value);
@@ -313,100 +520,99 @@ public class MetricsCollect implements Runnable, Comparable<MetricsCollect> {
                     }
                 }
 
-                Pair<String, String> unitPair = fieldUnitMap.get(realField);
-                if (aliasFieldUnit != null) {
-                    if (unitPair != null) {
-                        unitPair.setLeft(aliasFieldUnit);
-                    } else if (field.getUnit() != null && !aliasFieldUnit.equalsIgnoreCase(field.getUnit())) {
-                        unitPair = Pair.of(aliasFieldUnit, field.getUnit());
-                    }
-                }
-                if (value != null && unitPair != null) {
-                    for (UnitConvert unitConvert : unitConvertList) {
-                        if (unitConvert.checkUnit(unitPair.getLeft()) && unitConvert.checkUnit(unitPair.getRight())) {
-                            value = unitConvert.convert(value, unitPair.getLeft(), unitPair.getRight());
-                        }
-                    }
+                if (value != null) {
+                    value = convertUnit(fieldPlan, value, aliasFieldUnit);
                 }
                 // Handle metrics values that may have units such as 34%, 34Mb, and limit values to 4 decimal places
-                if (CommonConstants.TYPE_NUMBER == field.getType()) {
-                    value = CommonUtil.parseDoubleStr(value, field.getUnit());
+                if (CommonConstants.TYPE_NUMBER == fieldPlan.type) {
+                    value = CommonUtil.parseDoubleStr(value, fieldPlan.unit);
                 }
                 if (value == null) {
                     value = CommonConstants.NULL_VALUE;
                 }
                 realValueRowBuilder.addColumn(value);
             }
-            aliasFieldValueMap.clear();
+            Arrays.fill(aliasValues, null);
+            Arrays.fill(aliasNumberValues, null);
+            Arrays.fill(aliasUnits, null);
             fieldValueMap.clear();
-            aliasFieldUnitMap.clear();
             stringTypefieldValueMap.clear();
             CollectRep.ValueRow realValueRow = realValueRowBuilder.build();
             realValueRowBuilder.clear();
             // apply filter calculation to the real value row
-            if (!CollectionUtils.isEmpty(metrics.getFilters())) {
-                Map<String, Object> contextMap = new HashMap<>(8);
-                for (int i = 0; i < fields.size(); i++) {
-                    Metrics.Field field = fields.get(i);
-                    String value = realValueRow.getColumns(i);
-                    contextMap.put(field.getField(), value);
-                }
-                boolean isMatch = false;
-                for (String filterExpr : metrics.getFilters()) {
-                    try {
-                        JexlExpression expression = JexlExpressionRunner.compile(filterExpr);
-                        if ((Boolean) JexlExpressionRunner.evaluate(expression, contextMap)) {
-                            isMatch = true;
-                            break;
-                        }
-                    } catch (Exception e) {
-                        log.warn("[metrics data row filters execute warning] {}.", e.getMessage());
-                    }
-                }
-                if (!isMatch) {
-                    // ignore this data row
-                    continue;
-                }
+            if (filterContext != null && !matchFilters(plan, realValueRow, filterValueMap, filterContext)) {
+                // ignore this data row
+                continue;
             }
             collectData.addValueRow(realValueRow);
         }
     }
 
     /**
-     * @param cal           cal
-     * @param fieldAliasMap field alias map
-     * @return expr
+     * Convert the value to the configured unit, the unit of the collected value takes precedence over the configured origin unit
+     *
+     * @param fieldPlan      field plan
+     * @param value          value
+     * @param aliasFieldUnit unit of the collected value
+     * @return converted value
      */
-    private Object[] transformCal(String cal, Map<String, String> fieldAliasMap) {
-        int splitIndex = cal.indexOf("=");
-        String field = cal.substring(0, splitIndex).trim();
-        String expressionStr = cal.substring(splitIndex + 1).trim().replace("\\#", "#");
-        JexlExpression expression;
-        try {
-            expression = JexlExpressionRunner.compile(expressionStr);
-        } catch (Exception e) {
-            fieldAliasMap.put(field, expressionStr);
-            return null;
+    private String convertUnit(MetricsExecutionPlan.FieldPlan fieldPlan, String value, String aliasFieldUnit) {
+        String originUnit = fieldPlan.originUnit;
+        String newUnit = fieldPlan.newUnit;
+        List<UnitConvert> unitConverts = fieldPlan.unitConverts;
+        if (aliasFieldUnit != null) {
+            if (newUnit == null) {
+                if (fieldPlan.unit == null || aliasFieldUnit.equalsIgnoreCase(fieldPlan.unit)) {
+                    return value;
+                }
+                newUnit = fieldPlan.unit;
+            }
+            if (!aliasFieldUnit.equals(originUnit)) {
+                originUnit = aliasFieldUnit;
+                unitConverts = MetricsExecutionPlan.matchUnitConverts(unitConvertList, originUnit, newUnit);
+            }
+        }
+        for (UnitConvert unitConvert : unitConverts) {
+            value = unitConvert.convert(value, originUnit, newUnit);
         }
-        return new Object[]{field, expression};
+        return value;
     }
 
     /**
-     * transform unit
-     *
-     * @param unit unit
-     * @return units
+     * @return whether the real value row matches any of the filters
      */
-    private Object[] transformUnit(String unit) {
-        int equalIndex = unit.indexOf("=");
-        int arrowIndex = unit.indexOf("->");
-        if (equalIndex < 0 || arrowIndex < 0) {
+    private boolean matchFilters(MetricsExecutionPlan plan, CollectRep.ValueRow realValueRow,
+                                 Map<String, Object> filterValueMap, JexlContext filterContext) {
+        int index = 0;
+        for (String value : realValueRow.getColumnsList()) {
+            filterValueMap.put(plan.fieldPlans[index++].name, value);
+        }
+        try {
+            for (JexlExpression filter : plan.filters) {
+                try {
+                    if ((Boolean) JexlExpressionRunner.evaluate(filter, filterContext)) {
+                        return true;
+                    }
+                } catch (Exception e) {
+                    log.warn("[metrics data row filters execute warning] {}.", e.getMessage());
+                }
+            }
+            return false;
+        } finally {
+            filterValueMap.clear();
+        }
+    }
+
+    private static String findTarget(Job job) {
+        if (job.getConfigmap() == null) {
             return null;
         }
-        String field = unit.substring(0, equalIndex).trim();
-        String originUnit = unit.substring(equalIndex + 1, arrowIndex).trim();
-        String newUnit = unit.substring(arrowIndex + 2).trim();
-        return new Object[]{field, Pair.of(originUnit, newUnit)};
+        for (Configmap configmap : job.getConfigmap()) {
+            if (DispatchConstants.PARAM_HOST.equals(configmap.getKey()) && configmap.getValue() != null) {
+                return String.valueOf(configmap.getValue());
+            }
+        }
+        return null;
     }
 
     private boolean fastFailed() {
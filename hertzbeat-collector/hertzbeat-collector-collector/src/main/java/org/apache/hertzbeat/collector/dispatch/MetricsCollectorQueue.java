@@ -18,29 +18,371 @@
 package org.apache.hertzbeat.collector.dispatch;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.dispatch.timer.HashedWheelTimer;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * queue of jobs to run
+ * it is the admission stage of the collector, bounded by the capacity, and the admission policy
+ * decides what to do when it is full, so an overloaded collector degrades predictably.
+ * the jobs are put into separate lock-free lanes: one-time jobs, availability metrics and other cyclic metrics,
+ * the single dispatcher drains the lanes by weight, and the job waiting longer than the aging threshold is promoted,
+ * so that the availability metrics have a bounded latency even if there are lots of queued jobs.
  */
 @Component
 @Slf4j
 public class MetricsCollectorQueue {
 
-    private final PriorityBlockingQueue<MetricsCollect> jobQueue;
+    /**
+     * lane of the temporary one-time jobs
+     */
+    static final int LANE_ONE_TIME = 0;
 
-    public MetricsCollectorQueue() {
-        jobQueue = new PriorityBlockingQueue<>();
+    /**
+     * lane of the availability metrics (priority 0) of cyclic jobs
+     */
+    static final int LANE_AVAILABILITY = 1;
+
+    /**
+     * lane of the other metrics of cyclic jobs
+     */
+    static final int LANE_NORMAL = 2;
+
+    /**
+     * jobs drained from each lane in a round
+     */
+    private static final int[] LANE_WEIGHTS = {4, 4, 1};
+
+    private final Lane[] lanes;
+
+    private final int capacity;
+
+    private final String policy;
+
+    private final long blockTimeout;
+
+    private final long agingThreshold;
+
+    /**
+     * admitted jobs number, include the queued jobs
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * available jobs to take, the dispatcher waits on it when all lanes are empty
+     */
+    private final Semaphore available = new Semaphore(0);
+
+    private final ReentrantLock notFullLock = new ReentrantLock();
+    private final Condition notFull = notFullLock.newCondition();
+    private final AtomicInteger notFullWaiters = new AtomicInteger();
+
+    private final LongAdder shedCount = new LongAdder();
+    private final LongAdder delayedCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+    private final LongAdder promotedCount = new LongAdder();
+
+    /**
+     * the lane being drained and its left credit, only accessed by the single dispatcher thread
+     */
+    private int cursor = LANE_ONE_TIME;
+    private int credit = LANE_WEIGHTS[LANE_ONE_TIME];
+
+    public MetricsCollectorQueue(DispatchProperties dispatchProperties) {
+        DispatchProperties.AdmissionProperties admissionProperties = Optional.ofNullable(dispatchProperties)
+                .map(DispatchProperties::getAdmission)
+                .orElseGet(DispatchProperties.AdmissionProperties::new);
+        this.capacity = Math.max(1, admissionProperties.getCapacity());
+        this.policy = admissionProperties.getPolicy() == null
+                ? DispatchProperties.AdmissionProperties.POLICY_BLOCK : admissionProperties.getPolicy().toLowerCase();
+        this.blockTimeout = Math.max(0L, admissionProperties.getBlockTimeout());
+        this.agingThreshold = Math.max(0L, admissionProperties.getAgingThreshold());
+        this.lanes = new Lane[LANE_WEIGHTS.length];
+        for (int index = 0; index < lanes.length; index++) {
+            lanes[index] = new Lane(LANE_WEIGHTS[index]);
+        }
     }
 
+    /**
+     * Admit the job to the queue, apply the admission policy when the queue is full.
+     * A producer outside the collect pipeline waits for free space under the block policy,
+     * the time wheel thread must never be parked, so it sheds the lowest priority job instead.
+     *
+     * @param job metrics collect job
+     */
     public void addJob(MetricsCollect job) {
-        jobQueue.offer(job);
+        if (tryAdmit()) {
+            enqueue(job);
+            return;
+        }
+        switch (policy) {
+            case DispatchProperties.AdmissionProperties.POLICY_SHED,
+                    DispatchProperties.AdmissionProperties.POLICY_DELAY -> reject(job);
+            default -> {
+                if (HashedWheelTimer.inWorkerThread()) {
+                    reject(job);
+                } else {
+                    blockUntilAdmitted(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Admit the job to the queue without parking the caller. The collect pipeline adds its jobs by it:
+     * the time wheel thread dispatching the first level metrics, the collect workers and the async callback threads
+     * dispatching the next level metrics. Parking them stalls the completions freeing the queue,
+     * so the block policy sheds the lowest priority job for them.
+     *
+     * @param job metrics collect job
+     */
+    public void offerJob(MetricsCollect job) {
+        if (tryAdmit()) {
+            enqueue(job);
+            return;
+        }
+        reject(job);
+    }
+
+    /**
+     * Put back the job which has been taken but can not run now, it is not limited by the capacity.
+     * It goes back to the head of its lane and keeps its original enqueue time,
+     * so it is neither overtaken by the jobs queued after it nor loses its age for the aging promotion.
+     *
+     * @param job metrics collect job
+     */
+    public void requeueJob(MetricsCollect job) {
+        size.incrementAndGet();
+        lanes[laneOf(job)].offerFirst(job);
+        available.release();
     }
 
+    /**
+     * Take the next job to run, only called by the single dispatcher thread
+     *
+     * @return metrics collect job
+     * @throws InterruptedException when interrupted while waiting
+     */
     public MetricsCollect getJob() throws InterruptedException {
-        return jobQueue.take();
+        available.acquire();
+        MetricsCollect job;
+        // the permit guarantees a queued job, it may be in the middle of a shed replacement
+        while ((job = poll()) == null) {
+            Thread.onSpinWait();
+        }
+        size.decrementAndGet();
+        signalNotFull();
+        return job;
+    }
+
+    /**
+     * @return pending jobs number
+     */
+    public int getQueueSize() {
+        return size.get();
+    }
+
+    /**
+     * @param lane lane index
+     * @return pending jobs number of the lane
+     */
+    public int getLaneSize(int lane) {
+        return lanes[lane].size.get();
+    }
+
+    /**
+     * @return jobs number dropped by the shed policy or the block timeout
+     */
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+
+    /**
+     * @return jobs number delayed to next cycle by the delay policy
+     */
+    public long getDelayedCount() {
+        return delayedCount.sum();
+    }
+
+    /**
+     * @return times of producers blocked by the full queue
+     */
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+    /**
+     * @return jobs number promoted by waiting longer than the aging threshold
+     */
+    public long getPromotedCount() {
+        return promotedCount.sum();
+    }
+
+    private static int laneOf(MetricsCollect job) {
+        if (!job.isCyclic()) {
+            return LANE_ONE_TIME;
+        }
+        Byte priority = job.getMetrics().getPriority();
+        return priority != null && priority == 0 ? LANE_AVAILABILITY : LANE_NORMAL;
+    }
+
+    private void enqueue(MetricsCollect job) {
+        lanes[laneOf(job)].offer(job);
+        available.release();
+    }
+
+    private MetricsCollect poll() {
+        // the lane head waiting longer than the aging threshold goes first
+        long agingDeadline = System.currentTimeMillis() - agingThreshold;
+        for (Lane lane : lanes) {
+            MetricsCollect head = lane.queue.peekFirst();
+            if (head != null && head.getNewTime() < agingDeadline) {
+                MetricsCollect job = lane.poll();
+                if (job != null) {
+                    promotedCount.increment();
+                    return job;
+                }
+            }
+        }
+        // weighted round-robin, each lane is drained up to its weight and then yields to the next one
+        for (int round = 0; round <= lanes.length; round++) {
+            if (credit > 0) {
+                MetricsCollect job = lanes[cursor].poll();
+                if (job != null) {
+                    credit--;
+                    return job;
+                }
+            }
+            cursor = (cursor + 1) % lanes.length;
+            credit = lanes[cursor].weight;
+        }
+        return null;
+    }
+
+    private boolean tryAdmit() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void blockUntilAdmitted(MetricsCollect job) {
+        blockedCount.increment();
+        boolean admitted = false;
+        notFullLock.lock();
+        notFullWaiters.incrementAndGet();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+            while (!(admitted = tryAdmit()) && nanos > 0) {
+                nanos = notFull.awaitNanos(nanos);
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } finally {
+            notFullWaiters.decrementAndGet();
+            notFullLock.unlock();
+        }
+        if (admitted) {
+            enqueue(job);
+        } else {
+            shedCount.increment();
+            job.abandon("collector is overloaded, the collect task queue is full");
+        }
+    }
+
+    /**
+     * apply the policy to the job which can not be admitted without waiting, the block policy sheds like the shed policy
+     */
+    private void reject(MetricsCollect job) {
+        if (DispatchProperties.AdmissionProperties.POLICY_DELAY.equals(policy)) {
+            delayedCount.increment();
+            job.abandon("collector is overloaded, delay to next cycle");
+        } else {
+            shedLowestPriority(job);
+        }
+    }
+
+    private void shedLowestPriority(MetricsCollect job) {
+        int jobLane = laneOf(job);
+        MetricsCollect shed = job;
+        // the newest job of the lowest lane is shed, the new job takes over its admission
+        for (int index = lanes.length - 1; index > jobLane; index--) {
+            MetricsCollect lowest = lanes[index].pollLast();
+            if (lowest != null) {
+                lanes[jobLane].offer(job);
+                shed = lowest;
+                break;
+            }
+        }
+        shedCount.increment();
+        shed.abandon("collector is overloaded, shed the lowest priority collect task");
+    }
+
+    private void signalNotFull() {
+        if (notFullWaiters.get() == 0) {
+            return;
+        }
+        notFullLock.lock();
+        try {
+            notFull.signal();
+        } finally {
+            notFullLock.unlock();
+        }
+    }
+
+    /**
+     * A lock-free lane of the queue, multi producers and the single dispatcher consumer
+     */
+    private static final class Lane {
+
+        private final ConcurrentLinkedDeque<MetricsCollect> queue = new ConcurrentLinkedDeque<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final int weight;
+
+        private Lane(int weight) {
+            this.weight = weight;
+        }
+
+        private void offer(MetricsCollect job) {
+            size.incrementAndGet();
+            queue.offerLast(job);
+        }
+
+        private void offerFirst(MetricsCollect job) {
+            size.incrementAndGet();
+            queue.offerFirst(job);
+        }
+
+        private MetricsCollect poll() {
+            MetricsCollect job = queue.pollFirst();
+            if (job != null) {
+                size.decrementAndGet();
+            }
+            return job;
+        }
+
+        private MetricsCollect pollLast() {
+            MetricsCollect job = queue.pollLast();
+            if (job != null) {
+                size.decrementAndGet();
+            }
+            return job;
+        }
     }
 
 }
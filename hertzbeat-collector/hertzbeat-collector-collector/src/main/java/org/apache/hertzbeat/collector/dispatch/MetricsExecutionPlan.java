@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.jexl3.JexlExpression;
+import org.apache.hertzbeat.collector.dispatch.unit.UnitConvert;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+import org.apache.hertzbeat.common.util.JexlExpressionRunner;
+
+/**
+ * Compiled execution plan of a metrics definition, used to calculate the real metrics value rows.
+ * The calculates, units and filters are parsed and compiled once per metrics definition instead of once per collection.
+ * The plan is cached by the fields list instance of the metrics, a job changed or re-added has new metrics instances,
+ * the sub task metrics share the fields of their template metrics,
+ * and the plan is rebuilt when the fields, calculates, units or filters of the metrics are replaced.
+ */
+@Slf4j
+final class MetricsExecutionPlan {
+
+    /**
+     * metrics fields instance - plan, weak keys are compared by identity and released with the job
+     */
+    private static final Cache<List<Metrics.Field>, MetricsExecutionPlan> PLAN_CACHE = Caffeine.newBuilder().weakKeys().build();
+
+    private final List<Metrics.Field> sourceFields;
+    private final List<String> sourceAliasFields;
+    private final List<String> sourceCalculates;
+    private final List<String> sourceUnits;
+    private final List<String> sourceFilters;
+
+    /**
+     * the response fields
+     */
+    final List<CollectRep.Field> responseFields;
+    /**
+     * alias field names, mapping with the columns of the collected row
+     */
+    final String[] aliasFields;
+    /**
+     * plan of each real field, mapping with the columns of the real row
+     */
+    final FieldPlan[] fieldPlans;
+    /**
+     * compiled row filters, a row is kept when any filter matches
+     */
+    final List<JexlExpression> filters;
+
+    private MetricsExecutionPlan(Metrics metrics, List<UnitConvert> unitConvertList) {
+        this.sourceFields = metrics.getFields();
+        this.sourceAliasFields = metrics.getAliasFields();
+        this.sourceCalculates = metrics.getCalculates();
+        this.sourceUnits = metrics.getUnits();
+        this.sourceFilters = metrics.getFilters();
+        List<Metrics.Field> fields = sourceFields == null ? Collections.emptyList() : sourceFields;
+
+        List<CollectRep.Field> fieldList = new ArrayList<>(fields.size());
+        for (Metrics.Field field : fields) {
+            CollectRep.Field.Builder fieldBuilder = CollectRep.Field.newBuilder();
+            fieldBuilder.setName(field.getField()).setType(field.getType()).setLabel(field.isLabel());
+            if (field.getUnit() != null) {
+                fieldBuilder.setUnit(field.getUnit());
+            }
+            fieldList.add(fieldBuilder.build());
+        }
+        this.responseFields = Collections.unmodifiableList(fieldList);
+
+        if (sourceAliasFields != null) {
+            this.aliasFields = sourceAliasFields.toArray(new String[0]);
+        } else {
+            // no alias fields, the collected columns are the fields, same as the default of the metrics dag
+            this.aliasFields = fields.stream().map(Metrics.Field::getField).toArray(String[]::new);
+        }
+        Map<String, Integer> aliasIndexMap = new HashMap<>(aliasFields.length * 2);
+        for (int index = 0; index < aliasFields.length; index++) {
+            aliasIndexMap.put(aliasFields[index], index);
+        }
+
+        // eg: database_pages=Database pages unconventional mapping
+        Map<String, String> fieldAliasMap = new HashMap<>(8);
+        Map<String, JexlExpression> fieldExpressionMap = new HashMap<>(8);
+        if (sourceCalculates != null) {
+            for (String cal : sourceCalculates) {
+                transformCal(cal, fieldExpressionMap, fieldAliasMap);
+            }
+        }
+        Map<String, String[]> fieldUnitMap = new HashMap<>(8);
+        if (sourceUnits != null) {
+            for (String unit : sourceUnits) {
+                transformUnit(unit, fieldUnitMap);
+            }
+        }
+
+        this.fieldPlans = new FieldPlan[fields.size()];
+        for (int index = 0; index < fields.size(); index++) {
+            Metrics.Field field = fields.get(index);
+            String realField = field.getField();
+            JexlExpression expression = fieldExpressionMap.get(realField);
+            int aliasIndex = -1;
+            int[] expressionAliasIndexes = null;
+            if (expression != null) {
+                // the alias fields referenced by the expression in the order they appear in the expression,
+                // the unit of the first one having a unit is the unit of the calculated value
+                String sourceText = expression.getSourceText();
+                List<Integer> referenced = new ArrayList<>();
+                for (int alias = 0; alias < aliasFields.length; alias++) {
+                    if (aliasFields[alias] != null && sourceText.contains(aliasFields[alias])) {
+                        referenced.add(alias);
+                    }
+                }
+                referenced.sort(Comparator.comparingInt(alias -> sourceText.indexOf(aliasFields[alias])));
+                expressionAliasIndexes = referenced.stream().mapToInt(Integer::intValue).toArray();
+            } else {
+                // does not exist then map the alias value
+                String aliasField = fieldAliasMap.getOrDefault(realField, realField);
+                aliasIndex = aliasIndexMap.getOrDefault(aliasField, -1);
+            }
+            String[] unitPair = fieldUnitMap.get(realField);
+            List<UnitConvert> unitConverts = unitPair == null ? Collections.emptyList()
+                    : matchUnitConverts(unitConvertList, unitPair[0], unitPair[1]);
+            fieldPlans[index] = new FieldPlan(field, expression, expressionAliasIndexes, aliasIndex,
+                    unitPair == null ? null : unitPair[0], unitPair == null ? null : unitPair[1], unitConverts);
+        }
+
+        if (sourceFilters == null || sourceFilters.isEmpty()) {
+            this.filters = Collections.emptyList();
+        } else {
+            List<JexlExpression> filterList = new ArrayList<>(sourceFilters.size());
+            for (String filterExpr : sourceFilters) {
+                try {
+                    filterList.add(JexlExpressionRunner.compile(filterExpr));
+                } catch (Exception e) {
+                    log.warn("[metrics data row filters compile warning] {}.", e.getMessage());
+                }
+            }
+            // the configured filters are all invalid, no row matches
+            this.filters = filterList.isEmpty() ? List.of(JexlExpressionRunner.compile("false")) : filterList;
+        }
+    }
+
+    /**
+     * Get the cached plan of the metrics, build it when absent or the metrics definition is replaced
+     *
+     * @param metrics         metrics
+     * @param unitConvertList unit converters
+     * @return execution plan
+     */
+    static MetricsExecutionPlan of(Metrics metrics, List<UnitConvert> unitConvertList) {
+        if (metrics.getFields() == null) {
+            return new MetricsExecutionPlan(metrics, unitConvertList);
+        }
+        MetricsExecutionPlan plan = PLAN_CACHE.getIfPresent(metrics.getFields());
+        if (plan == null || !plan.matches(metrics)) {
+            plan = new MetricsExecutionPlan(metrics, unitConvertList);
+            PLAN_CACHE.put(metrics.getFields(), plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Find the unit converters supporting both of the units
+     *
+     * @param unitConvertList unit converters
+     * @param originUnit      origin unit
+     * @param newUnit         new unit
+     * @return matched unit converters
+     */
+    static List<UnitConvert> matchUnitConverts(List<UnitConvert> unitConvertList, String originUnit, String newUnit) {
+        if (unitConvertList == null || unitConvertList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<UnitConvert> matched = new ArrayList<>(1);
+        for (UnitConvert unitConvert : unitConvertList) {
+            if (unitConvert.checkUnit(originUnit) && unitConvert.checkUnit(newUnit)) {
+                matched.add(unitConvert);
+            }
+        }
+        return matched;
+    }
+
+    private boolean matches(Metrics metrics) {
+        return sourceFields == metrics.getFields() && sourceAliasFields == metrics.getAliasFields()
+                && sourceCalculates == metrics.getCalculates() && sourceUnits == metrics.getUnits()
+                && sourceFilters == metrics.getFilters();
+    }
+
+    private static void transformCal(String cal, Map<String, JexlExpression> fieldExpressionMap,
+                                     Map<String, String> fieldAliasMap) {
+        int splitIndex = cal.indexOf("=");
+        String field = cal.substring(0, splitIndex).trim();
+        String expressionStr = cal.substring(splitIndex + 1).trim().replace("\\#", "#");
+        try {
+            fieldExpressionMap.put(field, JexlExpressionRunner.compile(expressionStr));
+        } catch (Exception e) {
+            fieldAliasMap.put(field, expressionStr);
+        }
+    }
+
+    private static void transformUnit(String unit, Map<String, String[]> fieldUnitMap) {
+        int equalIndex = unit.indexOf("=");
+        int arrowIndex = unit.indexOf("->");
+        if (equalIndex < 0 || arrowIndex < 0) {
+            return;
+        }
+        String field = unit.substring(0, equalIndex).trim();
+        String originUnit = unit.substring(equalIndex + 1, arrowIndex).trim();
+        String newUnit = unit.substring(arrowIndex + 2).trim();
+        fieldUnitMap.put(field, new String[]{originUnit, newUnit});
+    }
+
+    /**
+     * Execution plan of a real field
+     */
+    static final class FieldPlan {
+
+        final String name;
+        final byte type;
+        final String unit;
+        /**
+         * compiled calculate expression, null means the value is mapped from an alias field
+         */
+        final JexlExpression expression;
+        /**
+         * alias fields referenced by the expression, ordered by their position in the expression
+         */
+        final int[] expressionAliasIndexes;
+        /**
+         * the index of the mapped alias field, -1 means no alias field is mapped
+         */
+        final int aliasIndex;
+        /**
+         * configured unit conversion, origin unit -> new unit
+         */
+        final String originUnit;
+        final String newUnit;
+        final List<UnitConvert> unitConverts;
+
+        private FieldPlan(Metrics.Field field, JexlExpression expression, int[] expressionAliasIndexes, int aliasIndex,
+                          String originUnit, String newUnit, List<UnitConvert> unitConverts) {
+            this.name = field.getField();
+            this.type = field.getType();
+            this.unit = field.getUnit();
+            this.expression = expression;
+            this.expressionAliasIndexes = expressionAliasIndexes;
+            this.aliasIndex = aliasIndex;
+            this.originUnit = originUnit;
+            this.newUnit = newUnit;
+            this.unitConverts = unitConverts;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.hertzbeat.collector.collect;
 
+import java.util.List;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 
@@ -41,6 +42,68 @@ public abstract class AbstractCollect {
      */
     public abstract void collect(CollectRep.MetricsData.Builder builder, Metrics metrics);
 
+    /**
+     * Whether the metrics is collected by {@link #collectAsync}, which does not block the worker thread
+     * while waiting for the response
+     *
+     * @param metrics metric configuration
+     * @return true - collect asynchronously
+     */
+    public boolean supportAsync(Metrics metrics) {
+        return false;
+    }
+
+    /**
+     * Asynchronous acquisition implementation interface, the callback is called once when the response builder is filled,
+     * maybe in another thread. The default implementation collects in the caller thread.
+     *
+     * @param builder  response builder
+     * @param metrics  metric configuration
+     * @param callback called when the collect completes
+     */
+    public void collectAsync(CollectRep.MetricsData.Builder builder, Metrics metrics, Runnable callback) {
+        collect(builder, metrics);
+        callback.run();
+    }
+
+    /**
+     * The key of the session the metrics shares with the other metrics of the same level of a monitor,
+     * the metrics with the same key are collected together by {@link #collectBatch}
+     *
+     * @param metrics metric configuration
+     * @return batch key, null - the metrics is collected alone
+     */
+    public String batchKey(Metrics metrics) {
+        return null;
+    }
+
+    /**
+     * Collect the metrics of the same batch key together, eg: in one session of the peer.
+     * The response builders map with the metrics by the index, the default implementation collects them one by one.
+     *
+     * @param builders    response builders
+     * @param metricsList metric configurations
+     */
+    public void collectBatch(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList) {
+        for (int index = 0; index < metricsList.size(); index++) {
+            collect(builders.get(index), metricsList.get(index));
+        }
+    }
+
+    /**
+     * Asynchronous {@link #collectBatch}, used when the metrics {@link #supportAsync}. The callback is called once
+     * when all the response builders are filled, maybe in another thread.
+     * The default implementation collects in the caller thread.
+     *
+     * @param builders    response builders
+     * @param metricsList metric configurations
+     * @param callback    called when the collect completes
+     */
+    public void collectBatchAsync(List<CollectRep.MetricsData.Builder> builders, List<Metrics> metricsList, Runnable callback) {
+        collectBatch(builders, metricsList);
+        callback.run();
+    }
+
     /**
      * the protocol this collect instance support
      * @return protocol str
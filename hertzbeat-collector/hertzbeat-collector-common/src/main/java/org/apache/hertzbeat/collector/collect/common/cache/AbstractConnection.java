@@ -35,6 +35,12 @@ public abstract class AbstractConnection<T> implements AutoCloseable {
      */
     public abstract void closeConnection() throws Exception;
 
+    /**
+     * Release the resources idle too long, it is called periodically by the connection cache
+     */
+    public void evictIdle() {
+    }
+
     @Override
     public void close() throws Exception{
         closeConnection();
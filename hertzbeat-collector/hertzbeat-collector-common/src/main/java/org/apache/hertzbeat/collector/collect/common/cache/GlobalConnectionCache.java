@@ -104,7 +104,7 @@ public class GlobalConnectionCache {
     }
 
     /**
-     * Clean and remove timeout or unhealthy cache entries
+     * Clean and remove timeout or unhealthy cache entries, and evict the idle resources of the others
      */
     private void cleanTimeoutOrUnHealthyCache() {
         try {
@@ -121,6 +121,12 @@ public class GlobalConnectionCache {
                     } catch (Exception e) {
                         log.error("Clean connection close error for key {}: {}", key, e.getMessage(), e);
                     }
+                    return;
+                }
+                try {
+                    value.evictIdle();
+                } catch (Exception e) {
+                    log.error("Evict idle connection error for key {}: {}", key, e.getMessage(), e);
                 }
             });
         } catch (Exception e) {
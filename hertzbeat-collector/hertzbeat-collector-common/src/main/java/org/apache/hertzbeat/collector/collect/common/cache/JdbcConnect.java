@@ -17,30 +17,36 @@
 
 package org.apache.hertzbeat.collector.collect.common.cache;
 
-import java.sql.Connection;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * jdbc common connection
+ * jdbc common connection, the connection pool of a datasource
  */
 @Slf4j
-public class JdbcConnect extends AbstractConnection<Connection> {
+public class JdbcConnect extends AbstractConnection<JdbcConnectionPool> {
 
-    private final Connection connection;
+    private final JdbcConnectionPool connectionPool;
 
-    public JdbcConnect(Connection connection) {
-        this.connection = connection;
+    public JdbcConnect(JdbcConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
     }
 
     @Override
     public void closeConnection() throws Exception {
-        if (connection != null) {
-            connection.close();
+        if (connectionPool != null) {
+            connectionPool.close();
         }
     }
 
     @Override
-    public Connection getConnection() {
-        return connection;
+    public void evictIdle() {
+        if (connectionPool != null) {
+            connectionPool.evictIdle();
+        }
+    }
+
+    @Override
+    public JdbcConnectionPool getConnection() {
+        return connectionPool;
     }
 }
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.cache;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded connection pool of a datasource (url, username and password), so the metrics of the same database
+ * are queried concurrently on their own connections. The idle connections are checked before they are borrowed,
+ * and the ones idle too long are closed by the periodic sweep, each connection caches its prepared statements by the sql.
+ */
+@Slf4j
+public class JdbcConnectionPool {
+
+    /**
+     * Default max connections number of a datasource
+     */
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    /**
+     * The prepared statements number cached by a connection
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    /**
+     * The idle connection is validated before it is borrowed again after this time
+     */
+    private static final long VALIDATE_IDLE_MILLIS = 30 * 1000L;
+
+    /**
+     * The connection is closed when it is idle for this time
+     */
+    private static final long MAX_IDLE_MILLIS = 10 * 60 * 1000L;
+
+    private static final int VALIDATE_TIMEOUT_SECONDS = 3;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = lock.newCondition();
+
+    /**
+     * idle connections, the last returned first
+     */
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+
+    /**
+     * connections number, the idle, borrowed and connecting ones
+     */
+    private int size;
+
+    private boolean closed;
+
+    public JdbcConnectionPool(String url, String username, String password, int maxSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Borrow a connection, it should be closed to return to the pool
+     *
+     * @param timeout milliseconds to wait for a connection when all of them are borrowed
+     * @return pooled connection
+     * @throws SQLException when the connection can not be opened or the waiting is timeout
+     */
+    public PooledConnection borrow(long timeout) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            PooledConnection connection = null;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && size >= maxSize) {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        throw new SQLTransientConnectionException("Timeout waiting " + timeout
+                                + "ms for a connection of the pool, " + maxSize + " connections are in use");
+                    }
+                    available.awaitNanos(waitNanos);
+                }
+                if (closed) {
+                    throw new SQLException("The connection pool is closed");
+                }
+                connection = idle.pollFirst();
+                if (connection == null) {
+                    // reserve the place of the new connection
+                    size++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection of the pool", e);
+            } finally {
+                lock.unlock();
+            }
+            if (connection == null) {
+                return open();
+            }
+            if (isHealthy(connection)) {
+                connection.borrowed = true;
+                return connection;
+            }
+            discard(connection);
+        }
+    }
+
+    /**
+     * @return connections number, the idle and borrowed ones
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return idle connections number
+     */
+    public int idleSize() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the connections idle too long. The last returned connection is borrowed first,
+     * so the ones at the tail may never be borrowed and checked again, it is called periodically to sweep them.
+     */
+    public void evictIdle() {
+        evictIdle(MAX_IDLE_MILLIS);
+    }
+
+    void evictIdle(long maxIdleMillis) {
+        List<PooledConnection> expired = new ArrayList<>();
+        long expireTime = System.currentTimeMillis() - maxIdleMillis;
+        lock.lock();
+        try {
+            // the idle connections are ordered by their returned time, the oldest one is at the tail
+            PooledConnection connection;
+            while ((connection = idle.peekLast()) != null && connection.lastUsedTime <= expireTime) {
+                expired.add(idle.pollLast());
+            }
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::discard);
+    }
+
+    /**
+     * Close the idle connections, the borrowed ones are closed when they are returned
+     */
+    public void close() {
+        Deque<PooledConnection> connections;
+        lock.lock();
+        try {
+            closed = true;
+            connections = new ArrayDeque<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        connections.forEach(this::discard);
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection(url, username, password);
+            connection.setReadOnly(true);
+            PooledConnection pooledConnection = new PooledConnection(this, connection);
+            pooledConnection.borrowed = true;
+            return pooledConnection;
+        } catch (SQLException | RuntimeException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (Exception closeException) {
+                    log.debug("Close the jdbc connection of {} error: {}", url, closeException.getMessage());
+                }
+            }
+            lock.lock();
+            try {
+                size--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean isHealthy(PooledConnection connection) {
+        long idleMillis = System.currentTimeMillis() - connection.lastUsedTime;
+        if (idleMillis > MAX_IDLE_MILLIS) {
+            return false;
+        }
+        if (idleMillis < VALIDATE_IDLE_MILLIS) {
+            return true;
+        }
+        try {
+            return connection.connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            log.info("Validate the jdbc connection of {} error: {}", url, e.getMessage());
+            return false;
+        }
+    }
+
+    private void release(PooledConnection connection, boolean broken) {
+        connection.lastUsedTime = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (!broken && !closed) {
+                idle.offerFirst(connection);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(connection);
+    }
+
+    private void discard(PooledConnection connection) {
+        lock.lock();
+        try {
+            size--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        connection.closeStatements();
+        try {
+            connection.connection.close();
+        } catch (Exception e) {
+            log.debug("Close the jdbc connection of {} error: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * A connection borrowed from the pool, closing it returns it to the pool.
+     * It is used by one thread at a time, so its prepared statement cache is not synchronized.
+     */
+    public static final class PooledConnection implements AutoCloseable {
+
+        private final JdbcConnectionPool pool;
+
+        private final Connection connection;
+
+        /**
+         * sql - prepared statement, the least recently used one is closed when the cache is full
+         */
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long lastUsedTime = System.currentTimeMillis();
+
+        private boolean borrowed;
+
+        private boolean broken;
+
+        private PooledConnection(JdbcConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        /**
+         * @return the physical connection, it should not be closed by the caller
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Get the cached prepared statement of the sql or prepare it, the statement should not be closed by the caller
+         *
+         * @param sql sql
+         * @return prepared statement
+         * @throws SQLException when the statement can not be prepared
+         */
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement != null && !statement.isClosed()) {
+                return statement;
+            }
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+            if (statements.size() > STATEMENT_CACHE_SIZE) {
+                Iterator<PreparedStatement> iterator = statements.values().iterator();
+                closeStatement(iterator.next());
+                iterator.remove();
+            }
+            return statement;
+        }
+
+        /**
+         * Close and forget the cached statement of the sql, eg: its execution failed
+         *
+         * @param sql sql
+         */
+        public void evictStatement(String sql) {
+            PreparedStatement statement = statements.remove(sql);
+            if (statement != null) {
+                closeStatement(statement);
+            }
+        }
+
+        /**
+         * Mark the connection broken, it is closed instead of returning to the pool
+         */
+        public void markBroken() {
+            this.broken = true;
+        }
+
+        /**
+         * @return whether the connection is marked broken
+         */
+        public boolean isBroken() {
+            return broken;
+        }
+
+        /**
+         * @return the statements number cached by the connection
+         */
+        public int cachedStatements() {
+            return statements.size();
+        }
+
+        @Override
+        public void close() {
+            if (!borrowed) {
+                return;
+            }
+            borrowed = false;
+            pool.release(this, broken);
+        }
+
+        private void closeStatements() {
+            statements.values().forEach(this::closeStatement);
+            statements.clear();
+        }
+
+        private void closeStatement(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                log.debug("Close the jdbc statement error: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -17,24 +17,101 @@
 
 package org.apache.hertzbeat.collector.collect.common.cache;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanFeatureInfo;
+import javax.management.ObjectName;
 import javax.management.remote.JMXConnector;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * jmx connect object
+ * The mbean names matching an object name pattern and the readable attributes of the mbeans are cached
+ * and refreshed after {@link #MBEAN_CACHE_TTL}, so the collects do not query them from the jmx server every time.
  **/
 @Slf4j
 public class JmxConnect extends AbstractConnection<JMXConnector> {
 
+    /**
+     * milliseconds the cached mbean names and attributes live
+     */
+    public static final long MBEAN_CACHE_TTL = 5 * 60 * 1000L;
+
     private final JMXConnector connection;
 
+    /**
+     * object name pattern - the names of the matched mbeans
+     */
+    private final Map<ObjectName, Cached<Set<ObjectName>>> mbeanNames = new ConcurrentHashMap<>(16);
+
+    /**
+     * mbean name - the readable attribute names
+     */
+    private final Map<ObjectName, Cached<Set<String>>> mbeanAttributes = new ConcurrentHashMap<>(32);
+
     public JmxConnect(JMXConnector connection) {
         this.connection = connection;
     }
 
+    /**
+     * Query the names of the mbeans matching the object name, the cached names are used within the ttl
+     *
+     * @param objectName object name or pattern
+     * @return names of the matched mbeans
+     * @throws IOException when the jmx server can not be reached
+     */
+    public Set<ObjectName> queryNames(ObjectName objectName) throws IOException {
+        Cached<Set<ObjectName>> cached = mbeanNames.get(objectName);
+        if (cached != null && !cached.isExpired()) {
+            return cached.value();
+        }
+        Set<ObjectName> names = Set.copyOf(connection.getMBeanServerConnection().queryNames(objectName, null));
+        mbeanNames.put(objectName, new Cached<>(names));
+        return names;
+    }
+
+    /**
+     * Get the readable attribute names of the mbean, the cached names are used within the ttl
+     *
+     * @param mbeanName mbean name
+     * @return readable attribute names
+     * @throws IOException when the jmx server can not be reached
+     * @throws JMException when the mbean does not exist or its info can not be got
+     */
+    public Set<String> getReadableAttributes(ObjectName mbeanName) throws IOException, JMException {
+        Cached<Set<String>> cached = mbeanAttributes.get(mbeanName);
+        if (cached != null && !cached.isExpired()) {
+            return cached.value();
+        }
+        MBeanAttributeInfo[] attributeInfos = connection.getMBeanServerConnection().getMBeanInfo(mbeanName).getAttributes();
+        Set<String> attributes = Arrays.stream(attributeInfos)
+                .filter(MBeanAttributeInfo::isReadable)
+                .map(MBeanFeatureInfo::getName)
+                .collect(Collectors.toUnmodifiableSet());
+        mbeanAttributes.put(mbeanName, new Cached<>(attributes));
+        return attributes;
+    }
+
+    /**
+     * Forget the cache of the mbean which is unregistered, and the cached names of the patterns
+     *
+     * @param mbeanName mbean name
+     */
+    public void invalidate(ObjectName mbeanName) {
+        mbeanAttributes.remove(mbeanName);
+        mbeanNames.values().removeIf(cached -> cached.value().contains(mbeanName));
+    }
 
     @Override
     public void closeConnection() throws Exception {
+        mbeanNames.clear();
+        mbeanAttributes.clear();
         if (connection != null) {
             connection.close();
         }
@@ -44,4 +121,15 @@ public class JmxConnect extends AbstractConnection<JMXConnector> {
     public JMXConnector getConnection() {
         return connection;
     }
+
+    private record Cached<T>(T value, long expireTime) {
+
+        private Cached(T value) {
+            this(value, System.currentTimeMillis() + MBEAN_CACHE_TTL);
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expireTime;
+        }
+    }
 }
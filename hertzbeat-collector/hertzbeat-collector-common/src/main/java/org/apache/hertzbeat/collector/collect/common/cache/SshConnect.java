@@ -17,18 +17,52 @@
 
 package org.apache.hertzbeat.collector.collect.common.cache;
 
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.sshd.client.session.ClientSession;
 
 /**
- * ssh connection holder
+ * ssh connection holder, the channels opened concurrently over the session are limited,
+ * so the collects sharing the session do not exceed the MaxSessions of the sshd
  */
 @Slf4j
 public class SshConnect extends AbstractConnection<ClientSession> {
+
+    /**
+     * Default max channels opened concurrently over a session, the default MaxSessions of the sshd is 10
+     */
+    public static final int DEFAULT_MAX_CHANNELS = 8;
+
     private final ClientSession clientSession;
 
+    private final Semaphore channels;
+
     public SshConnect(ClientSession clientSession) {
+        this(clientSession, DEFAULT_MAX_CHANNELS);
+    }
+
+    public SshConnect(ClientSession clientSession, int maxChannels) {
         this.clientSession = clientSession;
+        this.channels = new Semaphore(maxChannels);
+    }
+
+    /**
+     * Acquire the permit to open a channel, it should be released when the channel is closed
+     *
+     * @param timeout milliseconds to wait for the permit when all of them are in use
+     * @return true - the permit is acquired
+     * @throws InterruptedException when the waiting is interrupted
+     */
+    public boolean acquireChannel(long timeout) throws InterruptedException {
+        return channels.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Release the permit of a closed channel
+     */
+    public void releaseChannel() {
+        channels.release();
     }
 
     @Override
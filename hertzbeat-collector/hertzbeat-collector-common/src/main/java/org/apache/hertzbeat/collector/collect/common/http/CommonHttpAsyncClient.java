@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * common non-blocking http client, the requests are multiplexed on a few nio reactor threads,
+ * no thread waits for the response. The futures are completed in the reactor threads, the callers hand the response
+ * to the callback executor to handle it out of the reactor threads. The streaming response body is the exception,
+ * its chunks are handled in the reactor thread as they arrive, so the streaming handler should not block.
+ */
+@Slf4j
+public class CommonHttpAsyncClient {
+
+    private static CloseableHttpAsyncClient httpAsyncClient;
+
+    private static PoolingNHttpClientConnectionManager connectionManager;
+
+    private static final ExecutorService CALLBACK_EXECUTOR;
+
+    /**
+     * all max total connection
+     */
+    private static final int MAX_TOTAL_CONNECTIONS = 50000;
+
+    /**
+     * peer route max total connection
+     */
+    private static final int MAX_PER_ROUTE_CONNECTIONS = 80;
+
+    /**
+     * timeout for get connect from pool(ms)
+     */
+    private static final int REQUIRE_CONNECT_TIMEOUT = 4000;
+
+    /**
+     * tcp connect timeout(ms)
+     */
+    private static final int CONNECT_TIMEOUT = 4000;
+
+    /**
+     * socket read timeout(ms)
+     */
+    private static final int SOCKET_TIMEOUT = 60000;
+
+    /**
+     * nio reactor threads number
+     */
+    private static final int IO_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * threads number to handle the responses, eg: parse the response body
+     */
+    private static final int CALLBACK_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    static {
+        ThreadFactory callbackThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("http-async-callback-%d")
+                .setDaemon(true)
+                .build();
+        CALLBACK_EXECUTOR = Executors.newFixedThreadPool(CALLBACK_THREADS, callbackThreadFactory);
+        try {
+            SSLContext sslContext = CommonHttpClient.createSslContext();
+            Registry<SchemeIOSessionStrategy> registry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                    .register("http", NoopIOSessionStrategy.INSTANCE)
+                    .register("https", new SSLIOSessionStrategy(sslContext, CommonHttpClient.getSupportedSsl(),
+                            null, NoopHostnameVerifier.INSTANCE))
+                    .build();
+            IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                    .setIoThreadCount(IO_THREADS)
+                    .setConnectTimeout(CONNECT_TIMEOUT)
+                    .setSoTimeout(SOCKET_TIMEOUT)
+                    .setSoKeepAlive(true)
+                    .build();
+            ThreadFactory ioThreadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("http-async-io-%d")
+                    .setDaemon(true)
+                    .build();
+            DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig, ioThreadFactory);
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectionRequestTimeout(REQUIRE_CONNECT_TIMEOUT)
+                    .setConnectTimeout(CONNECT_TIMEOUT)
+                    .setSocketTimeout(SOCKET_TIMEOUT)
+                    // auto redirect when 301 302 response status
+                    .setRedirectsEnabled(true)
+                    .build();
+            // connection pool
+            connectionManager = new PoolingNHttpClientConnectionManager(ioReactor, registry);
+            connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_PER_ROUTE_CONNECTIONS);
+            httpAsyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .build();
+            httpAsyncClient.start();
+            ThreadFactory cleanerThreadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("http-async-connection-pool-cleaner-%d")
+                    .setDaemon(true)
+                    .build();
+            ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(1, cleanerThreadFactory);
+            scheduledExecutor.scheduleWithFixedDelay(() -> {
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(100, TimeUnit.SECONDS);
+            }, 40L, 40L, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("init http async client error: {}.", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Execute the http request without blocking
+     *
+     * @param request     http request
+     * @param httpContext http context, nullable
+     * @return the future completed by the nio reactor thread when the response is received
+     */
+    public static CompletableFuture<HttpResponse> execute(HttpUriRequest request, HttpContext httpContext) {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        if (httpAsyncClient == null || !httpAsyncClient.isRunning()) {
+            future.completeExceptionally(new IllegalStateException("http async client is not running"));
+            return future;
+        }
+        httpAsyncClient.execute(request, httpContext, completeFuture(future));
+        return future;
+    }
+
+    /**
+     * Execute the http request without blocking, the response body is handled chunk by chunk as it arrives
+     * in the nio reactor thread, it is never held as a whole
+     *
+     * @param request     http request
+     * @param httpContext http context, nullable
+     * @param handler     response body handler
+     * @param <T>         handle result
+     * @return the future completed by the nio reactor thread when the response body is handled
+     */
+    public static <T> CompletableFuture<T> execute(HttpUriRequest request, HttpContext httpContext,
+                                                   StreamingResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (httpAsyncClient == null || !httpAsyncClient.isRunning()) {
+            handler.release();
+            future.completeExceptionally(new IllegalStateException("http async client is not running"));
+            return future;
+        }
+        AsyncByteConsumer<T> consumer = new AsyncByteConsumer<>() {
+
+            private boolean accepted;
+
+            @Override
+            protected void onResponseReceived(HttpResponse response) {
+                accepted = handler.onResponse(response);
+            }
+
+            @Override
+            protected void onByteReceived(ByteBuffer buf, IOControl ioControl) throws IOException {
+                if (accepted) {
+                    handler.onContent(buf);
+                } else {
+                    buf.position(buf.limit());
+                }
+            }
+
+            @Override
+            protected T buildResult(HttpContext context) throws Exception {
+                return handler.onComplete();
+            }
+
+            @Override
+            protected void releaseResources() {
+                handler.release();
+            }
+        };
+        httpAsyncClient.execute(HttpAsyncMethods.create(request), consumer, httpContext, completeFuture(future));
+        return future;
+    }
+
+    private static <T> FutureCallback<T> completeFuture(CompletableFuture<T> future) {
+        return new FutureCallback<>() {
+            @Override
+            public void completed(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                future.completeExceptionally(new CancellationException("http request cancelled"));
+            }
+        };
+    }
+
+    /**
+     * @return the executor to handle the responses out of the nio reactor threads
+     */
+    public static ExecutorService getCallbackExecutor() {
+        return CALLBACK_EXECUTOR;
+    }
+}
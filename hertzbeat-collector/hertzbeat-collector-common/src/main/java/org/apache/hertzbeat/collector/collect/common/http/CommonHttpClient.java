@@ -89,29 +89,7 @@ public class CommonHttpClient {
 
     static {
         try {
-            SSLContext sslContext = SSLContexts.createDefault();
-            X509TrustManager x509TrustManager = new X509TrustManager() {
-                @Override
-                public void checkClientTrusted(X509Certificate[] x509Certificates, String s) { }
-
-                @Override
-                public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
-                    // check server ssl certificate expired
-                    Date now = new Date();
-                    if (x509Certificates != null) {
-                        for (X509Certificate certificate : x509Certificates) {
-                            Date deadline = certificate.getNotAfter();
-                            if (deadline != null && now.after(deadline)) {
-                                throw new CertificateExpiredException();
-                            }
-                        }
-                    }
-                }
-
-                @Override
-                public X509Certificate[] getAcceptedIssuers() { return null; }
-            };
-            sslContext.init(null, new TrustManager[]{x509TrustManager}, null);
+            SSLContext sslContext = createSslContext();
             SSLConnectionSocketFactory sslFactory = new SSLConnectionSocketFactory(sslContext, SUPPORTED_SSL, null, new NoopHostnameVerifier());
             Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
                     .register("http", PlainConnectionSocketFactory.INSTANCE)
@@ -152,4 +130,44 @@ public class CommonHttpClient {
     public static CloseableHttpClient getHttpClient() {
         return httpClient;
     }
+
+    /**
+     * ssl context which accepts the server certificate not expired, shared by the blocking and the async client
+     *
+     * @return ssl context
+     * @throws Exception when the ssl context can not be initialized
+     */
+    static SSLContext createSslContext() throws Exception {
+        SSLContext sslContext = SSLContexts.createDefault();
+        X509TrustManager x509TrustManager = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] x509Certificates, String s) { }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
+                // check server ssl certificate expired
+                Date now = new Date();
+                if (x509Certificates != null) {
+                    for (X509Certificate certificate : x509Certificates) {
+                        Date deadline = certificate.getNotAfter();
+                        if (deadline != null && now.after(deadline)) {
+                            throw new CertificateExpiredException();
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() { return null; }
+        };
+        sslContext.init(null, new TrustManager[]{x509TrustManager}, null);
+        return sslContext;
+    }
+
+    /**
+     * @return ssl supported version
+     */
+    static String[] getSupportedSsl() {
+        return SUPPORTED_SSL.clone();
+    }
 }
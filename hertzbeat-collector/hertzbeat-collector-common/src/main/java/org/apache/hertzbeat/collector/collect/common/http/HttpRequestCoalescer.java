@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.apache.hertzbeat.collector.util.SingleFlight;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Execute the http requests of the collect tasks, the identical in-flight requests are coalesced into one,
+ * eg: the metrics of several monitors call the same url, or several monitors scrape the same exporter.
+ * The requests are identical when they have the same method, uri, headers, payload, credentials and timeout.
+ */
+public final class HttpRequestCoalescer {
+
+    private static final SingleFlight<String, Response> SINGLE_FLIGHT = new SingleFlight<>();
+
+    /**
+     * the coalesced requests whose response body is handled by a streaming handler, the key has the handler kind
+     */
+    private static final SingleFlight<String, Object> STREAMING_SINGLE_FLIGHT = new SingleFlight<>();
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private HttpRequestCoalescer() {
+    }
+
+    /**
+     * Execute the http request, or share the response of the identical in-flight request
+     *
+     * @param request     http request
+     * @param httpContext http context, nullable
+     * @param payload     request payload, nullable
+     * @param credentials the credentials set in the http context, eg: digest auth username and password, nullable
+     * @return response
+     * @throws IOException when the request failed
+     */
+    public static Response execute(HttpUriRequest request, HttpContext httpContext, String payload, String credentials)
+            throws IOException {
+        try {
+            return SINGLE_FLIGHT.execute(requestKey(request, payload, credentials), () -> doExecute(request, httpContext));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Execute the http request by the non-blocking client, or share the response of the identical in-flight request.
+     * The future is completed in the callback executor of {@link CommonHttpAsyncClient}.
+     *
+     * @param request     http request
+     * @param httpContext http context, nullable
+     * @param payload     request payload, nullable
+     * @param credentials the credentials set in the http context, eg: digest auth username and password, nullable
+     * @return the future of the response
+     */
+    public static CompletableFuture<Response> executeAsync(HttpUriRequest request, HttpContext httpContext,
+                                                           String payload, String credentials) {
+        return SINGLE_FLIGHT.executeAsync(requestKey(request, payload, credentials), () -> {
+            long startTime = System.currentTimeMillis();
+            return CommonHttpAsyncClient.execute(request, httpContext)
+                    .thenApplyAsync(response -> toResponse(response, startTime), CommonHttpAsyncClient.getCallbackExecutor());
+        });
+    }
+
+    /**
+     * Execute the http request and handle the response body chunk by chunk, or share the result of
+     * the identical in-flight request handled by the same kind of handler
+     *
+     * @param kind           handler kind, the requests of different kinds are not coalesced
+     * @param request        http request
+     * @param httpContext    http context, nullable
+     * @param payload        request payload, nullable
+     * @param credentials    the credentials set in the http context, nullable
+     * @param handlerFactory create the handler of the response
+     * @param <T>            handle result, shared by the coalesced requests so it should not be modified
+     * @return handle result
+     * @throws IOException when the request failed
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T executeStreaming(String kind, HttpUriRequest request, HttpContext httpContext, String payload,
+                                         String credentials, Supplier<StreamingResponseHandler<T>> handlerFactory)
+            throws IOException {
+        try {
+            return (T) STREAMING_SINGLE_FLIGHT.execute(kind + '\n' + requestKey(request, payload, credentials),
+                    () -> doExecuteStreaming(request, httpContext, handlerFactory.get()));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Execute the http request by the non-blocking client and handle the response body chunk by chunk as it arrives,
+     * or share the result of the identical in-flight request handled by the same kind of handler.
+     * The future is completed in the callback executor of {@link CommonHttpAsyncClient}.
+     *
+     * @param kind           handler kind, the requests of different kinds are not coalesced
+     * @param request        http request
+     * @param httpContext    http context, nullable
+     * @param payload        request payload, nullable
+     * @param credentials    the credentials set in the http context, nullable
+     * @param handlerFactory create the handler of the response
+     * @param <T>            handle result, shared by the coalesced requests so it should not be modified
+     * @return the future of the handle result
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompletableFuture<T> executeStreamingAsync(String kind, HttpUriRequest request, HttpContext httpContext,
+                                                                 String payload, String credentials,
+                                                                 Supplier<StreamingResponseHandler<T>> handlerFactory) {
+        CompletableFuture<Object> future = STREAMING_SINGLE_FLIGHT.executeAsync(kind + '\n' + requestKey(request, payload, credentials),
+                () -> {
+                    StreamingResponseHandler<T> handler = handlerFactory.get();
+                    CompletableFuture<T> response;
+                    try {
+                        response = CommonHttpAsyncClient.execute(request, httpContext, handler);
+                    } catch (RuntimeException e) {
+                        // the request is not sent, the handler is never called back
+                        handler.release();
+                        throw e;
+                    }
+                    return response.thenApplyAsync(result -> (Object) result, CommonHttpAsyncClient.getCallbackExecutor());
+                });
+        return future.thenApply(result -> (T) result);
+    }
+
+    private static <T> T doExecuteStreaming(HttpUriRequest request, HttpContext httpContext,
+                                            StreamingResponseHandler<T> handler) throws IOException {
+        try (CloseableHttpResponse response = CommonHttpClient.getHttpClient().execute(request, httpContext)) {
+            HttpEntity entity = response.getEntity();
+            if (handler.onResponse(response) && entity != null) {
+                try (InputStream content = entity.getContent()) {
+                    byte[] bytes = new byte[READ_BUFFER_SIZE];
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    int read;
+                    while ((read = content.read(bytes)) != -1) {
+                        buffer.clear().limit(read);
+                        handler.onContent(buffer);
+                    }
+                }
+            }
+            return handler.onComplete();
+        } finally {
+            handler.release();
+        }
+    }
+
+    private static Response doExecute(HttpUriRequest request, HttpContext httpContext) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (CloseableHttpResponse response = CommonHttpClient.getHttpClient().execute(request, httpContext)) {
+            return toResponse(response, startTime);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Response toResponse(HttpResponse response, long startTime) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        String body;
+        try {
+            body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Response(statusCode, body, response.getAllHeaders(), System.currentTimeMillis() - startTime);
+    }
+
+    private static String requestKey(HttpUriRequest request, String payload, String credentials) {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(request.getMethod()).append(' ').append(request.getURI()).append('\n');
+        Header[] headers = request.getAllHeaders();
+        Arrays.sort(headers, Comparator.comparing(Header::getName, String.CASE_INSENSITIVE_ORDER));
+        for (Header header : headers) {
+            builder.append(header.getName()).append(':');
+            if (HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.getName())) {
+                builder.append(SingleFlight.digest(header.getValue()));
+            } else {
+                builder.append(header.getValue());
+            }
+            builder.append('\n');
+        }
+        if (payload != null) {
+            builder.append(payload.length()).append(':').append(payload).append('\n');
+        }
+        if (credentials != null) {
+            builder.append(SingleFlight.digest(credentials)).append('\n');
+        }
+        if (request instanceof Configurable configurable && configurable.getConfig() != null) {
+            RequestConfig config = configurable.getConfig();
+            builder.append(config.getConnectTimeout()).append('/').append(config.getSocketTimeout());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return requests number, including the coalesced ones
+     */
+    public static long getRequestCount() {
+        return SINGLE_FLIGHT.getCallCount() + STREAMING_SINGLE_FLIGHT.getCallCount();
+    }
+
+    /**
+     * @return requests number which shared the response of an identical in-flight request
+     */
+    public static long getCoalescedCount() {
+        return SINGLE_FLIGHT.getSharedCount() + STREAMING_SINGLE_FLIGHT.getSharedCount();
+    }
+
+    /**
+     * The http response shared by the coalesced requests, read only
+     */
+    public static final class Response {
+
+        private final int statusCode;
+
+        private final String body;
+
+        private final Header[] headers;
+
+        private final long responseTime;
+
+        public Response(int statusCode, String body, Header[] headers, long responseTime) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.headers = headers == null ? new Header[0] : headers;
+            this.responseTime = responseTime;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public long getResponseTime() {
+            return responseTime;
+        }
+
+        /**
+         * @param name header name, case-insensitive
+         * @return the first header of the name, null when absent
+         */
+        public Header getFirstHeader(String name) {
+            for (Header header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    return header;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.http.HttpResponse;
+
+/**
+ * Handle the http response body chunk by chunk as it arrives, eg: a streaming parser,
+ * so the response body is never held as a whole. One handler for one response, called by one thread at a time.
+ *
+ * @param <T> handle result
+ */
+public interface StreamingResponseHandler<T> {
+
+    /**
+     * The response status and headers arrive
+     *
+     * @param response http response, its entity should not be read
+     * @return false to skip the response body, eg: the status is not success
+     */
+    boolean onResponse(HttpResponse response);
+
+    /**
+     * The next chunk of the response body arrives
+     *
+     * @param content body chunk, it is only valid in this call
+     * @throws IOException when the content can not be handled
+     */
+    void onContent(ByteBuffer content) throws IOException;
+
+    /**
+     * The response body ends
+     *
+     * @return handle result
+     * @throws IOException when the result can not be built
+     */
+    T onComplete() throws IOException;
+
+    /**
+     * Release the resources held by the handler, called once after the response is handled or the request failed
+     */
+    default void release() {
+    }
+}
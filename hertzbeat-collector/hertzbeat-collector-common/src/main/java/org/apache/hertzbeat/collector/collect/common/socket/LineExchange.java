@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Exchange of a text protocol whose peer speaks first, eg: the banner of smtp, pop3, imap and ftp.
+ * The received bytes are split into lines, the commands are sent with the CRLF line end.
+ *
+ * @param <T> exchange result
+ */
+public abstract class LineExchange<T> implements SocketExchange<T> {
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final Charset charset;
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+
+    private boolean complete;
+
+    protected LineExchange(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * A whole line of the peer arrives
+     *
+     * @param line line without the line end
+     * @return the command to send, build by {@link #command(String)}, null to send nothing
+     * @throws IOException when the peer answers unexpectedly
+     */
+    protected abstract byte[] onLine(String line) throws IOException;
+
+    @Override
+    public byte[] onConnected() throws IOException {
+        return null;
+    }
+
+    @Override
+    public byte[] onReceive(ByteBuffer content) throws IOException {
+        ByteArrayOutputStream commands = null;
+        while (content.hasRemaining() && !complete) {
+            byte b = content.get();
+            if (b != '\n') {
+                if (line.size() >= MAX_LINE_LENGTH) {
+                    throw new IOException("The line of the peer exceeds " + MAX_LINE_LENGTH + " bytes");
+                }
+                line.write(b);
+                continue;
+            }
+            String text = line.toString(charset);
+            line.reset();
+            if (text.endsWith("\r")) {
+                text = text.substring(0, text.length() - 1);
+            }
+            byte[] command = onLine(text);
+            if (command != null) {
+                if (commands == null) {
+                    commands = new ByteArrayOutputStream(command.length);
+                }
+                commands.write(command);
+            }
+        }
+        return commands == null ? null : commands.toByteArray();
+    }
+
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Mark the exchange complete, the lines left are ignored
+     */
+    protected void complete() {
+        this.complete = true;
+    }
+
+    /**
+     * @param command command line without the line end
+     * @return command bytes with the CRLF line end
+     */
+    protected byte[] command(String command) {
+        byte[] text = command.getBytes(charset);
+        byte[] bytes = new byte[text.length + CRLF.length];
+        System.arraycopy(text, 0, bytes, 0, text.length);
+        System.arraycopy(CRLF, 0, bytes, text.length, CRLF.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Exchange of a protocol answering with the three digits reply codes, eg: smtp and ftp.
+ * The lines of a multi line reply, "250-first" to "250 last", are gathered into one reply.
+ *
+ * @param <T> exchange result
+ */
+public abstract class NumericReplyExchange<T> extends LineExchange<T> {
+
+    private static final int CODE_LENGTH = 3;
+
+    private final StringBuilder reply = new StringBuilder();
+
+    private String code;
+
+    protected NumericReplyExchange(Charset charset) {
+        super(charset);
+    }
+
+    /**
+     * A whole reply of the peer arrives
+     *
+     * @param replyCode   reply code
+     * @param replyString reply lines, each of them ends with CRLF
+     * @return the command to send, build by {@link #command(String)}, null to send nothing
+     * @throws IOException when the peer answers unexpectedly
+     */
+    protected abstract byte[] onReply(int replyCode, String replyString) throws IOException;
+
+    @Override
+    protected final byte[] onLine(String line) throws IOException {
+        reply.append(line).append("\r\n");
+        if (code == null) {
+            if (line.length() < CODE_LENGTH) {
+                throw new IOException("Truncated server reply: " + line);
+            }
+            code = line.substring(0, CODE_LENGTH);
+            if (line.length() > CODE_LENGTH && line.charAt(CODE_LENGTH) == '-') {
+                return null;
+            }
+        } else if (!line.startsWith(code) || line.length() > CODE_LENGTH && line.charAt(CODE_LENGTH) != ' ') {
+            return null;
+        }
+        int replyCode;
+        try {
+            replyCode = Integer.parseInt(code);
+        } catch (NumberFormatException e) {
+            throw new IOException("Could not parse response code. Server Reply: " + line);
+        }
+        String replyString = reply.toString();
+        reply.setLength(0);
+        code = null;
+        return onReply(replyCode, replyString);
+    }
+}
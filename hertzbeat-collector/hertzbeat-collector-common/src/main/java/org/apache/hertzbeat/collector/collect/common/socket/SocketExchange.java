@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The protocol script of a probe run by {@link SocketProbeEngine}: what to send once connected,
+ * how to answer the bytes of the peer and when the exchange is done.
+ * One exchange for one probe, called by the selector thread of the engine, so it should never block.
+ *
+ * @param <T> exchange result
+ */
+public interface SocketExchange<T> {
+
+    /**
+     * The tcp connection is established, or the udp socket is ready
+     *
+     * @return the request to send, null to wait for the peer to speak first
+     * @throws IOException when the request can not be built
+     */
+    byte[] onConnected() throws IOException;
+
+    /**
+     * Bytes of the peer arrive, a whole datagram for udp
+     *
+     * @param content received bytes, it is only valid in this call
+     * @return the reply to send, null to send nothing
+     * @throws IOException when the peer answers unexpectedly, the probe fails with the exception message
+     */
+    byte[] onReceive(ByteBuffer content) throws IOException;
+
+    /**
+     * @return true when the exchange has its result, the connection is closed then
+     */
+    boolean isComplete();
+
+    /**
+     * The exchange is complete or the peer closes the tcp connection
+     *
+     * @return exchange result
+     * @throws IOException when the result can not be built, eg: the peer closes the connection too early
+     */
+    T onComplete() throws IOException;
+}
@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.collect.common.socket.SocketProbeResult.Outcome;
+import org.apache.hertzbeat.common.util.CommonUtil;
+
+/**
+ * Probe engine shared by the port and banner collectors (telnet, udp, ntp, smtp, pop3, imap, ftp).
+ * The probes are multiplexed by a few selector threads instead of a blocking socket on a collect worker thread each:
+ * a probe connects, sends and expects the answers of the peer as its {@link SocketExchange} scripts,
+ * and ends when the exchange completes or its deadline, which covers the whole exchange, is reached.
+ * Each selector opens the probes submitted since its last wakeup in one batch, the results are handed to the callback threads.
+ */
+@Slf4j
+public final class SocketProbeEngine {
+
+    private static final int SELECTOR_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final int CALLBACK_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final ProbeLoop[] loops;
+
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private final ExecutorService callbackExecutor;
+
+    /**
+     * @param selectorThreads selector threads number
+     */
+    SocketProbeEngine(int selectorThreads) {
+        callbackExecutor = Executors.newFixedThreadPool(CALLBACK_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("socket-probe-callback-%d")
+                .setDaemon(true)
+                .build());
+        ThreadFactoryBuilder selectorThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("socket-probe-selector-%d")
+                .setDaemon(true);
+        loops = new ProbeLoop[selectorThreads];
+        for (int index = 0; index < selectorThreads; index++) {
+            try {
+                loops[index] = new ProbeLoop(Selector.open());
+            } catch (IOException e) {
+                throw new IllegalStateException("open socket probe selector error: " + e.getMessage(), e);
+            }
+            selectorThreadFactory.build().newThread(loops[index]).start();
+        }
+    }
+
+    public static SocketProbeEngine getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Probe the tcp port without blocking the caller, the callback is called once in a thread of the engine
+     *
+     * @param address  peer address, resolved by the caller
+     * @param timeout  deadline of the whole exchange in milliseconds
+     * @param exchange protocol script of the probe
+     * @param callback receive the probe result
+     * @param <T>      exchange result
+     */
+    public <T> void tcp(InetSocketAddress address, int timeout, SocketExchange<T> exchange,
+                        Consumer<SocketProbeResult<T>> callback) {
+        submit(new Probe<>(false, address, timeout, exchange, callback));
+    }
+
+    /**
+     * Probe the udp port without blocking the caller, the callback is called once in a thread of the engine
+     *
+     * @param address  peer address, resolved by the caller
+     * @param timeout  deadline of the whole exchange in milliseconds
+     * @param exchange protocol script of the probe, it receives the answers datagram by datagram
+     * @param callback receive the probe result
+     * @param <T>      exchange result
+     */
+    public <T> void udp(InetSocketAddress address, int timeout, SocketExchange<T> exchange,
+                        Consumer<SocketProbeResult<T>> callback) {
+        submit(new Probe<>(true, address, timeout, exchange, callback));
+    }
+
+    private void submit(Probe<?> probe) {
+        if (probe.address.isUnresolved()) {
+            probe.start = System.nanoTime();
+            complete(probe, Outcome.ERROR, null, "Unknown host " + probe.address.getHostString());
+            return;
+        }
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].submit(probe);
+    }
+
+    private <T> void complete(Probe<T> probe, Outcome outcome, T value, String error) {
+        if (probe.done) {
+            return;
+        }
+        probe.done = true;
+        long now = System.nanoTime();
+        if (probe.channel != null) {
+            try {
+                probe.channel.close();
+            } catch (IOException e) {
+                log.debug("close probe channel error: {}.", e.getMessage());
+            }
+        }
+        long connectTime = probe.connected == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(probe.connected - probe.start);
+        SocketProbeResult<T> result = new SocketProbeResult<>(outcome, value, connectTime,
+                TimeUnit.NANOSECONDS.toMillis(now - probe.start), error);
+        callbackExecutor.execute(() -> {
+            try {
+                probe.callback.accept(result);
+            } catch (Exception e) {
+                log.error("socket probe callback error: {}.", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * a selector thread with the probes it multiplexes
+     */
+    private final class ProbeLoop implements Runnable {
+
+        private final Selector selector;
+
+        private final Queue<Probe<?>> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean selecting = new AtomicBoolean();
+
+        /**
+         * the probes in flight ordered by their deadline, only used by the selector thread
+         */
+        private final PriorityQueue<Probe<?>> deadlines = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        private ProbeLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        private void submit(Probe<?> probe) {
+            pending.offer(probe);
+            // one wakeup for all the probes submitted while the selector is waiting
+            if (selecting.compareAndSet(true, false)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    long waitTime = nextWaitTime();
+                    selecting.set(true);
+                    if (!pending.isEmpty() || waitTime < 0) {
+                        selector.selectNow();
+                    } else {
+                        selector.select(waitTime);
+                    }
+                    selecting.set(false);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle((Probe<?>) key.attachment(), key);
+                    }
+                    selector.selectedKeys().clear();
+                    Probe<?> probe;
+                    while ((probe = pending.poll()) != null) {
+                        open(probe);
+                    }
+                    expire();
+                } catch (Throwable e) {
+                    log.error("socket probe selector error: {}.", e.getMessage(), e);
+                }
+            }
+        }
+
+        private void open(Probe<?> probe) {
+            probe.start = System.nanoTime();
+            probe.deadline = probe.start + TimeUnit.MILLISECONDS.toNanos(probe.timeout);
+            try {
+                if (probe.udp) {
+                    DatagramChannel channel = DatagramChannel.open();
+                    probe.channel = channel;
+                    channel.configureBlocking(false);
+                    // a connected channel reports the port unreachable answer of the peer
+                    channel.connect(probe.address);
+                    probe.key = channel.register(selector, SelectionKey.OP_READ, probe);
+                    deadlines.offer(probe);
+                    connected(probe);
+                    return;
+                }
+                SocketChannel channel = SocketChannel.open();
+                probe.channel = channel;
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(probe.address);
+                probe.key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, probe);
+                deadlines.offer(probe);
+                if (connected) {
+                    connected(probe);
+                }
+            } catch (Exception e) {
+                fail(probe, e);
+            }
+        }
+
+        private void handle(Probe<?> probe, SelectionKey key) {
+            if (probe.done) {
+                return;
+            }
+            try {
+                if (key.isConnectable()) {
+                    ((SocketChannel) probe.channel).finishConnect();
+                    connected(probe);
+                    return;
+                }
+                if (key.isWritable()) {
+                    flush(probe);
+                }
+                if (key.isReadable()) {
+                    read(probe);
+                } else {
+                    updateInterest(probe);
+                }
+            } catch (Exception e) {
+                fail(probe, e);
+            }
+        }
+
+        private void connected(Probe<?> probe) throws IOException {
+            probe.connected = System.nanoTime();
+            send(probe, probe.exchange.onConnected());
+            if (probe.exchange.isComplete()) {
+                succeed(probe);
+                return;
+            }
+            updateInterest(probe);
+        }
+
+        private void read(Probe<?> probe) throws IOException {
+            readBuffer.clear();
+            int read = probe.udp ? ((DatagramChannel) probe.channel).read(readBuffer)
+                    : ((SocketChannel) probe.channel).read(readBuffer);
+            if (read < 0) {
+                // the peer closes the connection, the exchange decides whether its result is complete
+                succeed(probe);
+                return;
+            }
+            if (read > 0) {
+                readBuffer.flip();
+                send(probe, probe.exchange.onReceive(readBuffer));
+                if (probe.exchange.isComplete()) {
+                    succeed(probe);
+                    return;
+                }
+            }
+            updateInterest(probe);
+        }
+
+        private void send(Probe<?> probe, byte[] data) throws IOException {
+            if (data == null || data.length == 0) {
+                return;
+            }
+            if (probe.udp) {
+                ((DatagramChannel) probe.channel).write(ByteBuffer.wrap(data));
+                return;
+            }
+            if (probe.output == null) {
+                probe.output = ByteBuffer.wrap(data);
+            } else {
+                ByteBuffer output = ByteBuffer.allocate(probe.output.remaining() + data.length);
+                output.put(probe.output).put(data).flip();
+                probe.output = output;
+            }
+            flush(probe);
+        }
+
+        private void flush(Probe<?> probe) throws IOException {
+            if (probe.output == null) {
+                return;
+            }
+            ((SocketChannel) probe.channel).write(probe.output);
+            if (!probe.output.hasRemaining()) {
+                probe.output = null;
+            }
+        }
+
+        private void updateInterest(Probe<?> probe) {
+            probe.key.interestOps(probe.output == null ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private <T> void succeed(Probe<T> probe) {
+            T value;
+            try {
+                value = probe.exchange.onComplete();
+            } catch (Exception e) {
+                fail(probe, e);
+                return;
+            }
+            complete(probe, Outcome.SUCCESS, value, null);
+        }
+
+        private <T> void fail(Probe<T> probe, Exception e) {
+            Outcome outcome;
+            if (e instanceof ConnectException) {
+                outcome = Outcome.REFUSED;
+            } else if (e instanceof PortUnreachableException) {
+                outcome = Outcome.UNREACHABLE;
+            } else {
+                outcome = Outcome.ERROR;
+            }
+            complete(probe, outcome, null, CommonUtil.getMessageFromThrowable(e));
+        }
+
+        private void expire() {
+            long now = System.nanoTime();
+            while (!deadlines.isEmpty() && (deadlines.peek().done || deadlines.peek().deadline - now <= 0)) {
+                Probe<?> probe = deadlines.poll();
+                if (!probe.done) {
+                    complete(probe, Outcome.TIMEOUT, null, null);
+                }
+            }
+        }
+
+        /**
+         * @return the milliseconds to wait for the next deadline, 0 - no deadline, negative - a deadline is reached
+         */
+        private long nextWaitTime() {
+            while (!deadlines.isEmpty() && deadlines.peek().done) {
+                deadlines.poll();
+            }
+            if (deadlines.isEmpty()) {
+                return 0;
+            }
+            long waitNanos = deadlines.peek().deadline - System.nanoTime();
+            return waitNanos <= 0 ? -1 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+    /**
+     * a probe of a peer port
+     */
+    private static final class Probe<T> {
+
+        private final boolean udp;
+
+        private final InetSocketAddress address;
+
+        private final int timeout;
+
+        private final SocketExchange<T> exchange;
+
+        private final Consumer<SocketProbeResult<T>> callback;
+
+        private SelectableChannel channel;
+
+        private SelectionKey key;
+
+        /**
+         * bytes waiting for the tcp channel to be writable
+         */
+        private ByteBuffer output;
+
+        private long start;
+
+        private long connected;
+
+        private long deadline;
+
+        private boolean done;
+
+        private Probe(boolean udp, InetSocketAddress address, int timeout, SocketExchange<T> exchange,
+                      Consumer<SocketProbeResult<T>> callback) {
+            this.udp = udp;
+            this.address = address;
+            this.timeout = timeout;
+            this.exchange = exchange;
+            this.callback = callback;
+        }
+    }
+
+    private static class Holder {
+        private static final SocketProbeEngine INSTANCE = new SocketProbeEngine(SELECTOR_THREADS);
+    }
+}
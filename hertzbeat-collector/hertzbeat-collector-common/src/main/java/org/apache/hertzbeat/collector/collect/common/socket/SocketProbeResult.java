@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.collect.common.socket;
+
+/**
+ * result of a socket probe
+ *
+ * @param outcome      how the probe ends
+ * @param value        exchange result, only set when the outcome is SUCCESS
+ * @param connectTime  milliseconds to establish the connection, the udp socket is ready at once
+ * @param responseTime milliseconds from the probe start to its end
+ * @param error        the reason the probe fails, nullable
+ * @param <T>          exchange result
+ */
+public record SocketProbeResult<T>(Outcome outcome, T value, long connectTime, long responseTime, String error) {
+
+    /**
+     * @return true - the exchange completes
+     */
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+
+    /**
+     * how a probe ends
+     */
+    public enum Outcome {
+        /**
+         * the exchange completes
+         */
+        SUCCESS,
+        /**
+         * the peer refuses the tcp connection
+         */
+        REFUSED,
+        /**
+         * the peer answers the udp datagram with port unreachable
+         */
+        UNREACHABLE,
+        /**
+         * the deadline of the probe is reached
+         */
+        TIMEOUT,
+        /**
+         * io error or unexpected answer of the peer
+         */
+        ERROR
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency bulkhead of a collect protocol or a collect target host.
+ * The tasks over the concurrency limit wait in the bulkhead queue instead of occupying the workers,
+ * a finished task hands its permit over to the next waiting task.
+ * The tasks over the queue size are rejected.
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private final int maxConcurrency;
+
+    private final int maxQueueSize;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * the callers holding the bulkhead to admit their tasks, the bulkhead in use is not idle
+     */
+    private final AtomicInteger references = new AtomicInteger();
+
+    private final Queue<Runnable> waitingTasks = new ConcurrentLinkedQueue<>();
+
+    private volatile long lastActiveTime = System.currentTimeMillis();
+
+    private final LongAdder admittedCount = new LongAdder();
+
+    private final LongAdder queuedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrency, int maxQueueSize) {
+        this.name = name;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+    }
+
+    /**
+     * Acquire a permit without waiting
+     *
+     * @return true - acquired, false - the bulkhead is full
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = active.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                lastActiveTime = System.currentTimeMillis();
+                admittedCount.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Put the task into the waiting queue, it runs when a permit is handed over by a finished task
+     *
+     * @param task task waiting for a permit
+     * @return the task got a permit at once and should be run by the caller, null when the task is queued
+     * @throws BulkheadFullException when the waiting queue is full
+     */
+    public Runnable offer(Runnable task) throws BulkheadFullException {
+        if (queued.incrementAndGet() > maxQueueSize) {
+            queued.decrementAndGet();
+            rejectedCount.increment();
+            throw new BulkheadFullException(name);
+        }
+        waitingTasks.add(task);
+        queuedCount.increment();
+        // the permits may be all released between the failed acquire and the enqueue
+        return pollIfAcquired();
+    }
+
+    /**
+     * Release the permit of a finished task
+     *
+     * @return the next waiting task which the permit is handed over to, null when no task is waiting
+     */
+    public Runnable release() {
+        lastActiveTime = System.currentTimeMillis();
+        Runnable next = waitingTasks.poll();
+        if (next != null) {
+            queued.decrementAndGet();
+            admittedCount.increment();
+            return next;
+        }
+        active.decrementAndGet();
+        return pollIfAcquired();
+    }
+
+    private Runnable pollIfAcquired() {
+        if (waitingTasks.isEmpty() || !tryAcquire()) {
+            return null;
+        }
+        Runnable next = waitingTasks.poll();
+        if (next == null) {
+            active.decrementAndGet();
+            return null;
+        }
+        queued.decrementAndGet();
+        return next;
+    }
+
+    /**
+     * Hold the bulkhead until the task is admitted to it
+     */
+    void retain() {
+        references.incrementAndGet();
+    }
+
+    /**
+     * Let go of the bulkhead held by {@link #retain()}
+     */
+    void unretain() {
+        references.decrementAndGet();
+    }
+
+    /**
+     * @param time the time in milliseconds
+     * @return true - no task is running or waiting in the bulkhead since the time, and no caller holds it
+     */
+    public boolean isIdleSince(long time) {
+        return references.get() == 0 && active.get() == 0 && queued.get() == 0 && lastActiveTime < time;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{active: " + active.get() + "/" + maxConcurrency + ", queued: " + queued.get() + "/" + maxQueueSize
+                + ", admitted: " + admittedCount.sum() + ", total queued: " + queuedCount.sum()
+                + ", rejected: " + rejectedCount.sum() + "}";
+    }
+
+    /**
+     * The bulkhead and its waiting queue are full
+     */
+    public static class BulkheadFullException extends RejectedExecutionException {
+
+        public BulkheadFullException(String bulkhead) {
+            super("the collect tasks of bulkhead " + bulkhead + " reach the concurrency and queue limit");
+        }
+    }
+}
@@ -227,4 +227,9 @@ public interface DispatchConstants {
      * protocol modbus
      */
     String PROTOCOL_MODBUS = "modbus";
+
+    /**
+     * monitor param host, the target of the collect tasks
+     */
+    String PARAM_HOST = "host";
 }
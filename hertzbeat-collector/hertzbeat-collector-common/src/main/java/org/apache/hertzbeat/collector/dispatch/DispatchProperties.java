@@ -17,6 +17,10 @@
 
 package org.apache.hertzbeat.collector.dispatch;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.hertzbeat.common.constants.ConfigConstants;
 import org.apache.hertzbeat.common.constants.SignConstants;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -41,6 +45,21 @@ public class DispatchProperties {
      */
     private ExportProperties export;
 
+    /**
+     * Collect worker configuration properties
+     */
+    private WorkerProperties worker;
+
+    /**
+     * Collect task admission configuration properties
+     */
+    private AdmissionProperties admission;
+
+    /**
+     * Collect job timer configuration properties
+     */
+    private TimerProperties timer;
+
     public EntranceProperties getEntrance() {
         return entrance;
     }
@@ -57,6 +76,30 @@ public class DispatchProperties {
         this.export = export;
     }
 
+    public WorkerProperties getWorker() {
+        return worker;
+    }
+
+    public void setWorker(WorkerProperties worker) {
+        this.worker = worker;
+    }
+
+    public AdmissionProperties getAdmission() {
+        return admission;
+    }
+
+    public void setAdmission(AdmissionProperties admission) {
+        this.admission = admission;
+    }
+
+    public TimerProperties getTimer() {
+        return timer;
+    }
+
+    public void setTimer(TimerProperties timer) {
+        this.timer = timer;
+    }
+
     /**
      * Scheduling entry configuration properties
      * The entry can be netty information, http request, message middleware message request
@@ -109,6 +152,21 @@ public class DispatchProperties {
              * connect cluster master port
              */
             private int managerPort = 1158;
+
+            /**
+             * collect data batch config
+             */
+            private BatchProperties batch = new BatchProperties();
+
+            /**
+             * collect data spool config
+             */
+            private SpoolProperties spool = new SpoolProperties();
+
+            /**
+             * collect job snapshot config
+             */
+            private SnapshotProperties snapshot = new SnapshotProperties();
             
             public boolean isEnabled() {
                 return enabled;
@@ -149,6 +207,209 @@ public class DispatchProperties {
             public void setManagerPort(int managerPort) {
                 this.managerPort = managerPort;
             }
+
+            public BatchProperties getBatch() {
+                return batch;
+            }
+
+            public void setBatch(BatchProperties batch) {
+                this.batch = batch;
+            }
+
+            public SpoolProperties getSpool() {
+                return spool;
+            }
+
+            public void setSpool(SpoolProperties spool) {
+                this.spool = spool;
+            }
+
+            public SnapshotProperties getSnapshot() {
+                return snapshot;
+            }
+
+            public void setSnapshot(SnapshotProperties snapshot) {
+                this.snapshot = snapshot;
+            }
+        }
+
+        /**
+         * Collect data batch properties
+         * The collect data sent to the manager is packed into batches, one batch is sent as one message
+         */
+        public static class BatchProperties {
+
+            /**
+             * whether to batch the collect data, false is sending one message per collect data
+             */
+            private boolean enabled = true;
+
+            /**
+             * max collect data number of one batch
+             */
+            private int maxSize = 500;
+
+            /**
+             * max time(ms) the collect data waits in the batch
+             */
+            private long linger = 100L;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public long getLinger() {
+                return linger;
+            }
+
+            public void setLinger(long linger) {
+                this.linger = linger;
+            }
+        }
+
+        /**
+         * Collect data spool properties
+         * The collect data which can not be sent when the manager is disconnected is spooled to local files
+         * and replayed after reconnect
+         */
+        public static class SpoolProperties {
+
+            /**
+             * whether to spool the collect data when the manager is disconnected
+             */
+            private boolean enabled = true;
+
+            /**
+             * directory of the spool files
+             */
+            private String path = "data/spool";
+
+            /**
+             * max size(MB) of the spool files, the oldest data is evicted when it is full
+             */
+            private int maxSize = 512;
+
+            /**
+             * size(MB) of one spool file
+             */
+            private int segmentSize = 16;
+
+            /**
+             * max messages replayed per second after reconnect
+             */
+            private int replayRate = 200;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getSegmentSize() {
+                return segmentSize;
+            }
+
+            public void setSegmentSize(int segmentSize) {
+                this.segmentSize = segmentSize;
+            }
+
+            public int getReplayRate() {
+                return replayRate;
+            }
+
+            public void setReplayRate(int replayRate) {
+                this.replayRate = replayRate;
+            }
+        }
+
+        /**
+         * Collect job snapshot properties
+         * The cyclic jobs assigned to this collector are saved to a local snapshot, they are resumed at once after restart,
+         * the manager issues its jobs again after connected, the resumed ones not issued are removed after the reconcile timeout
+         */
+        public static class SnapshotProperties {
+
+            /**
+             * whether to save and resume the job snapshot
+             */
+            private boolean enabled = true;
+
+            /**
+             * the job snapshot file
+             */
+            private String path = "data/snapshot/collect-jobs.snapshot";
+
+            /**
+             * interval(s) to save the changed job snapshot
+             */
+            private long flushInterval = 10L;
+
+            /**
+             * time(s) to wait for the manager to issue the resumed jobs again after connected
+             */
+            private long reconcileTimeout = 300L;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getPath() {
+                return path;
+            }
+
+            public void setPath(String path) {
+                this.path = path;
+            }
+
+            public long getFlushInterval() {
+                return flushInterval;
+            }
+
+            public void setFlushInterval(long flushInterval) {
+                this.flushInterval = flushInterval;
+            }
+
+            public long getReconcileTimeout() {
+                return reconcileTimeout;
+            }
+
+            public void setReconcileTimeout(long reconcileTimeout) {
+                this.reconcileTimeout = reconcileTimeout;
+            }
         }
     }
 
@@ -218,4 +479,244 @@ public class DispatchProperties {
             }
         }
     }
+
+    /**
+     * Collect worker configuration properties
+     */
+    public static class WorkerProperties {
+
+        /**
+         * default max waiting collect tasks of each bulkhead
+         */
+        public static final int DEFAULT_BULKHEAD_QUEUE_SIZE = 1000;
+
+        /**
+         * worker thread mode
+         * platform: bounded platform thread pool
+         * virtual: one virtual thread per collect task, need jdk 21+, otherwise fallback to platform
+         */
+        private String mode = "platform";
+
+        /**
+         * max in-flight collect tasks when running in virtual mode
+         */
+        private int maxConcurrency = 10000;
+
+        /**
+         * max in-flight collect tasks of each protocol, eg: ssh: 200, jdbc: 500
+         * the protocol not configured here is only limited by the worker itself
+         */
+        private Map<String, Integer> protocolLimits = new HashMap<>(8);
+
+        /**
+         * max in-flight collect tasks of each target host, 0 means no limit
+         */
+        private int targetLimit = 0;
+
+        /**
+         * max collect tasks waiting in each protocol or target host bulkhead, the tasks over it are rejected
+         */
+        private int bulkheadQueueSize = DEFAULT_BULKHEAD_QUEUE_SIZE;
+
+        /**
+         * default timeout(ms) of a metrics collect task, from the task created to its response
+         */
+        private long collectTimeout = 240_000L;
+
+        /**
+         * timeout(ms) of the metrics collect task of each protocol, eg: icmp: 30000, ssh: 120000
+         */
+        private Map<String, Long> protocolTimeouts = new HashMap<>(8);
+
+        /**
+         * protocols whose same level metrics of a monitor are collected in one task sharing a session, eg: jdbc, snmp, ssh, jmx
+         */
+        private List<String> batchProtocols = new ArrayList<>(List.of("jdbc", "snmp", "ssh", "jmx"));
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public Map<String, Integer> getProtocolLimits() {
+            return protocolLimits;
+        }
+
+        public void setProtocolLimits(Map<String, Integer> protocolLimits) {
+            this.protocolLimits = protocolLimits;
+        }
+
+        public int getTargetLimit() {
+            return targetLimit;
+        }
+
+        public void setTargetLimit(int targetLimit) {
+            this.targetLimit = targetLimit;
+        }
+
+        public int getBulkheadQueueSize() {
+            return bulkheadQueueSize;
+        }
+
+        public void setBulkheadQueueSize(int bulkheadQueueSize) {
+            this.bulkheadQueueSize = bulkheadQueueSize;
+        }
+
+        public long getCollectTimeout() {
+            return collectTimeout;
+        }
+
+        public void setCollectTimeout(long collectTimeout) {
+            this.collectTimeout = collectTimeout;
+        }
+
+        public Map<String, Long> getProtocolTimeouts() {
+            return protocolTimeouts;
+        }
+
+        public void setProtocolTimeouts(Map<String, Long> protocolTimeouts) {
+            this.protocolTimeouts = protocolTimeouts;
+        }
+
+        public List<String> getBatchProtocols() {
+            return batchProtocols;
+        }
+
+        public void setBatchProtocols(List<String> batchProtocols) {
+            this.batchProtocols = batchProtocols;
+        }
+    }
+
+    /**
+     * Collect task admission configuration properties
+     * The admission stage bounds the pending collect tasks queue, the policy decides what to do when it is full
+     */
+    public static class AdmissionProperties {
+
+        /**
+         * policy block: the producer waits for free space until the block timeout, then the new task is dropped,
+         * the collect pipeline threads (time wheel, collect workers and async callbacks) are never blocked
+         * and shed the lowest priority task instead
+         */
+        public static final String POLICY_BLOCK = "block";
+
+        /**
+         * policy shed: drop the lowest priority task, the newest queued one of a lower lane or the new one
+         */
+        public static final String POLICY_SHED = "shed";
+
+        /**
+         * policy delay: drop the new task, its job will be collected in next cycle
+         */
+        public static final String POLICY_DELAY = "delay";
+
+        /**
+         * max pending collect tasks
+         */
+        private int capacity = 100000;
+
+        /**
+         * full queue policy: block, shed, delay
+         */
+        private String policy = POLICY_BLOCK;
+
+        /**
+         * max wait time(ms) of the block policy
+         */
+        private long blockTimeout = 1000L;
+
+        /**
+         * the pending task waiting longer than the aging threshold(ms) is promoted to run first
+         */
+        private long agingThreshold = 5000L;
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public long getBlockTimeout() {
+            return blockTimeout;
+        }
+
+        public void setBlockTimeout(long blockTimeout) {
+            this.blockTimeout = blockTimeout;
+        }
+
+        public long getAgingThreshold() {
+            return agingThreshold;
+        }
+
+        public void setAgingThreshold(long agingThreshold) {
+            this.agingThreshold = agingThreshold;
+        }
+    }
+
+    /**
+     * Collect job timer configuration properties
+     */
+    public static class TimerProperties {
+
+        /**
+         * time wheel tick duration(ms), the precision of the job schedule
+         */
+        private long tickDuration = 100L;
+
+        /**
+         * time wheel ticks number of one round
+         */
+        private int ticksPerWheel = 512;
+
+        /**
+         * whether to spread the jobs of the same interval to a stable offset within the interval by the job id
+         * instead of firing all of them at the same tick
+         */
+        private boolean spread = true;
+
+        public long getTickDuration() {
+            return tickDuration;
+        }
+
+        public void setTickDuration(long tickDuration) {
+            this.tickDuration = tickDuration;
+        }
+
+        public int getTicksPerWheel() {
+            return ticksPerWheel;
+        }
+
+        public void setTicksPerWheel(int ticksPerWheel) {
+            this.ticksPerWheel = ticksPerWheel;
+        }
+
+        public boolean isSpread() {
+            return spread;
+        }
+
+        public void setSpread(boolean spread) {
+            this.spread = spread;
+        }
+    }
 }
@@ -20,13 +20,31 @@ package org.apache.hertzbeat.collector.dispatch;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Collection task worker thread pool
@@ -35,19 +53,120 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class WorkerPool implements DisposableBean {
 
-    private ThreadPoolExecutor workerExecutor;
+    /**
+     * worker mode: one virtual thread per collect task
+     */
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private ExecutorService workerExecutor;
+
+    /**
+     * whether the worker executor is running on virtual threads
+     */
+    private boolean virtualThreads;
+
+    /**
+     * in-flight collect task limiter, only used in virtual mode, platform mode is limited by the pool size
+     */
+    private Semaphore inFlightLimiter;
+
+    /**
+     * protocol - bulkhead of the collect tasks
+     */
+    private final Map<String, Bulkhead> protocolBulkheads = new ConcurrentHashMap<>(8);
+
+    /**
+     * target host - bulkhead of the collect tasks, created when the host is collected at the first time
+     */
+    private final Map<String, Bulkhead> targetBulkheads = new ConcurrentHashMap<>(64);
+
+    /**
+     * the bulkhead of a target host is removed when no task runs or waits in it for this time
+     */
+    private static final long TARGET_BULKHEAD_IDLE_MILLIS = 10 * 60 * 1000L;
+
+    private final AtomicLong lastTargetBulkheadSweepTime = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * the tasks which got their bulkhead permits after waiting, but the workers were full then,
+     * they hold the permits and run when a worker is released
+     */
+    private final Queue<BulkheadTask> capacityWaitingTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * the tasks resumed by the current thread, so a chain of handed over permits runs in a loop instead of recursion
+     */
+    private final ThreadLocal<Deque<Runnable>> resumingTasks = new ThreadLocal<>();
+
+    /**
+     * the collect tasks submitted to the worker executor and not finished
+     */
+    private final AtomicInteger runningTasks = new AtomicInteger();
+
+    /**
+     * max in-flight collect tasks of each target host, 0 means no limit
+     */
+    private int targetLimit;
+
+    /**
+     * max waiting collect tasks of each bulkhead
+     */
+    private int bulkheadQueueSize = DispatchProperties.WorkerProperties.DEFAULT_BULKHEAD_QUEUE_SIZE;
+
+    /**
+     * handle the task rejected after waiting in a bulkhead, the caller has returned then
+     */
+    private volatile BiConsumer<Runnable, RejectedExecutionException> rejectedHandler;
+
+    /**
+     * signal the threads waiting for a free worker
+     */
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityReleased = capacityLock.newCondition();
+    private final AtomicInteger capacityWaiters = new AtomicInteger();
 
     public WorkerPool() {
-        initWorkExecutor();
+        this(null);
+    }
+
+    @Autowired
+    public WorkerPool(DispatchProperties dispatchProperties) {
+        DispatchProperties.WorkerProperties workerProperties = Optional.ofNullable(dispatchProperties)
+                .map(DispatchProperties::getWorker)
+                .orElseGet(DispatchProperties.WorkerProperties::new);
+        initWorkExecutor(workerProperties);
+        this.targetLimit = Math.max(0, workerProperties.getTargetLimit());
+        this.bulkheadQueueSize = Math.max(0, workerProperties.getBulkheadQueueSize());
+        if (workerProperties.getProtocolLimits() != null) {
+            workerProperties.getProtocolLimits().forEach((protocol, limit) -> {
+                if (protocol != null && limit != null && limit > 0) {
+                    String name = protocol.toLowerCase();
+                    protocolBulkheads.put(name, new Bulkhead(name, limit, bulkheadQueueSize));
+                }
+            });
+        }
     }
 
-    private void initWorkExecutor() {
+    private void initWorkExecutor(DispatchProperties.WorkerProperties workerProperties) {
+        Thread.UncaughtExceptionHandler exceptionHandler = (thread, throwable) -> {
+            log.error("[Important] WorkerPool workerExecutor has uncaughtException.", throwable);
+            log.error("Thread Name {} : {}", thread.getName(), throwable.getMessage(), throwable);
+        };
+        if (MODE_VIRTUAL.equalsIgnoreCase(workerProperties.getMode())) {
+            workerExecutor = createVirtualThreadExecutor(exceptionHandler);
+            if (workerExecutor != null) {
+                virtualThreads = true;
+                inFlightLimiter = new Semaphore(Math.max(1, workerProperties.getMaxConcurrency()));
+                log.info("[WorkerPool] collect worker run in virtual thread mode, max concurrency {}.",
+                        workerProperties.getMaxConcurrency());
+                return;
+            }
+            log.warn("[WorkerPool] virtual thread is not supported by current jdk {}, fallback to platform thread pool.",
+                    Runtime.version());
+        }
         // thread factory
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setUncaughtExceptionHandler((thread, throwable) -> {
-                    log.error("[Important] WorkerPool workerExecutor has uncaughtException.", throwable);
-                    log.error("Thread Name {} : {}", thread.getName(), throwable.getMessage(), throwable);
-                })
+                .setUncaughtExceptionHandler(exceptionHandler)
                 .setDaemon(true)
                 .setNameFormat("collect-worker-%d")
                 .build();
@@ -62,6 +181,27 @@ public class WorkerPool implements DisposableBean {
                 new ThreadPoolExecutor.AbortPolicy());
     }
 
+    /**
+     * Virtual threads are available since jdk 21, look them up by reflection to stay compatible with jdk 17
+     *
+     * @param exceptionHandler uncaught exception handler
+     * @return virtual thread per task executor, null when not supported
+     */
+    private ExecutorService createVirtualThreadExecutor(Thread.UncaughtExceptionHandler exceptionHandler) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "collect-virtual-worker-", 0L);
+            builder = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+                    .invoke(builder, exceptionHandler);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method executorMethod = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) executorMethod.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
     /**
      * Run the collection task thread
      *
@@ -69,7 +209,206 @@ public class WorkerPool implements DisposableBean {
      * @throws RejectedExecutionException when thread pool full 
      */
     public void executeJob(Runnable runnable) throws RejectedExecutionException {
-        workerExecutor.execute(runnable);
+        execute(runnable, null);
+    }
+
+    /**
+     * Run the collection task thread under the concurrency limit of its protocol
+     *
+     * @param protocol collect protocol
+     * @param runnable Task
+     * @throws RejectedExecutionException when thread pool full or the protocol bulkhead is full
+     */
+    public void executeJob(String protocol, Runnable runnable) throws RejectedExecutionException {
+        executeJob(protocol, null, runnable);
+    }
+
+    /**
+     * Run the collection task thread under the concurrency limits of its protocol and its target host.
+     * The task over the limits waits in the bulkhead and runs when a task of the same bulkhead finished,
+     * if it is rejected then, it is handed over to the {@link #setRejectedHandler rejected handler}.
+     *
+     * @param protocol collect protocol
+     * @param target   collect target host
+     * @param runnable Task
+     * @throws RejectedExecutionException when thread pool full
+     * @throws Bulkhead.BulkheadFullException when the bulkhead of the protocol or the target is full
+     */
+    public void executeJob(String protocol, String target, Runnable runnable) throws RejectedExecutionException {
+        Bulkhead protocolBulkhead = protocol == null ? null : protocolBulkheads.get(protocol.toLowerCase());
+        Bulkhead targetBulkhead = null;
+        if (targetLimit > 0 && target != null && !target.isEmpty()) {
+            evictIdleTargetBulkheads(TARGET_BULKHEAD_IDLE_MILLIS);
+            // the bulkhead is held until the task is admitted, so it is not evicted in between
+            // and the tasks of a host never pass two bulkheads
+            targetBulkhead = targetBulkheads.compute(target, (key, bulkhead) -> {
+                Bulkhead current = bulkhead == null ? new Bulkhead(key, targetLimit, bulkheadQueueSize) : bulkhead;
+                current.retain();
+                return current;
+            });
+        }
+        if (protocolBulkhead == null && targetBulkhead == null) {
+            executeJob(runnable);
+            return;
+        }
+        try {
+            new BulkheadTask(runnable, targetBulkhead, protocolBulkhead).admit();
+        } finally {
+            if (targetBulkhead != null) {
+                targetBulkhead.unretain();
+            }
+        }
+    }
+
+    /**
+     * Remove the bulkheads of the target hosts which are idle for the time, at most once in half of the time
+     *
+     * @param idleMillis idle time in milliseconds
+     */
+    void evictIdleTargetBulkheads(long idleMillis) {
+        long now = System.currentTimeMillis();
+        long lastSweepTime = lastTargetBulkheadSweepTime.get();
+        if (now - lastSweepTime < idleMillis / 2 || !lastTargetBulkheadSweepTime.compareAndSet(lastSweepTime, now)) {
+            return;
+        }
+        // checked and removed atomically with the lookup of the same host
+        for (String target : targetBulkheads.keySet()) {
+            targetBulkheads.computeIfPresent(target, (key, bulkhead) -> bulkhead.isIdleSince(now - idleMillis) ? null : bulkhead);
+        }
+    }
+
+    /**
+     * Run the resumed task, the tasks resumed while it is running are run after it by the same loop
+     *
+     * @param task the task got a handed over permit or a free worker
+     */
+    private void resume(Runnable task) {
+        Deque<Runnable> resuming = resumingTasks.get();
+        if (resuming != null) {
+            resuming.addLast(task);
+            return;
+        }
+        resuming = new ArrayDeque<>();
+        resumingTasks.set(resuming);
+        try {
+            Runnable next = task;
+            while (next != null) {
+                try {
+                    next.run();
+                } catch (Exception e) {
+                    log.error("[WorkerPool] resume the waiting collect task error: {}.", e.getMessage(), e);
+                }
+                next = resuming.pollFirst();
+            }
+        } finally {
+            resumingTasks.remove();
+        }
+    }
+
+    private void execute(Runnable runnable, Runnable onFinished) throws RejectedExecutionException {
+        if (virtualThreads && !inFlightLimiter.tryAcquire()) {
+            throw new RejectedExecutionException("the worker in-flight collect tasks reach the max concurrency");
+        }
+        runningTasks.incrementAndGet();
+        try {
+            workerExecutor.execute(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    if (virtualThreads) {
+                        inFlightLimiter.release();
+                    }
+                    runningTasks.decrementAndGet();
+                    if (onFinished != null) {
+                        onFinished.run();
+                    }
+                    signalCapacity();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningTasks.decrementAndGet();
+            if (virtualThreads) {
+                inFlightLimiter.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Set the handler of the task rejected after waiting in a bulkhead
+     *
+     * @param rejectedHandler task - reject reason handler
+     */
+    public void setRejectedHandler(BiConsumer<Runnable, RejectedExecutionException> rejectedHandler) {
+        this.rejectedHandler = rejectedHandler;
+    }
+
+    /**
+     * @return the bulkheads of the protocols
+     */
+    public Collection<Bulkhead> getProtocolBulkheads() {
+        return protocolBulkheads.values();
+    }
+
+    /**
+     * @return the bulkheads of the target hosts
+     */
+    public Collection<Bulkhead> getTargetBulkheads() {
+        return targetBulkheads.values();
+    }
+
+    /**
+     * Wait until a running task finished and released its worker, or the timeout elapsed
+     *
+     * @param timeout max wait time
+     * @param unit    time unit
+     * @return true - a worker has been released, false - timeout
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public boolean awaitCapacity(long timeout, TimeUnit unit) throws InterruptedException {
+        capacityLock.lock();
+        try {
+            capacityWaiters.incrementAndGet();
+            return capacityReleased.await(timeout, unit);
+        } finally {
+            capacityWaiters.decrementAndGet();
+            capacityLock.unlock();
+        }
+    }
+
+    private void signalCapacity() {
+        if (!capacityWaitingTasks.isEmpty()) {
+            resume(this::resumeCapacityWaitingTasks);
+        }
+        if (capacityWaiters.get() == 0) {
+            return;
+        }
+        capacityLock.lock();
+        try {
+            capacityReleased.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    private void resumeCapacityWaitingTasks() {
+        BulkheadTask task;
+        while ((task = capacityWaitingTasks.poll()) != null) {
+            if (!task.executeWithPermits()) {
+                // still no free worker, wait for the next released one
+                capacityWaitingTasks.offer(task);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether the collection tasks run on virtual threads
+     *
+     * @return true - virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
     }
 
     @Override
@@ -78,4 +417,127 @@ public class WorkerPool implements DisposableBean {
             workerExecutor.shutdownNow();
         }
     }
+
+    /**
+     * A collect task passing the bulkheads, the target host bulkhead first, then the protocol bulkhead, then the worker.
+     * The task waiting in a bulkhead is resumed by the finished task which hands over its permit.
+     */
+    private final class BulkheadTask implements Runnable {
+
+        private static final int STAGE_TARGET = 0;
+        private static final int STAGE_PROTOCOL = 1;
+        private static final int STAGE_WORKER = 2;
+
+        private final Runnable task;
+        private final Bulkhead targetBulkhead;
+        private final Bulkhead protocolBulkhead;
+        private int stage = STAGE_TARGET;
+        private boolean waited;
+
+        private BulkheadTask(Runnable task, Bulkhead targetBulkhead, Bulkhead protocolBulkhead) {
+            this.task = task;
+            this.targetBulkhead = targetBulkhead;
+            this.protocolBulkhead = protocolBulkhead;
+        }
+
+        /**
+         * Resumed with a permit handed over by a finished task
+         */
+        @Override
+        public void run() {
+            try {
+                admit();
+            } catch (RejectedExecutionException e) {
+                BiConsumer<Runnable, RejectedExecutionException> handler = rejectedHandler;
+                if (handler != null) {
+                    handler.accept(task, e);
+                } else {
+                    log.warn("[WorkerPool] collect task is rejected after waiting in bulkhead: {}.", e.getMessage());
+                }
+            }
+        }
+
+        private void admit() throws RejectedExecutionException {
+            if (stage == STAGE_TARGET) {
+                stage = STAGE_PROTOCOL;
+                if (!pass(targetBulkhead)) {
+                    return;
+                }
+            }
+            if (stage == STAGE_PROTOCOL) {
+                stage = STAGE_WORKER;
+                try {
+                    if (!pass(protocolBulkhead)) {
+                        return;
+                    }
+                } catch (RejectedExecutionException e) {
+                    release(targetBulkhead);
+                    throw e;
+                }
+            }
+            if (!waited) {
+                try {
+                    execute(task, this::releasePermits);
+                } catch (RejectedExecutionException e) {
+                    releasePermits();
+                    throw e;
+                }
+                return;
+            }
+            // the task keeps its permits and waits for a free worker instead of being rejected,
+            // so the waiting tasks of the bulkhead are not drained by rejections when the workers are full
+            if (!executeWithPermits()) {
+                capacityWaitingTasks.offer(this);
+                if (runningTasks.get() == 0) {
+                    // the last running task may have finished before the task was queued
+                    resume(WorkerPool.this::resumeCapacityWaitingTasks);
+                }
+            }
+        }
+
+        /**
+         * @return true - the task is run by a worker, false - the workers are full
+         */
+        private boolean executeWithPermits() {
+            try {
+                execute(task, this::releasePermits);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        private void releasePermits() {
+            release(protocolBulkhead);
+            release(targetBulkhead);
+        }
+
+        /**
+         * @return true - got the permit and go on, false - waiting in the bulkhead
+         */
+        private boolean pass(Bulkhead bulkhead) throws RejectedExecutionException {
+            if (bulkhead == null || bulkhead.tryAcquire()) {
+                return true;
+            }
+            waited = true;
+            Runnable acquired = bulkhead.offer(this);
+            if (acquired == this) {
+                return true;
+            }
+            if (acquired != null) {
+                resume(acquired);
+            }
+            return false;
+        }
+
+        private void release(Bulkhead bulkhead) {
+            if (bulkhead == null) {
+                return;
+            }
+            Runnable next = bulkhead.release();
+            if (next != null) {
+                resume(next);
+            }
+        }
+    }
 }
@@ -112,6 +112,13 @@ public class CollectServer implements CommandLineRunner {
         this.remotingClient.shutdown();
     }
 
+    /**
+     * @return whether the channel to the manager is active
+     */
+    public boolean isConnected() {
+        return this.remotingClient.isStart();
+    }
+
     public CollectJobService getCollectJobService() {
         return collectJobService;
     }
@@ -122,6 +129,8 @@ public class CollectServer implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
+        // resume the jobs of the last run at once, do not wait for the manager
+        this.collectJobService.restoreSnapshotJobs();
         this.remotingClient.start();
     }
 
@@ -141,7 +150,7 @@ public class CollectServer implements CommandLineRunner {
                     .version(infoProperties.getVersion())
                     // todo more info
                     .build();
-            timerDispatch.goOnline();
+            CollectServer.this.collectJobService.goOnline();
             // send online message
             ClusterMsg.Message message = ClusterMsg.Message.newBuilder()
                     .setIdentity(identity)
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.common.entity.message.CollectRep;
+
+/**
+ * Pack the collect data sent to the manager into batches, one batch is serialized and sent as one message.
+ * A batch is sent when it reaches the max size, or by the timer when its oldest data has waited for the linger time.
+ */
+@Slf4j
+public class CollectDataBatcher {
+
+    /**
+     * upper bounds of the batch size buckets, the last bucket holds the sizes greater than the last bound
+     */
+    private static final int[] BUCKET_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    private final String name;
+
+    private final int maxSize;
+
+    private final Consumer<List<CollectRep.MetricsData>> sender;
+
+    private final Object lock = new Object();
+
+    private List<CollectRep.MetricsData> buffer;
+
+    private long bufferStartTime;
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder dataCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder totalLatency = new LongAdder();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    private final LongAdder[] sizeBuckets;
+
+    /**
+     * @param name         batcher name
+     * @param maxSize      max collect data number of one batch
+     * @param lingerMillis max time(ms) the collect data waits in the batch
+     * @param sender       send the batch
+     * @param scheduler    scheduler of the linger timer
+     */
+    public CollectDataBatcher(String name, int maxSize, long lingerMillis,
+                              Consumer<List<CollectRep.MetricsData>> sender, ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.maxSize = Math.max(1, maxSize);
+        this.sender = sender;
+        this.buffer = new ArrayList<>(this.maxSize);
+        this.sizeBuckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        for (int index = 0; index < sizeBuckets.length; index++) {
+            sizeBuckets[index] = new LongAdder();
+        }
+        long period = Math.max(1L, lingerMillis);
+        scheduler.scheduleAtFixedRate(this::flushSafely, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Add the collect data into the batch, send the batch at once when it is full
+     *
+     * @param metricsData collect data
+     */
+    public void add(CollectRep.MetricsData metricsData) {
+        List<CollectRep.MetricsData> batch = null;
+        long startTime;
+        synchronized (lock) {
+            if (buffer.isEmpty()) {
+                bufferStartTime = System.currentTimeMillis();
+            }
+            buffer.add(metricsData);
+            startTime = bufferStartTime;
+            if (buffer.size() >= maxSize) {
+                batch = buffer;
+                buffer = new ArrayList<>(maxSize);
+            }
+        }
+        if (batch != null) {
+            send(batch, startTime);
+        }
+    }
+
+    /**
+     * Send the collect data in the batch now
+     */
+    public void flush() {
+        List<CollectRep.MetricsData> batch;
+        long startTime;
+        synchronized (lock) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            batch = buffer;
+            startTime = bufferStartTime;
+            buffer = new ArrayList<>(maxSize);
+        }
+        send(batch, startTime);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[{}] flush collect data error: {}.", name, e.getMessage(), e);
+        }
+    }
+
+    private void send(List<CollectRep.MetricsData> batch, long startTime) {
+        try {
+            sender.accept(batch);
+        } catch (Exception e) {
+            failedCount.add(batch.size());
+            log.error("[{}] send {} collect data error: {}.", name, batch.size(), e.getMessage(), e);
+            return;
+        }
+        long latency = System.currentTimeMillis() - startTime;
+        batchCount.increment();
+        dataCount.add(batch.size());
+        totalLatency.add(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        int index = 0;
+        while (index < BUCKET_BOUNDS.length && batch.size() > BUCKET_BOUNDS[index]) {
+            index++;
+        }
+        sizeBuckets[index].increment();
+    }
+
+    /**
+     * @return sent batches number
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return sent collect data number
+     */
+    public long getDataCount() {
+        return dataCount.sum();
+    }
+
+    /**
+     * @return collect data number failed to send
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * @return the max latency(ms) from the collect data added to its batch sent
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * @return the max collect data number of one sent batch
+     */
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    @Override
+    public String toString() {
+        long batches = batchCount.sum();
+        StringBuilder builder = new StringBuilder(name).append(" batches: ").append(batches)
+                .append(", data: ").append(dataCount.sum())
+                .append(", failed: ").append(failedCount.sum())
+                .append(", avg size: ").append(batches == 0 ? 0 : dataCount.sum() / batches)
+                .append(", max size: ").append(maxBatchSize.get())
+                .append(", avg latency: ").append(batches == 0 ? 0 : totalLatency.sum() / batches).append("ms")
+                .append(", max latency: ").append(maxLatency.get()).append("ms, sizes: {");
+        boolean first = true;
+        for (int index = 0; index < sizeBuckets.length; index++) {
+            long count = sizeBuckets[index].sum();
+            if (count == 0) {
+                continue;
+            }
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(index < BUCKET_BOUNDS.length ? "<=" + BUCKET_BOUNDS[index] : ">" + BUCKET_BOUNDS[index - 1])
+                    .append(": ").append(count);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store-and-forward spool of the collect data messages which can not be sent to the manager,
+ * eg: the manager is restarting. The messages are appended to memory-mapped segment files and replayed after reconnect.
+ * The segment file layout: [int read position][int record length][record bytes][int record length][record bytes]...
+ * When the spool reaches the max size, the oldest segment is evicted.
+ */
+@Slf4j
+public class CollectDataSpool {
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+
+    private static final int HEADER_SIZE = 4;
+
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+
+    private final LongAdder appendedCount = new LongAdder();
+
+    private final LongAdder replayedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder evictedBytes = new LongAdder();
+
+    /**
+     * @param directory   directory of the segment files
+     * @param maxSize     max bytes of all the segment files
+     * @param segmentSize bytes of one segment file
+     * @throws IOException when the directory or the segment files can not be opened
+     */
+    public CollectDataSpool(Path directory, long maxSize, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, HEADER_SIZE + RECORD_HEADER_SIZE + 1);
+        this.maxSegments = (int) Math.max(2, maxSize / this.segmentSize);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append the message at the tail, evict the oldest segment when the spool is full
+     *
+     * @param data encoded message
+     * @return false when the message is larger than a segment and dropped
+     */
+    public synchronized boolean append(byte[] data) {
+        int recordSize = RECORD_HEADER_SIZE + data.length;
+        if (HEADER_SIZE + recordSize > segmentSize) {
+            droppedCount.increment();
+            log.warn("collect data message size {} is larger than the spool segment, drop it.", data.length);
+            return false;
+        }
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + recordSize > segmentSize) {
+            try {
+                tail = newSegment();
+            } catch (IOException e) {
+                droppedCount.increment();
+                log.error("create spool segment error: {}.", e.getMessage(), e);
+                return false;
+            }
+        }
+        tail.buffer.put(tail.writePosition + RECORD_HEADER_SIZE, data);
+        // the length is written last, the segment file is zero filled and a zero length ends the records
+        tail.buffer.putInt(tail.writePosition, data.length);
+        tail.writePosition += recordSize;
+        appendedCount.increment();
+        return true;
+    }
+
+    /**
+     * Replay the messages from the oldest one, a message is removed from the spool only when it is sent
+     *
+     * @param sender     send the message, return false when it is not sent
+     * @param maxRecords max messages to replay
+     * @return replayed messages number
+     */
+    public int replay(Predicate<byte[]> sender, int maxRecords) {
+        int replayed = 0;
+        while (replayed < maxRecords) {
+            Segment segment;
+            byte[] data;
+            synchronized (this) {
+                segment = readableSegment();
+                if (segment == null) {
+                    break;
+                }
+                int length = segment.buffer.getInt(segment.readPosition);
+                data = new byte[length];
+                segment.buffer.get(segment.readPosition + RECORD_HEADER_SIZE, data);
+            }
+            if (!sender.test(data)) {
+                break;
+            }
+            synchronized (this) {
+                // the segment may be evicted while sending
+                if (segments.peekFirst() == segment) {
+                    segment.readPosition += RECORD_HEADER_SIZE + data.length;
+                    segment.buffer.putInt(0, segment.readPosition);
+                }
+            }
+            replayedCount.increment();
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * @return whether there is no message to replay
+     */
+    public synchronized boolean isEmpty() {
+        return readableSegment() == null;
+    }
+
+    /**
+     * @return bytes of the messages to replay
+     */
+    public synchronized long getPendingBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.writePosition - segment.readPosition;
+        }
+        return bytes;
+    }
+
+    public long getAppendedCount() {
+        return appendedCount.sum();
+    }
+
+    public long getReplayedCount() {
+        return replayedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "spool pending bytes: " + getPendingBytes() + ", appended: " + appendedCount.sum()
+                + ", replayed: " + replayedCount.sum() + ", dropped: " + droppedCount.sum()
+                + ", evicted bytes: " + evictedBytes.sum();
+    }
+
+    /**
+     * the oldest segment which has a message to read, the fully read segments before it are deleted
+     */
+    private Segment readableSegment() {
+        while (!segments.isEmpty()) {
+            Segment head = segments.peekFirst();
+            if (head.readPosition < head.writePosition) {
+                return head;
+            }
+            if (segments.size() == 1) {
+                return null;
+            }
+            deleteSegment(segments.pollFirst());
+        }
+        return null;
+    }
+
+    private Segment newSegment() throws IOException {
+        if (segments.size() >= maxSegments) {
+            Segment oldest = segments.pollFirst();
+            evictedBytes.add(oldest.writePosition - oldest.readPosition);
+            log.warn("collect data spool is full, evict the oldest segment {}.", oldest.path.getFileName());
+            deleteSegment(oldest);
+        }
+        Path path = directory.resolve(String.format("%019d%s", nextSequence++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, map(path));
+        segment.buffer.putInt(0, HEADER_SIZE);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void deleteSegment(Segment segment) {
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("delete spool segment {} error: {}.", segment.path, e.getMessage());
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * load the segment files left by the last run, the write position is found by scanning the records
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            long sequence;
+            try {
+                sequence = Long.parseLong(path.getFileName().toString().replace(SEGMENT_SUFFIX, ""));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (Files.size(path) != segmentSize) {
+                log.warn("spool segment {} size not match, ignore it.", path.getFileName());
+                continue;
+            }
+            Segment segment = new Segment(path, map(path));
+            int position = HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= segmentSize) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER_SIZE + length > segmentSize) {
+                    break;
+                }
+                position += RECORD_HEADER_SIZE + length;
+            }
+            segment.writePosition = position;
+            int readPosition = segment.buffer.getInt(0);
+            segment.readPosition = readPosition < HEADER_SIZE || readPosition > position ? HEADER_SIZE : readPosition;
+            segments.addLast(segment);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        if (!segments.isEmpty()) {
+            log.info("recover collect data spool, {}.", this);
+        }
+    }
+
+    /**
+     * a memory-mapped segment file
+     */
+    private static final class Segment {
+
+        private final Path path;
+
+        private final MappedByteBuffer buffer;
+
+        private int readPosition = HEADER_SIZE;
+
+        private int writePosition = HEADER_SIZE;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -17,7 +17,9 @@
 
 package org.apache.hertzbeat.collector.dispatch.entrance.internal;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hertzbeat.collector.dispatch.DispatchProperties;
 import org.apache.hertzbeat.collector.dispatch.WorkerPool;
@@ -29,13 +31,22 @@ import org.apache.hertzbeat.common.entity.message.ClusterMsg;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.apache.hertzbeat.common.util.ArrowUtil;
 import org.apache.hertzbeat.common.util.IpDomainUtil;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -43,10 +54,16 @@ import java.util.concurrent.TimeUnit;
  */
 @Service
 @Slf4j
-public class CollectJobService {
+public class CollectJobService implements DisposableBean {
 
     private static final String COLLECTOR_STR = "-collector";
 
+    private static final long STATISTICS_INTERVAL = 60L;
+
+    private static final long SPOOL_REPLAY_SLICE = 100L;
+
+    private static final long MB = 1024L * 1024L;
+
     private final TimerDispatch timerDispatch;
 
     private final WorkerPool workerPool;
@@ -57,6 +74,34 @@ public class CollectJobService {
 
     private CollectServer collectServer;
 
+    private ScheduledExecutorService batchScheduler;
+
+    private CollectDataBatcher cyclicDataBatcher;
+
+    private CollectDataBatcher serviceDiscoveryDataBatcher;
+
+    private ScheduledExecutorService spoolScheduler;
+
+    private CollectDataSpool collectDataSpool;
+
+    private ScheduledExecutorService snapshotScheduler;
+
+    private CollectJobSnapshot jobSnapshot;
+
+    private long reconcileTimeout;
+
+    private ScheduledFuture<?> reconcileFuture;
+
+    /**
+     * the jobs resumed from the snapshot and not issued by the manager again, jobId - monitorId
+     */
+    private final Map<Long, Long> unconfirmedJobs = new ConcurrentHashMap<>(64);
+
+    /**
+     * monitorId - jobId of the unconfirmed jobs
+     */
+    private final Map<Long, Long> unconfirmedMonitors = new ConcurrentHashMap<>(64);
+
     public CollectJobService(TimerDispatch timerDispatch, DispatchProperties properties, WorkerPool workerPool) {
         this.timerDispatch = timerDispatch;
         this.workerPool = workerPool;
@@ -79,6 +124,208 @@ public class CollectJobService {
             collectorIdentity = IpDomainUtil.getCurrentHostName() + COLLECTOR_STR;
             log.info("user not config this collector identity, use [host name - host ip] default: {}.", collectorIdentity);
         }
+        initBatchers(nettyProperties.getBatch());
+        initSpool(nettyProperties.getSpool());
+        initSnapshot(nettyProperties.getSnapshot());
+    }
+
+    private void initSnapshot(DispatchProperties.EntranceProperties.SnapshotProperties snapshotProperties) {
+        if (snapshotProperties == null || !snapshotProperties.isEnabled()) {
+            return;
+        }
+        jobSnapshot = new CollectJobSnapshot(Paths.get(snapshotProperties.getPath()));
+        try {
+            jobSnapshot.load();
+        } catch (Exception e) {
+            log.error("load job snapshot {} error, wait for the manager to issue the jobs: {}.",
+                    snapshotProperties.getPath(), e.getMessage(), e);
+        }
+        reconcileTimeout = Math.max(1L, snapshotProperties.getReconcileTimeout());
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("collect-job-snapshot-%d")
+                .setDaemon(true)
+                .build();
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long flushInterval = Math.max(1L, snapshotProperties.getFlushInterval());
+        snapshotScheduler.scheduleWithFixedDelay(this::flushSnapshot, flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    private void flushSnapshot() {
+        try {
+            jobSnapshot.flush();
+        } catch (Exception e) {
+            log.error("save job snapshot error: {}.", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resume the jobs in the snapshot, they run until the manager issues them again or the reconcile timeout
+     */
+    public void restoreSnapshotJobs() {
+        if (jobSnapshot == null) {
+            return;
+        }
+        List<Job> jobs = jobSnapshot.getJobs();
+        for (Job job : jobs) {
+            markUnconfirmed(job.getId(), job.getMonitorId());
+            timerDispatch.addJob(job, null);
+        }
+        if (!jobs.isEmpty()) {
+            log.info("resume {} jobs from the job snapshot.", jobs.size());
+        }
+    }
+
+    /**
+     * The collector is connected to the manager, go online.
+     * With the job snapshot the running jobs are kept, the manager issues its jobs again,
+     * the same ones are confirmed without rescheduling and the ones not issued are removed after the reconcile timeout.
+     */
+    public void goOnline() {
+        if (jobSnapshot == null || !timerDispatch.isOnline()) {
+            timerDispatch.goOnline();
+            restoreSnapshotJobs();
+        } else {
+            jobSnapshot.getJobMonitors().forEach(this::markUnconfirmed);
+        }
+        if (jobSnapshot == null) {
+            return;
+        }
+        synchronized (unconfirmedJobs) {
+            if (reconcileFuture != null) {
+                reconcileFuture.cancel(false);
+            }
+            reconcileFuture = snapshotScheduler.schedule(this::removeUnconfirmedJobs, reconcileTimeout, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * The manager takes the jobs away from this collector, go offline.
+     * The jobs are not resumed any more, the snapshot and the unconfirmed jobs are cleared,
+     * so that the jobs issued again after going online are all scheduled.
+     */
+    public void goOffline() {
+        timerDispatch.goOffline();
+        if (jobSnapshot == null) {
+            return;
+        }
+        synchronized (unconfirmedJobs) {
+            if (reconcileFuture != null) {
+                reconcileFuture.cancel(false);
+                reconcileFuture = null;
+            }
+            unconfirmedJobs.clear();
+            unconfirmedMonitors.clear();
+        }
+        jobSnapshot.clear();
+        flushSnapshot();
+    }
+
+    /**
+     * The manager closes this collector, the jobs are stopped and not resumed after restart
+     */
+    public void goClose() {
+        goOffline();
+    }
+
+    private void markUnconfirmed(long jobId, long monitorId) {
+        unconfirmedJobs.put(jobId, monitorId);
+        unconfirmedMonitors.put(monitorId, jobId);
+    }
+
+    private boolean confirm(long jobId) {
+        Long monitorId = unconfirmedJobs.remove(jobId);
+        if (monitorId == null) {
+            return false;
+        }
+        unconfirmedMonitors.remove(monitorId, jobId);
+        return true;
+    }
+
+    private void removeUnconfirmedJobs() {
+        int removed = 0;
+        for (Long jobId : unconfirmedJobs.keySet()) {
+            if (confirm(jobId)) {
+                timerDispatch.deleteJob(jobId, true);
+                jobSnapshot.remove(jobId);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("remove {} resumed jobs which are not issued by the manager again.", removed);
+        }
+    }
+
+    private void initSpool(DispatchProperties.EntranceProperties.SpoolProperties spoolProperties) {
+        if (spoolProperties == null || !spoolProperties.isEnabled()) {
+            return;
+        }
+        try {
+            collectDataSpool = new CollectDataSpool(Paths.get(spoolProperties.getPath()),
+                    spoolProperties.getMaxSize() * MB, spoolProperties.getSegmentSize() * (int) MB);
+        } catch (IOException e) {
+            log.error("init collect data spool in {} error, the data will be lost when the manager is disconnected: {}.",
+                    spoolProperties.getPath(), e.getMessage(), e);
+            return;
+        }
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("collect-data-spool-%d")
+                .setDaemon(true)
+                .build();
+        spoolScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        // replay in slices so that the replay rate is bounded
+        int replayPerSlice = Math.max(1, spoolProperties.getReplayRate() * (int) SPOOL_REPLAY_SLICE / 1000);
+        spoolScheduler.scheduleAtFixedRate(() -> replaySpool(replayPerSlice),
+                SPOOL_REPLAY_SLICE, SPOOL_REPLAY_SLICE, TimeUnit.MILLISECONDS);
+        spoolScheduler.scheduleWithFixedDelay(() -> {
+            if (collectDataSpool.getAppendedCount() > 0) {
+                log.info("[Export Statistics] {}.", collectDataSpool);
+            }
+        }, STATISTICS_INTERVAL, STATISTICS_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    private void replaySpool(int maxRecords) {
+        try {
+            if (!isManagerConnected() || collectDataSpool.isEmpty()) {
+                return;
+            }
+            collectDataSpool.replay(data -> {
+                if (!isManagerConnected()) {
+                    return false;
+                }
+                try {
+                    this.collectServer.sendMsg(ClusterMsg.Message.parseFrom(data));
+                } catch (InvalidProtocolBufferException e) {
+                    log.error("spooled collect data message is broken, skip it: {}.", e.getMessage());
+                }
+                return true;
+            }, maxRecords);
+        } catch (Exception e) {
+            log.error("replay spooled collect data error: {}.", e.getMessage(), e);
+        }
+    }
+
+    private boolean isManagerConnected() {
+        return this.collectServer != null && this.collectServer.isConnected();
+    }
+
+    private void initBatchers(DispatchProperties.EntranceProperties.BatchProperties batchProperties) {
+        if (batchProperties == null) {
+            batchProperties = new DispatchProperties.EntranceProperties.BatchProperties();
+        }
+        if (!batchProperties.isEnabled() || batchProperties.getMaxSize() <= 1) {
+            return;
+        }
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("collect-data-batcher-%d")
+                .setDaemon(true)
+                .build();
+        batchScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        cyclicDataBatcher = new CollectDataBatcher("cyclic-data", batchProperties.getMaxSize(), batchProperties.getLinger(),
+                batch -> sendCollectData(batch, ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_DATA), batchScheduler);
+        serviceDiscoveryDataBatcher = new CollectDataBatcher("sd-data", batchProperties.getMaxSize(), batchProperties.getLinger(),
+                batch -> sendCollectData(batch, ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_SD_DATA), batchScheduler);
+        batchScheduler.scheduleWithFixedDelay(() -> log.info("[Export Statistics] {}; {}.", cyclicDataBatcher, serviceDiscoveryDataBatcher),
+                STATISTICS_INTERVAL, STATISTICS_INTERVAL, TimeUnit.SECONDS);
     }
 
     /**
@@ -132,6 +379,22 @@ public class CollectJobService {
      * @param job Collect task details
      */
     public void addAsyncCollectJob(Job job) {
+        if (jobSnapshot != null) {
+            boolean changed = jobSnapshot.put(job);
+            if (confirm(job.getId())) {
+                if (!changed) {
+                    // the same job resumed from the snapshot is running
+                    return;
+                }
+                timerDispatch.deleteJob(job.getId(), true);
+            }
+            Long staleJobId = unconfirmedMonitors.get(job.getMonitorId());
+            if (staleJobId != null && confirm(staleJobId)) {
+                // the monitor is issued again with a new job id
+                timerDispatch.deleteJob(staleJobId, true);
+                jobSnapshot.remove(staleJobId);
+            }
+        }
         timerDispatch.addJob(job.clone(), null);
     }
 
@@ -143,36 +406,63 @@ public class CollectJobService {
     public void cancelAsyncCollectJob(Long jobId) {
         if (jobId != null) {
             timerDispatch.deleteJob(jobId, true);
+            if (jobSnapshot != null) {
+                confirm(jobId);
+                jobSnapshot.remove(jobId);
+            }
         }
     }
 
     /**
-     * send async collect response data
+     * send async collect response data, it is packed into a batch with others when the batch is enabled
      *
      * @param metricsData collect data
      */
     public void sendAsyncCollectData(CollectRep.MetricsData metricsData) {
-        byte[] msg = ArrowUtil.serializeMetricsData(List.of(metricsData));
-        ClusterMsg.Message message = ClusterMsg.Message.newBuilder()
-                .setIdentity(collectorIdentity)
-                .setMsg(ByteString.copyFrom(msg))
-                .setDirection(ClusterMsg.Direction.REQUEST)
-                .setType(ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_DATA)
-                .build();
-        this.collectServer.sendMsg(message);
+        if (cyclicDataBatcher != null) {
+            cyclicDataBatcher.add(metricsData);
+        } else {
+            sendCollectData(List.of(metricsData), ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_DATA);
+        }
     }
 
     public void sendAsyncServiceDiscoveryData(CollectRep.MetricsData metricsData) {
-        byte[] msg = ArrowUtil.serializeMetricsData(List.of(metricsData));
+        if (serviceDiscoveryDataBatcher != null) {
+            serviceDiscoveryDataBatcher.add(metricsData);
+        } else {
+            sendCollectData(List.of(metricsData), ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_SD_DATA);
+        }
+    }
+
+    /**
+     * serialize the collect data list into one message and send it
+     *
+     * @param metricsDataList collect data list
+     * @param messageType     message type
+     */
+    private void sendCollectData(List<CollectRep.MetricsData> metricsDataList, ClusterMsg.MessageType messageType) {
+        byte[] msg = ArrowUtil.serializeMetricsData(metricsDataList);
         ClusterMsg.Message message = ClusterMsg.Message.newBuilder()
                 .setIdentity(collectorIdentity)
                 .setMsg(ByteString.copyFrom(msg))
                 .setDirection(ClusterMsg.Direction.REQUEST)
-                .setType(ClusterMsg.MessageType.RESPONSE_CYCLIC_TASK_SD_DATA)
+                .setType(messageType)
                 .build();
+        if (collectDataSpool != null && !isManagerConnected()) {
+            // store the message and forward it after reconnect
+            collectDataSpool.append(message.toByteArray());
+            return;
+        }
         this.collectServer.sendMsg(message);
     }
 
+    /**
+     * @return batcher of the cyclic collect data, null when the batch is disabled
+     */
+    public CollectDataBatcher getCyclicDataBatcher() {
+        return cyclicDataBatcher;
+    }
+
     public String getCollectorIdentity() {
         return collectorIdentity;
     }
@@ -184,4 +474,22 @@ public class CollectJobService {
     public void setCollectServer(CollectServer collectServer) {
         this.collectServer = collectServer;
     }
+
+    @Override
+    public void destroy() throws Exception {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+            flushSnapshot();
+        }
+        if (spoolScheduler != null) {
+            spoolScheduler.shutdownNow();
+        }
+        if (batchScheduler == null) {
+            return;
+        }
+        batchScheduler.shutdownNow();
+        // send the collect data left in the batches, or spool them when the manager is disconnected
+        cyclicDataBatcher.flush();
+        serviceDiscoveryDataBatcher.flush();
+    }
 }
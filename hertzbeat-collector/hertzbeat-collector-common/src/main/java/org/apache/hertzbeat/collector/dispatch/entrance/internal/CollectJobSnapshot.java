@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.dispatch.entrance.internal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.common.entity.job.Job;
+import org.apache.hertzbeat.common.util.JsonUtil;
+
+/**
+ * Local snapshot of the cyclic jobs assigned to this collector, the collector resumes them at once after restart.
+ * The jobs of the same monitoring template share one template, a job only keeps its own fields, eg: id, configmap.
+ * A job is versioned by its id, template hash and own fields hash, the identical job issued again is not rescheduled.
+ */
+@Slf4j
+public class CollectJobSnapshot {
+
+    private static final int MAGIC = 0x48424A53;
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * the fields of the job itself, the others are the template shared by the jobs of the same app
+     */
+    private static final String[] JOB_FIELDS = {"id", "tenantId", "monitorId", "defaultInterval", "configmap"};
+
+    /**
+     * the fields changed every time the job is issued, they are not part of the job version
+     */
+    private static final String[] VOLATILE_FIELDS = {"timestamp", "intervals"};
+
+    private final Path file;
+
+    /**
+     * template hash -> template json
+     */
+    private final Map<String, String> templates = new HashMap<>(64);
+
+    /**
+     * template hash -> jobs number of the template
+     */
+    private final Map<String, Integer> templateRefs = new HashMap<>(64);
+
+    /**
+     * job id -> job entry
+     */
+    private final Map<Long, Entry> jobs = new HashMap<>(1024);
+
+    private boolean dirty;
+
+    public CollectJobSnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Put the job into the snapshot
+     *
+     * @param job cyclic job
+     * @return false when the same version of the job is already in the snapshot
+     */
+    public synchronized boolean put(Job job) {
+        JsonNode jsonNode = JsonUtil.fromJson(JsonUtil.toJson(job));
+        if (!(jsonNode instanceof ObjectNode template)) {
+            return true;
+        }
+        ObjectNode jobNode = template.objectNode();
+        for (String field : JOB_FIELDS) {
+            JsonNode value = template.remove(field);
+            if (value != null) {
+                jobNode.set(field, value);
+            }
+        }
+        for (String field : VOLATILE_FIELDS) {
+            template.remove(field);
+        }
+        String templateJson = template.toString();
+        String templateHash = hash(templateJson);
+        String jobJson = jobNode.toString();
+        String version = templateHash + ":" + hash(jobJson);
+        Entry previous = jobs.get(job.getId());
+        if (previous != null && previous.version().equals(version)) {
+            return false;
+        }
+        templates.putIfAbsent(templateHash, templateJson);
+        templateRefs.merge(templateHash, 1, Integer::sum);
+        jobs.put(job.getId(), new Entry(job.getId(), job.getMonitorId(), templateHash, jobJson, version));
+        if (previous != null) {
+            releaseTemplate(previous.templateHash());
+        }
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Remove the job from the snapshot
+     *
+     * @param jobId job id
+     */
+    public synchronized void remove(long jobId) {
+        Entry entry = jobs.remove(jobId);
+        if (entry != null) {
+            releaseTemplate(entry.templateHash());
+            dirty = true;
+        }
+    }
+
+    /**
+     * Remove all the jobs from the snapshot
+     */
+    public synchronized void clear() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        jobs.clear();
+        templates.clear();
+        templateRefs.clear();
+        dirty = true;
+    }
+
+    /**
+     * @return the jobs in the snapshot
+     */
+    public synchronized List<Job> getJobs() {
+        List<Job> jobList = new ArrayList<>(jobs.size());
+        Map<String, JsonNode> templateNodes = new HashMap<>(templates.size());
+        for (Entry entry : jobs.values()) {
+            JsonNode templateNode = templateNodes.computeIfAbsent(entry.templateHash(),
+                    hash -> JsonUtil.fromJson(templates.get(hash)));
+            JsonNode jobNode = JsonUtil.fromJson(entry.jobJson());
+            if (!(templateNode instanceof ObjectNode) || !(jobNode instanceof ObjectNode)) {
+                log.warn("job {} in the snapshot is broken, skip it.", entry.id());
+                continue;
+            }
+            ObjectNode node = ((ObjectNode) templateNode).deepCopy();
+            node.setAll((ObjectNode) jobNode);
+            Job job = JsonUtil.fromJson(node.toString(), Job.class);
+            if (job != null) {
+                jobList.add(job);
+            }
+        }
+        return jobList;
+    }
+
+    /**
+     * @return job id -> monitor id of the jobs in the snapshot
+     */
+    public synchronized Map<Long, Long> getJobMonitors() {
+        Map<Long, Long> jobMonitors = new HashMap<>(jobs.size());
+        jobs.values().forEach(entry -> jobMonitors.put(entry.id(), entry.monitorId()));
+        return jobMonitors;
+    }
+
+    public synchronized int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Load the snapshot file
+     *
+     * @throws IOException when the file can not be read
+     */
+    public synchronized void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("job snapshot {} format not match, ignore it.", file);
+                return;
+            }
+            int templateNum = in.readInt();
+            for (int index = 0; index < templateNum; index++) {
+                String templateHash = in.readUTF();
+                templates.put(templateHash, readString(in));
+            }
+            int jobNum = in.readInt();
+            for (int index = 0; index < jobNum; index++) {
+                long id = in.readLong();
+                long monitorId = in.readLong();
+                String templateHash = in.readUTF();
+                String version = in.readUTF();
+                String jobJson = readString(in);
+                if (templates.containsKey(templateHash)) {
+                    jobs.put(id, new Entry(id, monitorId, templateHash, jobJson, version));
+                    templateRefs.merge(templateHash, 1, Integer::sum);
+                }
+            }
+        }
+        log.info("load {} jobs of {} templates from the job snapshot.", jobs.size(), templates.size());
+    }
+
+    /**
+     * Write the snapshot file when it is changed, the file is replaced atomically
+     *
+     * @throws IOException when the file can not be written
+     */
+    public synchronized void flush() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(templates.size());
+            for (Map.Entry<String, String> template : templates.entrySet()) {
+                out.writeUTF(template.getKey());
+                writeString(out, template.getValue());
+            }
+            out.writeInt(jobs.size());
+            for (Entry entry : jobs.values()) {
+                out.writeLong(entry.id());
+                out.writeLong(entry.monitorId());
+                out.writeUTF(entry.templateHash());
+                out.writeUTF(entry.version());
+                writeString(out, entry.jobJson());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private void releaseTemplate(String templateHash) {
+        Integer refs = templateRefs.computeIfPresent(templateHash, (hash, count) -> count > 1 ? count - 1 : null);
+        if (refs == null) {
+            templates.remove(templateHash);
+        }
+    }
+
+    private static String hash(String value) {
+        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * a job in the snapshot
+     */
+    private record Entry(long id, long monitorId, String templateHash, String jobJson, String version) {
+    }
+}
@@ -20,7 +20,7 @@ package org.apache.hertzbeat.collector.dispatch.entrance.processor;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hertzbeat.collector.dispatch.entrance.CollectServer;
-import org.apache.hertzbeat.collector.dispatch.timer.TimerDispatch;
+import org.apache.hertzbeat.collector.dispatch.entrance.internal.CollectJobService;
 import org.apache.hertzbeat.common.constants.CommonConstants;
 import org.apache.hertzbeat.common.entity.message.ClusterMsg;
 import org.apache.hertzbeat.common.support.SpringContextHolder;
@@ -34,7 +34,7 @@ import org.springframework.boot.SpringApplication;
 @Slf4j
 public class GoCloseProcessor implements NettyRemotingProcessor {
     private final CollectServer collectServer;
-    private TimerDispatch timerDispatch;
+    private CollectJobService collectJobService;
 
     public GoCloseProcessor(final CollectServer collectServer) {
         this.collectServer = collectServer;
@@ -42,13 +42,13 @@ public class GoCloseProcessor implements NettyRemotingProcessor {
 
     @Override
     public ClusterMsg.Message handle(ChannelHandlerContext ctx, ClusterMsg.Message message) {
-        if (this.timerDispatch == null) {
-            this.timerDispatch = SpringContextHolder.getBean(TimerDispatch.class);
+        if (this.collectJobService == null) {
+            this.collectJobService = SpringContextHolder.getBean(CollectJobService.class);
         }
         if (message.getMsg().toStringUtf8().contains(CommonConstants.COLLECTOR_AUTH_FAILED)) {
             log.error("[Auth Failed]receive client auth failed message and go close. {}", message.getMsg());
         }
-        this.timerDispatch.goOffline();
+        this.collectJobService.goClose();
         this.collectServer.shutdown();
         SpringApplication.exit(SpringContextHolder.getApplicationContext(), () -> 0);
         SpringContextHolder.shutdown();
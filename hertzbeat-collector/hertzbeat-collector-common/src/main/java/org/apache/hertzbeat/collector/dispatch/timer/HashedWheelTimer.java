@@ -87,6 +87,10 @@ public class HashedWheelTimer implements Timer {
     private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
     private static final AtomicBoolean WARNED_TOO_MANY_INSTANCES = new AtomicBoolean();
     private static final int INSTANCE_COUNT_LIMIT = 64;
+    /**
+     * whether the current thread is the worker thread of a timer, the timer tasks run in it and must never block
+     */
+    private static final ThreadLocal<Boolean> IN_WORKER_THREAD = ThreadLocal.withInitial(() -> Boolean.FALSE);
     private static final AtomicIntegerFieldUpdater<HashedWheelTimer> WORKER_STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(HashedWheelTimer.class, "workerState");
 
@@ -412,6 +416,13 @@ public class HashedWheelTimer implements Timer {
         return pendingTimeouts.get();
     }
 
+    /**
+     * @return true - the current thread is the worker thread of a timer, eg: in a timer task
+     */
+    public static boolean inWorkerThread() {
+        return IN_WORKER_THREAD.get();
+    }
+
     private static void reportTooManyInstances() {
         logger.error("You are creating too many HashedWheelTimer instances. "
                 + "HashedWheelTimer is a shared resource that must be reused across the JVM,"
@@ -425,6 +436,7 @@ public class HashedWheelTimer implements Timer {
 
         @Override
         public void run() {
+            IN_WORKER_THREAD.set(Boolean.TRUE);
             // Initialize the startTime.
             startTime = System.nanoTime();
             if (startTime == 0) {
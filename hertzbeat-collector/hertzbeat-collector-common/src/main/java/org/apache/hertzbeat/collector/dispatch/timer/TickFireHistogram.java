@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hertzbeat.collector.dispatch.timer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of the collect jobs fired in each time wheel tick,
+ * a long tail here means lots of jobs fire at the same moment and saturate the worker pool
+ */
+public class TickFireHistogram {
+
+    /**
+     * upper bounds of the fire count buckets, the last bucket holds the counts greater than the last bound
+     */
+    private static final int[] BUCKET_BOUNDS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    private final long tickMillis;
+
+    private final LongAdder[] buckets;
+
+    private long currentTick = -1;
+
+    private int currentCount;
+
+    private int maxCount;
+
+    public TickFireHistogram(long tickMillis) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        this.buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        for (int index = 0; index < buckets.length; index++) {
+            buckets[index] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a job fired at the time
+     *
+     * @param timeMillis fire time
+     */
+    public synchronized void record(long timeMillis) {
+        long tick = timeMillis / tickMillis;
+        if (tick != currentTick) {
+            flush();
+            currentTick = tick;
+        }
+        currentCount++;
+    }
+
+    /**
+     * @return ticks number of each fire count bucket
+     */
+    public synchronized long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int index = 0; index < buckets.length; index++) {
+            counts[index] = buckets[index].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return the max jobs number fired in one tick
+     */
+    public synchronized int getMaxFireCount() {
+        return Math.max(maxCount, currentCount);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int index = 0; index < buckets.length; index++) {
+            long count = buckets[index].sum();
+            if (count == 0) {
+                continue;
+            }
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(index < BUCKET_BOUNDS.length ? "<=" + BUCKET_BOUNDS[index] : ">" + BUCKET_BOUNDS[index - 1])
+                    .append(": ").append(count);
+        }
+        return builder.append("}, max: ").append(getMaxFireCount()).toString();
+    }
+
+    private void flush() {
+        if (currentCount == 0) {
+            return;
+        }
+        int index = 0;
+        while (index < BUCKET_BOUNDS.length && currentCount > BUCKET_BOUNDS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        maxCount = Math.max(maxCount, currentCount);
+        currentCount = 0;
+    }
+}
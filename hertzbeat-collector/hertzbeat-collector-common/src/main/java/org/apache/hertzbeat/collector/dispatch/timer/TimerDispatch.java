@@ -38,13 +38,28 @@ public interface TimerDispatch {
     void addJob(Job addJob, CollectResponseEventListener eventListener);
 
     /**
-     * Cyclic job
+     * Cyclic job, the next fire time is the last scheduled time of the task plus the interval
      * @param timerTask timerTask
      * @param interval  collect interval
      * @param timeUnit  time unit
      */
     void cyclicJob(WheelTimerTask timerTask, long interval, TimeUnit timeUnit);
 
+    /**
+     * Schedule a one-shot task on the time wheel, eg: the timeout of a metrics collect task
+     * @param task     task
+     * @param delay    delay time
+     * @param timeUnit time unit
+     * @return cancellable timeout handle
+     */
+    Timeout newTimeout(TimerTask task, long delay, TimeUnit timeUnit);
+
+    /**
+     * Jobs fired number of each time wheel tick
+     * @return tick fire histogram
+     */
+    TickFireHistogram getTickFireHistogram();
+
     /**
      * Delete existing job
      * @param jobId    jobId
@@ -62,6 +77,11 @@ public interface TimerDispatch {
      */
     void goOffline();
 
+    /**
+     * @return whether the job dispatcher is online
+     */
+    boolean isOnline();
+
     /**
      * response sync collect task data
      * @param jobId            jobId
@@ -24,11 +24,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hertzbeat.collector.dispatch.DispatchProperties;
 import org.apache.hertzbeat.collector.dispatch.entrance.internal.CollectResponseEventListener;
 import org.apache.hertzbeat.common.entity.job.Job;
 import org.apache.hertzbeat.common.entity.job.Metrics;
 import org.apache.hertzbeat.common.entity.message.CollectRep;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
@@ -38,10 +40,22 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class TimerDispatcher implements TimerDispatch, DisposableBean {
 
+    private static final long DEFAULT_TICK_DURATION = 100L;
+
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
     /**
      * time round schedule
      */
     private final Timer wheelTimer;
+    /**
+     * whether to spread the cyclic jobs within their interval
+     */
+    private final boolean spread;
+    /**
+     * jobs fired number of each tick
+     */
+    private final TickFireHistogram tickFireHistogram;
     /**
      * Existing periodic scheduled tasks
      */
@@ -62,11 +76,23 @@ public class TimerDispatcher implements TimerDispatch, DisposableBean {
     private final AtomicBoolean started;
     
     public TimerDispatcher() {
+        this(null);
+    }
+
+    @Autowired
+    public TimerDispatcher(DispatchProperties dispatchProperties) {
+        DispatchProperties.TimerProperties timerProperties = dispatchProperties == null ? null : dispatchProperties.getTimer();
+        long tickDuration = timerProperties == null || timerProperties.getTickDuration() <= 0
+                ? DEFAULT_TICK_DURATION : timerProperties.getTickDuration();
+        int ticksPerWheel = timerProperties == null || timerProperties.getTicksPerWheel() <= 0
+                ? DEFAULT_TICKS_PER_WHEEL : timerProperties.getTicksPerWheel();
+        this.spread = timerProperties == null || timerProperties.isSpread();
+        this.tickFireHistogram = new TickFireHistogram(tickDuration);
         this.wheelTimer = new HashedWheelTimer(r -> {
             Thread ret = new Thread(r, "wheelTimer");
             ret.setDaemon(true);
             return ret;
-        }, 1, TimeUnit.SECONDS, 512);
+        }, tickDuration, TimeUnit.MILLISECONDS, ticksPerWheel);
         this.currentCyclicTaskMap = new ConcurrentHashMap<>(8);
         this.currentTempTaskMap = new ConcurrentHashMap<>(8);
         this.eventListeners = new ConcurrentHashMap<>(8);
@@ -79,9 +105,18 @@ public class TimerDispatcher implements TimerDispatch, DisposableBean {
             log.warn("Collector is offline, can not dispatch collect jobs.");
             return;
         }
-        WheelTimerTask timerJob = new WheelTimerTask(addJob);
+        WheelTimerTask timerJob = new WheelTimerTask(addJob, tickFireHistogram);
         if (addJob.isCyclic()) {
-            Timeout timeout = wheelTimer.newTimeout(timerJob, addJob.getInterval(), TimeUnit.SECONDS);
+            long now = System.currentTimeMillis();
+            long intervalMillis = TimeUnit.SECONDS.toMillis(addJob.getInterval());
+            long firstFireTime = firstFireTime(addJob.getId(), intervalMillis, now);
+            // a metrics is due one interval after its last collect time, so the spread first fire collects
+            // the metrics of the first interval, as the first fire one interval after now does
+            for (Metrics metric : addJob.getMetrics()) {
+                metric.setCollectTime(firstFireTime - intervalMillis);
+            }
+            timerJob.setScheduledTime(firstFireTime);
+            Timeout timeout = wheelTimer.newTimeout(timerJob, firstFireTime - now, TimeUnit.MILLISECONDS);
             currentCyclicTaskMap.put(addJob.getId(), timeout);
         } else {
             for (Metrics metric : addJob.getMetrics()) {
@@ -103,11 +138,50 @@ public class TimerDispatcher implements TimerDispatch, DisposableBean {
         Long jobId = timerTask.getJob().getId();
         // whether is the job has been canceled
         if (currentCyclicTaskMap.containsKey(jobId)) {
-            Timeout timeout = wheelTimer.newTimeout(timerTask, interval, TimeUnit.SECONDS);
+            long now = System.currentTimeMillis();
+            long intervalMillis = Math.max(1L, timeUnit.toMillis(interval));
+            // next fire time is anchored to the last scheduled time instead of the finished time, so no drift is accumulated
+            long nextFireTime = timerTask.getScheduledTime() > 0 ? timerTask.getScheduledTime() + intervalMillis : now + intervalMillis;
+            if (nextFireTime <= now) {
+                // the collection overran its interval, skip the missed slots and keep the phase
+                long missed = (now - nextFireTime) / intervalMillis + 1;
+                nextFireTime += missed * intervalMillis;
+            }
+            timerTask.setScheduledTime(nextFireTime);
+            Timeout timeout = wheelTimer.newTimeout(timerTask, nextFireTime - now, TimeUnit.MILLISECONDS);
             currentCyclicTaskMap.put(timerTask.getJob().getId(), timeout);
         }
     }
 
+    /**
+     * The first fire time of the cyclic job
+     * The jobs of the same interval are spread to a stable offset within the interval by the job id,
+     * so that the jobs added at the same time, eg: after collector restart, do not fire at the same tick
+     * @param jobId          job id
+     * @param intervalMillis collect interval(ms)
+     * @param now            current time
+     * @return first fire time, in (now, now + interval]
+     */
+    long firstFireTime(long jobId, long intervalMillis, long now) {
+        if (!spread || intervalMillis <= 0) {
+            return now + Math.max(0L, intervalMillis);
+        }
+        long hash = jobId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        long phase = Math.floorMod(hash, intervalMillis);
+        return now + intervalMillis - Math.floorMod(now - phase, intervalMillis);
+    }
+
+    @Override
+    public TickFireHistogram getTickFireHistogram() {
+        return tickFireHistogram;
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit timeUnit) {
+        return wheelTimer.newTimeout(task, delay, timeUnit);
+    }
+
     @Override
     public void deleteJob(long jobId, boolean isCyclic) {
         if (isCyclic) {
@@ -140,7 +214,11 @@ public class TimerDispatcher implements TimerDispatch, DisposableBean {
         currentTempTaskMap.forEach((key, value) -> value.cancel());
         currentTempTaskMap.clear();
     }
-    
+
+    @Override
+    public boolean isOnline() {
+        return started.get();
+    }
     
     @Override
     public void responseSyncJobData(long jobId, List<CollectRep.MetricsData> metricsDataTemps) {
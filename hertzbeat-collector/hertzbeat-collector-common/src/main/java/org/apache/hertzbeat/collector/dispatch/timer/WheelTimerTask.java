@@ -43,11 +43,21 @@ public class WheelTimerTask implements TimerTask {
 
     private final Job job;
     private final MetricsTaskDispatch metricsTaskDispatch;
+    private final TickFireHistogram tickFireHistogram;
     private static final Gson GSON = new Gson();
+    /**
+     * the time this task is scheduled to fire, 0 means not scheduled by the time grid
+     */
+    private volatile long scheduledTime;
 
     public WheelTimerTask(Job job) {
+        this(job, null);
+    }
+
+    public WheelTimerTask(Job job, TickFireHistogram tickFireHistogram) {
         this.metricsTaskDispatch = SpringContextHolder.getBean(MetricsTaskDispatch.class);
         this.job = job;
+        this.tickFireHistogram = tickFireHistogram;
         // The initialization job will monitor the actual parameter value and replace the collection field
         initJobMetrics(job);
     }
@@ -90,11 +100,23 @@ public class WheelTimerTask implements TimerTask {
 
     @Override
     public void run(Timeout timeout) throws Exception {
-        job.setDispatchTime(System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        if (tickFireHistogram != null) {
+            tickFireHistogram.record(now);
+        }
+        job.setDispatchTime(scheduledTime > 0 ? scheduledTime : now);
         metricsTaskDispatch.dispatchMetricsTask(timeout);
     }
 
     public Job getJob() {
         return job;
     }
+
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+
+    public void setScheduledTime(long scheduledTime) {
+        this.scheduledTime = scheduledTime;
+    }
 }
@@ -18,6 +18,7 @@
 package org.apache.hertzbeat.collector.util;
 
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.ParseContext;
@@ -60,6 +61,31 @@ public final class JsonPathParser {
         return PARSER.parse(content).read(jsonPath);
     }
 
+    /**
+     * parse the json content once into a document, the json paths are read from it without parsing the content again
+     * @param content json content
+     * @return document, null when the content is empty
+     */
+    public static DocumentContext parseDocument(String content) {
+        if (StringUtils.isEmpty(content)) {
+            return null;
+        }
+        return PARSER.parse(content);
+    }
+
+    /**
+     * use json path to read the parsed document
+     * @param document parsed json document, nullable
+     * @param jsonPath jsonPath
+     * @return content [{'name': 'tom', 'speed': '433'},{'name': 'lili', 'speed': '543'}]
+     */
+    public static List<Object> readWithJsonPath(DocumentContext document, String jsonPath) {
+        if (document == null || StringUtils.isEmpty(jsonPath)) {
+            return Collections.emptyList();
+        }
+        return document.read(jsonPath);
+    }
+
     /**
      * use json path to parse content 
      * @param content json content
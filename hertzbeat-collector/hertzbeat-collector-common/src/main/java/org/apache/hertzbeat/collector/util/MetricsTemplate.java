@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.hertzbeat.common.entity.job.Configmap;
+import org.apache.hertzbeat.common.entity.job.Metrics;
+
+/**
+ * Metrics template of the cry placeholder ^o^field^o^, which is replaced by the data collected by the prior metrics.
+ * The metrics is serialized and the values containing placeholders are indexed only once,
+ * binding a configmap sets the indexed values and builds a new metrics, no json serialization and placeholder matching again.
+ * The template is cached by the metrics instance, and released with the job.
+ */
+public final class MetricsTemplate {
+
+    private static final Gson GSON = new Gson();
+    private static final Pattern CRYING_PLACEHOLDER_REGEX_PATTERN = Pattern.compile("(\\^o\\^)(\\w|-|$|\\.)+(\\^o\\^)");
+    private static final String CRYING_PLACEHOLDER = "^o^";
+    /**
+     * the metrics configurations used to calculate the value rows, shared by the bound metrics when no placeholder in them
+     */
+    private static final List<String> CALCULATE_KEYS = List.of("fields", "aliasFields", "calculates", "units", "filters");
+
+    /**
+     * metrics instance - template, weak keys are compared by identity
+     */
+    private static final Cache<Metrics, MetricsTemplate> TEMPLATE_CACHE = Caffeine.newBuilder().weakKeys().build();
+
+    private final Metrics source;
+    private final JsonObject tree;
+    private final List<Slot> slots;
+    private final Set<String> placeholderFields;
+    private final boolean shareCalculates;
+
+    private MetricsTemplate(Metrics source) {
+        this.source = source;
+        JsonElement jsonElement = GSON.toJsonTree(source);
+        this.tree = jsonElement.isJsonObject() ? jsonElement.getAsJsonObject() : new JsonObject();
+        List<Slot> slotList = new ArrayList<>();
+        Set<String> fields = new LinkedHashSet<>();
+        boolean calculatesHasPlaceholder = false;
+        for (Map.Entry<String, JsonElement> entry : tree.entrySet()) {
+            int before = slotList.size();
+            index(tree, entry.getKey(), entry.getValue(), slotList, fields);
+            if (slotList.size() > before && CALCULATE_KEYS.contains(entry.getKey())) {
+                calculatesHasPlaceholder = true;
+            }
+        }
+        this.slots = Collections.unmodifiableList(slotList);
+        this.placeholderFields = Collections.unmodifiableSet(fields);
+        this.shareCalculates = !calculatesHasPlaceholder;
+    }
+
+    /**
+     * Get the cached template of the metrics
+     *
+     * @param metrics metrics
+     * @return template
+     */
+    public static MetricsTemplate of(Metrics metrics) {
+        return TEMPLATE_CACHE.get(metrics, MetricsTemplate::new);
+    }
+
+    /**
+     * @return the placeholder fields ^o^field^o^ in the metrics, empty means no placeholder
+     */
+    public Set<String> getPlaceholderFields() {
+        return placeholderFields;
+    }
+
+    /**
+     * Build a new metrics with the placeholders replaced by the configmap,
+     * the placeholder whose param is absent is kept, and the value is null when it is a single placeholder with null param
+     *
+     * @param configmap param map
+     * @return bound metrics
+     */
+    public Metrics bind(Map<String, Configmap> configmap) {
+        Metrics metrics;
+        synchronized (this) {
+            for (Slot slot : slots) {
+                String value = slot.bind(configmap);
+                JsonElement element = value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+                if (slot.array != null) {
+                    slot.array.set(slot.index, element);
+                } else {
+                    slot.object.add(slot.key, element);
+                }
+            }
+            metrics = GSON.fromJson(tree, Metrics.class);
+        }
+        // the collector use values may be changed after the template is built
+        metrics.setCollectTime(source.getCollectTime());
+        metrics.setPriority(source.getPriority());
+        if (shareCalculates) {
+            // share the calculate configurations, so that the sub task metrics reuse the compiled execution plan
+            metrics.setFields(source.getFields());
+            metrics.setAliasFields(source.getAliasFields());
+            metrics.setCalculates(source.getCalculates());
+            metrics.setUnits(source.getUnits());
+            metrics.setFilters(source.getFilters());
+        }
+        return metrics;
+    }
+
+    private static void index(JsonObject object, String key, JsonElement element, List<Slot> slots, Set<String> fields) {
+        if (element == null || element.isJsonNull()) {
+            return;
+        }
+        if (element.isJsonPrimitive()) {
+            Slot slot = Slot.compile(element.getAsString(), fields);
+            if (slot != null && object != null) {
+                slot.object = object;
+                slot.key = key;
+                slots.add(slot);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject jsonObject = element.getAsJsonObject();
+            for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet()) {
+                index(jsonObject, entry.getKey(), entry.getValue(), slots, fields);
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray jsonArray = element.getAsJsonArray();
+            for (int index = 0; index < jsonArray.size(); index++) {
+                JsonElement item = jsonArray.get(index);
+                if (item.isJsonPrimitive()) {
+                    Slot slot = Slot.compile(item.getAsString(), fields);
+                    if (slot != null) {
+                        slot.array = jsonArray;
+                        slot.index = index;
+                        slots.add(slot);
+                    }
+                } else {
+                    index(null, null, item, slots, fields);
+                }
+            }
+        }
+    }
+
+    /**
+     * A json value containing placeholders, split into literal parts and placeholder fields
+     */
+    private static final class Slot {
+
+        private JsonObject object;
+        private String key;
+        private JsonArray array;
+        private int index;
+        /**
+         * literal parts, parts[i] is followed by the placeholder names[i]
+         */
+        private final String[] parts;
+        private final String[] names;
+
+        private Slot(String[] parts, String[] names) {
+            this.parts = parts;
+            this.names = names;
+        }
+
+        private static Slot compile(String value, Set<String> fields) {
+            if (value == null || !value.contains(CRYING_PLACEHOLDER)) {
+                return null;
+            }
+            Matcher matcher = CRYING_PLACEHOLDER_REGEX_PATTERN.matcher(value);
+            List<String> parts = new ArrayList<>(2);
+            List<String> names = new ArrayList<>(1);
+            int last = 0;
+            while (matcher.find()) {
+                parts.add(value.substring(last, matcher.start()));
+                String group = matcher.group();
+                String name = group.substring(CRYING_PLACEHOLDER.length(), group.length() - CRYING_PLACEHOLDER.length());
+                names.add(name);
+                fields.add(name);
+                last = matcher.end();
+            }
+            if (names.isEmpty()) {
+                return null;
+            }
+            parts.add(value.substring(last));
+            return new Slot(parts.toArray(new String[0]), names.toArray(new String[0]));
+        }
+
+        private String bind(Map<String, Configmap> configmap) {
+            boolean single = names.length == 1 && parts[0].isEmpty() && parts[1].isEmpty();
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                builder.append(parts[i]);
+                Configmap param = configmap.get(names[i]);
+                if (param == null) {
+                    // keep the placeholder which has no param
+                    builder.append(CRYING_PLACEHOLDER).append(names[i]).append(CRYING_PLACEHOLDER);
+                } else if (param.getValue() == null) {
+                    if (single) {
+                        return null;
+                    }
+                } else {
+                    builder.append(param.getValue());
+                }
+            }
+            return builder.append(parts[names.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.collector.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce the identical in-flight calls, the concurrent callers of the same key share the result of the first one.
+ * Only the in-flight call is shared, the result is not cached after it completes.
+ *
+ * @param <K> call key
+ * @param <V> call result, shared by the callers so it should not be modified
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlightCalls = new ConcurrentHashMap<>(64);
+
+    private final LongAdder callCount = new LongAdder();
+
+    private final LongAdder sharedCount = new LongAdder();
+
+    /**
+     * A call which throws the checked exception
+     *
+     * @param <V> call result
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V call() throws Exception;
+    }
+
+    /**
+     * Execute the call, or wait for the result of the same in-flight call
+     *
+     * @param key  call key
+     * @param call call
+     * @return call result
+     * @throws Exception the exception thrown by the call
+     */
+    public V execute(K key, Call<V> call) throws Exception {
+        callCount.increment();
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightCalls.putIfAbsent(key, created);
+        if (inFlight != null) {
+            sharedCount.increment();
+            return await(inFlight);
+        }
+        try {
+            V result = call.call();
+            created.complete(result);
+            return result;
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, created);
+        }
+    }
+
+    /**
+     * Execute the asynchronous call, or share the future of the same in-flight call, the caller is not blocked
+     *
+     * @param key  call key
+     * @param call asynchronous call
+     * @return the future of the call result
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        callCount.increment();
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = inFlightCalls.putIfAbsent(key, created);
+        if (inFlight != null) {
+            sharedCount.increment();
+            return inFlight;
+        }
+        CompletableFuture<V> future;
+        try {
+            future = call.get();
+        } catch (Throwable e) {
+            inFlightCalls.remove(key, created);
+            created.completeExceptionally(e);
+            return created;
+        }
+        future.whenComplete((result, error) -> {
+            inFlightCalls.remove(key, created);
+            if (error != null) {
+                created.completeExceptionally(unwrap(error));
+            } else {
+                created.complete(result);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * @param error the error completed a future
+     * @return the cause of the completion exception
+     */
+    public static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private V await(CompletableFuture<V> inFlight) throws Exception {
+        try {
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Digest the secret part of the call key, eg: password, token, so the key does not hold it in plain text
+     *
+     * @param value secret value, nullable
+     * @return sha-256 hex digest, empty when the value is null
+     */
+    public static String digest(String value) {
+        if (value == null) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode()) + ":" + value.length();
+        }
+    }
+
+    /**
+     * @return calls number, including the shared ones
+     */
+    public long getCallCount() {
+        return callCount.sum();
+    }
+
+    /**
+     * @return calls number which shared the result of another in-flight call
+     */
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    /**
+     * @return in-flight calls number
+     */
+    public int getInFlightCount() {
+        return inFlightCalls.size();
+    }
+}
@@ -20,15 +20,11 @@ package org.apache.hertzbeat.common.entity.job;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -131,7 +127,7 @@ public class Job {
     private Map<String, Configmap> envConfigmaps;
 
     /**
-     * collector use - timestamp when the task was scheduled by the time wheel
+     * collector use - timestamp when the task was scheduled to run by the time wheel
      */
     @JsonIgnore
     private transient long dispatchTime;
@@ -147,7 +143,7 @@ public class Job {
      * 127 - lastPriorMetrics
      */
     @JsonIgnore
-    private transient LinkedList<Set<Metrics>> priorMetrics;
+    private transient MetricsDag metricsDag;
 
     /**
      * collector use - Temporarily store one-time task metrics response data
@@ -158,34 +154,14 @@ public class Job {
     /**
      * collector use - construct to initialize metrics execution view
      */
-    public synchronized void constructPriorMetrics() {
-        Map<Byte, List<Metrics>> map = metrics.stream()
-            .filter(metrics -> (System.currentTimeMillis() >= metrics.getCollectTime() + metrics.getInterval() * 1000))
-            .peek(metric -> {
-                metric.setCollectTime(System.currentTimeMillis());
-                // Determine whether to configure aliasFields If not, configure the default
-                if ((metric.getAliasFields() == null || metric.getAliasFields().isEmpty()) && metric.getFields() != null) {
-                    metric.setAliasFields(metric.getFields().stream().map(Metrics.Field::getField).collect(Collectors.toList()));
-                }
-                // Set the default metrics execution priority, if not filled, the default last priority
-                if (metric.getPriority() == null) {
-                    metric.setPriority(Byte.MAX_VALUE);
-                }
-            })
-            .collect(Collectors.groupingBy(Metrics::getPriority));
-        // Construct a linked list of task execution order of the metrics
-        priorMetrics = new LinkedList<>();
-        map.values().forEach(metric -> {
-            Set<Metrics> metricsSet = Collections.synchronizedSet(new HashSet<>(metric));
-            priorMetrics.add(metricsSet);
-        });
-        priorMetrics.sort(Comparator.comparing(e -> {
-            Optional<Metrics> metric = e.stream().findAny();
-            if (metric.isPresent()) {
-                return metric.get().getPriority();
-            }
-            return Byte.MAX_VALUE;
-        }));
+    public void constructPriorMetrics() {
+        // the metrics due at the scheduled dispatch time of this cycle, the time wheel may fire it a little later
+        long collectTime = dispatchTime > 0 ? dispatchTime : System.currentTimeMillis();
+        // the execution graph is built once and reused by the following cycles
+        if (metricsDag == null || !metricsDag.isBuiltFrom(metrics)) {
+            metricsDag = new MetricsDag(metrics);
+        }
+        metricsDag.startCycle(collectTime);
         envConfigmaps = new HashMap<>(8);
     }
 
@@ -201,35 +177,20 @@ public class Job {
      * The set returned empty means that there are still indicator collection tasks unfinished at the current level,
      * and the task collection at the next level cannot be carried out
      * Returns a set of data representation: get the next set of priority index collcet tasks
+     * The returned set is read only.
      */
-    public synchronized Set<Metrics> getNextCollectMetrics(Metrics metrics, boolean first) {
-        if (priorMetrics == null || priorMetrics.isEmpty()) {
+    public Set<Metrics> getNextCollectMetrics(Metrics metrics, boolean first) {
+        if (metricsDag == null) {
             return null;
         }
-        Set<Metrics> metricsSet = priorMetrics.peek();
         if (first) {
-            if (metricsSet.isEmpty()) {
-                log.error("metrics must has one [availability] metrics at least.");
-            }
-            return metricsSet;
+            return metricsDag.first();
         }
         if (metrics == null) {
             log.error("metrics can not null when not first get");
             return null;
         }
-        if (!metricsSet.remove(metrics)) {
-            log.warn("Job {} appId {} app {} metrics {} remove empty error in priorMetrics.",
-                    id, monitorId, app, metrics.getName());
-        }
-        if (metricsSet.isEmpty()) {
-            priorMetrics.poll();
-            if (priorMetrics.isEmpty()) {
-                return null;
-            }
-            Set<Metrics> source = priorMetrics.peek();
-            return new HashSet<>(source);
-        }
-        return Collections.emptySet();
+        return metricsDag.complete(metrics);
     }
 
     public void addCollectMetricsData(CollectRep.MetricsData metricsData) {
@@ -306,7 +306,9 @@ public class Metrics {
     public boolean consumeSubTaskResponse(CollectRep.MetricsData metricsData) {
         synchronized (subTaskNum) {
             int index = subTaskNum.decrementAndGet();
-            if (subTaskDataRef.get() == null) {
+            if (subTaskDataRef.get() == null
+                    || (subTaskDataRef.get().getFieldsCount() == 0 && metricsData.getFieldsCount() > 0)) {
+                // the failed or timeout subTask response has no fields, use the first response with fields as the base
                 subTaskDataRef.set(CollectRep.MetricsData.newBuilder(metricsData));
             } else {
                 if (metricsData.getValuesCount() >= 1) {
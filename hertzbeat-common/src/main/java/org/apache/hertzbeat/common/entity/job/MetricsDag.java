@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.common.entity.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * collector use - the metrics execution dependency graph of a job.
+ * The metrics are grouped into levels by the priority, a level is executed after all the metrics of the previous level completed.
+ * The graph is built once from the job metrics and reused by every cycle, only the metrics due in the cycle are executed.
+ * Every level has an atomic pending counter, the completion of a metrics decreases it without lock or allocation,
+ * the one which completes the last metrics of the level moves on to the next level.
+ */
+@Slf4j
+public final class MetricsDag {
+
+    private static final int NONE = -1;
+
+    /**
+     * the job metrics list this graph built from
+     */
+    private final List<Metrics> source;
+
+    /**
+     * the metrics sorted by the priority, level i holds the metrics [levelStarts[i], levelStarts[i + 1])
+     */
+    private final Metrics[] metrics;
+
+    private final int[] levelStarts;
+
+    /**
+     * the level index of the metrics
+     */
+    private final int[] metricsLevels;
+
+    /**
+     * metrics name -> index of the metrics
+     */
+    private final Map<String, Integer> indexes;
+
+    /**
+     * the metrics set of the level, used when all the metrics of the level are due in the cycle
+     */
+    private final List<Set<Metrics>> levelSets;
+
+    /**
+     * the not completed metrics number of the level in the current cycle
+     */
+    private final AtomicIntegerArray pendings;
+
+    /**
+     * the cycle number in which the metrics is due, written at the cycle start only
+     */
+    private final int[] dueCycles;
+
+    /**
+     * the cycle number in which the metrics is completed, a second completion in the same cycle is ignored
+     */
+    private final AtomicIntegerArray completedCycles;
+
+    /**
+     * the executing level in the current cycle, NONE when the cycle has no due metrics or all the levels completed
+     */
+    private final AtomicInteger currentLevel = new AtomicInteger(NONE);
+
+    private volatile int cycle;
+
+    public MetricsDag(List<Metrics> source) {
+        this.source = source;
+        Map<String, Metrics> metricsMap = new LinkedHashMap<>(source.size());
+        for (Metrics item : source) {
+            // Set the default metrics execution priority, if not filled, the default last priority
+            if (item.getPriority() == null) {
+                item.setPriority(Byte.MAX_VALUE);
+            }
+            // Determine whether to configure aliasFields If not, configure the default
+            if ((item.getAliasFields() == null || item.getAliasFields().isEmpty()) && item.getFields() != null) {
+                item.setAliasFields(item.getFields().stream().map(Metrics.Field::getField).collect(Collectors.toList()));
+            }
+            metricsMap.putIfAbsent(item.getName(), item);
+        }
+        this.metrics = metricsMap.values().stream()
+                .sorted(Comparator.comparing(Metrics::getPriority))
+                .toArray(Metrics[]::new);
+        this.metricsLevels = new int[metrics.length];
+        this.indexes = new HashMap<>(metrics.length * 2);
+        List<Integer> starts = new ArrayList<>();
+        for (int index = 0; index < metrics.length; index++) {
+            if (index == 0 || !metrics[index].getPriority().equals(metrics[index - 1].getPriority())) {
+                starts.add(index);
+            }
+            metricsLevels[index] = starts.size() - 1;
+            indexes.put(metrics[index].getName(), index);
+        }
+        starts.add(metrics.length);
+        this.levelStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        int levelNum = levelStarts.length - 1;
+        List<Set<Metrics>> sets = new ArrayList<>(levelNum);
+        for (int level = 0; level < levelNum; level++) {
+            sets.add(Set.of(Arrays.copyOfRange(metrics, levelStarts[level], levelStarts[level + 1])));
+        }
+        this.levelSets = Collections.unmodifiableList(sets);
+        this.pendings = new AtomicIntegerArray(levelNum);
+        this.dueCycles = new int[metrics.length];
+        this.completedCycles = new AtomicIntegerArray(metrics.length);
+    }
+
+    /**
+     * @param metricsList job metrics list
+     * @return is this graph built from the metrics list
+     */
+    public boolean isBuiltFrom(List<Metrics> metricsList) {
+        return source == metricsList;
+    }
+
+    /**
+     * Start a new cycle, mark the metrics due at the collect time and reset the level counters
+     *
+     * @param collectTime collect time of the cycle
+     */
+    public void startCycle(long collectTime) {
+        int current = cycle + 1;
+        int levelNum = pendings.length();
+        for (int level = 0; level < levelNum; level++) {
+            int pending = 0;
+            for (int index = levelStarts[level]; index < levelStarts[level + 1]; index++) {
+                Metrics item = metrics[index];
+                if (collectTime >= item.getCollectTime() + item.getInterval() * 1000) {
+                    item.setCollectTime(collectTime);
+                    dueCycles[index] = current;
+                    pending++;
+                }
+            }
+            pendings.set(level, pending);
+        }
+        cycle = current;
+        currentLevel.set(nextDueLevel(0));
+    }
+
+    /**
+     * @return the metrics of the first due level, null when no metrics is due in this cycle
+     */
+    public Set<Metrics> first() {
+        int level = currentLevel.get();
+        return level == NONE ? null : dueMetrics(level);
+    }
+
+    /**
+     * Complete the metrics in the current cycle
+     *
+     * @param completed completed metrics
+     * @return null when all the levels completed, the empty set when the other metrics of the level are not completed,
+     *         or the metrics of the next due level
+     */
+    public Set<Metrics> complete(Metrics completed) {
+        int level = currentLevel.get();
+        if (level == NONE) {
+            return null;
+        }
+        Integer index = indexes.get(completed.getName());
+        int current = cycle;
+        if (index == null || dueCycles[index] != current || completedCycles.getAndSet(index, current) == current) {
+            log.warn("metrics {} is not pending in the current cycle, ignore the completion.", completed.getName());
+            return Collections.emptySet();
+        }
+        int metricsLevel = metricsLevels[index];
+        if (pendings.decrementAndGet(metricsLevel) > 0 || metricsLevel != level) {
+            return Collections.emptySet();
+        }
+        int next = nextDueLevel(level + 1);
+        if (!currentLevel.compareAndSet(level, next)) {
+            return Collections.emptySet();
+        }
+        return next == NONE ? null : dueMetrics(next);
+    }
+
+    private int nextDueLevel(int from) {
+        for (int level = from; level < pendings.length(); level++) {
+            if (pendings.get(level) > 0) {
+                return level;
+            }
+        }
+        return NONE;
+    }
+
+    private Set<Metrics> dueMetrics(int level) {
+        int current = cycle;
+        int start = levelStarts[level];
+        int end = levelStarts[level + 1];
+        if (pendings.get(level) == end - start) {
+            return levelSets.get(level);
+        }
+        Set<Metrics> dueSet = new HashSet<>(end - start);
+        for (int index = start; index < end; index++) {
+            if (dueCycles[index] == current) {
+                dueSet.add(metrics[index]);
+            }
+        }
+        return dueSet;
+    }
+}
@@ -66,6 +66,12 @@ public class SshProtocol implements CommonRequestProtocol {
      */
     private String reuseConnection = "true";
 
+    /**
+     * merge the script with the scripts of the same level metrics of the monitor into one script,
+     * which is executed in one channel and its output is split by the delimiter lines. The peer shell should be posix sh
+     */
+    private String batchScript = "false";
+
     /**
      * SSH execution script
      */
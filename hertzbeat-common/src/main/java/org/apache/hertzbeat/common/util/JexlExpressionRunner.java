@@ -71,6 +71,10 @@ public class JexlExpressionRunner {
         return expression.evaluate(jexlContext);
     }
     
+    public static Object evaluate(JexlExpression expression, JexlContext context) {
+        return expression.evaluate(context);
+    }
+
     public static Object evaluate(String expression) {
         return jexlEngine.createExpression(expression).evaluate(new MapContext());
     }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hertzbeat.common.entity.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link MetricsDag}
+ */
+class MetricsDagTest {
+
+    private Metrics available;
+
+    private Metrics cpu;
+
+    private Metrics memory;
+
+    private Metrics disk;
+
+    private MetricsDag metricsDag;
+
+    @BeforeEach
+    void setUp() {
+
+        available = Metrics.builder().name("available").priority((byte) 0).interval(60).build();
+        cpu = Metrics.builder().name("cpu").priority((byte) 1).interval(60).build();
+        memory = Metrics.builder().name("memory").priority((byte) 1).interval(60).build();
+        disk = Metrics.builder().name("disk").interval(120).build();
+        metricsDag = new MetricsDag(List.of(disk, memory, cpu, available));
+    }
+
+    @Test
+    void testCompleteByLevel() {
+
+        metricsDag.startCycle(120_000L);
+        assertEquals(Set.of(available), metricsDag.first());
+        assertEquals(Set.of(cpu, memory), metricsDag.complete(available));
+        assertTrue(metricsDag.complete(cpu).isEmpty());
+        assertTrue(metricsDag.complete(cpu).isEmpty());
+        assertEquals(Set.of(disk), metricsDag.complete(memory));
+        assertNull(metricsDag.complete(disk));
+        assertEquals(Byte.MAX_VALUE, disk.getPriority());
+    }
+
+    @Test
+    void testReuseAcrossCycles() {
+
+        metricsDag.startCycle(120_000L);
+        metricsDag.complete(available);
+        metricsDag.complete(cpu);
+        metricsDag.complete(memory);
+        metricsDag.complete(disk);
+
+        // the disk metrics is not due in the next cycle
+        metricsDag.startCycle(180_000L);
+        Set<Metrics> first = metricsDag.first();
+        assertEquals(Set.of(available), first);
+        metricsDag.complete(available);
+        assertTrue(metricsDag.complete(memory).isEmpty());
+        assertNull(metricsDag.complete(cpu));
+
+        metricsDag.startCycle(240_000L);
+        assertSame(first, metricsDag.first());
+    }
+
+    @Test
+    void testNoMetricsDue() {
+
+        metricsDag.startCycle(120_000L);
+        metricsDag.startCycle(150_000L);
+        assertNull(metricsDag.first());
+        assertNull(metricsDag.complete(available));
+    }
+}